@@ -0,0 +1,223 @@
+/*
+ * Copyright (C) 2010, 2011, 2012 by Arne Kesting, Martin Treiber, Ralph Germ, Martin Budden
+ *                                   <movsim.org@gmail.com>
+ * -----------------------------------------------------------------------------------------
+ * 
+ * This file is part of
+ * 
+ * MovSim - the multi-model open-source vehicular-traffic simulator.
+ * 
+ * MovSim is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * MovSim is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MovSim. If not, see <http://www.gnu.org/licenses/>
+ * or <http://www.movsim.org>.
+ * 
+ * -----------------------------------------------------------------------------------------
+ */
+package org.movsim.batch;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.movsim.autogen.Movsim;
+import org.movsim.input.ProjectMetaData;
+import org.movsim.output.fileoutput.FileOutputBase;
+import org.movsim.simulator.SimulationContext;
+import org.movsim.simulator.Simulator;
+import org.movsim.simulator.roadnetwork.RoadNetwork;
+import org.movsim.utilities.Units;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Runs the variants of a scenario on a fixed number of worker threads.
+ * 
+ * <p>
+ * The scenario is parsed once, each variant runs on its own copy of the parsed input in its own
+ * {@link SimulationContext} and writes its output to a subdirectory of the output directory named after the variant.
+ * The road network is still built from the network file for each variant, since it holds the vehicles.
+ * </p>
+ */
+public class BatchRunner {
+
+    /** The Constant LOG. */
+    private static final Logger LOG = LoggerFactory.getLogger(BatchRunner.class);
+
+    private static final String SUMMARY_EXTENSION = ".summary.csv";
+
+    private final String projectName;
+    private final String pathToProjectFile;
+    private final File outputDirectory;
+    private final int threadCount;
+    /** the parsed scenario in serialized form, deserialized for each variant */
+    private final byte[] scenario;
+
+    /**
+     * Constructor.
+     * 
+     * @param projectName
+     *            the name of the scenario, the base name of the output files
+     * @param pathToProjectFile
+     *            the directory of the scenario, used to find the network file
+     * @param inputData
+     *            the parsed scenario, copied for each variant
+     * @param outputDirectory
+     *            the directory for the output of the variants and the summary
+     * @param threadCount
+     *            the number of variants simulated concurrently
+     */
+    public BatchRunner(String projectName, String pathToProjectFile, Movsim inputData, File outputDirectory,
+            int threadCount) {
+        Preconditions.checkArgument(threadCount > 0, "threadCount=%s", threadCount);
+        this.projectName = Preconditions.checkNotNull(projectName);
+        this.pathToProjectFile = Preconditions.checkNotNull(pathToProjectFile);
+        this.outputDirectory = Preconditions.checkNotNull(outputDirectory);
+        this.threadCount = threadCount;
+        this.scenario = serialize(inputData);
+    }
+
+    private static byte[] serialize(Movsim inputData) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(inputData);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("cannot copy scenario input", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private Movsim copyScenario() throws IOException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(scenario))) {
+            return (Movsim) in.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Runs the variants and waits until all of them have finished.
+     * 
+     * @param variants
+     *            the variants
+     * @return the results, in the order of the variants
+     * @throws InterruptedException
+     * @throws ExecutionException
+     *             if the simulation of a variant failed
+     */
+    public List<VariantResult> run(List<Variant> variants) throws InterruptedException, ExecutionException {
+        final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            final List<Future<VariantResult>> futures = new ArrayList<>(variants.size());
+            for (final Variant variant : variants) {
+                futures.add(executor.submit(new Callable<VariantResult>() {
+                    @Override
+                    public VariantResult call() throws Exception {
+                        return runVariant(variant);
+                    }
+                }));
+            }
+            final List<VariantResult> results = new ArrayList<>(variants.size());
+            for (final Future<VariantResult> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    VariantResult runVariant(Variant variant) throws Exception {
+        LOG.info("start {}", variant);
+        final Movsim inputData = copyScenario();
+        variant.apply(inputData);
+        // the variants already keep the worker threads busy
+        inputData.getScenario().getSimulation().setThreads(1);
+
+        final File variantDirectory = new File(outputDirectory, variant.getName());
+        if (!variantDirectory.isDirectory() && !variantDirectory.mkdirs()) {
+            throw new IOException("cannot create output directory " + variantDirectory);
+        }
+        final ProjectMetaData projectMetaData = ProjectMetaData.newInstance();
+        projectMetaData.setProjectName(projectName);
+        projectMetaData.setPathToProjectXmlFile(pathToProjectFile);
+        projectMetaData.setOutputPath(variantDirectory.getAbsolutePath());
+
+        final long startTimeMillis = System.currentTimeMillis();
+        final Simulator simulator = new Simulator(new SimulationContext(projectMetaData));
+        simulator.initialize(inputData);
+        simulator.runToCompletion();
+        final double elapsedTime = 0.001 * (System.currentTimeMillis() - startTimeMillis);
+
+        final RoadNetwork roadNetwork = simulator.getRoadNetwork();
+        final VariantResult result = new VariantResult(variant, simulator.getSimulationRunnable().simulationTime(),
+                roadNetwork.totalVehicleTravelTime(), roadNetwork.totalVehicleTravelDistance(),
+                roadNetwork.totalVehicleFuelUsedLiters(), roadNetwork.totalVehiclesRemoved(), elapsedTime);
+        LOG.info(String.format("finished %s after %.2fs", variant.getName(), elapsedTime));
+        return result;
+    }
+
+    /**
+     * Returns the summary file, <code>&lt;projectName&gt;.summary.csv</code> in the output directory.
+     */
+    public File getSummaryFile() {
+        return new File(outputDirectory, projectName + SUMMARY_EXTENSION);
+    }
+
+    /**
+     * Writes one line per variant with the swept parameter values and the totals of the variant.
+     * 
+     * @param results
+     *            the results of {@link #run(List)}
+     * @throws IOException
+     */
+    public void writeSummary(List<VariantResult> results) throws IOException {
+        try (PrintWriter writer = new PrintWriter(new FileWriter(getSummaryFile()))) {
+            final StringBuilder heading = new StringBuilder(FileOutputBase.COMMENT_CHAR).append("variant");
+            if (!results.isEmpty()) {
+                for (final String key : results.get(0).getVariant().getValues().keySet()) {
+                    heading.append(", ").append(key);
+                }
+            }
+            heading.append(", simulationTime[s], totalTravelTime[h], totalTravelDistance[km], fuelUsed[l]");
+            heading.append(", exitedVehicles, throughput[veh/h], elapsedTime[s]");
+            writer.println(heading);
+            for (final VariantResult result : results) {
+                final StringBuilder line = new StringBuilder(result.getVariant().getName());
+                for (final Map.Entry<String, Double> entry : result.getVariant().getValues().entrySet()) {
+                    line.append(", ").append(entry.getValue());
+                }
+                line.append(String.format(", %.2f, %.4f, %.4f, %.4f, %d, %.2f, %.3f", result.getSimulationTime(),
+                        result.getTotalTravelTime() * Units.S_TO_H, result.getTotalTravelDistance() * Units.M_TO_KM,
+                        result.getTotalFuelUsedLiters(), result.getExitedVehicles(), result.getThroughput(),
+                        result.getElapsedTime()));
+                writer.println(line);
+            }
+        }
+        LOG.info("wrote summary of {} variants to {}", results.size(), getSummaryFile());
+    }
+}
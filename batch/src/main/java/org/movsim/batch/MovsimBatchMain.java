@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2010, 2011, 2012 by Arne Kesting, Martin Treiber, Ralph Germ, Martin Budden
+ *                                   <movsim.org@gmail.com>
+ * -----------------------------------------------------------------------------------------
+ * 
+ * This file is part of
+ * 
+ * MovSim - the multi-model open-source vehicular-traffic simulator.
+ * 
+ * MovSim is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * MovSim is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MovSim. If not, see <http://www.gnu.org/licenses/>
+ * or <http://www.movsim.org>.
+ * 
+ * -----------------------------------------------------------------------------------------
+ */
+package org.movsim.batch;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.GnuParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.movsim.autogen.Movsim;
+import org.movsim.input.ProjectMetaData;
+import org.movsim.logging.Logger;
+import org.movsim.utilities.FileUtils;
+import org.movsim.xml.MovsimInputLoader;
+
+/**
+ * The Class MovsimBatchMain.
+ * 
+ * Command line interface for ensembles and parameter sweeps: simulates all variants of a sweep definition (see
+ * {@link Sweep}) for one scenario within a single JVM.
+ * 
+ */
+public class MovsimBatchMain {
+
+    /**
+     * The main method.
+     * 
+     * @param args
+     *            the command line arguments
+     */
+    public static void main(String[] args) throws IOException, InterruptedException, ExecutionException {
+
+        Locale.setDefault(Locale.US);
+
+        Logger.initializeLogger();
+
+        final Options options = createOptions();
+        CommandLine cmdline = null;
+        try {
+            cmdline = new GnuParser().parse(options, args);
+        } catch (ParseException e) {
+            System.err.println("Parsing failed.  Reason: " + e.getMessage());
+            optionHelp(options);
+        }
+        if (cmdline.hasOption("h") || !cmdline.hasOption("f")) {
+            optionHelp(options);
+        }
+
+        String filename = cmdline.getOptionValue('f');
+        if (!filename.endsWith(ProjectMetaData.getMovsimConfigFileEnding())) {
+            filename = filename + ProjectMetaData.getMovsimConfigFileEnding();
+        }
+        final File scenarioFile = new File(filename);
+        if (!scenarioFile.isFile()) {
+            System.err.println("Configuration file \"" + filename + "\" not found!");
+            System.exit(-1);
+        }
+        final String name = scenarioFile.getName();
+        final String projectName = name.substring(0, name.indexOf(ProjectMetaData.getMovsimConfigFileEnding()));
+
+        final Sweep sweep = cmdline.hasOption("s") ? Sweep.load(new File(cmdline.getOptionValue('s'))) : new Sweep();
+        final File outputDirectory = new File(cmdline.getOptionValue('o', "."));
+        if (!outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+            System.err.println("cannot create output directory \"" + outputDirectory + "\"");
+            System.exit(-1);
+        }
+        final int threadCount = cmdline.hasOption("t") ? Integer.parseInt(cmdline.getOptionValue('t')) : Runtime
+                .getRuntime().availableProcessors();
+
+        final Movsim inputData = MovsimInputLoader.getInputData(scenarioFile);
+        final BatchRunner batchRunner = new BatchRunner(projectName,
+                FileUtils.getCanonicalPathWithoutFilename(scenarioFile), inputData, outputDirectory, threadCount);
+        final List<Variant> variants = sweep.variants();
+        System.out.println(variants.size() + " variants on " + threadCount + " threads.");
+        final List<VariantResult> results = batchRunner.run(variants);
+        batchRunner.writeSummary(results);
+        System.out.println(results.size() + " variants done, summary written to " + batchRunner.getSummaryFile());
+    }
+
+    private static Options createOptions() {
+        final Options options = new Options();
+        options.addOption("h", "help", false, "prints this message");
+        options.addOption("f", "file", true, "movsim main configuration file (ending \""
+                + ProjectMetaData.getMovsimConfigFileEnding() + "\" will be added automatically if not provided)");
+        options.addOption("s", "sweep", true,
+                "sweep definition, a properties file with comma separated values per parameter, e.g. IDM.v0 = 25, 30");
+        options.addOption("o", "output", true, "output directory, one subdirectory per variant is created");
+        options.addOption("t", "threads", true, "number of variants simulated concurrently (default: number of cores)");
+        return options;
+    }
+
+    private static void optionHelp(Options options) {
+        final HelpFormatter formatter = new HelpFormatter();
+        formatter.printHelp("movsim-batch", options);
+        System.exit(0);
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2010, 2011, 2012 by Arne Kesting, Martin Treiber, Ralph Germ, Martin Budden
+ *                                   <movsim.org@gmail.com>
+ * -----------------------------------------------------------------------------------------
+ * 
+ * This file is part of
+ * 
+ * MovSim - the multi-model open-source vehicular-traffic simulator.
+ * 
+ * MovSim is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * MovSim is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MovSim. If not, see <http://www.gnu.org/licenses/>
+ * or <http://www.movsim.org>.
+ * 
+ * -----------------------------------------------------------------------------------------
+ */
+package org.movsim.batch;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Splitter;
+
+/**
+ * Definition of a parameter sweep: for each swept parameter a list of values. The variants are all combinations of
+ * these values.
+ * 
+ * <p>
+ * A sweep file is a properties file with comma separated values, for example:
+ * 
+ * <pre>
+ * seed = 1, 2, 3
+ * inflowScaling = 0.8, 1.0, 1.2
+ * IDM.v0 = 25, 30
+ * MOBIL.politeness = 0.1, 0.5
+ * </pre>
+ * 
+ * See {@link Variant#apply(org.movsim.autogen.Movsim)} for the supported keys.
+ * </p>
+ */
+public final class Sweep {
+
+    private static final Splitter VALUE_SPLITTER = Splitter.on(',').trimResults().omitEmptyStrings();
+
+    /** values sorted by key, so that the order of the variants does not depend on the order in the file */
+    private final Map<String, List<Double>> values = new TreeMap<>();
+
+    /**
+     * Reads a sweep definition from a properties file.
+     * 
+     * @param file
+     *            the sweep file
+     * @return the sweep
+     * @throws IOException
+     */
+    public static Sweep load(File file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            final Properties properties = new Properties();
+            properties.load(in);
+            final Sweep sweep = new Sweep();
+            for (final String key : properties.stringPropertyNames()) {
+                final List<Double> parameterValues = new ArrayList<>();
+                for (final String value : VALUE_SPLITTER.split(properties.getProperty(key))) {
+                    try {
+                        parameterValues.add(Double.valueOf(value));
+                    } catch (NumberFormatException e) {
+                        throw new IOException("invalid value \"" + value + "\" of " + key + " in " + file);
+                    }
+                }
+                sweep.add(key, parameterValues);
+            }
+            return sweep;
+        }
+    }
+
+    /**
+     * Adds a swept parameter.
+     * 
+     * @param key
+     *            the parameter key
+     * @param parameterValues
+     *            the values, at least one
+     * @return this sweep
+     */
+    public Sweep add(String key, List<Double> parameterValues) {
+        Preconditions.checkArgument(!parameterValues.isEmpty(), "no values for %s", key);
+        values.put(key, Collections.unmodifiableList(new ArrayList<>(parameterValues)));
+        return this;
+    }
+
+    public Map<String, List<Double>> getValues() {
+        return Collections.unmodifiableMap(values);
+    }
+
+    /**
+     * Returns the variants, the cartesian product of the parameter values. The last key varies fastest. A sweep
+     * without parameters has a single variant, the unchanged scenario.
+     * 
+     * @return the variants
+     */
+    public List<Variant> variants() {
+        int count = 1;
+        for (final List<Double> parameterValues : values.values()) {
+            count *= parameterValues.size();
+        }
+        final int digits = Math.max(3, Integer.toString(count - 1).length());
+        final List<Variant> variants = new ArrayList<>(count);
+        for (int index = 0; index < count; ++index) {
+            final Map<String, Double> variantValues = new LinkedHashMap<>();
+            int stride = count;
+            for (final Map.Entry<String, List<Double>> entry : values.entrySet()) {
+                final List<Double> parameterValues = entry.getValue();
+                stride /= parameterValues.size();
+                variantValues.put(entry.getKey(), parameterValues.get((index / stride) % parameterValues.size()));
+            }
+            variants.add(new Variant(String.format("variant_%0" + digits + "d", index), variantValues));
+        }
+        return variants;
+    }
+}
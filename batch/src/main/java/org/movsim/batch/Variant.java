@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2010, 2011, 2012 by Arne Kesting, Martin Treiber, Ralph Germ, Martin Budden
+ *                                   <movsim.org@gmail.com>
+ * -----------------------------------------------------------------------------------------
+ * 
+ * This file is part of
+ * 
+ * MovSim - the multi-model open-source vehicular-traffic simulator.
+ * 
+ * MovSim is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * MovSim is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MovSim. If not, see <http://www.gnu.org/licenses/>
+ * or <http://www.movsim.org>.
+ * 
+ * -----------------------------------------------------------------------------------------
+ */
+package org.movsim.batch;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.movsim.autogen.Inflow;
+import org.movsim.autogen.Movsim;
+import org.movsim.autogen.Road;
+import org.movsim.autogen.Simulation;
+import org.movsim.autogen.VehiclePrototypeConfiguration;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A single variant of a parameter sweep: a name and the values of the swept parameters, which are applied to a copy
+ * of the scenario input.
+ */
+public final class Variant {
+
+    /** Sweep key for the seed of the random number generator. */
+    public static final String SEED = "seed";
+    /** Sweep key for the factor applied to the inflows of all traffic sources and simple ramps. */
+    public static final String INFLOW_SCALING = "inflowScaling";
+
+    private final String name;
+    private final Map<String, Double> values;
+
+    /**
+     * Constructor.
+     * 
+     * @param name
+     *            the name of the variant, also the name of its output directory
+     * @param values
+     *            the parameter values keyed by sweep key, in the order of the columns of the summary
+     */
+    public Variant(String name, Map<String, Double> values) {
+        this.name = Preconditions.checkNotNull(name);
+        this.values = Collections.unmodifiableMap(new LinkedHashMap<>(values));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Map<String, Double> getValues() {
+        return values;
+    }
+
+    /**
+     * Applies the parameter values to the scenario input.
+     * 
+     * <p>
+     * Model parameters are given as <code>model.parameter</code>, for example <code>IDM.v0</code> or
+     * <code>MOBIL.politeness</code>, and are set for all vehicle prototypes which use the model.
+     * </p>
+     * 
+     * @param inputData
+     *            the scenario input, modified in place
+     * @throws IllegalArgumentException
+     *             if a key matches neither a seed, the inflow scaling nor a model parameter of any vehicle prototype
+     */
+    public void apply(Movsim inputData) {
+        for (final Map.Entry<String, Double> entry : values.entrySet()) {
+            final String key = entry.getKey();
+            final double value = entry.getValue().doubleValue();
+            if (key.equals(SEED)) {
+                applySeed(inputData.getScenario().getSimulation(), value);
+            } else if (key.equals(INFLOW_SCALING)) {
+                applyInflowScaling(inputData.getScenario().getSimulation(), value);
+            } else {
+                applyModelParameter(inputData, key, value);
+            }
+        }
+    }
+
+    private static void applySeed(Simulation simulation, double value) {
+        final int seed = (int) value;
+        Preconditions.checkArgument(seed == value, "seed must be an integer: %s", value);
+        simulation.setWithSeed(true);
+        simulation.setSeed(seed);
+    }
+
+    private static void applyInflowScaling(Simulation simulation, double factor) {
+        Preconditions.checkArgument(factor >= 0, "inflow scaling must not be negative: %s", factor);
+        for (final Road road : simulation.getRoad()) {
+            if (road.isSetTrafficSource()) {
+                scale(road.getTrafficSource().getInflow(), factor);
+            }
+            if (road.isSetSimpleRamp()) {
+                scale(road.getSimpleRamp().getInflow(), factor);
+            }
+        }
+    }
+
+    private static void scale(Iterable<Inflow> inflows, double factor) {
+        for (final Inflow inflow : inflows) {
+            inflow.setQPerHour(factor * inflow.getQPerHour());
+        }
+    }
+
+    private static void applyModelParameter(Movsim inputData, String key, double value) {
+        final int dot = key.indexOf('.');
+        Preconditions.checkArgument(dot > 0 && dot < key.length() - 1, "unknown sweep parameter: %s", key);
+        final String model = key.substring(0, dot);
+        final String parameter = key.substring(dot + 1);
+        int count = 0;
+        for (final VehiclePrototypeConfiguration prototype : inputData.getVehiclePrototypes()
+                .getVehiclePrototypeConfiguration()) {
+            Object parameters = modelParameters(prototype.getAccelerationModelType(), model);
+            if (parameters == null) {
+                parameters = modelParameters(prototype.getLaneChangeModelType(), model);
+            }
+            if (parameters != null) {
+                setParameter(parameters, parameter, value);
+                ++count;
+            }
+        }
+        Preconditions.checkArgument(count > 0, "no vehicle prototype uses the model of sweep parameter %s", key);
+    }
+
+    /**
+     * Returns the parameters of the given model, that is the result of <code>getModelParameter&lt;model&gt;()</code>,
+     * or null if the model type does not define or does not use this model.
+     */
+    private static Object modelParameters(Object modelType, String model) {
+        if (modelType == null) {
+            return null;
+        }
+        try {
+            return modelType.getClass().getMethod("getModelParameter" + model).invoke(modelType);
+        } catch (NoSuchMethodException e) {
+            return null;
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void setParameter(Object parameters, String parameter, double value) {
+        final String setter = "set" + Character.toUpperCase(parameter.charAt(0)) + parameter.substring(1);
+        try {
+            final Method method = parameters.getClass().getMethod(setter, double.class);
+            method.invoke(parameters, Double.valueOf(value));
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException("unknown parameter " + parameter + " of "
+                    + parameters.getClass().getSimpleName());
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Variant [name=" + name + ", values=" + values + "]";
+    }
+}
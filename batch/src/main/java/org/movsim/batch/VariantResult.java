@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2010, 2011, 2012 by Arne Kesting, Martin Treiber, Ralph Germ, Martin Budden
+ *                                   <movsim.org@gmail.com>
+ * -----------------------------------------------------------------------------------------
+ * 
+ * This file is part of
+ * 
+ * MovSim - the multi-model open-source vehicular-traffic simulator.
+ * 
+ * MovSim is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * MovSim is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MovSim. If not, see <http://www.gnu.org/licenses/>
+ * or <http://www.movsim.org>.
+ * 
+ * -----------------------------------------------------------------------------------------
+ */
+package org.movsim.batch;
+
+import org.movsim.utilities.Units;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * The totals of a finished variant of a batch run.
+ */
+public final class VariantResult {
+
+    private final Variant variant;
+    private final double simulationTime;
+    private final double totalTravelTime;
+    private final double totalTravelDistance;
+    private final double totalFuelUsedLiters;
+    private final int exitedVehicles;
+    private final double elapsedTime;
+
+    VariantResult(Variant variant, double simulationTime, double totalTravelTime, double totalTravelDistance,
+            double totalFuelUsedLiters, int exitedVehicles, double elapsedTime) {
+        this.variant = Preconditions.checkNotNull(variant);
+        this.simulationTime = simulationTime;
+        this.totalTravelTime = totalTravelTime;
+        this.totalTravelDistance = totalTravelDistance;
+        this.totalFuelUsedLiters = totalFuelUsedLiters;
+        this.exitedVehicles = exitedVehicles;
+        this.elapsedTime = elapsedTime;
+    }
+
+    public Variant getVariant() {
+        return variant;
+    }
+
+    /**
+     * @return the simulated time in seconds
+     */
+    public double getSimulationTime() {
+        return simulationTime;
+    }
+
+    /**
+     * @return the total travel time in seconds of all vehicles, including those that have exited the network
+     */
+    public double getTotalTravelTime() {
+        return totalTravelTime;
+    }
+
+    /**
+     * @return the total travel distance in meters of all vehicles, including those that have exited the network
+     */
+    public double getTotalTravelDistance() {
+        return totalTravelDistance;
+    }
+
+    /**
+     * @return the total fuel in liters used by all vehicles, including those that have exited the network
+     */
+    public double getTotalFuelUsedLiters() {
+        return totalFuelUsedLiters;
+    }
+
+    /**
+     * @return the number of vehicles that have exited the network through its sinks
+     */
+    public int getExitedVehicles() {
+        return exitedVehicles;
+    }
+
+    /**
+     * @return the throughput in vehicles per hour, the exited vehicles averaged over the simulated time
+     */
+    public double getThroughput() {
+        return simulationTime > 0 ? exitedVehicles / (simulationTime * Units.S_TO_H) : 0;
+    }
+
+    /**
+     * @return the wall clock time in seconds needed for the simulation of the variant
+     */
+    public double getElapsedTime() {
+        return elapsedTime;
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2010, 2011, 2012 by Arne Kesting, Martin Treiber, Ralph Germ, Martin Budden
+ *                                   <movsim.org@gmail.com>
+ * -----------------------------------------------------------------------------------------
+ * 
+ * This file is part of
+ * 
+ * MovSim - the multi-model open-source vehicular-traffic simulator.
+ * 
+ * MovSim is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * MovSim is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MovSim. If not, see <http://www.gnu.org/licenses/>
+ * or <http://www.movsim.org>.
+ * 
+ * -----------------------------------------------------------------------------------------
+ */
+package org.movsim.batch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.movsim.autogen.Movsim;
+import org.movsim.autogen.VehiclePrototypeConfiguration;
+import org.movsim.xml.MovsimInputLoader;
+
+public class BatchRunnerTest {
+
+    private static final String SIM_PATH = ".." + File.separator + "sim" + File.separator + "bookScenarioSimpleOnramp"
+            + File.separator;
+    private static final String SCENARIO = "onramp_IDM";
+
+    @Rule
+    public TemporaryFolder outputFolder = new TemporaryFolder();
+
+    private static Movsim loadScenario() {
+        final Movsim inputData = MovsimInputLoader.getInputData(new File(SIM_PATH + SCENARIO + ".xprj"));
+        inputData.getScenario().getSimulation().setDuration(300);
+        return inputData;
+    }
+
+    private BatchRunner createRunner(Movsim inputData, String directory, int threadCount) throws Exception {
+        final File outputDirectory = outputFolder.newFolder(directory);
+        return new BatchRunner(SCENARIO, new File(SIM_PATH).getAbsolutePath() + File.separator, inputData,
+                outputDirectory, threadCount);
+    }
+
+    private static Sweep sweep() {
+        return new Sweep().add(Variant.SEED, Arrays.asList(1.0, 2.0)).add("IDM.v0", Arrays.asList(20.0, 30.0));
+    }
+
+    @Test
+    public void testRun() throws Exception {
+        final Movsim inputData = loadScenario();
+        final BatchRunner batchRunner = createRunner(inputData, "batch", 2);
+        final List<Variant> variants = sweep().variants();
+        final List<VariantResult> results = batchRunner.run(variants);
+        batchRunner.writeSummary(results);
+
+        assertEquals(4, results.size());
+        for (int i = 0; i < results.size(); ++i) {
+            final VariantResult result = results.get(i);
+            assertEquals(variants.get(i), result.getVariant());
+            assertEquals(300, result.getSimulationTime(), 0.5);
+            assertTrue(result.getTotalTravelTime() > 0);
+            assertTrue(result.getExitedVehicles() > 0);
+            assertTrue(result.getThroughput() > 0);
+            final File variantDirectory = new File(batchRunner.getSummaryFile().getParentFile(), variants.get(i)
+                    .getName());
+            assertTrue(new File(variantDirectory, SCENARIO + ".traj.route_main.csv").isFile());
+        }
+        // the lower desired speed increases the travel time
+        assertTrue(results.get(0).getTotalTravelTime() > results.get(2).getTotalTravelTime());
+
+        final List<String> lines = Files.readAllLines(batchRunner.getSummaryFile().toPath(), StandardCharsets.UTF_8);
+        assertEquals(5, lines.size());
+        assertTrue(lines.get(0).startsWith("#variant, IDM.v0, seed, "));
+        assertTrue(lines.get(1).startsWith("variant_000, 20.0, 1.0, "));
+
+        // the parsed scenario is not modified by the variants
+        for (final VehiclePrototypeConfiguration prototype : inputData.getVehiclePrototypes()
+                .getVehiclePrototypeConfiguration()) {
+            assertEquals(33.33, prototype.getAccelerationModelType().getModelParameterIDM().getV0(), 0);
+        }
+    }
+
+    @Test
+    public void testConcurrentVariantsAreReproducible() throws Exception {
+        final List<Variant> variants = sweep().variants();
+        final List<VariantResult> sequential = createRunner(loadScenario(), "sequential", 1).run(variants);
+        final List<VariantResult> concurrent = createRunner(loadScenario(), "concurrent", 4).run(variants);
+        for (int i = 0; i < variants.size(); ++i) {
+            assertEquals(sequential.get(i).getTotalTravelTime(), concurrent.get(i).getTotalTravelTime(), 0);
+            assertEquals(sequential.get(i).getTotalTravelDistance(), concurrent.get(i).getTotalTravelDistance(), 0);
+            assertEquals(sequential.get(i).getExitedVehicles(), concurrent.get(i).getExitedVehicles());
+        }
+    }
+
+    @Test
+    public void testInflowScaling() throws Exception {
+        final Movsim inputData = loadScenario();
+        final Sweep sweep = new Sweep().add(Variant.INFLOW_SCALING, Arrays.asList(0.5));
+        sweep.variants().get(0).apply(inputData);
+        assertEquals(100, inputData.getScenario().getSimulation().getRoad().get(0).getTrafficSource().getInflow()
+                .get(0).getQPerHour(), 1e-9);
+        assertEquals(275, inputData.getScenario().getSimulation().getRoad().get(1).getSimpleRamp().getInflow().get(0)
+                .getQPerHour(), 1e-9);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownParameter() {
+        new Sweep().add("IDM.unknown", Arrays.asList(1.0)).variants().get(0).apply(loadScenario());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnusedModel() {
+        new Sweep().add("MOBIL.politeness", Arrays.asList(0.5)).variants().get(0).apply(loadScenario());
+    }
+}
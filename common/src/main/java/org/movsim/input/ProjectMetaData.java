@@ -27,6 +27,9 @@ package org.movsim.input;
 
 import java.io.File;
 import java.io.InputStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
@@ -50,6 +53,9 @@ public final class ProjectMetaData {
 
     private static ProjectMetaData singleton = new ProjectMetaData();
 
+    /** instance bound to the current thread by a simulation running with its own project data */
+    private static final ThreadLocal<ProjectMetaData> bound = new ThreadLocal<>();
+
     private String projectName;
     private String pathToProjectXmlFile;
     private String outputPath;
@@ -60,10 +66,15 @@ public final class ProjectMetaData {
     private String consumptionPath;
 
     private boolean instantaneousFileOutput = true;
+
+    private boolean asynchronousFileOutput = true;
     // private boolean onlyValidation = false;
 
     private long timeOffsetMillis = 0;
 
+    /** the writers of the compressed output files of this simulation, completed when the simulation is complete */
+    private final List<PrintWriter> compressedWriters = new ArrayList<>();
+
     /**
      * Needed for Applet. Change to true, if you cannot access the file system.
      * Allows to read the config files from resources instead.
@@ -86,12 +97,39 @@ public final class ProjectMetaData {
     }
 
     /**
-     * Gets the single instance of ProjectMetaData.
+     * Gets the single instance of ProjectMetaData, or the instance bound to the current thread.
      * 
      * @return single instance of ProjectMetaData
      */
     public static ProjectMetaData getInstance() {
-        return singleton;
+        final ProjectMetaData instance = bound.get();
+        return instance == null ? singleton : instance;
+    }
+
+    /**
+     * Creates a separate instance for a simulation which runs concurrently with other simulations in the same JVM.
+     * 
+     * @return new instance of ProjectMetaData
+     */
+    public static ProjectMetaData newInstance() {
+        return new ProjectMetaData();
+    }
+
+    /**
+     * Binds the instance to the current thread, {@link #getInstance()} then returns this instance.
+     * 
+     * @param instance
+     *            the instance, null to use the single instance again
+     * @return the previously bound instance, may be null
+     */
+    public static ProjectMetaData bind(ProjectMetaData instance) {
+        final ProjectMetaData previous = bound.get();
+        if (instance == null) {
+            bound.remove();
+        } else {
+            bound.set(instance);
+        }
+        return previous;
     }
 
     public boolean hasProjectName() {
@@ -197,6 +235,45 @@ public final class ProjectMetaData {
         this.instantaneousFileOutput = instantaneousFileOutput;
     }
 
+    /**
+     * Returns true if the file outputs are written by the writer thread of the output pipeline instead of the
+     * simulation thread.
+     * 
+     * @return true if the file output is asynchronous
+     */
+    public boolean isAsynchronousFileOutput() {
+        return asynchronousFileOutput;
+    }
+
+    public void setAsynchronousFileOutput(boolean asynchronousFileOutput) {
+        this.asynchronousFileOutput = asynchronousFileOutput;
+    }
+
+    /**
+     * Registers the writer of a compressed output file of this simulation, see {@link #closeCompressedWriters()}.
+     * 
+     * @param writer
+     */
+    public void addCompressedWriter(PrintWriter writer) {
+        synchronized (compressedWriters) {
+            compressedWriters.add(writer);
+        }
+    }
+
+    /**
+     * Closes the writers of the compressed output files of this simulation created so far, which writes the end of
+     * the compressed data. Called when the simulation is complete, the files cannot be written afterwards. The files
+     * of other simulations running concurrently with their own instance are not affected.
+     */
+    public void closeCompressedWriters() {
+        synchronized (compressedWriters) {
+            for (final PrintWriter writer : compressedWriters) {
+                writer.close();
+            }
+            compressedWriters.clear();
+        }
+    }
+
     public boolean isXmlFromResources() {
         return xmlFromResources;
     }
@@ -319,6 +396,18 @@ public final class ProjectMetaData {
     }
 
     public String getFormatedTimeWithOffset(double simulationTime) {
+        return formatTimeWithOffset(timeOffsetMillis, simulationTime);
+    }
+
+    /**
+     * Formats the simulation time plus the offset as ISO date time in UTC.
+     * 
+     * @param timeOffsetMillis
+     * @param simulationTime
+     *            in seconds
+     * @return the formatted time
+     */
+    public static String formatTimeWithOffset(long timeOffsetMillis, double simulationTime) {
         DateTime dateTime = new DateTime(timeOffsetMillis + Math.round(1000 * simulationTime), DateTimeZone.UTC);
         return ISODateTimeFormat.dateTimeNoMillis().print(dateTime);
     }
@@ -28,29 +28,68 @@ package org.movsim.output.fileoutput;
 import java.io.File;
 import java.io.PrintWriter;
 
+import org.movsim.input.ProjectMetaData;
 import org.movsim.utilities.FileUtils;
 
+import com.google.common.base.Preconditions;
+
 public class FileOutputBase {
 
     public static final String COMMENT_CHAR = "#";
 
     protected final String path;
     protected final String baseFilename;
+    protected final OutputCompression compression;
     protected PrintWriter writer;
 
     /**
      * Constructor, sets the path and base filename.
      */
     public FileOutputBase(String path, String baseFilename) {
+        this(path, baseFilename, OutputCompression.NONE);
+    }
+
+    /**
+     * Constructor, sets the path, base filename and the compression of the files.
+     */
+    public FileOutputBase(String path, String baseFilename, OutputCompression compression) {
         this.path = path;
         this.baseFilename = baseFilename;
+        this.compression = Preconditions.checkNotNull(compression);
     }
 
+    /**
+     * Creates the writer for the file with the given extension. With asynchronous file output, see
+     * {@link ProjectMetaData#isAsynchronousFileOutput()}, the writer enqueues its output into the
+     * {@link OutputPipeline#getDefault() output pipeline} and {@link PrintWriter#flush()} does not wait for the disk.
+     * With compression the {@link OutputCompression#EXTENSION} is appended to the filename and the file is completed
+     * by {@link ProjectMetaData#closeCompressedWriters()} of the simulation.
+     * 
+     * @param extension
+     * @return the writer, null if the file cannot be opened
+     */
     public PrintWriter createWriter(String extension) {
-        final String filename = path + File.separator + baseFilename + extension;
-        return FileUtils.getWriter(filename);
+        final String filename = compression.filename(path + File.separator + baseFilename + extension);
+        final PrintWriter fileWriter = FileUtils.getWriter(filename, compression);
+        if (fileWriter == null) {
+            return null;
+        }
+        final ProjectMetaData projectMetaData = ProjectMetaData.getInstance();
+        final PrintWriter outputWriter = projectMetaData.isAsynchronousFileOutput() ? OutputPipeline.getDefault()
+                .newWriter(fileWriter) : fileWriter;
+        if (compression.isEnabled()) {
+            projectMetaData.addCompressedWriter(outputWriter);
+        }
+        return outputWriter;
     }
 
+    /**
+     * Writes a formatted record. The arguments must be immutable since they may be formatted later by the output
+     * pipeline.
+     * 
+     * @param format
+     * @param args
+     */
     public void write(String format, Object... args) {
         writer.printf(format, args);
         writer.flush();
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2010, 2011, 2012 by Arne Kesting, Martin Treiber, Ralph Germ, Martin Budden
+ * <movsim.org@gmail.com>
+ * -----------------------------------------------------------------------------------------
+ * 
+ * This file is part of
+ * 
+ * MovSim - the multi-model open-source vehicular-traffic simulator.
+ * 
+ * MovSim is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * MovSim is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MovSim. If not, see <http://www.gnu.org/licenses/>
+ * or <http://www.movsim.org>.
+ * 
+ * -----------------------------------------------------------------------------------------
+ */
+package org.movsim.output.fileoutput;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * <p>
+ * Stream compression of a file output, selected per output in the project file. The compressed files are written in
+ * the gzip format with the JDK {@link Deflater}, they can be read with {@link org.movsim.utilities.FileUtils#getReader}
+ * and {@link org.movsim.utilities.FileUtils#openInputStream} or with the common gzip tools.
+ * </p>
+ * <p>
+ * The text is collected in blocks of {@code blockSize} bytes before it is handed to the deflater. With asynchronous
+ * file output the deflater runs on the writer thread of the {@link OutputPipeline}, not on the simulation thread. A
+ * compressed file is complete only after its writer has been closed, see
+ * {@link org.movsim.input.ProjectMetaData#closeCompressedWriters()}.
+ * </p>
+ */
+public final class OutputCompression {
+
+    /** file extension appended to the name of a compressed file */
+    public static final String EXTENSION = ".gz";
+
+    public static final int DEFAULT_LEVEL = Deflater.DEFAULT_COMPRESSION;
+
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 16;
+
+    /** no compression, the files are written as plain text */
+    public static final OutputCompression NONE = new OutputCompression(false, DEFAULT_LEVEL, DEFAULT_BLOCK_SIZE);
+
+    private final boolean enabled;
+    private final int level;
+    private final int blockSize;
+
+    private OutputCompression(boolean enabled, int level, int blockSize) {
+        this.enabled = enabled;
+        this.level = level;
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Returns the compression with the given deflater level and block size.
+     * 
+     * @param level
+     *            deflater level from 0 (no compression) to 9 (best compression) or -1 for the default level
+     * @param blockSize
+     *            size of the blocks handed to the deflater, in bytes
+     * @return the compression
+     */
+    public static OutputCompression of(int level, int blockSize) {
+        Preconditions.checkArgument(level == Deflater.DEFAULT_COMPRESSION
+                || (level >= Deflater.NO_COMPRESSION && level <= Deflater.BEST_COMPRESSION), "level=" + level);
+        Preconditions.checkArgument(blockSize > 0, "blockSize=" + blockSize);
+        return new OutputCompression(true, level, blockSize);
+    }
+
+    /**
+     * Returns the compression as configured by the compression attributes of an output element, {@link #NONE} if
+     * compression is not enabled.
+     * 
+     * @param enabled
+     * @param level
+     * @param blockSize
+     * @return the compression
+     */
+    public static OutputCompression of(boolean enabled, int level, int blockSize) {
+        return enabled ? of(level, blockSize) : NONE;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Returns the name of the file written with this compression.
+     * 
+     * @param filename
+     *            the name of the uncompressed file
+     * @return the filename with the {@link #EXTENSION} appended if compression is enabled
+     */
+    public String filename(String filename) {
+        return enabled ? filename + EXTENSION : filename;
+    }
+
+    /**
+     * Wraps the given stream into a compressing stream, closing the returned stream finishes the compressed data and
+     * closes the given stream.
+     * 
+     * @param out
+     *            the stream of the file
+     * @return the compressing stream, or {@code out} if compression is not enabled
+     * @throws IOException
+     */
+    public OutputStream wrap(OutputStream out) throws IOException {
+        if (!enabled) {
+            return out;
+        }
+        return new BufferedOutputStream(new LevelGZIPOutputStream(out, blockSize, level), blockSize);
+    }
+
+    @Override
+    public String toString() {
+        return enabled ? "OutputCompression [level=" + level + ", blockSize=" + blockSize + "]"
+                : "OutputCompression [none]";
+    }
+
+    private static final class LevelGZIPOutputStream extends GZIPOutputStream {
+        LevelGZIPOutputStream(OutputStream out, int size, int level) throws IOException {
+            super(out, size);
+            def.setLevel(level);
+        }
+    }
+}
@@ -0,0 +1,389 @@
+/*
+ * Copyright (C) 2010, 2011, 2012 by Arne Kesting, Martin Treiber, Ralph Germ, Martin Budden
+ * <movsim.org@gmail.com>
+ * -----------------------------------------------------------------------------------------
+ * 
+ * This file is part of
+ * 
+ * MovSim - the multi-model open-source vehicular-traffic simulator.
+ * 
+ * MovSim is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * MovSim is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MovSim. If not, see <http://www.gnu.org/licenses/>
+ * or <http://www.movsim.org>.
+ * 
+ * -----------------------------------------------------------------------------------------
+ */
+package org.movsim.output.fileoutput;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * <p>
+ * Asynchronous output pipeline for the file outputs. The simulation threads enqueue the records of all files into a
+ * single bounded queue and a dedicated writer thread formats them and writes them to the buffered files. The records
+ * of one file are written in the order they were enqueued.
+ * </p>
+ * <p>
+ * Backpressure: if the queue is full, the simulation thread blocks until the writer thread has caught up, no records
+ * are dropped. Durability: the files are flushed by the writer thread after {@code flushIntervalMillis}, on
+ * {@link #flush()} and when a writer or the pipeline is closed, {@link PrintWriter#flush()} of a pipeline writer does
+ * not wait for the disk. Shutdown: the default pipeline drains the queue and flushes its files in a shutdown hook of the
+ * JVM; after {@link #close()} the records are written synchronously by the calling thread.
+ * </p>
+ * <p>
+ * The arguments of a formatted record are formatted later on the writer thread, they must therefore be immutable, like
+ * boxed numbers and strings.
+ * </p>
+ */
+public class OutputPipeline {
+
+    private static final Logger LOG = LoggerFactory.getLogger(OutputPipeline.class);
+
+    /** default capacity of the queue, in records */
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    /** default interval for flushing the files, in milliseconds */
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 1000;
+
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+    private static OutputPipeline defaultInstance;
+
+    private final BlockingQueue<Record> queue;
+
+    private final long flushIntervalMillis;
+
+    private final Thread writerThread;
+
+    /** the files written since the last flush, only accessed by the writer thread */
+    private final Set<PrintWriter> dirty = new LinkedHashSet<>();
+
+    private volatile boolean closed;
+
+    /**
+     * Constructor, starts the writer thread.
+     * 
+     * @param capacity
+     *            capacity of the queue, in records
+     * @param flushIntervalMillis
+     *            interval for flushing the files, in milliseconds
+     */
+    public OutputPipeline(int capacity, long flushIntervalMillis) {
+        Preconditions.checkArgument(capacity > 0, "capacity=" + capacity);
+        Preconditions.checkArgument(flushIntervalMillis > 0, "flushIntervalMillis=" + flushIntervalMillis);
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.flushIntervalMillis = flushIntervalMillis;
+        writerThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                processRecords();
+            }
+        }, "movsim-output");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Returns the pipeline shared by the file outputs, which is created on the first call and closed when the JVM
+     * shuts down.
+     * 
+     * @return the default pipeline
+     */
+    public static synchronized OutputPipeline getDefault() {
+        if (defaultInstance == null) {
+            final OutputPipeline pipeline = new OutputPipeline(DEFAULT_CAPACITY, DEFAULT_FLUSH_INTERVAL_MILLIS);
+            Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    pipeline.close();
+                }
+            }, "movsim-output-shutdown"));
+            defaultInstance = pipeline;
+        }
+        return defaultInstance;
+    }
+
+    /**
+     * Flushes the default pipeline, if it has been created, see {@link #flush()}.
+     */
+    public static void flushDefault() {
+        final OutputPipeline pipeline;
+        synchronized (OutputPipeline.class) {
+            pipeline = defaultInstance;
+        }
+        if (pipeline != null) {
+            pipeline.flush();
+        }
+    }
+
+    /**
+     * Returns a writer which enqueues everything written to it into this pipeline. The given writer is only accessed by
+     * the writer thread afterwards.
+     * 
+     * @param target
+     *            the writer of the file
+     * @return the pipeline writer
+     */
+    public PrintWriter newWriter(PrintWriter target) {
+        return new PipelineWriter(this, Preconditions.checkNotNull(target));
+    }
+
+    /**
+     * Waits until all records enqueued so far are written and the files are flushed.
+     */
+    public void flush() {
+        final CountDownLatch written = new CountDownLatch(1);
+        enqueue(new Record(Kind.FLUSH, null, null, null, written));
+        try {
+            written.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writes all records enqueued so far, flushes the files and stops the writer thread. Records enqueued afterwards are
+     * written and flushed synchronously by the calling thread.
+     */
+    public void close() {
+        if (closed) {
+            return;
+        }
+        final CountDownLatch written = new CountDownLatch(1);
+        enqueue(new Record(Kind.STOP, null, null, null, written));
+        try {
+            written.await();
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void enqueue(Record record) {
+        try {
+            queue.put(record);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.error("interrupted while writing to the output pipeline, record dropped");
+            return;
+        }
+        if (closed) {
+            // the writer thread has stopped, write synchronously
+            synchronized (this) {
+                drainSynchronously();
+            }
+        }
+    }
+
+    private void drainSynchronously() {
+        final List<Record> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        for (final Record record : remaining) {
+            applyAndFlush(record);
+        }
+    }
+
+    private void applyAndFlush(Record record) {
+        apply(record);
+        if (record.kind == Kind.TEXT || record.kind == Kind.FORMAT) {
+            record.target.flush();
+        }
+    }
+
+    private void processRecords() {
+        final List<Record> records = new ArrayList<>();
+        long lastFlush = System.currentTimeMillis();
+        while (true) {
+            try {
+                final Record first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    records.add(first);
+                    queue.drainTo(records);
+                }
+            } catch (InterruptedException e) {
+                // the writer thread is only stopped by a stop record
+            }
+            for (final Record record : records) {
+                if (record.kind == Kind.STOP) {
+                    stop(records.subList(records.indexOf(record) + 1, records.size()));
+                    record.written.countDown();
+                    return;
+                }
+                try {
+                    apply(record);
+                } catch (RuntimeException e) {
+                    LOG.error("cannot write output record", e);
+                }
+            }
+            records.clear();
+            final long now = System.currentTimeMillis();
+            if (now - lastFlush >= flushIntervalMillis) {
+                flushDirty();
+                lastFlush = now;
+            }
+        }
+    }
+
+    private void stop(List<Record> late) {
+        synchronized (this) {
+            flushDirty();
+            closed = true;
+            // records behind the stop record and records enqueued before the pipeline was marked as closed
+            for (final Record record : late) {
+                applyAndFlush(record);
+            }
+            drainSynchronously();
+        }
+    }
+
+    private void apply(Record record) {
+        final PrintWriter target = record.target;
+        switch (record.kind) {
+        case TEXT:
+            target.write(record.text);
+            break;
+        case FORMAT:
+            target.format(record.text, record.args);
+            break;
+        case CLOSE:
+            target.close();
+            dirty.remove(target);
+            return;
+        case FLUSH:
+            flushDirty();
+            record.written.countDown();
+            return;
+        default:
+            // a stop record behind the first one
+            record.written.countDown();
+            return;
+        }
+        if (!closed) {
+            dirty.add(target);
+        }
+    }
+
+    private void flushDirty() {
+        for (final PrintWriter target : dirty) {
+            target.flush();
+        }
+        dirty.clear();
+    }
+
+    private enum Kind {
+        TEXT, FORMAT, CLOSE, FLUSH, STOP
+    }
+
+    /**
+     * A chunk of text or a formatted record for a file, or a control record.
+     */
+    private static final class Record {
+        final Kind kind;
+        final PrintWriter target;
+        final String text;
+        final Object[] args;
+        final CountDownLatch written;
+
+        Record(Kind kind, PrintWriter target, String text, Object[] args, CountDownLatch written) {
+            this.kind = kind;
+            this.target = target;
+            this.text = text;
+            this.args = args;
+            this.written = written;
+        }
+    }
+
+    /**
+     * The writer handed out to the file outputs. All text is enqueued, formatting is deferred to the writer thread.
+     */
+    private static final class PipelineWriter extends PrintWriter {
+        private final OutputPipeline pipeline;
+        private final PrintWriter target;
+
+        PipelineWriter(OutputPipeline pipeline, PrintWriter target) {
+            super(target);
+            this.pipeline = pipeline;
+            this.target = target;
+        }
+
+        private void enqueueText(String text) {
+            pipeline.enqueue(new Record(Kind.TEXT, target, text, null, null));
+        }
+
+        @Override
+        public void write(int c) {
+            enqueueText(String.valueOf((char) c));
+        }
+
+        @Override
+        public void write(char[] buf, int off, int len) {
+            enqueueText(new String(buf, off, len));
+        }
+
+        @Override
+        public void write(String s, int off, int len) {
+            enqueueText(s.substring(off, off + len));
+        }
+
+        @Override
+        public void println() {
+            enqueueText(LINE_SEPARATOR);
+        }
+
+        @Override
+        public PrintWriter format(String format, Object... args) {
+            pipeline.enqueue(new Record(Kind.FORMAT, target, format, args == null ? new Object[0] : args, null));
+            return this;
+        }
+
+        @Override
+        public PrintWriter format(Locale l, String format, Object... args) {
+            if (l == null || l.equals(Locale.getDefault(Locale.Category.FORMAT))) {
+                return format(format, args);
+            }
+            enqueueText(String.format(l, format, args));
+            return this;
+        }
+
+        /**
+         * Does not wait for the disk, the files are flushed by the writer thread, see {@link OutputPipeline}.
+         */
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+            pipeline.enqueue(new Record(Kind.CLOSE, target, null, null, null));
+        }
+
+        @Override
+        public boolean checkError() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2010, 2011, 2012 by Arne Kesting, Martin Treiber, Ralph Germ, Martin Budden
+ * <movsim.org@gmail.com>
+ * -----------------------------------------------------------------------------------------
+ * 
+ * This file is part of
+ * 
+ * MovSim - the multi-model open-source vehicular-traffic simulator.
+ * 
+ * MovSim is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * MovSim is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MovSim. If not, see <http://www.gnu.org/licenses/>
+ * or <http://www.movsim.org>.
+ * 
+ * -----------------------------------------------------------------------------------------
+ */
+package org.movsim.output.trajectories;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import org.movsim.input.ProjectMetaData;
+import org.movsim.output.fileoutput.FileOutputBase;
+import org.movsim.utilities.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Converts the binary trajectory output to the csv layout of the text trajectory output. The values are those of the
+ * binary file, so the last printed digit may differ from the text output where a value lies at a rounding boundary,
+ * and values which round to zero lose their sign.
+ */
+public final class TrajectoryCsvConverter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TrajectoryCsvConverter.class);
+
+    public static final String BINARY_EXTENSION = ".bin";
+
+    public static final String CSV_EXTENSION = ".csv";
+
+    /** heading of the csv trajectory output */
+    public static final String OUTPUT_HEADING = FileOutputBase.COMMENT_CHAR
+            + "     t[s], lane,       x[m],     v[m/s],   a[m/s^2],     gap[m],    dv[m/s], label,           id,  roadId, originId, infoComment, absTime, xWithOffset[m]";
+
+    /** format of a line of the csv trajectory output */
+    public static final String OUTPUT_FORMAT = "%10.2f, %4d, %10.1f, %10.4f, %10.5f, %10.2f, %10.6f,  %s, %12d, %8d, %8d, %s, %s, %10.4f%n";
+
+    private TrajectoryCsvConverter() {
+        throw new IllegalStateException("do not instanciate");
+    }
+
+    /**
+     * Writes the header lines of the csv trajectory output.
+     * 
+     * @param writer
+     * @param routeDescription
+     */
+    public static void writeHeader(PrintWriter writer, String routeDescription) {
+        writer.println(String.format("%s %s", FileOutputBase.COMMENT_CHAR, routeDescription));
+        writer.println(OUTPUT_HEADING);
+    }
+
+    /**
+     * Converts all records of the reader, chunk by chunk.
+     * 
+     * @param reader
+     * @param writer
+     * @throws IOException
+     */
+    public static void convert(TrajectoryReader reader, PrintWriter writer) throws IOException {
+        writeHeader(writer, reader.routeDescription());
+        final TrajectoryVehicle unknown = new TrajectoryVehicle(0, "", 0, "");
+        for (int i = 0, n = reader.chunkCount(); i < n; i++) {
+            String formattedTime = null;
+            double formattedTimeValue = Double.NaN;
+            for (final TrajectoryRecord record : reader.readChunk(i)) {
+                if (record.time() != formattedTimeValue) {
+                    formattedTimeValue = record.time();
+                    formattedTime = ProjectMetaData.formatTimeWithOffset(reader.timeOffsetMillis(), record.time());
+                }
+                final TrajectoryVehicle vehicle = reader.vehicle(record.vehicleId());
+                final TrajectoryVehicle info = vehicle == null ? unknown : vehicle;
+                writer.printf(OUTPUT_FORMAT, record.time(), record.lane(), record.position(), record.speed(),
+                        record.acceleration(), record.gap(), record.relativeSpeed(), info.label(),
+                        record.vehicleId(), record.roadSegmentId(), info.originRoadSegmentId(), info.infoComment(),
+                        formattedTime, record.position() + reader.offsetPosition());
+            }
+        }
+        writer.flush();
+    }
+
+    /**
+     * Converts a binary trajectory file to a csv file.
+     * 
+     * @param binaryFile
+     * @param csvFile
+     * @throws IOException
+     */
+    public static void convert(File binaryFile, File csvFile) throws IOException {
+        try (TrajectoryReader reader = new TrajectoryReader(binaryFile)) {
+            final PrintWriter writer = FileUtils.getWriter(csvFile.getPath());
+            if (writer == null) {
+                throw new IOException("cannot open file for writing: " + csvFile);
+            }
+            try {
+                convert(reader, writer);
+            } finally {
+                writer.close();
+            }
+        }
+        LOG.info("converted {} to {}", binaryFile, csvFile);
+    }
+
+    /**
+     * Converts the binary trajectory files given as arguments. The csv file name replaces the extension
+     * {@value #BINARY_EXTENSION} by {@value #CSV_EXTENSION}, an explicit csv file name may follow a single binary file.
+     * 
+     * @param args
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("usage: TrajectoryCsvConverter <file" + BINARY_EXTENSION + ">... | <file"
+                    + BINARY_EXTENSION + "> <file" + CSV_EXTENSION + ">");
+            System.exit(1);
+        }
+        if (args.length == 2 && args[1].endsWith(CSV_EXTENSION)) {
+            convert(new File(args[0]), new File(args[1]));
+            return;
+        }
+        for (final String filename : args) {
+            final String base = filename.endsWith(BINARY_EXTENSION) ? filename.substring(0, filename.length()
+                    - BINARY_EXTENSION.length()) : filename;
+            convert(new File(filename), new File(base + CSV_EXTENSION));
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2010, 2011, 2012 by Arne Kesting, Martin Treiber, Ralph Germ, Martin Budden
+ * <movsim.org@gmail.com>
+ * -----------------------------------------------------------------------------------------
+ * 
+ * This file is part of
+ * 
+ * MovSim - the multi-model open-source vehicular-traffic simulator.
+ * 
+ * MovSim is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * MovSim is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MovSim. If not, see <http://www.gnu.org/licenses/>
+ * or <http://www.movsim.org>.
+ * 
+ * -----------------------------------------------------------------------------------------
+ */
+package org.movsim.output.trajectories;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Locale;
+
+/**
+ * <p>
+ * Constants and the column encoding of the binary trajectory format.
+ * </p>
+ * <p>
+ * A file consists of a header, a sequence of chunks and an index footer:
+ * </p>
+ * 
+ * <pre>
+ * header:  int FILE_MAGIC, int VERSION, UTF routeName, UTF routeDescription, long timeOffsetMillis,
+ *          double offsetPosition
+ * chunk:   int CHUNK_MAGIC, int byteLength (of the rest of the chunk), int recordCount, double firstTime,
+ *          double lastTime, COLUMN_COUNT x (int byteLength, bytes)
+ * footer:  int FOOTER_MAGIC, int chunkCount, chunkCount x (long offset, int recordCount, double firstTime,
+ *          double lastTime), int vehicleCount, vehicleCount x (long id, UTF label, int originRoadSegmentId,
+ *          UTF infoComment, int firstChunk, int lastChunk)
+ * trailer: long footerOffset, int TRAILER_MAGIC
+ * </pre>
+ * <p>
+ * A chunk contains complete output time steps. The time column holds the run lengths of the time steps, all other
+ * columns are delta encoded from the previous record of the chunk as zigzag variable-length integers. The doubles are
+ * quantized to the fixed resolutions below, which are finer than the csv output. Of the resolution steps next to a
+ * value the nearest one which is formatted like the value in the csv output is taken, and negative values keep their
+ * sign when they are quantized to zero, so the csv conversion gives the same output as the direct csv output. A file
+ * without trailer, for example of an aborted run, is read by scanning the chunks.
+ * </p>
+ */
+final class TrajectoryEncoding {
+
+    static final int FILE_MAGIC = 0x4d54524a; // "MTRJ"
+    static final int CHUNK_MAGIC = 0x4d54434b; // "MTCK"
+    static final int FOOTER_MAGIC = 0x4d544958; // "MTIX"
+    static final int TRAILER_MAGIC = 0x4d54454e; // "MTEN"
+    static final int VERSION = 2;
+
+    static final int TIME = 0;
+    static final int VEHICLE_ID = 1;
+    static final int ROAD_SEGMENT_ID = 2;
+    static final int LANE = 3;
+    static final int POSITION = 4;
+    static final int SPEED = 5;
+    static final int ACCELERATION = 6;
+    static final int GAP = 7;
+    static final int RELATIVE_SPEED = 8;
+    static final int COLUMN_COUNT = 9;
+
+    /** resolution of the quantized columns, indexed by column */
+    static final double[] RESOLUTION = { 0, 1, 1, 1, 1e-5, 1e-5, 1e-6, 1e-5, 1e-7 };
+
+    /**
+     * decimals of the quantized columns in {@link TrajectoryCsvConverter#OUTPUT_FORMAT}, indexed by column; the
+     * position is also written with {@link #OFFSET_POSITION_DECIMALS} after adding the offset position
+     */
+    static final int[] CSV_DECIMALS = { 0, 0, 0, 0, 1, 4, 5, 2, 6 };
+    static final int OFFSET_POSITION_DECIMALS = 4;
+
+    private static final double[] POWERS_OF_TEN = { 1, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7 };
+
+    /** distance from a rounding tie below which the formatter is used for the comparison */
+    private static final double TIE_TOLERANCE = 1e-6;
+
+    private TrajectoryEncoding() {
+        throw new IllegalStateException("do not instanciate");
+    }
+
+    /**
+     * Quantizes the value of the column, see {@link #quantize(double, int, double)}.
+     */
+    static long quantize(double value, int column) {
+        return quantize(value, column, Double.NaN);
+    }
+
+    /**
+     * Quantizes the value of the column. The nonnegative steps are encoded as they are, the negative steps (including
+     * a negative zero) as -steps-1.
+     * 
+     * @param value
+     * @param column
+     * @param offsetPosition
+     *            the offset position of the csv output if the value is a position, otherwise NaN
+     * @return the quantized value
+     */
+    static long quantize(double value, int column, double offsetPosition) {
+        final boolean negative = Math.copySign(1.0, value) < 0;
+        final long nearest = Math.round(Math.abs(value) / RESOLUTION[column]);
+        for (final long steps : new long[] { nearest, nearest - 1, nearest + 1 }) {
+            if (steps < 0) {
+                continue;
+            }
+            final long quantized = negative ? -steps - 1 : steps;
+            final double dequantized = dequantize(quantized, column);
+            if (formattedEqual(value, dequantized, CSV_DECIMALS[column])
+                    && (Double.isNaN(offsetPosition) || formattedEqual(value + offsetPosition, dequantized
+                            + offsetPosition, OFFSET_POSITION_DECIMALS))) {
+                return quantized;
+            }
+        }
+        return negative ? -nearest - 1 : nearest;
+    }
+
+    static double dequantize(long value, int column) {
+        return value >= 0 ? value * RESOLUTION[column] : -((-(value + 1)) * RESOLUTION[column]);
+    }
+
+    /**
+     * Returns true if the values are formatted equally with the given number of decimals. Away from the rounding ties
+     * the rounding is compared directly, close to a tie the formatted strings are compared.
+     */
+    private static boolean formattedEqual(double a, double b, int decimals) {
+        final double x = a * POWERS_OF_TEN[decimals];
+        final double y = b * POWERS_OF_TEN[decimals];
+        if (Math.abs(x - Math.floor(x) - 0.5) > TIE_TOLERANCE && Math.abs(y - Math.floor(y) - 0.5) > TIE_TOLERANCE) {
+            final double roundedX = Math.rint(x);
+            return roundedX == Math.rint(y) && (roundedX != 0 || Math.copySign(1.0, x) == Math.copySign(1.0, y));
+        }
+        final String format = "%." + decimals + "f";
+        return String.format(Locale.US, format, a).equals(String.format(Locale.US, format, b));
+    }
+
+    static void writeVarLong(ByteArrayOutputStream out, long value) {
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7fL) != 0) {
+            out.write((int) ((zigzag & 0x7f) | 0x80));
+            zigzag >>>= 7;
+        }
+        out.write((int) zigzag);
+    }
+
+    /**
+     * Reads the zigzag variable-length integers of a column.
+     */
+    static final class ColumnReader {
+        private final byte[] bytes;
+        private int position;
+        private final int end;
+
+        ColumnReader(byte[] bytes, int offset, int length) {
+            this.bytes = bytes;
+            this.position = offset;
+            this.end = offset + length;
+        }
+
+        long readVarLong() {
+            long zigzag = 0;
+            int shift = 0;
+            while (true) {
+                if (position >= end) {
+                    throw new IllegalStateException("column ends within a value");
+                }
+                final int b = bytes[position++];
+                zigzag |= (long) (b & 0x7f) << shift;
+                if ((b & 0x80) == 0) {
+                    break;
+                }
+                shift += 7;
+            }
+            return (zigzag >>> 1) ^ -(zigzag & 1);
+        }
+    }
+}
@@ -0,0 +1,372 @@
+/*
+ * Copyright (C) 2010, 2011, 2012 by Arne Kesting, Martin Treiber, Ralph Germ, Martin Budden
+ * <movsim.org@gmail.com>
+ * -----------------------------------------------------------------------------------------
+ * 
+ * This file is part of
+ * 
+ * MovSim - the multi-model open-source vehicular-traffic simulator.
+ * 
+ * MovSim is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * MovSim is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MovSim. If not, see <http://www.gnu.org/licenses/>
+ * or <http://www.movsim.org>.
+ * 
+ * -----------------------------------------------------------------------------------------
+ */
+package org.movsim.output.trajectories;
+
+import static org.movsim.output.trajectories.TrajectoryEncoding.ACCELERATION;
+import static org.movsim.output.trajectories.TrajectoryEncoding.COLUMN_COUNT;
+import static org.movsim.output.trajectories.TrajectoryEncoding.GAP;
+import static org.movsim.output.trajectories.TrajectoryEncoding.LANE;
+import static org.movsim.output.trajectories.TrajectoryEncoding.POSITION;
+import static org.movsim.output.trajectories.TrajectoryEncoding.RELATIVE_SPEED;
+import static org.movsim.output.trajectories.TrajectoryEncoding.ROAD_SEGMENT_ID;
+import static org.movsim.output.trajectories.TrajectoryEncoding.SPEED;
+import static org.movsim.output.trajectories.TrajectoryEncoding.TIME;
+import static org.movsim.output.trajectories.TrajectoryEncoding.VEHICLE_ID;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.movsim.output.trajectories.TrajectoryEncoding.ColumnReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Reads the binary trajectory output written by {@link TrajectoryWriter}.
+ * </p>
+ * <p>
+ * The index footer gives the time interval of each chunk and the chunks of each vehicle, so a time window or a single
+ * vehicle is read without decoding the other chunks. A file without index footer, for example of an aborted run, is
+ * indexed by scanning the chunk headers; the vehicle data are then not available and a vehicle is searched in all
+ * chunks.
+ * </p>
+ */
+public class TrajectoryReader implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TrajectoryReader.class);
+
+    private final RandomAccessFile file;
+
+    private final String routeName;
+    private final String routeDescription;
+    private final long timeOffsetMillis;
+    private final double offsetPosition;
+
+    private final List<Chunk> chunks = new ArrayList<>();
+    private final Map<Long, VehicleIndex> vehicles = new LinkedHashMap<>();
+    private final boolean indexed;
+
+    /**
+     * Constructor, reads the header and the index.
+     * 
+     * @param file
+     * @throws IOException
+     *             if the file cannot be read or is not a binary trajectory file
+     */
+    public TrajectoryReader(File file) throws IOException {
+        this.file = new RandomAccessFile(file, "r");
+        try {
+            if (this.file.readInt() != TrajectoryEncoding.FILE_MAGIC) {
+                throw new IOException("not a movsim trajectory file: " + file);
+            }
+            final int version = this.file.readInt();
+            if (version != TrajectoryEncoding.VERSION) {
+                throw new IOException("unsupported trajectory file version=" + version);
+            }
+            routeName = this.file.readUTF();
+            routeDescription = this.file.readUTF();
+            timeOffsetMillis = this.file.readLong();
+            offsetPosition = this.file.readDouble();
+            indexed = readIndex();
+            if (!indexed) {
+                LOG.warn("trajectory file {} has no index, scanning the chunks", file);
+                scanChunks();
+            }
+        } catch (IOException | RuntimeException e) {
+            this.file.close();
+            throw e;
+        }
+    }
+
+    private boolean readIndex() throws IOException {
+        final long headerEnd = file.getFilePointer();
+        final long length = file.length();
+        if (length < headerEnd + 12) {
+            return false;
+        }
+        file.seek(length - 12);
+        final long footerOffset = file.readLong();
+        if (file.readInt() != TrajectoryEncoding.TRAILER_MAGIC || footerOffset < headerEnd
+                || footerOffset > length - 12) {
+            file.seek(headerEnd);
+            return false;
+        }
+        file.seek(footerOffset);
+        if (file.readInt() != TrajectoryEncoding.FOOTER_MAGIC) {
+            throw new IOException("corrupt trajectory index");
+        }
+        final int chunkCount = file.readInt();
+        for (int i = 0; i < chunkCount; i++) {
+            chunks.add(new Chunk(file.readLong(), file.readInt(), file.readDouble(), file.readDouble()));
+        }
+        final int vehicleCount = file.readInt();
+        for (int i = 0; i < vehicleCount; i++) {
+            final TrajectoryVehicle vehicle = new TrajectoryVehicle(file.readLong(), file.readUTF(), file.readInt(),
+                    file.readUTF());
+            vehicles.put(vehicle.id(), new VehicleIndex(vehicle, file.readInt(), file.readInt()));
+        }
+        return true;
+    }
+
+    private void scanChunks() throws IOException {
+        final long length = file.length();
+        long offset = file.getFilePointer();
+        while (offset + 8 + 24 <= length) {
+            file.seek(offset);
+            if (file.readInt() != TrajectoryEncoding.CHUNK_MAGIC) {
+                break;
+            }
+            final int byteLength = file.readInt();
+            if (offset + 8 + byteLength > length) {
+                break; // truncated chunk
+            }
+            chunks.add(new Chunk(offset, file.readInt(), file.readDouble(), file.readDouble()));
+            offset += 8 + byteLength;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    public String routeName() {
+        return routeName;
+    }
+
+    public String routeDescription() {
+        return routeDescription;
+    }
+
+    /**
+     * Returns the offset of the simulation time for the absolute time, in milliseconds.
+     */
+    public long timeOffsetMillis() {
+        return timeOffsetMillis;
+    }
+
+    /**
+     * Returns the convenience offset of the position.
+     */
+    public double offsetPosition() {
+        return offsetPosition;
+    }
+
+    /**
+     * Returns true if the file has an index footer, that is, if it has been closed by the writer.
+     */
+    public boolean isIndexed() {
+        return indexed;
+    }
+
+    public int chunkCount() {
+        return chunks.size();
+    }
+
+    public long recordCount() {
+        long count = 0;
+        for (final Chunk chunk : chunks) {
+            count += chunk.recordCount;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the vehicle data, empty if the file has no index.
+     */
+    public Collection<TrajectoryVehicle> vehicles() {
+        final List<TrajectoryVehicle> list = new ArrayList<>(vehicles.size());
+        for (final VehicleIndex entry : vehicles.values()) {
+            list.add(entry.vehicle);
+        }
+        return Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Returns the data of the vehicle, null if the vehicle is unknown or the file has no index.
+     */
+    public TrajectoryVehicle vehicle(long vehicleId) {
+        final VehicleIndex entry = vehicles.get(vehicleId);
+        return entry == null ? null : entry.vehicle;
+    }
+
+    /**
+     * Reads all records of a chunk.
+     * 
+     * @param chunkIndex
+     * @return the records in the order they were written
+     * @throws IOException
+     */
+    public List<TrajectoryRecord> readChunk(int chunkIndex) throws IOException {
+        final List<TrajectoryRecord> records = new ArrayList<>(chunks.get(chunkIndex).recordCount);
+        readChunk(chunkIndex, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, null, records);
+        return records;
+    }
+
+    /**
+     * Reads the records with {@code fromTime <= time <= toTime}, only the chunks overlapping the time window are read.
+     * 
+     * @param fromTime
+     * @param toTime
+     * @return the records in the order they were written
+     * @throws IOException
+     */
+    public List<TrajectoryRecord> read(double fromTime, double toTime) throws IOException {
+        final List<TrajectoryRecord> records = new ArrayList<>();
+        for (int i = firstChunkEndingAtOrAfter(fromTime); i < chunks.size() && chunks.get(i).firstTime <= toTime; i++) {
+            readChunk(i, fromTime, toTime, null, records);
+        }
+        return records;
+    }
+
+    /**
+     * Reads the records of a vehicle, only the chunks of the vehicle are read if the file has an index.
+     * 
+     * @param vehicleId
+     * @return the records of the vehicle in the order of time
+     * @throws IOException
+     */
+    public List<TrajectoryRecord> readVehicle(long vehicleId) throws IOException {
+        final List<TrajectoryRecord> records = new ArrayList<>();
+        int first = 0;
+        int last = chunks.size() - 1;
+        if (indexed) {
+            final VehicleIndex entry = vehicles.get(vehicleId);
+            if (entry == null || entry.firstChunk < 0) {
+                return records;
+            }
+            first = entry.firstChunk;
+            last = entry.lastChunk;
+        }
+        for (int i = first; i <= last; i++) {
+            readChunk(i, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, vehicleId, records);
+        }
+        return records;
+    }
+
+    private int firstChunkEndingAtOrAfter(double time) {
+        int low = 0;
+        int high = chunks.size();
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (chunks.get(mid).lastTime < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void readChunk(int chunkIndex, double fromTime, double toTime, Long vehicleId,
+            List<TrajectoryRecord> records) throws IOException {
+        final Chunk chunk = chunks.get(chunkIndex);
+        file.seek(chunk.offset);
+        if (file.readInt() != TrajectoryEncoding.CHUNK_MAGIC) {
+            throw new IOException("corrupt trajectory chunk at offset=" + chunk.offset);
+        }
+        final byte[] bytes = new byte[file.readInt()];
+        file.readFully(bytes);
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        final int recordCount = in.readInt();
+        in.readDouble(); // first time
+        in.readDouble(); // last time
+        final int stepCount = in.readInt();
+        int offset = 4 + 8 + 8 + 4;
+        final ColumnReader[] columns = new ColumnReader[COLUMN_COUNT];
+        DataInputStream timeColumn = null;
+        for (int i = 0; i < COLUMN_COUNT; i++) {
+            final int length = in.readInt();
+            offset += 4;
+            if (i == TIME) {
+                timeColumn = new DataInputStream(new ByteArrayInputStream(bytes, offset, length));
+            } else {
+                columns[i] = new ColumnReader(bytes, offset, length);
+            }
+            in.skipBytes(length);
+            offset += length;
+        }
+        final long[] values = new long[COLUMN_COUNT];
+        int read = 0;
+        for (int step = 0; step < stepCount; step++) {
+            final double time = timeColumn.readDouble();
+            final int stepRecordCount = timeColumn.readInt();
+            final boolean inWindow = time >= fromTime && time <= toTime;
+            for (int r = 0; r < stepRecordCount; r++, read++) {
+                for (int i = VEHICLE_ID; i < COLUMN_COUNT; i++) {
+                    values[i] += columns[i].readVarLong();
+                }
+                if (inWindow && (vehicleId == null || values[VEHICLE_ID] == vehicleId.longValue())) {
+                    records.add(new TrajectoryRecord(time, values[VEHICLE_ID], (int) values[ROAD_SEGMENT_ID],
+                            (int) values[LANE], TrajectoryEncoding.dequantize(values[POSITION], POSITION),
+                            TrajectoryEncoding.dequantize(values[SPEED], SPEED), TrajectoryEncoding.dequantize(
+                                    values[ACCELERATION], ACCELERATION), TrajectoryEncoding.dequantize(values[GAP],
+                                    GAP), TrajectoryEncoding.dequantize(values[RELATIVE_SPEED], RELATIVE_SPEED)));
+                }
+            }
+        }
+        if (read != recordCount) {
+            throw new IOException("corrupt trajectory chunk at offset=" + chunk.offset + ": read " + read
+                    + " records, expected " + recordCount);
+        }
+    }
+
+    private static final class Chunk {
+        final long offset;
+        final int recordCount;
+        final double firstTime;
+        final double lastTime;
+
+        Chunk(long offset, int recordCount, double firstTime, double lastTime) {
+            this.offset = offset;
+            this.recordCount = recordCount;
+            this.firstTime = firstTime;
+            this.lastTime = lastTime;
+        }
+    }
+
+    private static final class VehicleIndex {
+        final TrajectoryVehicle vehicle;
+        final int firstChunk;
+        final int lastChunk;
+
+        VehicleIndex(TrajectoryVehicle vehicle, int firstChunk, int lastChunk) {
+            this.vehicle = vehicle;
+            this.firstChunk = firstChunk;
+            this.lastChunk = lastChunk;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2010, 2011, 2012 by Arne Kesting, Martin Treiber, Ralph Germ, Martin Budden
+ * <movsim.org@gmail.com>
+ * -----------------------------------------------------------------------------------------
+ * 
+ * This file is part of
+ * 
+ * MovSim - the multi-model open-source vehicular-traffic simulator.
+ * 
+ * MovSim is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * MovSim is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MovSim. If not, see <http://www.gnu.org/licenses/>
+ * or <http://www.movsim.org>.
+ * 
+ * -----------------------------------------------------------------------------------------
+ */
+package org.movsim.output.trajectories;
+
+/**
+ * A record of the binary trajectory output: the state of one vehicle at one output time.
+ */
+public final class TrajectoryRecord {
+
+    private final double time;
+    private final long vehicleId;
+    private final int roadSegmentId;
+    private final int lane;
+    private final double position;
+    private final double speed;
+    private final double acceleration;
+    private final double gap;
+    private final double relativeSpeed;
+
+    public TrajectoryRecord(double time, long vehicleId, int roadSegmentId, int lane, double position, double speed,
+            double acceleration, double gap, double relativeSpeed) {
+        this.time = time;
+        this.vehicleId = vehicleId;
+        this.roadSegmentId = roadSegmentId;
+        this.lane = lane;
+        this.position = position;
+        this.speed = speed;
+        this.acceleration = acceleration;
+        this.gap = gap;
+        this.relativeSpeed = relativeSpeed;
+    }
+
+    public double time() {
+        return time;
+    }
+
+    public long vehicleId() {
+        return vehicleId;
+    }
+
+    public int roadSegmentId() {
+        return roadSegmentId;
+    }
+
+    public int lane() {
+        return lane;
+    }
+
+    /**
+     * Returns the position of the vehicle front along the route, in meters.
+     */
+    public double position() {
+        return position;
+    }
+
+    public double speed() {
+        return speed;
+    }
+
+    public double acceleration() {
+        return acceleration;
+    }
+
+    /**
+     * Returns the net distance to the front vehicle, zero if there is none.
+     */
+    public double gap() {
+        return gap;
+    }
+
+    /**
+     * Returns the speed difference to the front vehicle, zero if there is none.
+     */
+    public double relativeSpeed() {
+        return relativeSpeed;
+    }
+
+    @Override
+    public String toString() {
+        return "TrajectoryRecord [time=" + time + ", vehicleId=" + vehicleId + ", roadSegmentId=" + roadSegmentId
+                + ", lane=" + lane + ", position=" + position + ", speed=" + speed + ", acceleration=" + acceleration
+                + ", gap=" + gap + ", relativeSpeed=" + relativeSpeed + "]";
+    }
+}
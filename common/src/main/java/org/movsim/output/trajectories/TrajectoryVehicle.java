@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2010, 2011, 2012 by Arne Kesting, Martin Treiber, Ralph Germ, Martin Budden
+ * <movsim.org@gmail.com>
+ * -----------------------------------------------------------------------------------------
+ * 
+ * This file is part of
+ * 
+ * MovSim - the multi-model open-source vehicular-traffic simulator.
+ * 
+ * MovSim is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * MovSim is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MovSim. If not, see <http://www.gnu.org/licenses/>
+ * or <http://www.movsim.org>.
+ * 
+ * -----------------------------------------------------------------------------------------
+ */
+package org.movsim.output.trajectories;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * The constant data of a vehicle in the binary trajectory output, stored once per vehicle in the index footer.
+ */
+public final class TrajectoryVehicle {
+
+    private final long id;
+    private final String label;
+    private final int originRoadSegmentId;
+    private final String infoComment;
+
+    public TrajectoryVehicle(long id, String label, int originRoadSegmentId, String infoComment) {
+        this.id = id;
+        this.label = Preconditions.checkNotNull(label);
+        this.originRoadSegmentId = originRoadSegmentId;
+        this.infoComment = Preconditions.checkNotNull(infoComment);
+    }
+
+    public long id() {
+        return id;
+    }
+
+    public String label() {
+        return label;
+    }
+
+    public int originRoadSegmentId() {
+        return originRoadSegmentId;
+    }
+
+    public String infoComment() {
+        return infoComment;
+    }
+
+    @Override
+    public String toString() {
+        return "TrajectoryVehicle [id=" + id + ", label=" + label + ", originRoadSegmentId=" + originRoadSegmentId
+                + ", infoComment=" + infoComment + "]";
+    }
+}
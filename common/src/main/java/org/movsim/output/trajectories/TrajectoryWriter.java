@@ -0,0 +1,291 @@
+/*
+ * Copyright (C) 2010, 2011, 2012 by Arne Kesting, Martin Treiber, Ralph Germ, Martin Budden
+ * <movsim.org@gmail.com>
+ * -----------------------------------------------------------------------------------------
+ * 
+ * This file is part of
+ * 
+ * MovSim - the multi-model open-source vehicular-traffic simulator.
+ * 
+ * MovSim is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * MovSim is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MovSim. If not, see <http://www.gnu.org/licenses/>
+ * or <http://www.movsim.org>.
+ * 
+ * -----------------------------------------------------------------------------------------
+ */
+package org.movsim.output.trajectories;
+
+import static org.movsim.output.trajectories.TrajectoryEncoding.ACCELERATION;
+import static org.movsim.output.trajectories.TrajectoryEncoding.COLUMN_COUNT;
+import static org.movsim.output.trajectories.TrajectoryEncoding.GAP;
+import static org.movsim.output.trajectories.TrajectoryEncoding.LANE;
+import static org.movsim.output.trajectories.TrajectoryEncoding.POSITION;
+import static org.movsim.output.trajectories.TrajectoryEncoding.RELATIVE_SPEED;
+import static org.movsim.output.trajectories.TrajectoryEncoding.ROAD_SEGMENT_ID;
+import static org.movsim.output.trajectories.TrajectoryEncoding.SPEED;
+import static org.movsim.output.trajectories.TrajectoryEncoding.TIME;
+import static org.movsim.output.trajectories.TrajectoryEncoding.VEHICLE_ID;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.CountingOutputStream;
+
+/**
+ * Writes the binary trajectory output, see {@link TrajectoryEncoding} for the file layout and {@link TrajectoryReader}
+ * for reading it. The records of a chunk are buffered in memory column by column and encoded when the chunk is
+ * complete.
+ */
+public class TrajectoryWriter implements Closeable {
+
+    /** default number of records after which a chunk is completed at the next time step */
+    public static final int DEFAULT_CHUNK_SIZE = 8192;
+
+    private final CountingOutputStream counter;
+    private final DataOutputStream out;
+    private final int chunkSize;
+    private final double offsetPosition;
+
+    private final ByteArrayOutputStream[] columns = new ByteArrayOutputStream[COLUMN_COUNT];
+    private final long[] previous = new long[COLUMN_COUNT];
+    private final DataOutputStream timeColumn;
+
+    private int recordCount;
+    private int stepCount;
+    private int stepRecordCount;
+    private double firstTime;
+    private double lastTime;
+
+    private final List<ChunkEntry> chunks = new ArrayList<>();
+    private final Map<Long, VehicleEntry> vehicles = new LinkedHashMap<>();
+
+    private boolean closed;
+
+    /**
+     * Constructor, writes the header.
+     * 
+     * @param outputStream
+     *            the stream, closed by {@link #close()}
+     * @param routeName
+     * @param routeDescription
+     * @param timeOffsetMillis
+     *            the offset of the simulation time for the absolute time
+     * @param offsetPosition
+     *            the convenience offset of the position
+     * @param chunkSize
+     *            the number of records after which a chunk is completed at the next time step
+     * @throws IOException
+     */
+    public TrajectoryWriter(OutputStream outputStream, String routeName, String routeDescription,
+            long timeOffsetMillis, double offsetPosition, int chunkSize) throws IOException {
+        Preconditions.checkArgument(chunkSize > 0, "chunkSize=" + chunkSize);
+        this.chunkSize = chunkSize;
+        this.offsetPosition = offsetPosition;
+        counter = new CountingOutputStream(new BufferedOutputStream(outputStream, 1 << 16));
+        out = new DataOutputStream(counter);
+        for (int i = 0; i < COLUMN_COUNT; i++) {
+            columns[i] = new ByteArrayOutputStream();
+        }
+        timeColumn = new DataOutputStream(columns[TIME]);
+        out.writeInt(TrajectoryEncoding.FILE_MAGIC);
+        out.writeInt(TrajectoryEncoding.VERSION);
+        out.writeUTF(routeName);
+        out.writeUTF(routeDescription);
+        out.writeLong(timeOffsetMillis);
+        out.writeDouble(offsetPosition);
+    }
+
+    public TrajectoryWriter(File file, String routeName, String routeDescription, long timeOffsetMillis,
+            double offsetPosition) throws IOException {
+        this(new FileOutputStream(file), routeName, routeDescription, timeOffsetMillis, offsetPosition,
+                DEFAULT_CHUNK_SIZE);
+    }
+
+    public boolean hasVehicle(long vehicleId) {
+        return vehicles.containsKey(vehicleId);
+    }
+
+    /**
+     * Adds the constant data of a vehicle, which is stored in the index footer. Vehicles without these data get an
+     * empty label and info comment.
+     * 
+     * @param vehicle
+     */
+    public void addVehicle(TrajectoryVehicle vehicle) {
+        if (!vehicles.containsKey(vehicle.id())) {
+            vehicles.put(vehicle.id(), new VehicleEntry(vehicle));
+        }
+    }
+
+    /**
+     * Adds a record. The records must be added in the order of increasing time.
+     * 
+     * @param time
+     * @param vehicleId
+     * @param roadSegmentId
+     * @param lane
+     * @param position
+     *            of the vehicle front along the route
+     * @param speed
+     * @param acceleration
+     * @param gap
+     * @param relativeSpeed
+     * @throws IOException
+     */
+    public void add(double time, long vehicleId, int roadSegmentId, int lane, double position, double speed,
+            double acceleration, double gap, double relativeSpeed) throws IOException {
+        Preconditions.checkState(!closed, "trajectory writer already closed");
+        if (recordCount == 0) {
+            firstTime = time;
+            lastTime = time;
+        } else if (time != lastTime) {
+            Preconditions.checkArgument(time > lastTime, "time=" + time + " before last time=" + lastTime);
+            endStep();
+            if (recordCount >= chunkSize) {
+                writeChunk();
+                firstTime = time;
+            }
+            lastTime = time;
+        }
+        put(VEHICLE_ID, vehicleId);
+        put(ROAD_SEGMENT_ID, roadSegmentId);
+        put(LANE, lane);
+        put(POSITION, TrajectoryEncoding.quantize(position, POSITION, offsetPosition));
+        put(SPEED, TrajectoryEncoding.quantize(speed, SPEED));
+        put(ACCELERATION, TrajectoryEncoding.quantize(acceleration, ACCELERATION));
+        put(GAP, TrajectoryEncoding.quantize(gap, GAP));
+        put(RELATIVE_SPEED, TrajectoryEncoding.quantize(relativeSpeed, RELATIVE_SPEED));
+        ++recordCount;
+        ++stepRecordCount;
+
+        VehicleEntry entry = vehicles.get(vehicleId);
+        if (entry == null) {
+            entry = new VehicleEntry(new TrajectoryVehicle(vehicleId, "", 0, ""));
+            vehicles.put(vehicleId, entry);
+        }
+        final int chunkIndex = chunks.size();
+        if (entry.firstChunk < 0) {
+            entry.firstChunk = chunkIndex;
+        }
+        entry.lastChunk = chunkIndex;
+    }
+
+    private void put(int column, long value) {
+        TrajectoryEncoding.writeVarLong(columns[column], value - previous[column]);
+        previous[column] = value;
+    }
+
+    private void endStep() throws IOException {
+        timeColumn.writeDouble(lastTime);
+        timeColumn.writeInt(stepRecordCount);
+        ++stepCount;
+        stepRecordCount = 0;
+    }
+
+    private void writeChunk() throws IOException {
+        final long offset = counter.getCount();
+        int byteLength = 4 + 8 + 8 + 4 + 4 * COLUMN_COUNT;
+        for (int i = 0; i < COLUMN_COUNT; i++) {
+            byteLength += columns[i].size();
+        }
+        out.writeInt(TrajectoryEncoding.CHUNK_MAGIC);
+        out.writeInt(byteLength);
+        out.writeInt(recordCount);
+        out.writeDouble(firstTime);
+        out.writeDouble(lastTime);
+        out.writeInt(stepCount);
+        for (int i = 0; i < COLUMN_COUNT; i++) {
+            out.writeInt(columns[i].size());
+            columns[i].writeTo(out);
+            columns[i].reset();
+            previous[i] = 0;
+        }
+        chunks.add(new ChunkEntry(offset, recordCount, firstTime, lastTime));
+        recordCount = 0;
+        stepCount = 0;
+    }
+
+    /**
+     * Writes the last chunk and the index footer and closes the stream.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (recordCount > 0) {
+                endStep();
+                writeChunk();
+            }
+            final long footerOffset = counter.getCount();
+            out.writeInt(TrajectoryEncoding.FOOTER_MAGIC);
+            out.writeInt(chunks.size());
+            for (final ChunkEntry chunk : chunks) {
+                out.writeLong(chunk.offset);
+                out.writeInt(chunk.recordCount);
+                out.writeDouble(chunk.firstTime);
+                out.writeDouble(chunk.lastTime);
+            }
+            out.writeInt(vehicles.size());
+            for (final VehicleEntry entry : vehicles.values()) {
+                out.writeLong(entry.vehicle.id());
+                out.writeUTF(entry.vehicle.label());
+                out.writeInt(entry.vehicle.originRoadSegmentId());
+                out.writeUTF(entry.vehicle.infoComment());
+                out.writeInt(entry.firstChunk);
+                out.writeInt(entry.lastChunk);
+            }
+            out.writeLong(footerOffset);
+            out.writeInt(TrajectoryEncoding.TRAILER_MAGIC);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static final class ChunkEntry {
+        final long offset;
+        final int recordCount;
+        final double firstTime;
+        final double lastTime;
+
+        ChunkEntry(long offset, int recordCount, double firstTime, double lastTime) {
+            this.offset = offset;
+            this.recordCount = recordCount;
+            this.firstTime = firstTime;
+            this.lastTime = lastTime;
+        }
+    }
+
+    private static final class VehicleEntry {
+        final TrajectoryVehicle vehicle;
+        int firstChunk = -1;
+        int lastChunk = -1;
+
+        VehicleEntry(TrajectoryVehicle vehicle) {
+            this.vehicle = vehicle;
+        }
+    }
+}
@@ -25,22 +25,26 @@
  */
 package org.movsim.utilities;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
 
 import org.movsim.input.ProjectMetaData;
+import org.movsim.output.fileoutput.OutputCompression;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xml.sax.InputSource;
@@ -88,6 +92,29 @@ public class FileUtils {
         return null;
     }
 
+    /**
+     * Gets the writer for a file written with the given compression.
+     * 
+     * @param filename
+     *            the filename, including the extension of the compressed file
+     * @param compression
+     *            the compression
+     * @return the writer, null if the file cannot be opened
+     */
+    public static PrintWriter getWriter(String filename, OutputCompression compression) {
+        if (!compression.isEnabled()) {
+            return getWriter(filename);
+        }
+        try {
+            LOG.info("open file {} for writing with {}", filename, compression);
+            return new PrintWriter(new BufferedWriter(new OutputStreamWriter(compression.wrap(new FileOutputStream(
+                    filename, false)))));
+        } catch (final java.io.IOException e) {
+            LOG.error("cannot open file {} for writing", filename);
+        }
+        return null;
+    }
+
     /**
      * Gets the reader.
      * 
@@ -98,7 +125,7 @@ public class FileUtils {
     public static BufferedReader getReader(String filename) {
         try {
             LOG.debug("open file {} for reading", filename);
-            final BufferedReader reader = new BufferedReader(new FileReader(filename));
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(openInputStream(new File(filename))));
             return reader;
         } catch (final Exception e) {
             LOG.error("cannot open file {} for reading", filename);
@@ -106,6 +133,28 @@ public class FileUtils {
         return null;
     }
 
+    /**
+     * Opens the file for reading. Files compressed in the gzip format, like the compressed file outputs, see
+     * {@link OutputCompression}, are decompressed transparently.
+     * 
+     * @param file
+     *            the file
+     * @return the input stream of the uncompressed data
+     * @throws IOException
+     */
+    public static InputStream openInputStream(File file) throws IOException {
+        final BufferedInputStream in = new BufferedInputStream(new FileInputStream(file));
+        try {
+            in.mark(2);
+            final int magic = in.read() | (in.read() << 8);
+            in.reset();
+            return magic == GZIPInputStream.GZIP_MAGIC ? new GZIPInputStream(in) : in;
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
     /**
      * Current directory.
      * 
@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2010, 2011, 2012 by Arne Kesting, Martin Treiber, Ralph Germ, Martin Budden
+ * <movsim.org@gmail.com>
+ * -----------------------------------------------------------------------------------------
+ * 
+ * This file is part of
+ * 
+ * MovSim - the multi-model open-source vehicular-traffic simulator.
+ * 
+ * MovSim is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * MovSim is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MovSim. If not, see <http://www.gnu.org/licenses/>
+ * or <http://www.movsim.org>.
+ * 
+ * -----------------------------------------------------------------------------------------
+ */
+package org.movsim.utilities;
+
+import java.util.Arrays;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Interpolation table of a function y(x) given by data points with increasing x values, extrapolated with constant
+ * values on both sides. The table gives the same results as {@link Tables#intpextp(double[], double[], double)} (linear
+ * interpolation) and {@link Tables#stepExtrapolation(double[], double[], double)} (piecewise constant), but finds the
+ * interval by binary search and uses precomputed slopes.
+ * 
+ * <p>
+ * For queries at monotone or nearby x values, for example for the vehicles of a lane in position order or for
+ * increasing simulation times, a {@link Cursor} finds the interval starting from the previous one, so a sweep over
+ * m queries costs O(m + n). A table is immutable and may be shared, a cursor must not be shared between threads.
+ * </p>
+ */
+public final class InterpolationTable {
+
+    /** x values closer than this are a jump of the function, see {@link Tables#intpextp(double[], double[], double)} */
+    private static final double TINY_VALUE = 1.e-10;
+
+    private final boolean linear;
+    private final double[] xValues;
+    private final double[] yValues;
+    private final int n;
+    /** value at the start of the interval ending at x[i], y[i] for jumps */
+    private final double[] offsets;
+    /** slope of the interval ending at x[i], 0 for jumps */
+    private final double[] slopes;
+
+    /**
+     * Returns a table which interpolates linearly between the data points.
+     * 
+     * @param x
+     *            the x values in increasing order, jumps are given by equal x values
+     * @param y
+     *            the y values
+     * @return the interpolation table
+     * @throws IllegalArgumentException
+     *             if the arrays differ in length or the x values are not in increasing order
+     */
+    public static InterpolationTable linear(double[] x, double[] y) {
+        return new InterpolationTable(x, y, true);
+    }
+
+    /**
+     * Returns a table of a piecewise constant function: the value of a data point applies up to the next data point.
+     * 
+     * @param x
+     *            the x values in increasing order
+     * @param y
+     *            the y values
+     * @return the interpolation table
+     * @throws IllegalArgumentException
+     *             if the arrays differ in length or the x values are not in increasing order
+     */
+    public static InterpolationTable step(double[] x, double[] y) {
+        return new InterpolationTable(x, y, false);
+    }
+
+    private InterpolationTable(double[] x, double[] y, boolean linear) {
+        Preconditions.checkArgument(x.length == y.length, "arrays of not equal length = %s, %s", x.length, y.length);
+        for (int i = 1; i < x.length; ++i) {
+            Preconditions.checkArgument(x[i] >= x[i - 1], "x values not in increasing order at index %s", i);
+        }
+        this.linear = linear;
+        this.xValues = Arrays.copyOf(x, x.length);
+        this.yValues = Arrays.copyOf(y, y.length);
+        this.n = x.length;
+        offsets = new double[n];
+        slopes = new double[n];
+        if (linear) {
+            for (int i = 1; i < n; ++i) {
+                final double dx = xValues[i] - xValues[i - 1];
+                if (Math.abs(dx) < TINY_VALUE) {
+                    offsets[i] = yValues[i];
+                } else {
+                    offsets[i] = yValues[i - 1];
+                    slopes[i] = (yValues[i] - yValues[i - 1]) / dx;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of data points.
+     * 
+     * @return the number of data points
+     */
+    public int size() {
+        return n;
+    }
+
+    /**
+     * Returns the interpolated value. A table without data points returns 0.
+     * 
+     * @param x
+     * @return the value at x
+     */
+    public double value(double x) {
+        if (n == 0) {
+            return 0;
+        }
+        // the number of data points at or before x, at most n-1
+        int low = 0;
+        int high = n - 1;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (xValues[mid] <= x) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return value(low, x);
+    }
+
+    private double value(int i, double x) {
+        if (i == 0) {
+            return yValues[0];
+        }
+        if (i == n - 1 && x > xValues[n - 1]) {
+            return yValues[n - 1];
+        }
+        return linear ? offsets[i] + slopes[i] * (x - xValues[i - 1]) : yValues[i - 1];
+    }
+
+    /**
+     * Returns a new cursor for a sequence of queries.
+     * 
+     * @return the cursor
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Stateful lookup which starts the search for the interval from the interval of the previous query. Gives the same
+     * results as {@link InterpolationTable#value(double)} for queries in any order.
+     */
+    public final class Cursor {
+
+        /** number of data points at or before the previous x, at most n-1 */
+        private int index;
+
+        private Cursor() {
+        }
+
+        /**
+         * Returns the interpolated value.
+         * 
+         * @param x
+         * @return the value at x
+         */
+        public double value(double x) {
+            if (n == 0) {
+                return 0;
+            }
+            while (index < n - 1 && xValues[index] <= x) {
+                ++index;
+            }
+            while (index > 0 && xValues[index - 1] > x) {
+                --index;
+            }
+            return InterpolationTable.this.value(index, x);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2010, 2011, 2012 by Arne Kesting, Martin Treiber, Ralph Germ, Martin Budden
+ * <movsim.org@gmail.com>
+ * -----------------------------------------------------------------------------------------
+ * 
+ * This file is part of
+ * 
+ * MovSim - the multi-model open-source vehicular-traffic simulator.
+ * 
+ * MovSim is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * MovSim is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MovSim. If not, see <http://www.gnu.org/licenses/>
+ * or <http://www.movsim.org>.
+ * 
+ * -----------------------------------------------------------------------------------------
+ */
+package org.movsim.utilities;
+
+/**
+ * <p>
+ * Counter-based random number stream. The n-th number of a stream is a hash (the SplitMix64 finalizer) of the stream
+ * key and n, the key is derived from a seed, an id and a purpose. So the numbers do not depend on the order in which
+ * streams are used or on the thread using them, and {@link #uniform(long)} may be called concurrently.
+ * </p>
+ * 
+ * <p>
+ * The <code>next...</code> methods draw the numbers in sequence using an internal counter, they must only be used by a
+ * single thread.
+ * </p>
+ */
+public final class RandomStream {
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+    private static final double DOUBLE_UNIT = 1.0 / (1L << 53);
+
+    private final long key;
+    private long counter;
+
+    /**
+     * Constructor.
+     * 
+     * @param seed
+     *            the seed of the simulation
+     * @param id
+     *            the id of the owner of the stream, for example the vehicle id
+     * @param purpose
+     *            distinguishes the streams of one owner
+     */
+    public RandomStream(long seed, long id, int purpose) {
+        key = mix64(mix64(seed + GOLDEN_GAMMA * id) + GOLDEN_GAMMA * (purpose + 1));
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Returns the number with the given counter, uniformly distributed in [0, 1).
+     * 
+     * @param n
+     *            the counter
+     * @return the n-th uniformly distributed number of the stream
+     */
+    public double uniform(long n) {
+        return (mix64(key + GOLDEN_GAMMA * (n + 1)) >>> 11) * DOUBLE_UNIT;
+    }
+
+    /**
+     * Returns the counter of the next number drawn in sequence.
+     * 
+     * @return the position of the stream
+     */
+    public long position() {
+        return counter;
+    }
+
+    /**
+     * Sets the counter of the next number drawn in sequence, for example when restoring a checkpoint.
+     * 
+     * @param position
+     */
+    public void setPosition(long position) {
+        counter = position;
+    }
+
+    /**
+     * Returns the next number, uniformly distributed in [0, 1).
+     * 
+     * @return uniformly distributed number
+     */
+    public double nextUniform() {
+        return uniform(counter++);
+    }
+
+    /**
+     * Returns the next number of a standard normal distribution (Box-Muller transform of two uniform numbers).
+     * 
+     * @return normally distributed number with mean 0 and standard deviation 1
+     */
+    public double nextGaussian() {
+        final double u1 = 1.0 - nextUniform(); // in (0, 1]
+        final double u2 = nextUniform();
+        return Math.sqrt(-2 * Math.log(u1)) * Math.cos(2 * Math.PI * u2);
+    }
+
+    /**
+     * returns a realization of a uniformly distributed random variable in [-1, 1]
+     * 
+     * @return a uniformly distributed realization in [-1, 1]
+     */
+    public double nextUniformDistribution() {
+        return 2 * nextUniform() - 1;
+    }
+
+    public double nextUniformlyDistributedRandomizedFactor(double randomizationStrength) {
+        return 1 + randomizationStrength * nextUniformDistribution();
+    }
+
+    public double nextGaussiansDistributedRandomizedFactor(double sigma, double nSigmaCutoff) {
+        return 1 + Math.max(-nSigmaCutoff * sigma, Math.min(nSigmaCutoff * sigma, sigma * nextGaussian()));
+    }
+}
@@ -30,6 +30,10 @@ import org.slf4j.LoggerFactory;
 
 /**
  * The Class Tables. Various static table-related methods like interpolation, extrapolation
+ * 
+ * <p>
+ * The interpolations scan the x values linearly. For repeated lookups in the same table use {@link InterpolationTable}.
+ * </p>
  */
 public class Tables {
 
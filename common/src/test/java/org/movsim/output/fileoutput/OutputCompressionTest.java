@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2010, 2011, 2012 by Arne Kesting, Martin Treiber, Ralph Germ, Martin Budden
+ * <movsim.org@gmail.com>
+ * -----------------------------------------------------------------------------------------
+ * 
+ * This file is part of
+ * 
+ * MovSim - the multi-model open-source vehicular-traffic simulator.
+ * 
+ * MovSim is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * MovSim is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MovSim. If not, see <http://www.gnu.org/licenses/>
+ * or <http://www.movsim.org>.
+ * 
+ * -----------------------------------------------------------------------------------------
+ */
+package org.movsim.output.fileoutput;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.movsim.input.ProjectMetaData;
+import org.movsim.utilities.FileUtils;
+
+public class OutputCompressionTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static void writeLines(PrintWriter writer, int count) {
+        for (int i = 0; i < count; i++) {
+            writer.printf("%10.2f, %10.4f, %6d%n", 0.5 * i, Math.sin(0.01 * i), i);
+            writer.flush();
+        }
+    }
+
+    private static List<String> readLines(File file) throws IOException {
+        final List<String> lines = new ArrayList<>();
+        final BufferedReader reader = FileUtils.getReader(file.getPath());
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        } finally {
+            reader.close();
+        }
+        return lines;
+    }
+
+    @Test
+    public void testCompressedFileIsReadTransparently() throws IOException {
+        final File plainFile = new File(folder.getRoot(), "plain.csv");
+        final File compressedFile = new File(folder.getRoot(), "plain.csv.gz");
+        final PrintWriter plainWriter = FileUtils.getWriter(plainFile.getPath());
+        final PrintWriter compressedWriter = FileUtils.getWriter(compressedFile.getPath(),
+                OutputCompression.of(Deflater.BEST_COMPRESSION, 512));
+        writeLines(plainWriter, 2000);
+        writeLines(compressedWriter, 2000);
+        plainWriter.close();
+        compressedWriter.close();
+
+        assertEquals(2000, readLines(plainFile).size());
+        assertEquals(readLines(plainFile), readLines(compressedFile));
+        assertTrue(compressedFile.length() < plainFile.length() / 3);
+    }
+
+    @Test
+    public void testOpenInputStreamDetectsCompression() throws IOException {
+        final File file = new File(folder.getRoot(), "raw.bin");
+        final PrintWriter writer = FileUtils.getWriter(file.getPath(), OutputCompression.of(0, 16));
+        writer.print("x");
+        writer.close();
+        final InputStream in = FileUtils.openInputStream(file);
+        try {
+            assertEquals('x', in.read());
+            assertEquals(-1, in.read());
+        } finally {
+            in.close();
+        }
+    }
+
+    @Test
+    public void testFileOutputWithPipeline() throws IOException {
+        assertTrue(ProjectMetaData.getInstance().isAsynchronousFileOutput());
+        final OutputCompression compression = OutputCompression.of(true, Deflater.DEFAULT_COMPRESSION, 4096);
+        final FileOutputBase output = new FileOutputBase(folder.getRoot().getPath(), "project", compression);
+        final PrintWriter writer = output.createWriter(".det.csv");
+        writeLines(writer, 1000);
+        ProjectMetaData.getInstance().closeCompressedWriters();
+        OutputPipeline.flushDefault();
+
+        final File file = new File(folder.getRoot(), "project.det.csv" + OutputCompression.EXTENSION);
+        final List<String> lines = readLines(file);
+        assertEquals(1000, lines.size());
+        assertEquals(String.format("%10.2f, %10.4f, %6d", 0.5 * 999, Math.sin(0.01 * 999), 999), lines.get(999));
+    }
+
+    @Test
+    public void testNone() {
+        assertFalse(OutputCompression.NONE.isEnabled());
+        assertFalse(OutputCompression.of(false, 9, 1024).isEnabled());
+        assertEquals("a.csv", OutputCompression.NONE.filename("a.csv"));
+        assertEquals("a.csv.gz", OutputCompression.of(1, 1024).filename("a.csv"));
+    }
+}
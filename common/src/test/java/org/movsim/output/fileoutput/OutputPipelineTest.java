@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2010, 2011, 2012 by Arne Kesting, Martin Treiber, Ralph Germ, Martin Budden
+ * <movsim.org@gmail.com>
+ * -----------------------------------------------------------------------------------------
+ * 
+ * This file is part of
+ * 
+ * MovSim - the multi-model open-source vehicular-traffic simulator.
+ * 
+ * MovSim is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * MovSim is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MovSim. If not, see <http://www.gnu.org/licenses/>
+ * or <http://www.movsim.org>.
+ * 
+ * -----------------------------------------------------------------------------------------
+ */
+package org.movsim.output.fileoutput;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.movsim.utilities.FileUtils;
+
+public class OutputPipelineTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static List<String> expectedLines(String name, int count) {
+        final List<String> lines = new ArrayList<>();
+        lines.add("# " + name);
+        for (int i = 0; i < count; i++) {
+            lines.add(String.format("%10.2f, %4d, %s", 0.1 * i, i, name));
+        }
+        return lines;
+    }
+
+    private static void writeLines(PrintWriter writer, String name, int count) {
+        writer.println("# " + name);
+        for (int i = 0; i < count; i++) {
+            writer.printf("%10.2f, %4d, %s%n", 0.1 * i, i, name);
+            writer.flush();
+        }
+    }
+
+    private static List<String> readLines(File file) throws IOException {
+        return Files.readAllLines(file.toPath(), Charset.defaultCharset());
+    }
+
+    @Test
+    public void testFlushWritesAllRecordsInOrder() throws IOException {
+        // a capacity of 1 makes the simulation thread wait for the writer thread
+        final OutputPipeline pipeline = new OutputPipeline(1, 60000);
+        final File fileA = new File(folder.getRoot(), "a.csv");
+        final File fileB = new File(folder.getRoot(), "b.csv");
+        final PrintWriter writerA = pipeline.newWriter(FileUtils.getWriter(fileA.getPath()));
+        final PrintWriter writerB = pipeline.newWriter(FileUtils.getWriter(fileB.getPath()));
+        writeLines(writerA, "a", 500);
+        writeLines(writerB, "b", 300);
+        pipeline.flush();
+        assertEquals(expectedLines("a", 500), readLines(fileA));
+        assertEquals(expectedLines("b", 300), readLines(fileB));
+        pipeline.close();
+    }
+
+    @Test
+    public void testWritesFromSeveralThreads() throws Exception {
+        final OutputPipeline pipeline = new OutputPipeline(16, 60000);
+        final int threadCount = 4;
+        final Thread[] threads = new Thread[threadCount];
+        final File[] files = new File[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            final String name = "thread" + t;
+            files[t] = new File(folder.getRoot(), name + ".csv");
+            final PrintWriter writer = pipeline.newWriter(FileUtils.getWriter(files[t].getPath()));
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    writeLines(writer, name, 1000);
+                }
+            });
+            threads[t].start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        pipeline.close();
+        for (int t = 0; t < threadCount; t++) {
+            assertEquals(expectedLines("thread" + t, 1000), readLines(files[t]));
+        }
+    }
+
+    @Test
+    public void testWritesSynchronouslyAfterClose() throws IOException {
+        final OutputPipeline pipeline = new OutputPipeline(4, 60000);
+        final File file = new File(folder.getRoot(), "late.csv");
+        final PrintWriter writer = pipeline.newWriter(FileUtils.getWriter(file.getPath()));
+        writeLines(writer, "late", 10);
+        pipeline.close();
+        assertEquals(expectedLines("late", 10), readLines(file));
+        writer.printf("%s%n", "after close");
+        final List<String> expected = expectedLines("late", 10);
+        expected.add("after close");
+        assertEquals(expected, readLines(file));
+        writer.close();
+    }
+
+    @Test
+    public void testFlushInterval() throws Exception {
+        final OutputPipeline pipeline = new OutputPipeline(OutputPipeline.DEFAULT_CAPACITY, 10);
+        final File file = new File(folder.getRoot(), "interval.csv");
+        final PrintWriter writer = pipeline.newWriter(FileUtils.getWriter(file.getPath()));
+        writeLines(writer, "interval", 5);
+        final long deadline = System.currentTimeMillis() + 10000;
+        while (readLines(file).size() < 6 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(expectedLines("interval", 5), readLines(file));
+        pipeline.close();
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2010, 2011, 2012 by Arne Kesting, Martin Treiber, Ralph Germ, Martin Budden
+ * <movsim.org@gmail.com>
+ * -----------------------------------------------------------------------------------------
+ * 
+ * This file is part of
+ * 
+ * MovSim - the multi-model open-source vehicular-traffic simulator.
+ * 
+ * MovSim is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * MovSim is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MovSim. If not, see <http://www.gnu.org/licenses/>
+ * or <http://www.movsim.org>.
+ * 
+ * -----------------------------------------------------------------------------------------
+ */
+package org.movsim.output.trajectories;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.movsim.input.ProjectMetaData;
+
+public class TrajectoryReaderTest {
+
+    private static final double DT = 0.5;
+    private static final int STEPS = 200;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Vehicles enter every other step and stay for 40 steps. Some gaps lie on the rounding ties of the csv output and
+     * some relative speeds are negative but formatted as zero.
+     */
+    private static List<TrajectoryRecord> createRecords() {
+        final Random random = new Random(42);
+        final List<TrajectoryRecord> records = new ArrayList<>();
+        for (int step = 0; step < STEPS; step++) {
+            final double time = step * DT;
+            for (int id = step / 2; id >= Math.max(0, step / 2 - 20); id--) {
+                final double position = 1000 - 20 * id + 15 * (step - 2 * id) + random.nextDouble();
+                final double gap = id % 7 == 0 ? 2.005 + 0.01 * (step % 5) : 50 * random.nextDouble();
+                final double relativeSpeed = id % 5 == 0 ? -1e-8 * random.nextDouble() : random.nextGaussian();
+                records.add(new TrajectoryRecord(time, id, 1 + id % 3, 1 + id % 2, position, 30 * random.nextDouble(),
+                        random.nextGaussian(), gap, relativeSpeed));
+            }
+        }
+        return records;
+    }
+
+    private File write(List<TrajectoryRecord> records, int chunkSize) throws IOException {
+        final File file = folder.newFile("test.traj.route_main.bin");
+        final TrajectoryWriter writer = new TrajectoryWriter(new FileOutputStream(file), "main", "route main", 0, 10,
+                chunkSize);
+        for (final TrajectoryRecord record : records) {
+            if (!writer.hasVehicle(record.vehicleId())) {
+                writer.addVehicle(new TrajectoryVehicle(record.vehicleId(), "label" + record.vehicleId(), 7, ""));
+            }
+            writer.add(record.time(), record.vehicleId(), record.roadSegmentId(), record.lane(), record.position(),
+                    record.speed(), record.acceleration(), record.gap(), record.relativeSpeed());
+        }
+        writer.close();
+        return file;
+    }
+
+    private static void assertRecords(List<TrajectoryRecord> expected, List<TrajectoryRecord> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            final TrajectoryRecord e = expected.get(i);
+            final TrajectoryRecord a = actual.get(i);
+            assertEquals(e.time(), a.time(), 0);
+            assertEquals(e.vehicleId(), a.vehicleId());
+            assertEquals(e.roadSegmentId(), a.roadSegmentId());
+            assertEquals(e.lane(), a.lane());
+            assertEquals(e.position(), a.position(), 0.5e-4 + 1e-9);
+            assertEquals(e.speed(), a.speed(), 0.5e-4 + 1e-9);
+            assertEquals(e.acceleration(), a.acceleration(), 0.5e-5 + 1e-9);
+            assertEquals(e.gap(), a.gap(), 0.5e-4 + 1e-9);
+            assertEquals(e.relativeSpeed(), a.relativeSpeed(), 0.5e-6 + 1e-9);
+        }
+    }
+
+    private static List<TrajectoryRecord> readAll(TrajectoryReader reader) throws IOException {
+        final List<TrajectoryRecord> records = new ArrayList<>();
+        for (int i = 0; i < reader.chunkCount(); i++) {
+            records.addAll(reader.readChunk(i));
+        }
+        return records;
+    }
+
+    @Test
+    public void testReadAll() throws IOException {
+        final List<TrajectoryRecord> records = createRecords();
+        try (TrajectoryReader reader = new TrajectoryReader(write(records, 100))) {
+            assertTrue(reader.isIndexed());
+            assertTrue(reader.chunkCount() > 10);
+            assertEquals("main", reader.routeName());
+            assertEquals(10, reader.offsetPosition(), 0);
+            assertEquals(records.size(), reader.recordCount());
+            assertRecords(records, readAll(reader));
+        }
+    }
+
+    @Test
+    public void testReadTimeWindow() throws IOException {
+        final List<TrajectoryRecord> records = createRecords();
+        final List<TrajectoryRecord> expected = new ArrayList<>();
+        for (final TrajectoryRecord record : records) {
+            if (record.time() >= 20 && record.time() <= 35.5) {
+                expected.add(record);
+            }
+        }
+        try (TrajectoryReader reader = new TrajectoryReader(write(records, 100))) {
+            assertRecords(expected, reader.read(20, 35.5));
+            assertTrue(reader.read(STEPS * DT, 1000).isEmpty());
+        }
+    }
+
+    @Test
+    public void testReadVehicle() throws IOException {
+        final List<TrajectoryRecord> records = createRecords();
+        final List<TrajectoryRecord> expected = new ArrayList<>();
+        for (final TrajectoryRecord record : records) {
+            if (record.vehicleId() == 33) {
+                expected.add(record);
+            }
+        }
+        try (TrajectoryReader reader = new TrajectoryReader(write(records, 100))) {
+            assertRecords(expected, reader.readVehicle(33));
+            assertEquals("label33", reader.vehicle(33).label());
+            assertEquals(7, reader.vehicle(33).originRoadSegmentId());
+            assertTrue(reader.readVehicle(1000).isEmpty());
+        }
+    }
+
+    @Test
+    public void testReadWithoutIndex() throws IOException {
+        final List<TrajectoryRecord> records = createRecords();
+        final File file = write(records, 100);
+        // cut off the trailer and a part of the index footer, as after an aborted run
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 20);
+        }
+        try (TrajectoryReader reader = new TrajectoryReader(file)) {
+            assertFalse(reader.isIndexed());
+            assertNull(reader.vehicle(33));
+            assertRecords(records, readAll(reader));
+            final List<TrajectoryRecord> vehicle = new ArrayList<>();
+            for (final TrajectoryRecord record : records) {
+                if (record.vehicleId() == 33) {
+                    vehicle.add(record);
+                }
+            }
+            assertRecords(vehicle, reader.readVehicle(33));
+        }
+    }
+
+    @Test
+    public void testCsvConversion() throws IOException {
+        final List<TrajectoryRecord> records = createRecords();
+        final StringWriter csv = new StringWriter();
+        final TrajectoryRecord first;
+        try (TrajectoryReader reader = new TrajectoryReader(write(records, 100))) {
+            TrajectoryCsvConverter.convert(reader, new PrintWriter(csv));
+            first = reader.readChunk(0).get(0);
+        }
+        // the conversion gives the csv output written directly from the unquantized values
+        final StringWriter direct = new StringWriter();
+        final PrintWriter directWriter = new PrintWriter(direct);
+        TrajectoryCsvConverter.writeHeader(directWriter, "route main");
+        for (final TrajectoryRecord record : records) {
+            directWriter.printf(TrajectoryCsvConverter.OUTPUT_FORMAT, record.time(), record.lane(), record.position(),
+                    record.speed(), record.acceleration(), record.gap(), record.relativeSpeed(),
+                    "label" + record.vehicleId(), record.vehicleId(), record.roadSegmentId(), 7, "",
+                    ProjectMetaData.formatTimeWithOffset(0, record.time()), record.position() + 10);
+        }
+        directWriter.flush();
+        assertEquals(direct.toString(), csv.toString());
+        final String[] lines = csv.toString().split("\\r?\\n");
+        assertEquals(records.size() + 2, lines.length);
+        assertEquals("# route main", lines[0]);
+        assertEquals(TrajectoryCsvConverter.OUTPUT_HEADING, lines[1]);
+        final String expected = String.format(TrajectoryCsvConverter.OUTPUT_FORMAT, first.time(), first.lane(),
+                first.position(), first.speed(), first.acceleration(), first.gap(), first.relativeSpeed(), "label0",
+                first.vehicleId(), first.roadSegmentId(), 7, "", "1970-01-01T00:00:00Z", first.position() + 10);
+        assertEquals(expected, lines[2] + String.format("%n"));
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2010, 2011, 2012 by Arne Kesting, Martin Treiber, Ralph Germ, Martin Budden
+ *                                   <movsim.org@gmail.com>
+ * -----------------------------------------------------------------------------------------
+ * 
+ * This file is part of
+ * 
+ * MovSim - the multi-model open-source vehicular-traffic simulator.
+ * 
+ * MovSim is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * MovSim is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MovSim. If not, see <http://www.gnu.org/licenses/>
+ * or <http://www.movsim.org>.
+ * 
+ * -----------------------------------------------------------------------------------------
+ */
+
+package org.movsim.utilities;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * <p>
+ * Benchmark of the table interpolation. Not run as a unit test, run from the common directory with
+ * </p>
+ * 
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.movsim.utilities.InterpolationTableBenchmark
+ * </pre>
+ * <p>
+ * Compares the linear search of {@link Tables#intpextp(double[], double[], double)} with the binary search of
+ * {@link InterpolationTable#value(double)} and with a {@link InterpolationTable.Cursor}, for random queries and for
+ * queries sorted in increasing order (as for the vehicles of a lane). Times are given in ns per query.
+ * </p>
+ */
+public class InterpolationTableBenchmark {
+
+    private static final int QUERIES = 100000;
+
+    public static void main(String[] args) {
+        System.out.println(String.format(Locale.US, "%8s %8s %12s %12s %12s", "size", "queries", "Tables", "value",
+                "cursor"));
+        for (final int size : new int[] { 10, 1000, 100000 }) {
+            final Random random = new Random(size);
+            final double[] x = new double[size];
+            final double[] y = new double[size];
+            for (int i = 1; i < size; ++i) {
+                x[i] = x[i - 1] + random.nextDouble();
+                y[i] = random.nextDouble();
+            }
+            final double[] queries = new double[QUERIES];
+            for (int i = 0; i < QUERIES; ++i) {
+                queries[i] = x[size - 1] * random.nextDouble();
+            }
+            run(x, y, queries, "random");
+            Arrays.sort(queries);
+            run(x, y, queries, "sorted");
+        }
+    }
+
+    private static void run(double[] x, double[] y, double[] queries, String label) {
+        final InterpolationTable table = InterpolationTable.linear(x, y);
+        // the linear search is slow for large tables, use fewer queries
+        final int tablesQueries = Math.min(queries.length, 100000000 / x.length);
+        double sum = 0;
+        final double[] times = new double[3];
+        for (int pass = 0; pass < 2; ++pass) {
+            // first pass is warm up
+            long start = System.nanoTime();
+            for (int i = 0; i < tablesQueries; ++i) {
+                sum += Tables.intpextp(x, y, queries[i * (queries.length / tablesQueries)]);
+            }
+            times[0] = (double) (System.nanoTime() - start) / tablesQueries;
+            start = System.nanoTime();
+            for (final double query : queries) {
+                sum += table.value(query);
+            }
+            times[1] = (double) (System.nanoTime() - start) / queries.length;
+            start = System.nanoTime();
+            final InterpolationTable.Cursor cursor = table.cursor();
+            for (final double query : queries) {
+                sum += cursor.value(query);
+            }
+            times[2] = (double) (System.nanoTime() - start) / queries.length;
+        }
+        System.out.println(String.format(Locale.US, "%8d %8s %12.1f %12.1f %12.1f", x.length, label, times[0],
+                times[1], times[2]) + (sum == 0 ? " " : ""));
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2010, 2011, 2012 by Arne Kesting, Martin Treiber, Ralph Germ, Martin Budden
+ * <movsim.org@gmail.com>
+ * -----------------------------------------------------------------------------------------
+ * 
+ * This file is part of
+ * 
+ * MovSim - the multi-model open-source vehicular-traffic simulator.
+ * 
+ * MovSim is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * MovSim is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MovSim. If not, see <http://www.gnu.org/licenses/>
+ * or <http://www.movsim.org>.
+ * 
+ * -----------------------------------------------------------------------------------------
+ */
+package org.movsim.utilities;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class InterpolationTableTest {
+
+    private static final double delta = 1e-9;
+
+    private static final double[] X = { 0, 100, 100, 250, 400 };
+    private static final double[] Y = { 1, 2, 3, -4, 5 };
+    /** descending, ascending and unordered queries, exactly at the data points including the last one */
+    private static final double[][] QUERIES = { { 500, 400, 399.9, 250, 120, 100, 99, 0, -1 },
+            { -1, 0, 50, 100, 100.1, 250, 400, 400.1, 1000 }, { 400, 0, 400, 100, 401, -5, 250, 100 } };
+
+    private static void assertLinear(double[] x, double[] y, double[] queries) {
+        final InterpolationTable table = InterpolationTable.linear(x, y);
+        final InterpolationTable.Cursor cursor = table.cursor();
+        for (final double query : queries) {
+            final double expected = Tables.intpextp(x, y, query);
+            assertEquals("x=" + query, expected, table.value(query), delta);
+            assertEquals("x=" + query, expected, cursor.value(query), delta);
+        }
+    }
+
+    private static void assertStep(double[] x, double[] y, double[] queries) {
+        final InterpolationTable table = InterpolationTable.step(x, y);
+        final InterpolationTable.Cursor cursor = table.cursor();
+        for (final double query : queries) {
+            final double expected = Tables.stepExtrapolation(x, y, query);
+            assertEquals("x=" + query, expected, table.value(query), 0);
+            assertEquals("x=" + query, expected, cursor.value(query), 0);
+        }
+    }
+
+    @Test
+    public void testLinear() {
+        for (final double[] queries : QUERIES) {
+            assertLinear(X, Y, queries);
+        }
+        assertEquals(2.5, InterpolationTable.linear(new double[] { 0, 1 }, new double[] { 2, 3 }).value(0.5), 0);
+    }
+
+    @Test
+    public void testStep() {
+        for (final double[] queries : QUERIES) {
+            assertStep(X, Y, queries);
+        }
+    }
+
+    @Test
+    public void testSmallTables() {
+        assertLinear(new double[] { 3 }, new double[] { 7 }, QUERIES[1]);
+        assertStep(new double[] { 3 }, new double[] { 7 }, QUERIES[1]);
+        assertEquals(0, InterpolationTable.linear(new double[0], new double[0]).value(1), 0);
+        assertEquals(0, InterpolationTable.step(new double[0], new double[0]).cursor().value(1), 0);
+    }
+
+    @Test
+    public void testRandomSweeps() {
+        final Random random = new Random(42);
+        final double[] x = new double[50];
+        final double[] y = new double[x.length];
+        for (int i = 1; i < x.length; ++i) {
+            x[i] = x[i - 1] + (random.nextInt(4) == 0 ? 0 : 50 * random.nextDouble());
+            y[i] = random.nextDouble();
+        }
+        final double[] queries = new double[500];
+        for (int i = 0; i < queries.length; ++i) {
+            queries[i] = random.nextInt(10) == 0 ? x[random.nextInt(x.length)] : 2600 * random.nextDouble() - 50;
+        }
+        assertLinear(x, y, queries);
+        assertStep(x, y, queries);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsorted() {
+        InterpolationTable.linear(new double[] { 0, 2, 1 }, new double[] { 0, 1, 2 });
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnequalLength() {
+        InterpolationTable.step(new double[] { 0, 1 }, new double[] { 0 });
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2010, 2011, 2012 by Arne Kesting, Martin Treiber, Ralph Germ, Martin Budden
+ * <movsim.org@gmail.com>
+ * -----------------------------------------------------------------------------------------
+ * 
+ * This file is part of
+ * 
+ * MovSim - the multi-model open-source vehicular-traffic simulator.
+ * 
+ * MovSim is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * MovSim is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MovSim. If not, see <http://www.gnu.org/licenses/>
+ * or <http://www.movsim.org>.
+ * 
+ * -----------------------------------------------------------------------------------------
+ */
+package org.movsim.utilities;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class RandomStreamTest {
+
+    private static final double delta = 0.01;
+
+    @Test
+    public void testReproducible() {
+        final RandomStream a = new RandomStream(42, 7, 1);
+        final RandomStream b = new RandomStream(42, 7, 1);
+        for (int i = 0; i < 100; ++i) {
+            assertEquals(Double.doubleToLongBits(a.nextUniform()), Double.doubleToLongBits(b.nextUniform()));
+        }
+    }
+
+    @Test
+    public void testCounter() {
+        // the sequential numbers are the numbers with counter 0, 1, 2, ... independent of other streams
+        final RandomStream sequential = new RandomStream(42, 7, 1);
+        final RandomStream other = new RandomStream(42, 8, 1);
+        final RandomStream keyed = new RandomStream(42, 7, 1);
+        for (int i = 0; i < 100; ++i) {
+            other.nextUniform();
+            assertEquals(keyed.uniform(i), sequential.nextUniform(), 0.0);
+        }
+        assertEquals(keyed.uniform(5), keyed.uniform(5), 0.0);
+        assertEquals(100, sequential.position());
+
+        // a stream continues at the position it is set to
+        final RandomStream restored = new RandomStream(42, 7, 1);
+        restored.setPosition(sequential.position());
+        assertEquals(sequential.nextUniform(), restored.nextUniform(), 0.0);
+    }
+
+    @Test
+    public void testStreamsDiffer() {
+        final double value = new RandomStream(42, 7, 1).uniform(0);
+        assertFalse(value == new RandomStream(43, 7, 1).uniform(0));
+        assertFalse(value == new RandomStream(42, 8, 1).uniform(0));
+        assertFalse(value == new RandomStream(42, 7, 2).uniform(0));
+        assertFalse(value == new RandomStream(42, 7, 1).uniform(1));
+    }
+
+    @Test
+    public void testDistribution() {
+        final int n = 100000;
+        final RandomStream stream = new RandomStream(1, 2, 3);
+        double sum = 0;
+        double sumSquares = 0;
+        for (int i = 0; i < n; ++i) {
+            final double value = stream.nextUniform();
+            assertTrue(value >= 0 && value < 1);
+            sum += value;
+            sumSquares += value * value;
+        }
+        assertEquals(0.5, sum / n, delta);
+        assertEquals(1.0 / 12, sumSquares / n - (sum / n) * (sum / n), delta);
+
+        sum = 0;
+        sumSquares = 0;
+        for (int i = 0; i < n; ++i) {
+            final double value = stream.nextGaussian();
+            sum += value;
+            sumSquares += value * value;
+        }
+        assertEquals(0, sum / n, delta);
+        assertEquals(1, sumSquares / n, 2 * delta);
+    }
+}
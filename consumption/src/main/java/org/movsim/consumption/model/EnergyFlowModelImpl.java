@@ -53,12 +53,17 @@ class EnergyFlowModelImpl implements EnergyFlowModel {
 
     private final VehicleAttributes vehicle;
 
+    /** precomputed minimum fuel flow on a flat road, null if not configured */
+    private final FuelFlowLookupTable lookupTable;
+
     EnergyFlowModelImpl(String keyLabel, ConsumptionModel modelInput) {
         Preconditions.checkNotNull(modelInput);
         vehicle = new VehicleAttributes(modelInput.getVehicleData());
         carPowerModel = new InstantaneousPowerModelImpl(vehicle);
         engineRotationModel = new EngineRotationModel(modelInput.getRotationModel());
         engineModel = new EngineEfficiencyModelAnalyticImpl(modelInput.getEngineCombustionMap(), engineRotationModel);
+        lookupTable = modelInput.isSetFuelFlowLookup() ? new FuelFlowLookupTable(modelInput.getFuelFlowLookup(), this)
+                : null;
 
         // TODO boolean type
         if (modelInput.isOutput()) {
@@ -174,7 +179,33 @@ class EnergyFlowModelImpl implements EnergyFlowModel {
     }
 
     /**
-     * Gets the optimum fuel consumption flow in liter per s
+     * Gets the optimum fuel consumption flow in m^3/s like {@link #getMinFuelFlow(double, double, double, boolean)} but
+     * without determining the gear.
+     * 
+     * @param v
+     * @param acc
+     * @param grade
+     *            in radians
+     * @param withJante
+     * @return fuelFlow
+     */
+    double exactMinFuelFlow(double v, double acc, double grade, boolean withJante) {
+        double fuelFlow = FUELFLOW_ERROR;
+        for (int testGearIndex = engineRotationModel.getMaxGearIndex(); testGearIndex >= 0; testGearIndex--) {
+            fuelFlow = Math.min(fuelFlow, getFuelFlow(v, acc, grade, testGearIndex, withJante));
+        }
+        return fuelFlow;
+    }
+
+    private double minFuelFlow(double v, double acc, double grade) {
+        if (lookupTable != null && grade == 0) {
+            return lookupTable.minFuelFlow(v, acc);
+        }
+        return exactMinFuelFlow(v, acc, grade, true);
+    }
+
+    /**
+     * Gets the optimum fuel consumption flow in liter per s, from the precomputed lookup table if configured.
      * 
      * @param v
      * @param acc
@@ -182,7 +213,7 @@ class EnergyFlowModelImpl implements EnergyFlowModel {
      */
     @Override
     public double getFuelFlowInLiterPerS(double v, double acc) {
-        return 1000 * getMinFuelFlow(v, acc, 0, true)[0]; // convert from m^3/s --> liter/s
+        return 1000 * minFuelFlow(v, acc, 0); // convert from m^3/s --> liter/s
     }
 
     /**
@@ -195,7 +226,11 @@ class EnergyFlowModelImpl implements EnergyFlowModel {
      */
     @Override
     public double getFuelFlowInLiterPerS(double v, double acc, double grade) {
-        return 1000 * getMinFuelFlow(v, acc, grade, true)[0]; // convert from m^3/s --> liter/s
+        return 1000 * minFuelFlow(v, acc, grade); // convert from m^3/s --> liter/s
+    }
+
+    FuelFlowLookupTable lookupTable() {
+        return lookupTable;
     }
 
     // TODO draw out
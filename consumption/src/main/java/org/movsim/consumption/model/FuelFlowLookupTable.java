@@ -0,0 +1,238 @@
+/*
+ * Copyright (C) 2010, 2011, 2012 by Arne Kesting, Martin Treiber, Ralph Germ, Martin Budden
+ * <movsim.org@gmail.com>
+ * -----------------------------------------------------------------------------------------
+ * 
+ * This file is part of
+ * 
+ * MovSim - the multi-model open-source vehicular-traffic simulator.
+ * 
+ * MovSim is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * MovSim is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MovSim. If not, see <http://www.gnu.org/licenses/>
+ * or <http://www.movsim.org>.
+ * 
+ * -----------------------------------------------------------------------------------------
+ */
+package org.movsim.consumption.model;
+
+import org.movsim.autogen.FuelFlowLookup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Precomputed (speed x acceleration) grid of the minimum fuel flow on a flat road with the jante restriction.
+ * 
+ * <p>
+ * The grid nodes are filled once from the exact gear search of the {@link EnergyFlowModelImpl}. Values between the
+ * nodes are interpolated bilinearly. A cell is marked and evaluated exactly instead if it touches an unreachable
+ * operating point, if the fuel-optimal gear differs between its nodes (the minimum over the gears has a kink there) or
+ * if the relative error of the interpolation exceeds {@link #ACCEPTED_ERROR_FRACTION} of the configured bound at one
+ * of the points of a {@link #CHECK_SUBDIVISIONS} x {@link #CHECK_SUBDIVISIONS} subdivision of the cell. The margin
+ * covers the error between the checked points, so the configured maximum relative error holds for the interpolated
+ * cells.
+ * </p>
+ */
+class FuelFlowLookupTable {
+
+    /** The Constant logger. */
+    private static final Logger logger = LoggerFactory.getLogger(FuelFlowLookupTable.class);
+
+    /** number of subdivisions per cell and dimension for the error check */
+    private static final int CHECK_SUBDIVISIONS = 4;
+
+    /** fraction of the configured maximum relative error that the checked points of an interpolated cell may reach */
+    private static final double ACCEPTED_ERROR_FRACTION = 0.75;
+
+    private final EnergyFlowModelImpl model;
+
+    private final double maxSpeed;
+    private final double speedStep;
+    private final double minAcc;
+    private final double maxAcc;
+    private final double accStep;
+    private final double maxRelativeError;
+
+    private final int speedCount;
+    private final int accCount;
+
+    /** minimum fuel flow (m^3/s) at the grid nodes, speed-major */
+    private final double[] fuelFlow;
+
+    /** cells that are evaluated with the exact model, indexed like the lower-left node */
+    private final boolean[] exactCell;
+
+    private int exactCellCount;
+    private double observedMaxRelativeError;
+
+    FuelFlowLookupTable(FuelFlowLookup config, EnergyFlowModelImpl model) {
+        Preconditions.checkNotNull(config);
+        this.model = Preconditions.checkNotNull(model);
+        maxSpeed = config.getMaxSpeed();
+        speedStep = config.getSpeedStep();
+        minAcc = config.getMinAcceleration();
+        maxAcc = config.getMaxAcceleration();
+        accStep = config.getAccelerationStep();
+        maxRelativeError = config.getMaxRelativeError();
+        Preconditions.checkArgument(maxAcc > minAcc, "max_acceleration=" + maxAcc + " must exceed min_acceleration="
+                + minAcc);
+        speedCount = (int) Math.ceil(maxSpeed / speedStep) + 1;
+        accCount = (int) Math.ceil((maxAcc - minAcc) / accStep) + 1;
+        fuelFlow = new double[speedCount * accCount];
+        exactCell = new boolean[speedCount * accCount];
+        final byte[] gear = new byte[speedCount * accCount];
+        fillNodes(gear);
+        checkCells(gear);
+        logger.info(String.format(
+                "fuel flow lookup: %d x %d nodes, dv=%.3f m/s, da=%.3f m/s^2, max. relative error=%.4f (bound %.4f), "
+                        + "%d of %d cells evaluated exactly", speedCount, accCount, speedStep, accStep,
+                observedMaxRelativeError, maxRelativeError, exactCellCount, (speedCount - 1) * (accCount - 1)));
+    }
+
+    private double speed(int i) {
+        return i * speedStep;
+    }
+
+    private double acc(int j) {
+        return minAcc + j * accStep;
+    }
+
+    /**
+     * Fills the fuel flow and the fuel-optimal gear (starting with 1) at the grid nodes, speed-major.
+     */
+    private void fillNodes(byte[] gear) {
+        for (int i = 0; i < speedCount; i++) {
+            for (int j = 0; j < accCount; j++) {
+                final double[] min = model.getMinFuelFlow(speed(i), acc(j), 0, true);
+                fuelFlow[i * accCount + j] = min[0];
+                gear[i * accCount + j] = (byte) min[1];
+            }
+        }
+    }
+
+    private void checkCells(byte[] gear) {
+        final double fuelFlowError = model.fuelflowError();
+        final double acceptedError = ACCEPTED_ERROR_FRACTION * maxRelativeError;
+        for (int i = 0; i < speedCount - 1; i++) {
+            for (int j = 0; j < accCount - 1; j++) {
+                final int k = i * accCount + j;
+                if (fuelFlow[k] >= fuelFlowError || fuelFlow[k + 1] >= fuelFlowError
+                        || fuelFlow[k + accCount] >= fuelFlowError || fuelFlow[k + accCount + 1] >= fuelFlowError) {
+                    markExact(k);
+                    continue;
+                }
+                if (gear[k] != gear[k + 1] || gear[k] != gear[k + accCount] || gear[k] != gear[k + accCount + 1]) {
+                    markExact(k);
+                    continue;
+                }
+                final double error = maxCheckedError(i, j, acceptedError);
+                if (error > acceptedError) {
+                    markExact(k);
+                } else {
+                    observedMaxRelativeError = Math.max(observedMaxRelativeError, error);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the maximum relative error at the checked points of the cell, stops as soon as the accepted error is
+     * exceeded.
+     */
+    private double maxCheckedError(int i, int j, double acceptedError) {
+        double error = 0;
+        for (int si = 0; si <= CHECK_SUBDIVISIONS; si++) {
+            for (int sj = 0; sj <= CHECK_SUBDIVISIONS; sj++) {
+                if ((si == 0 || si == CHECK_SUBDIVISIONS) && (sj == 0 || sj == CHECK_SUBDIVISIONS)) {
+                    continue; // nodes are exact
+                }
+                error = Math.max(error, relativeError(i, j, si / (double) CHECK_SUBDIVISIONS, sj
+                        / (double) CHECK_SUBDIVISIONS));
+                if (error > acceptedError) {
+                    return error;
+                }
+            }
+        }
+        return error;
+    }
+
+    private void markExact(int k) {
+        exactCell[k] = true;
+        exactCellCount++;
+    }
+
+    private double relativeError(int i, int j, double fv, double fa) {
+        final double exact = model.getMinFuelFlow(speed(i) + fv * speedStep, acc(j) + fa * accStep, 0, true)[0];
+        if (exact >= model.fuelflowError()) {
+            return Double.POSITIVE_INFINITY;
+        }
+        final double interpolated = interpolate(i * accCount + j, fv, fa);
+        return Math.abs(interpolated - exact) / Math.max(exact, Double.MIN_NORMAL);
+    }
+
+    private double interpolate(int k, double fv, double fa) {
+        final double low = fuelFlow[k] + fa * (fuelFlow[k + 1] - fuelFlow[k]);
+        final double high = fuelFlow[k + accCount] + fa * (fuelFlow[k + accCount + 1] - fuelFlow[k + accCount]);
+        return low + fv * (high - low);
+    }
+
+    private boolean contains(double v, double acc) {
+        return v >= 0 && v <= maxSpeed && acc >= minAcc && acc <= maxAcc;
+    }
+
+    /**
+     * Returns the minimum fuel flow in m^3/s on a flat road with the jante restriction. Operating points outside of the
+     * grid or in a cell marked as exact are passed to the exact model.
+     * 
+     * @param v
+     * @param acc
+     * @return the minimum fuel flow in m^3/s
+     */
+    double minFuelFlow(double v, double acc) {
+        if (!contains(v, acc)) {
+            return model.exactMinFuelFlow(v, acc, 0, true);
+        }
+        final double x = v / speedStep;
+        final double y = (acc - minAcc) / accStep;
+        final int i = Math.min((int) x, speedCount - 2);
+        final int j = Math.min((int) y, accCount - 2);
+        final int k = i * accCount + j;
+        if (exactCell[k]) {
+            return model.exactMinFuelFlow(v, acc, 0, true);
+        }
+        return interpolate(k, x - i, y - j);
+    }
+
+    double speedStep() {
+        return speedStep;
+    }
+
+    double accelerationStep() {
+        return accStep;
+    }
+
+    double maxRelativeError() {
+        return maxRelativeError;
+    }
+
+    /**
+     * Returns the largest relative error at the checked points of the interpolated cells, which is bounded by
+     * {@link #ACCEPTED_ERROR_FRACTION} of {@link #maxRelativeError()}.
+     * 
+     * @return the observed maximum relative error
+     */
+    double observedMaxRelativeError() {
+        return observedMaxRelativeError;
+    }
+}
@@ -27,8 +27,8 @@ package org.movsim.consumption.offline;
 
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
@@ -178,7 +178,7 @@ public class InputReader {
         // see http://opencsv.sourceforge.net/#how-to-read
         CSVReader reader = null;
         try {
-            reader = new CSVReader(new FileReader(file), separator);
+            reader = new CSVReader(new InputStreamReader(FileUtils.openInputStream(file)), separator);
             myEntries = reader.readAll();
         } catch (FileNotFoundException e) {
             // TODO Auto-generated catch block
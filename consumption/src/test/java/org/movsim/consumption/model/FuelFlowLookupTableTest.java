@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2010, 2011, 2012 by Arne Kesting, Martin Treiber, Ralph Germ, Martin Budden
+ * <movsim.org@gmail.com>
+ * -----------------------------------------------------------------------------------------
+ * 
+ * This file is part of
+ * 
+ * MovSim - the multi-model open-source vehicular-traffic simulator.
+ * 
+ * MovSim is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * MovSim is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MovSim. If not, see <http://www.gnu.org/licenses/>
+ * or <http://www.movsim.org>.
+ * 
+ * -----------------------------------------------------------------------------------------
+ */
+package org.movsim.consumption.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.movsim.autogen.ConsumptionModel;
+import org.movsim.autogen.EngineCombustionMap;
+import org.movsim.autogen.FuelFlowLookup;
+import org.movsim.autogen.RotationModel;
+import org.movsim.autogen.VehicleData;
+
+public class FuelFlowLookupTableTest {
+
+    private static ConsumptionModel consumptionModel(boolean withLookup) {
+        final ConsumptionModel config = new ConsumptionModel();
+        config.setLabel("test");
+        config.setVehicleData(new VehicleData());
+        config.setEngineCombustionMap(new EngineCombustionMap());
+        config.setRotationModel(new RotationModel());
+        if (withLookup) {
+            config.setFuelFlowLookup(new FuelFlowLookup());
+        }
+        return config;
+    }
+
+    @Test
+    public void testWithoutLookup() {
+        final EnergyFlowModelImpl model = new EnergyFlowModelImpl("test", consumptionModel(false));
+        assertNull(model.lookupTable());
+        assertEquals(1000 * model.getMinFuelFlow(20, 0.5, 0, true)[0], model.getFuelFlowInLiterPerS(20, 0.5), 0);
+    }
+
+    @Test
+    public void testInterpolationWithinErrorBound() {
+        final EnergyFlowModelImpl exact = new EnergyFlowModelImpl("test", consumptionModel(false));
+        final EnergyFlowModelImpl model = new EnergyFlowModelImpl("test", consumptionModel(true));
+        final FuelFlowLookupTable table = model.lookupTable();
+        assertNotNull(table);
+        assertTrue(table.observedMaxRelativeError() <= table.maxRelativeError());
+        // sample off the grid nodes and off the checked points
+        for (double v = 0.13; v < 60; v += 0.77) {
+            for (double acc = -5.93; acc < 4; acc += 0.137) {
+                final double expected = exact.getFuelFlowInLiterPerS(v, acc);
+                final double actual = model.getFuelFlowInLiterPerS(v, acc);
+                assertEquals("v=" + v + ", acc=" + acc, expected, actual, table.maxRelativeError() * expected);
+            }
+        }
+        final Random random = new Random(42);
+        for (int n = 0; n < 200000; n++) {
+            final double v = 60 * random.nextDouble();
+            final double acc = -6 + 10 * random.nextDouble();
+            final double expected = exact.getFuelFlowInLiterPerS(v, acc);
+            final double actual = model.getFuelFlowInLiterPerS(v, acc);
+            assertEquals("v=" + v + ", acc=" + acc, expected, actual, table.maxRelativeError() * expected);
+        }
+    }
+
+    @Test
+    public void testGearChangeCellsUseExactModel() {
+        final EnergyFlowModelImpl model = new EnergyFlowModelImpl("test", consumptionModel(true));
+        final FuelFlowLookupTable table = model.lookupTable();
+        final double dv = table.speedStep();
+        int gearChangeCount = 0;
+        for (double v = 0; v + dv <= 60; v += dv) {
+            if (model.getMinFuelFlow(v, 0, 0, true)[1] != model.getMinFuelFlow(v + dv, 0, 0, true)[1]) {
+                final double vMid = v + 0.5 * dv;
+                final double acc = 0.5 * table.accelerationStep();
+                assertEquals(model.getMinFuelFlow(vMid, acc, 0, true)[0], table.minFuelFlow(vMid, acc), 0);
+                gearChangeCount++;
+            }
+        }
+        assertTrue(gearChangeCount > 0);
+    }
+
+    @Test
+    public void testOutsideGridAndGradeUseExactModel() {
+        final EnergyFlowModelImpl model = new EnergyFlowModelImpl("test", consumptionModel(true));
+        assertEquals(1000 * model.getMinFuelFlow(20, 5.5, 0, true)[0], model.getFuelFlowInLiterPerS(20, 5.5), 0);
+        assertEquals(1000 * model.getMinFuelFlow(20, 0.5, 0.02, true)[0], model.getFuelFlowInLiterPerS(20, 0.5, 0.02),
+                0);
+    }
+}
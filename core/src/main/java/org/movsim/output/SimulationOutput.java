@@ -36,6 +36,7 @@ import org.movsim.autogen.OutputConfiguration;
 import org.movsim.autogen.SpatioTemporalConfiguration;
 import org.movsim.autogen.Trajectories;
 import org.movsim.autogen.TravelTimes;
+import org.movsim.output.fileoutput.OutputCompression;
 import org.movsim.output.floatingcars.FloatingCars;
 import org.movsim.output.route.ConsumptionOnRoute;
 import org.movsim.output.route.FileTrajectories;
@@ -129,8 +130,10 @@ public class SimulationOutput implements SimulationTimeStep {
         for (final SpatioTemporalConfiguration spatioTemporalInput : outputConfiguration
                 .getSpatioTemporalConfiguration()) {
             final Route route = getCheckedRoute(spatioTemporalInput.getRoute());
+            final OutputCompression compression = OutputCompression.of(spatioTemporalInput.isCompression(),
+                    spatioTemporalInput.getCompressionLevel(), spatioTemporalInput.getCompressionBlockSize());
             final SpatioTemporal spatioTemporal = new SpatioTemporal(spatioTemporalInput.getDx(),
-                    spatioTemporalInput.getDt(), roadNetwork, route, writeOutput);
+                    spatioTemporalInput.getDt(), roadNetwork, route, writeOutput, compression);
             spatioTemporals.add(spatioTemporal);
         }
     }
@@ -167,4 +170,16 @@ public class SimulationOutput implements SimulationTimeStep {
 
     }
 
+    /**
+     * Completes the outputs which need it at the end of the simulation, such as the index of the binary trajectory
+     * output and of the single floating-car file.
+     */
+    public void close() {
+        for (final FloatingCars floatingCars : floatingCarOutputs) {
+            floatingCars.close();
+        }
+        for (final FileTrajectories filetraj : filesTrajectories.values()) {
+            filetraj.close();
+        }
+    }
 }
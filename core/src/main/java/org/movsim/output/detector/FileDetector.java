@@ -27,6 +27,7 @@ package org.movsim.output.detector;
 
 import org.movsim.input.ProjectMetaData;
 import org.movsim.output.fileoutput.FileOutputBase;
+import org.movsim.output.fileoutput.OutputCompression;
 import org.movsim.simulator.roadnetwork.Lanes;
 import org.movsim.utilities.Units;
 
@@ -59,9 +60,13 @@ public class FileDetector extends FileOutputBase {
      * @param detector
      *            the detector
      * @param laneCount
+     * @param compression
+     *            compression of the file
      */
-    public FileDetector(LoopDetector detector, String roadId, int laneCount, boolean loggingLanes) {
-        super(ProjectMetaData.getInstance().getOutputPath(), ProjectMetaData.getInstance().getProjectName());
+    public FileDetector(LoopDetector detector, String roadId, int laneCount, boolean loggingLanes,
+            OutputCompression compression) {
+        super(ProjectMetaData.getInstance().getOutputPath(), ProjectMetaData.getInstance().getProjectName(),
+                compression);
         final int xDetectorInt = (int) detector.getDetPosition();
         this.detector = detector;
         this.laneCount = laneCount;
@@ -25,23 +25,32 @@
  */
 package org.movsim.output.detector;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.movsim.output.fileoutput.OutputCompression;
 import org.movsim.simulator.MovsimConstants;
 import org.movsim.simulator.SimulationTimeStep;
 import org.movsim.simulator.roadnetwork.LaneSegment;
 import org.movsim.simulator.roadnetwork.RoadSegment;
+import org.movsim.simulator.vehicles.NeighbourView;
 import org.movsim.simulator.vehicles.Vehicle;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * The Class LoopDetector.
+ * 
+ * <p>
+ * The vehicles crossing the detector are reported by {@link LoopDetectors}, which finds them for all detectors of a road
+ * segment in a single sweep over the vehicles, see {@link #countVehicle(LaneSegment, Vehicle)}.
+ * </p>
  */
 public class LoopDetector implements SimulationTimeStep {
 
     final static Logger logger = LoggerFactory.getLogger(LoopDetector.class);
 
-    private final RoadSegment roadSegment;
-    
     private final double dtSample;
 
     private final double detPosition;
@@ -96,9 +105,11 @@ public class LoopDetector implements SimulationTimeStep {
      * @param dtSample
      * @param logging
      * @param loggingLanes
+     * @param compression
+     *            compression of the output file
      */
-    public LoopDetector(RoadSegment roadSegment, double detPosition, double dtSample, boolean logging, boolean loggingLanes) {
-        this.roadSegment = roadSegment;
+    public LoopDetector(RoadSegment roadSegment, double detPosition, double dtSample, boolean logging,
+            boolean loggingLanes, OutputCompression compression) {
         this.detPosition = detPosition;
         this.dtSample = dtSample;
         laneCount = roadSegment.laneCount();
@@ -126,7 +137,8 @@ public class LoopDetector implements SimulationTimeStep {
         }
         resetLaneAverages();
         
-        fileDetector = (logging) ? new FileDetector(this, roadSegment.userId(), roadSegment.laneCount(), loggingLanes) : null;
+        fileDetector = (logging) ? new FileDetector(this, roadSegment.userId(), roadSegment.laneCount(),
+                loggingLanes, compression) : null;
         if(fileDetector != null){
             fileDetector.writeAggregatedData(0);
         }
@@ -148,17 +160,21 @@ public class LoopDetector implements SimulationTimeStep {
         sumInvV[lane] = 0;
     }
 
+    /**
+     * Counts a vehicle whose front crossed the detector in the current time step, that is
+     * {@code frontPositionOld < detPosition <= frontPosition}. Must be called in lane order and, within a lane, in
+     * vehicle order before the {@link #timeStep(double, double, long)} of this step.
+     * 
+     * @param laneSegment
+     * @param vehicle
+     */
+    void countVehicle(LaneSegment laneSegment, Vehicle vehicle) {
+        assert vehicle.getFrontPositionOld() < detPosition && vehicle.getFrontPosition() >= detPosition;
+        countVehiclesAndDataForLane(laneSegment, laneSegment.lane() - 1, vehicle);
+    }
+
     @Override
     public void timeStep(double dt, double simulationTime, long iterationCount) {
-        // brute force search: iterate over all lanes
-        for (LaneSegment laneSegment : roadSegment.laneSegments()) {
-            for (final Vehicle vehicle : laneSegment) {
-                if ((vehicle.getFrontPositionOld() < detPosition) && (vehicle.getFrontPosition() >= detPosition)) {
-                    countVehiclesAndDataForLane(laneSegment, laneSegment.lane() - 1, vehicle);
-                }
-            }
-        }
-
         if ((simulationTime - timeOffset + MovsimConstants.SMALL_VALUE) >= dtSample) {
             for (int laneIndex = 0; laneIndex < laneCount; laneIndex++) {
                 calculateAveragesForLane(laneIndex);
@@ -186,7 +202,7 @@ public class LoopDetector implements SimulationTimeStep {
         occTime[laneIndex] += (speedVeh > 0) ? veh.getLength() / speedVeh : 0;
         sumInvV[laneIndex] += (speedVeh > 0) ? 1. / speedVeh : 0;
         // brut timegap not calculate from local detector data:
-        final Vehicle vehFront = laneSegment.frontVehicle(veh);
+        final NeighbourView vehFront = laneSegment.frontNeighbour(veh);
         final double brutTimegap = (vehFront == null) ? 0 : veh.getBrutDistance(vehFront) / vehFront.getSpeed();
         // "microscopic flow"
         sumInvQ[laneIndex] += (brutTimegap > 0) ? 1. / brutTimegap : 0;
@@ -298,4 +314,62 @@ public class LoopDetector implements SimulationTimeStep {
     public long getVehCumulatedCountOutput(int index) {
         return vehCumulatedCountOutput[index];
     }
+
+    /**
+     * Writes the accumulated data of the current sampling interval and the last averages.
+     * 
+     * @param out
+     * @throws IOException
+     */
+    public void writeState(DataOutput out) throws IOException {
+        out.writeDouble(timeOffset);
+        for (int i = 0; i < laneCount; i++) {
+            out.writeInt(vehCount[i]);
+            out.writeDouble(vSum[i]);
+            out.writeDouble(occTime[i]);
+            out.writeDouble(sumInvV[i]);
+            out.writeDouble(sumInvQ[i]);
+            out.writeDouble(meanSpeed[i]);
+            out.writeDouble(occupancy[i]);
+            out.writeInt(vehCountOutput[i]);
+            out.writeLong(vehCumulatedCountOutput[i]);
+            out.writeDouble(meanSpeedHarmonic[i]);
+            out.writeDouble(meanTimegapHarmonic[i]);
+        }
+        out.writeDouble(meanSpeedAllLanes);
+        out.writeInt(vehCountOutputAllLanes);
+        out.writeLong(vehCumulatedCountOutputAllLanes);
+        out.writeDouble(occupancyAllLanes);
+        out.writeDouble(meanSpeedHarmonicAllLanes);
+        out.writeDouble(meanTimegapHarmonicAllLanes);
+    }
+
+    /**
+     * Reads the state written by {@link #writeState(DataOutput)}.
+     * 
+     * @param in
+     * @throws IOException
+     */
+    public void readState(DataInput in) throws IOException {
+        timeOffset = in.readDouble();
+        for (int i = 0; i < laneCount; i++) {
+            vehCount[i] = in.readInt();
+            vSum[i] = in.readDouble();
+            occTime[i] = in.readDouble();
+            sumInvV[i] = in.readDouble();
+            sumInvQ[i] = in.readDouble();
+            meanSpeed[i] = in.readDouble();
+            occupancy[i] = in.readDouble();
+            vehCountOutput[i] = in.readInt();
+            vehCumulatedCountOutput[i] = in.readLong();
+            meanSpeedHarmonic[i] = in.readDouble();
+            meanTimegapHarmonic[i] = in.readDouble();
+        }
+        meanSpeedAllLanes = in.readDouble();
+        vehCountOutputAllLanes = in.readInt();
+        vehCumulatedCountOutputAllLanes = in.readLong();
+        occupancyAllLanes = in.readDouble();
+        meanSpeedHarmonicAllLanes = in.readDouble();
+        meanTimegapHarmonicAllLanes = in.readDouble();
+    }
 }
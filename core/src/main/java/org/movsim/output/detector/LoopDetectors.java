@@ -25,14 +25,20 @@
  */
 package org.movsim.output.detector;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 
 import org.movsim.autogen.CrossSection;
+import org.movsim.output.fileoutput.OutputCompression;
 import org.movsim.simulator.SimulationTimeStep;
+import org.movsim.simulator.roadnetwork.LaneSegment;
 import org.movsim.simulator.roadnetwork.RoadSegment;
+import org.movsim.simulator.vehicles.Vehicle;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -40,6 +46,13 @@ import com.google.common.base.Preconditions;
 
 /**
  * The Class LoopDetectors.
+ * 
+ * <p>
+ * The detectors act as position triggers: in each time step every vehicle of the road segment is visited once and the
+ * detectors in the interval (frontPositionOld, frontPosition] of the vehicle are found by a binary search over the sorted
+ * detector positions. The cost is thus proportional to the number of vehicles and only logarithmic in the number of
+ * detectors. Each detector still sees its crossing vehicles in lane order, so the aggregated data are unchanged.
+ * </p>
  */
 public class LoopDetectors implements SimulationTimeStep {
     final static Logger logger = LoggerFactory.getLogger(LoopDetectors.class);
@@ -47,6 +60,11 @@ public class LoopDetectors implements SimulationTimeStep {
     /** The detectors. */
     private final List<LoopDetector> detectors = new ArrayList<>();
 
+    /** The detector positions in increasing order, parallel to {@link #detectors}. */
+    private final double[] positions;
+
+    private final RoadSegment roadSegment;
+
     /**
      * Constructor.
      * 
@@ -55,10 +73,17 @@ public class LoopDetectors implements SimulationTimeStep {
      */
     public LoopDetectors(RoadSegment roadSegment, org.movsim.autogen.Detectors detectorInput) {
         Preconditions.checkNotNull(detectorInput);
+        this.roadSegment = Preconditions.checkNotNull(roadSegment);
         final double dtSample = detectorInput.getSampleInterval();
+        final OutputCompression compression = OutputCompression.of(detectorInput.isCompression(),
+                detectorInput.getCompressionLevel(), detectorInput.getCompressionBlockSize());
         for (final Double detPosition : getSortedPositions(detectorInput.getCrossSection())) {
             detectors.add(new LoopDetector(roadSegment, detPosition, dtSample, detectorInput.isLogging(),
-                    detectorInput.isLoggingLanes()));
+                    detectorInput.isLoggingLanes(), compression));
+        }
+        positions = new double[detectors.size()];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = detectors.get(i).getDetPosition();
         }
     }
 
@@ -81,9 +106,71 @@ public class LoopDetectors implements SimulationTimeStep {
 
     @Override
     public void timeStep(double dt, double simulationTime, long iterationCount) {
+        if (positions.length > 0) {
+            for (final LaneSegment laneSegment : roadSegment.laneSegments()) {
+                for (final Vehicle vehicle : laneSegment) {
+                    triggerDetectors(laneSegment, vehicle);
+                }
+            }
+        }
         for (final LoopDetector detector : detectors) {
             detector.timeStep(dt, simulationTime, iterationCount);
         }
     }
 
+    private void triggerDetectors(LaneSegment laneSegment, Vehicle vehicle) {
+        final double frontPosition = vehicle.getFrontPosition();
+        final double frontPositionOld = vehicle.getFrontPositionOld();
+        if (!(frontPositionOld < frontPosition)) {
+            return;
+        }
+        // the detectors with frontPositionOld < position <= frontPosition
+        for (int i = firstPositionAbove(frontPositionOld); i < positions.length && positions[i] <= frontPosition; i++) {
+            detectors.get(i).countVehicle(laneSegment, vehicle);
+        }
+    }
+
+    /**
+     * Returns the index of the first detector with a position greater than the given position, or the number of
+     * detectors if there is none.
+     */
+    private int firstPositionAbove(double position) {
+        int low = 0;
+        int high = positions.length;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (positions[mid] <= position) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the detectors in order of increasing position.
+     * 
+     * @return the unmodifiable list of detectors
+     */
+    public List<LoopDetector> getDetectors() {
+        return Collections.unmodifiableList(detectors);
+    }
+
+    public void writeState(DataOutput out) throws IOException {
+        out.writeInt(detectors.size());
+        for (final LoopDetector detector : detectors) {
+            detector.writeState(out);
+        }
+    }
+
+    public void readState(DataInput in) throws IOException {
+        if (in.readInt() != detectors.size()) {
+            throw new IOException("checkpoint does not match the number of detectors");
+        }
+        for (final LoopDetector detector : detectors) {
+            detector.readState(in);
+        }
+    }
+
 }
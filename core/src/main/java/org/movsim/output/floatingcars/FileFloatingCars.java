@@ -25,10 +25,13 @@
  */
 package org.movsim.output.floatingcars;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.PrintWriter;
 
 import org.movsim.input.ProjectMetaData;
 import org.movsim.output.fileoutput.FileOutputBase;
+import org.movsim.output.fileoutput.OutputCompression;
 import org.movsim.simulator.roadnetwork.routing.Route;
 import org.movsim.simulator.vehicles.PhysicalQuantities;
 import org.movsim.simulator.vehicles.Vehicle;
@@ -46,7 +49,8 @@ class FileFloatingCars extends FileOutputBase {
     final static Logger logger = LoggerFactory.getLogger(FileFloatingCars.class);
 
     private static final String extensionFormat = ".car.route_%s.%06d.csv";
-    private static final String extensionRegex = "[.]car[.]route_.*[.]\\d+[.]csv";
+    private static final String multiplexedExtensionFormat = ".car.route_%s";
+    private static final String extensionRegex = "[.]car[.]route_.*[.]\\d+[.]csv([.]gz)?";
 
     private static final String outputHeading = COMMENT_CHAR
             + "     t[s],    roadId,      lane,      x[m], totalX[m],    v[m/s],  a[m/s^2],aModel[m/s^2], gap[m],   dv[m/s],distToTL[m],fuelFlow[ml/s],frontVehID,slope[rad]";
@@ -54,22 +58,68 @@ class FileFloatingCars extends FileOutputBase {
     // note: number before decimal point is total width of field, not width of integer part
     private static final String outputFormat = "%10.2f,%10d,%10d,%10.1f,%10.2f,%10.3f,%10.5f,%10.5f,%10.3f,%10.5f,%10.2f,%10f,%10d,%8.5f%n";
 
+    /** extension of the single file of all vehicles */
+    public static final String MULTIPLEXED_EXTENSION = ".mux";
+
+    /** writer of the single file of all vehicles, null for one file per vehicle */
+    private final FloatingCarMultiplexWriter multiplexWriter;
+
     /**
-     * Instantiates a new FileFloatingCars.
+     * Instantiates a new FileFloatingCars with one file per vehicle.
      * 
-     * @param floatingCars
-     *            the floating cars
+     * @param compression
+     *            compression of the files
      */
-    FileFloatingCars() {
+    FileFloatingCars(OutputCompression compression) {
+        super(ProjectMetaData.getInstance().getOutputPath(), ProjectMetaData.getInstance().getProjectName(),
+                compression);
+        String regex = baseFilename + extensionRegex;
+        FileUtils.deleteFileList(path, regex);
+        multiplexWriter = null;
+    }
+
+    /**
+     * Instantiates a new FileFloatingCars which writes all vehicles of the route into a single file.
+     * 
+     * @param route
+     * @param blockSize
+     *            size of the buffer of a vehicle, in chars
+     * @param compression
+     *            deflates the blocks of the file if enabled
+     */
+    FileFloatingCars(Route route, int blockSize, OutputCompression compression) {
         super(ProjectMetaData.getInstance().getOutputPath(), ProjectMetaData.getInstance().getProjectName());
         String regex = baseFilename + extensionRegex;
         FileUtils.deleteFileList(path, regex);
+        final File file = new File(path, baseFilename + String.format(multiplexedExtensionFormat, route.getName())
+                + MULTIPLEXED_EXTENSION);
+        try {
+            multiplexWriter = new FloatingCarMultiplexWriter(file, blockSize, compression);
+        } catch (IOException e) {
+            throw new IllegalStateException("cannot open file for writing: " + file, e);
+        }
     }
 
     PrintWriter createWriter(Vehicle vehicle, Route route) {
+        if (multiplexWriter != null) {
+            return multiplexWriter.createWriter(vehicle.getVehNumber());
+        }
         return createWriter(String.format(extensionFormat, route.getName(), vehicle.getVehNumber()));
     }
 
+    /**
+     * Completes the single file of all vehicles with its index, the per-vehicle files are left open as before.
+     */
+    void close() {
+        if (multiplexWriter != null) {
+            try {
+                multiplexWriter.close();
+            } catch (IOException e) {
+                logger.error("cannot close floating car output", e);
+            }
+        }
+    }
+
     static void writeHeader(PrintWriter writer, Vehicle vehicle, Route route) {
         writer.println(String.format("%s vehicle id = %d", COMMENT_CHAR, vehicle.getId()));
         writer.println(String.format("%s random fix= %.8f", COMMENT_CHAR, vehicle.getRandomFix()));
@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2010, 2011, 2012 by Arne Kesting, Martin Treiber, Ralph Germ, Martin Budden
+ * <movsim.org@gmail.com>
+ * -----------------------------------------------------------------------------------------
+ * 
+ * This file is part of
+ * 
+ * MovSim - the multi-model open-source vehicular-traffic simulator.
+ * 
+ * MovSim is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * MovSim is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MovSim. If not, see <http://www.gnu.org/licenses/>
+ * or <http://www.movsim.org>.
+ * 
+ * -----------------------------------------------------------------------------------------
+ */
+package org.movsim.output.floatingcars;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads the floating-car file written with a single file for all vehicles, see {@link FloatingCarMultiplexWriter} for
+ * the layout. The text of a vehicle is read from its blocks listed in the index footer. A file without index footer,
+ * for example of an aborted run, is indexed by scanning the blocks.
+ */
+public class FloatingCarMultiplexReader implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FloatingCarMultiplexReader.class);
+
+    /** size of the block header after the magic number: vehicleNumber, storedLength, textLength */
+    private static final int BLOCK_HEADER_SIZE = 12;
+
+    private final RandomAccessFile file;
+    private final boolean deflated;
+    private final Map<Integer, List<Long>> vehicles = new LinkedHashMap<>();
+    private final boolean indexed;
+
+    /**
+     * Constructor, reads the header and the index.
+     * 
+     * @param file
+     * @throws IOException
+     *             if the file cannot be read or is not a multiplexed floating-car file
+     */
+    public FloatingCarMultiplexReader(File file) throws IOException {
+        this.file = new RandomAccessFile(file, "r");
+        try {
+            if (this.file.readInt() != FloatingCarMultiplexWriter.FILE_MAGIC) {
+                throw new IOException("not a movsim floating car file: " + file);
+            }
+            final int version = this.file.readInt();
+            if (version != FloatingCarMultiplexWriter.VERSION) {
+                throw new IOException("unsupported floating car file version=" + version);
+            }
+            deflated = this.file.readBoolean();
+            indexed = readIndex();
+            if (!indexed) {
+                LOG.warn("floating car file {} has no index, scanning the blocks", file);
+                scanBlocks();
+            }
+        } catch (IOException | RuntimeException e) {
+            this.file.close();
+            throw e;
+        }
+    }
+
+    private boolean readIndex() throws IOException {
+        final long headerEnd = file.getFilePointer();
+        final long length = file.length();
+        if (length < headerEnd + 12) {
+            return false;
+        }
+        file.seek(length - 12);
+        final long footerOffset = file.readLong();
+        if (file.readInt() != FloatingCarMultiplexWriter.TRAILER_MAGIC || footerOffset < headerEnd
+                || footerOffset > length - 12) {
+            file.seek(headerEnd);
+            return false;
+        }
+        file.seek(footerOffset);
+        if (file.readInt() != FloatingCarMultiplexWriter.FOOTER_MAGIC) {
+            throw new IOException("corrupt floating car index");
+        }
+        final int vehicleCount = file.readInt();
+        for (int i = 0; i < vehicleCount; i++) {
+            final int vehicleNumber = file.readInt();
+            final int blockCount = file.readInt();
+            final List<Long> offsets = new ArrayList<>(blockCount);
+            for (int j = 0; j < blockCount; j++) {
+                offsets.add(file.readLong());
+            }
+            vehicles.put(vehicleNumber, offsets);
+        }
+        return true;
+    }
+
+    private void scanBlocks() throws IOException {
+        final long length = file.length();
+        long offset = file.getFilePointer();
+        while (offset + 4 + BLOCK_HEADER_SIZE <= length) {
+            file.seek(offset);
+            if (file.readInt() != FloatingCarMultiplexWriter.BLOCK_MAGIC) {
+                break;
+            }
+            final int vehicleNumber = file.readInt();
+            final int storedLength = file.readInt();
+            final long next = offset + 4 + BLOCK_HEADER_SIZE + storedLength;
+            if (storedLength < 0 || next > length) {
+                // truncated block
+                break;
+            }
+            List<Long> offsets = vehicles.get(vehicleNumber);
+            if (offsets == null) {
+                offsets = new ArrayList<>();
+                vehicles.put(vehicleNumber, offsets);
+            }
+            offsets.add(offset);
+            offset = next;
+        }
+    }
+
+    /**
+     * Returns true if the file has an index footer, false if the blocks have been scanned.
+     */
+    public boolean isIndexed() {
+        return indexed;
+    }
+
+    /**
+     * Returns true if the blocks are deflated.
+     */
+    public boolean isDeflated() {
+        return deflated;
+    }
+
+    /**
+     * Returns the numbers of the vehicles in the order of their first block.
+     */
+    public List<Integer> vehicleNumbers() {
+        return Collections.unmodifiableList(new ArrayList<>(vehicles.keySet()));
+    }
+
+    /**
+     * Returns the number of blocks of the vehicle, 0 if the vehicle is not in the file.
+     */
+    public int blockCount(int vehicleNumber) {
+        final List<Long> offsets = vehicles.get(vehicleNumber);
+        return offsets == null ? 0 : offsets.size();
+    }
+
+    /**
+     * Reads the text of the vehicle, which is the content of the per-vehicle file.
+     * 
+     * @param vehicleNumber
+     * @return the text, empty if the vehicle is not in the file
+     * @throws IOException
+     */
+    public String readVehicle(int vehicleNumber) throws IOException {
+        final List<Long> offsets = vehicles.get(vehicleNumber);
+        if (offsets == null) {
+            return "";
+        }
+        final StringBuilder text = new StringBuilder();
+        for (final Long offset : offsets) {
+            text.append(readBlock(offset, vehicleNumber));
+        }
+        return text.toString();
+    }
+
+    private String readBlock(long offset, int vehicleNumber) throws IOException {
+        file.seek(offset);
+        if (file.readInt() != FloatingCarMultiplexWriter.BLOCK_MAGIC || file.readInt() != vehicleNumber) {
+            throw new IOException("corrupt floating car block at offset=" + offset);
+        }
+        final int storedLength = file.readInt();
+        final int textLength = file.readInt();
+        final byte[] stored = new byte[storedLength];
+        file.readFully(stored);
+        if (!deflated) {
+            return new String(stored, FloatingCarMultiplexWriter.CHARSET);
+        }
+        final Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(stored);
+            final byte[] bytes = new byte[textLength];
+            int count = 0;
+            while (count < textLength && !inflater.finished()) {
+                final int inflated = inflater.inflate(bytes, count, textLength - count);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                count += inflated;
+            }
+            if (count != textLength) {
+                throw new IOException("corrupt floating car block at offset=" + offset);
+            }
+            return new String(bytes, FloatingCarMultiplexWriter.CHARSET);
+        } catch (DataFormatException e) {
+            throw new IOException("corrupt floating car block at offset=" + offset, e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+}
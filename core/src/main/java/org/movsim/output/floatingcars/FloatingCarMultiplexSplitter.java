@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2010, 2011, 2012 by Arne Kesting, Martin Treiber, Ralph Germ, Martin Budden
+ * <movsim.org@gmail.com>
+ * -----------------------------------------------------------------------------------------
+ * 
+ * This file is part of
+ * 
+ * MovSim - the multi-model open-source vehicular-traffic simulator.
+ * 
+ * MovSim is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * MovSim is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MovSim. If not, see <http://www.gnu.org/licenses/>
+ * or <http://www.movsim.org>.
+ * 
+ * -----------------------------------------------------------------------------------------
+ */
+package org.movsim.output.floatingcars;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.movsim.utilities.FileUtils;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Splits the floating-car file written with a single file for all vehicles into the per-vehicle files, which are the
+ * same as written by the per-vehicle floating-car output.
+ */
+public final class FloatingCarMultiplexSplitter {
+
+    private FloatingCarMultiplexSplitter() {
+        throw new IllegalStateException("do not instanciate");
+    }
+
+    /**
+     * Returns the name of the per-vehicle file.
+     * 
+     * @param multiplexedFilename
+     *            the name of the file of all vehicles, ending with {@link FileFloatingCars#MULTIPLEXED_EXTENSION}
+     * @param vehicleNumber
+     * @return the filename
+     */
+    public static String vehicleFilename(String multiplexedFilename, int vehicleNumber) {
+        Preconditions.checkArgument(multiplexedFilename.endsWith(FileFloatingCars.MULTIPLEXED_EXTENSION),
+                "not a multiplexed floating car file: " + multiplexedFilename);
+        final String base = multiplexedFilename.substring(0, multiplexedFilename.length()
+                - FileFloatingCars.MULTIPLEXED_EXTENSION.length());
+        return String.format("%s.%06d.csv", base, vehicleNumber);
+    }
+
+    /**
+     * Writes the per-vehicle files of all vehicles in the file.
+     * 
+     * @param multiplexedFile
+     *            the file of all vehicles
+     * @param outputDirectory
+     *            the directory of the per-vehicle files
+     * @return the per-vehicle files
+     * @throws IOException
+     */
+    public static List<File> split(File multiplexedFile, File outputDirectory) throws IOException {
+        final List<File> files = new ArrayList<>();
+        try (FloatingCarMultiplexReader reader = new FloatingCarMultiplexReader(multiplexedFile)) {
+            for (final Integer vehicleNumber : reader.vehicleNumbers()) {
+                final File file = new File(outputDirectory, vehicleFilename(multiplexedFile.getName(), vehicleNumber));
+                final PrintWriter writer = FileUtils.getWriter(file.getPath());
+                if (writer == null) {
+                    throw new IOException("cannot open file for writing: " + file);
+                }
+                writer.write(reader.readVehicle(vehicleNumber));
+                writer.close();
+                if (writer.checkError()) {
+                    throw new IOException("cannot write file: " + file);
+                }
+                files.add(file);
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Splits the given floating-car file into the per-vehicle files.
+     * 
+     * @param args
+     *            the file of all vehicles and optionally the output directory, by default the directory of the file
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("usage: FloatingCarMultiplexSplitter <file" + FileFloatingCars.MULTIPLEXED_EXTENSION
+                    + "> [output directory]");
+            System.exit(1);
+        }
+        final File multiplexedFile = new File(args[0]);
+        final File outputDirectory = args.length > 1 ? new File(args[1]) : multiplexedFile.getAbsoluteFile()
+                .getParentFile();
+        final List<File> files = split(multiplexedFile, outputDirectory);
+        System.out.println("wrote " + files.size() + " floating car files to " + outputDirectory);
+    }
+}
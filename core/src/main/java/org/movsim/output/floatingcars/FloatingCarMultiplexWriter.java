@@ -0,0 +1,260 @@
+/*
+ * Copyright (C) 2010, 2011, 2012 by Arne Kesting, Martin Treiber, Ralph Germ, Martin Budden
+ * <movsim.org@gmail.com>
+ * -----------------------------------------------------------------------------------------
+ * 
+ * This file is part of
+ * 
+ * MovSim - the multi-model open-source vehicular-traffic simulator.
+ * 
+ * MovSim is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * MovSim is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MovSim. If not, see <http://www.gnu.org/licenses/>
+ * or <http://www.movsim.org>.
+ * 
+ * -----------------------------------------------------------------------------------------
+ */
+package org.movsim.output.floatingcars;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+import org.movsim.output.fileoutput.OutputCompression;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.CountingOutputStream;
+
+/**
+ * <p>
+ * Writes the floating-car records of all vehicles of a route into one append-only file instead of one file per
+ * vehicle. The text of each vehicle, exactly as it would be written to its own file, is collected in a buffer and
+ * appended as a block to the file when the buffer is full. The index footer lists the offsets of the blocks of each
+ * vehicle, see {@link FloatingCarMultiplexReader} for reading and {@link FloatingCarMultiplexSplitter} for splitting
+ * the file into the per-vehicle files.
+ * </p>
+ * 
+ * <pre>
+ * header:  int FILE_MAGIC, int VERSION, boolean deflated
+ * block:   int BLOCK_MAGIC, int vehicleNumber, int storedLength, int textLength, byte[storedLength] text
+ *          (UTF-8, deflated if the header says so)
+ * footer:  int FOOTER_MAGIC, int vehicleCount, vehicleCount x (int vehicleNumber, int blockCount,
+ *          blockCount x long offset)
+ * trailer: long footerOffset, int TRAILER_MAGIC
+ * </pre>
+ */
+class FloatingCarMultiplexWriter implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FloatingCarMultiplexWriter.class);
+
+    static final int FILE_MAGIC = 0x4d464358; // "MFCX"
+    static final int BLOCK_MAGIC = 0x4d46424b; // "MFBK"
+    static final int FOOTER_MAGIC = 0x4d464958; // "MFIX"
+    static final int TRAILER_MAGIC = 0x4d46454e; // "MFEN"
+    static final int VERSION = 1;
+
+    static final Charset CHARSET = Charset.forName("UTF-8");
+
+    /** default size of the buffer of a vehicle, in chars */
+    static final int DEFAULT_BLOCK_SIZE = 8192;
+
+    /** all buffers are written when the buffered text of all vehicles exceeds this size, in chars */
+    static final int MAX_BUFFERED_CHARS = 1 << 22;
+
+    private final CountingOutputStream counter;
+    private final DataOutputStream out;
+    private final int blockSize;
+    private final Deflater deflater;
+    private final byte[] deflated;
+
+    private final Map<Integer, VehicleBlocks> vehicles = new LinkedHashMap<>();
+    private long bufferedChars;
+
+    private boolean closed;
+
+    /**
+     * Constructor, writes the header.
+     * 
+     * @param file
+     * @param blockSize
+     *            size of the buffer of a vehicle, in chars
+     * @param compression
+     *            if enabled the blocks are deflated with the level of the compression
+     * @throws IOException
+     */
+    FloatingCarMultiplexWriter(File file, int blockSize, OutputCompression compression) throws IOException {
+        Preconditions.checkArgument(blockSize > 0, "blockSize=" + blockSize);
+        this.blockSize = blockSize;
+        this.deflater = compression.isEnabled() ? new Deflater(compression.getLevel()) : null;
+        this.deflated = new byte[8192];
+        counter = new CountingOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+        out = new DataOutputStream(counter);
+        out.writeInt(FILE_MAGIC);
+        out.writeInt(VERSION);
+        out.writeBoolean(deflater != null);
+        LOG.info("open file {} for writing the floating cars of all vehicles", file);
+    }
+
+    /**
+     * Returns the writer for the records of the given vehicle. {@link PrintWriter#flush()} appends the text as a block
+     * to the file only if the buffer of the vehicle is full.
+     * 
+     * @param vehicleNumber
+     * @return the writer
+     */
+    PrintWriter createWriter(int vehicleNumber) {
+        Preconditions.checkState(!closed, "floating car file already closed");
+        VehicleBlocks blocks = vehicles.get(vehicleNumber);
+        if (blocks == null) {
+            blocks = new VehicleBlocks(vehicleNumber);
+            vehicles.put(vehicleNumber, blocks);
+        }
+        return new PrintWriter(blocks);
+    }
+
+    private void writeBlock(VehicleBlocks blocks) throws IOException {
+        final StringBuilder text = blocks.text;
+        if (text.length() == 0) {
+            return;
+        }
+        final byte[] bytes = text.toString().getBytes(CHARSET);
+        blocks.offsets.add(counter.getCount());
+        out.writeInt(BLOCK_MAGIC);
+        out.writeInt(blocks.vehicleNumber);
+        if (deflater == null) {
+            out.writeInt(bytes.length);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        } else {
+            final byte[] stored = deflate(bytes);
+            out.writeInt(stored.length);
+            out.writeInt(bytes.length);
+            out.write(stored);
+        }
+        bufferedChars -= text.length();
+        text.setLength(0);
+    }
+
+    private byte[] deflate(byte[] bytes) {
+        deflater.reset();
+        deflater.setInput(bytes);
+        deflater.finish();
+        final ByteArrayOutputStream stored = new ByteArrayOutputStream(bytes.length / 4 + 64);
+        while (!deflater.finished()) {
+            final int count = deflater.deflate(deflated);
+            stored.write(deflated, 0, count);
+        }
+        return stored.toByteArray();
+    }
+
+    private void writeAllBlocks() throws IOException {
+        for (final VehicleBlocks blocks : vehicles.values()) {
+            writeBlock(blocks);
+        }
+    }
+
+    /**
+     * Writes the buffered text of all vehicles and the index footer and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            writeAllBlocks();
+            final long footerOffset = counter.getCount();
+            out.writeInt(FOOTER_MAGIC);
+            out.writeInt(vehicles.size());
+            for (final VehicleBlocks blocks : vehicles.values()) {
+                out.writeInt(blocks.vehicleNumber);
+                out.writeInt(blocks.offsets.size());
+                for (final Long offset : blocks.offsets) {
+                    out.writeLong(offset);
+                }
+            }
+            out.writeLong(footerOffset);
+            out.writeInt(TRAILER_MAGIC);
+        } finally {
+            out.close();
+            if (deflater != null) {
+                deflater.end();
+            }
+        }
+    }
+
+    /**
+     * The buffer of a vehicle and the offsets of its blocks.
+     */
+    private final class VehicleBlocks extends Writer {
+        final int vehicleNumber;
+        final StringBuilder text = new StringBuilder();
+        final List<Long> offsets = new ArrayList<>();
+
+        VehicleBlocks(int vehicleNumber) {
+            this.vehicleNumber = vehicleNumber;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            if (closed) {
+                throw new IOException("floating car file already closed");
+            }
+            text.append(cbuf, off, len);
+            bufferedChars += len;
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            if (closed) {
+                throw new IOException("floating car file already closed");
+            }
+            text.append(str, off, off + len);
+            bufferedChars += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (closed) {
+                return;
+            }
+            if (text.length() >= blockSize) {
+                writeBlock(this);
+            }
+            if (bufferedChars > MAX_BUFFERED_CHARS) {
+                writeAllBlocks();
+            }
+        }
+
+        /**
+         * The text is written with the other vehicles by {@link FloatingCarMultiplexWriter#close()}.
+         */
+        @Override
+        public void close() {
+        }
+    }
+}
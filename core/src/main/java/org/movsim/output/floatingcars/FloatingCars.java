@@ -32,6 +32,7 @@ import java.util.HashSet;
 import java.util.Map;
 
 import org.movsim.autogen.FloatingCarOutput;
+import org.movsim.output.fileoutput.OutputCompression;
 import org.movsim.simulator.SimulationTimeStep;
 import org.movsim.simulator.roadnetwork.RoadSegment;
 import org.movsim.simulator.roadnetwork.routing.Route;
@@ -78,10 +79,19 @@ public class FloatingCars implements SimulationTimeStep {
         for (org.movsim.autogen.FloatingCar fc : floatingCarOutput.getFloatingCar()) {
             floatingCarVehicleNumbers.add(Integer.valueOf(fc.getNumber()));
         }
-        fileFloatingCars = (writeFileOutput) ? new FileFloatingCars() : null;
+        fileFloatingCars = (writeFileOutput) ? createFileFloatingCars(floatingCarOutput, route) : null;
         printWriters = new HashMap<>(149, 0.75f);
     }
 
+    private static FileFloatingCars createFileFloatingCars(FloatingCarOutput floatingCarOutput, Route route) {
+        final OutputCompression compression = OutputCompression.of(floatingCarOutput.isCompression(),
+                floatingCarOutput.getCompressionLevel(), floatingCarOutput.getCompressionBlockSize());
+        if (floatingCarOutput.isSingleFile()) {
+            return new FileFloatingCars(route, floatingCarOutput.getBlockSize(), compression);
+        }
+        return new FileFloatingCars(compression);
+    }
+
     @Override
     public void timeStep(double dt, double simulationTime, long iterationCount) {
         if (fileFloatingCars != null && iterationCount % nDtOut == 0) {
@@ -119,6 +129,15 @@ public class FloatingCars implements SimulationTimeStep {
         return null;
     }
 
+    /**
+     * Completes the single floating-car file of all vehicles, if configured.
+     */
+    public void close() {
+        if (fileFloatingCars != null) {
+            fileFloatingCars.close();
+        }
+    }
+
     private boolean selectRandomPercentage(Vehicle vehicle) {
         return (vehicle.getRandomFix() < randomFraction) && (vehicle.roadSegmentId() == route.getOrigin().id());
     }
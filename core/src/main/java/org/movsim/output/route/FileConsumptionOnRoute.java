@@ -3,6 +3,7 @@ package org.movsim.output.route;
 import org.movsim.autogen.ConsumptionCalculation;
 import org.movsim.input.ProjectMetaData;
 import org.movsim.output.fileoutput.FileOutputBase;
+import org.movsim.output.fileoutput.OutputCompression;
 import org.movsim.simulator.MovsimConstants;
 import org.movsim.simulator.roadnetwork.routing.Route;
 
@@ -24,7 +25,9 @@ public class FileConsumptionOnRoute extends FileOutputBase {
     private final ConsumptionCalculation consumptionConfig;
 
     public FileConsumptionOnRoute(ConsumptionCalculation fuelRouteInput, Route route) {
-        super(ProjectMetaData.getInstance().getOutputPath(), ProjectMetaData.getInstance().getProjectName());
+        super(ProjectMetaData.getInstance().getOutputPath(), ProjectMetaData.getInstance().getProjectName(),
+                OutputCompression.of(fuelRouteInput.isCompression(), fuelRouteInput.getCompressionLevel(),
+                        fuelRouteInput.getCompressionBlockSize()));
         this.consumptionConfig = Preconditions.checkNotNull(fuelRouteInput);
         lastUpdateTime = 0;
         writer = createWriter(String.format(extensionFormat, route.getName()));
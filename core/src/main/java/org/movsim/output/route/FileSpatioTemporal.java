@@ -27,6 +27,7 @@ package org.movsim.output.route;
 
 import org.movsim.input.ProjectMetaData;
 import org.movsim.output.fileoutput.FileOutputBase;
+import org.movsim.output.fileoutput.OutputCompression;
 
 /**
  * The Class FileSpatioTemporal.
@@ -37,8 +38,9 @@ class FileSpatioTemporal extends FileOutputBase {
     private static final String outputHeading = COMMENT_CHAR + "     t[s],       x[m],     v[m/s],   a[m/s^2]\n";
     private static final String outputFormat = "%10.2f, %10.1f, %10.4f, %10.4f%n";
 
-    FileSpatioTemporal(String routeLabel) {
-        super(ProjectMetaData.getInstance().getOutputPath(), ProjectMetaData.getInstance().getProjectName());
+    FileSpatioTemporal(String routeLabel, OutputCompression compression) {
+        super(ProjectMetaData.getInstance().getOutputPath(), ProjectMetaData.getInstance().getProjectName(),
+                compression);
         writer = createWriter(String.format(extensionFormat, routeLabel));
         writer.printf(outputHeading);
         writer.flush();
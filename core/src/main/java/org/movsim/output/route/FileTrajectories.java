@@ -25,29 +25,38 @@
  */
 package org.movsim.output.route;
 
+import java.io.File;
+import java.io.IOException;
+
 import org.movsim.autogen.Trajectories;
+import org.movsim.autogen.TrajectoryFormatEnum;
 import org.movsim.input.ProjectMetaData;
 import org.movsim.output.fileoutput.FileOutputBase;
+import org.movsim.output.fileoutput.OutputCompression;
+import org.movsim.output.trajectories.TrajectoryCsvConverter;
+import org.movsim.output.trajectories.TrajectoryVehicle;
+import org.movsim.output.trajectories.TrajectoryWriter;
 import org.movsim.simulator.MovsimConstants;
 import org.movsim.simulator.SimulationTimeStep;
 import org.movsim.simulator.roadnetwork.LaneSegment;
 import org.movsim.simulator.roadnetwork.RoadSegment;
 import org.movsim.simulator.roadnetwork.routing.Route;
+import org.movsim.simulator.vehicles.NeighbourView;
 import org.movsim.simulator.vehicles.Vehicle;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
 
 /**
- * The Class FileTrajectories.
+ * The Class FileTrajectories. Writes the trajectories either as csv or in the binary format of
+ * {@link TrajectoryWriter}, which is converted to csv by {@link TrajectoryCsvConverter}.
  */
 public class FileTrajectories extends FileOutputBase implements SimulationTimeStep {
 
-    private static final String extensionFormat = ".traj.route_%s.csv";
-    private static final String outputHeading = COMMENT_CHAR
-            + "     t[s], lane,       x[m],     v[m/s],   a[m/s^2],     gap[m],    dv[m/s], label,           id,  roadId, originId, infoComment, absTime, xWithOffset[m]";
-    private static final String outputFormat = "%10.2f, %4d, %10.1f, %10.4f, %10.5f, %10.2f, %10.6f,  %s, %12d, %8d, %8d, %s, %s, %10.4f%n";
+    private static final String extensionFormat = ".traj.route_%s";
+    private static final String outputFormat = TrajectoryCsvConverter.OUTPUT_FORMAT;
 
     /** The Constant LOG. */
     private final static Logger logger = LoggerFactory.getLogger(FileTrajectories.class);
@@ -60,6 +69,10 @@ public class FileTrajectories extends FileOutputBase implements SimulationTimeSt
 
     private final Trajectories traj;
 
+    /** writer of the binary format, null for csv */
+    private TrajectoryWriter binaryWriter;
+    private boolean closed;
+
     /**
      * Instantiates a new trajectories.
      * 
@@ -67,7 +80,9 @@ public class FileTrajectories extends FileOutputBase implements SimulationTimeSt
      *            the trajectories input
      */
     public FileTrajectories(Trajectories traj, Route route) {
-        super(ProjectMetaData.getInstance().getOutputPath(), ProjectMetaData.getInstance().getProjectName());
+        super(ProjectMetaData.getInstance().getOutputPath(), ProjectMetaData.getInstance().getProjectName(),
+                traj.getFormat() == TrajectoryFormatEnum.BINARY ? OutputCompression.NONE : OutputCompression.of(
+                        traj.isCompression(), traj.getCompressionLevel(), traj.getCompressionBlockSize()));
         this.traj = Preconditions.checkNotNull(traj);
         this.route = Preconditions.checkNotNull(route);
         positionIntervalStart = 0;
@@ -75,26 +90,55 @@ public class FileTrajectories extends FileOutputBase implements SimulationTimeSt
 
         logger.info("interval for output: timeStart=" + (traj.isSetStartTime() ? traj.getStartTime() : "--")
                 + ", timeEnd=" + (traj.isSetEndTime() ? traj.getEndTime() : "--"));
-        writer = createWriter(String.format(extensionFormat, route.getName()));
-        writeHeader(route);
+        final String extension = String.format(extensionFormat, route.getName());
+        if (traj.getFormat() == TrajectoryFormatEnum.BINARY) {
+            if (traj.isCompression()) {
+                // the reader seeks to the chunks of the binary format, which is compact already
+                logger.warn("compression is not supported for the binary trajectory output, ignored");
+            }
+            final File file = new File(path, baseFilename + extension + TrajectoryCsvConverter.BINARY_EXTENSION);
+            try {
+                binaryWriter = new TrajectoryWriter(file, route.getName(), route.toString(), ProjectMetaData
+                        .getInstance().getTimeOffsetMillis(), traj.getOffsetPosition());
+            } catch (IOException e) {
+                throw new IllegalStateException("cannot open file for writing: " + file, e);
+            }
+        } else {
+            writer = createWriter(extension + TrajectoryCsvConverter.CSV_EXTENSION);
+            writeHeader(route);
+        }
     }
 
     private void writeHeader(Route route) {
-        writer.println(String.format("%s %s", COMMENT_CHAR, route.toString()));
-        writer.println(outputHeading);
+        TrajectoryCsvConverter.writeHeader(writer, route.toString());
         writer.flush();
     }
 
+    /**
+     * Completes the binary output with its index footer, the csv output is left open as before.
+     */
+    public void close() {
+        closed = true;
+        if (binaryWriter != null) {
+            try {
+                binaryWriter.close();
+            } catch (IOException e) {
+                logger.error("cannot close trajectory output", e);
+            }
+        }
+    }
+
     @Override
     public void timeStep(double dt, double simulationTime, long iterationCount) {
         this.time = simulationTime;
-        if (isLargerThanStartTimeInterval() && isSmallerThanEndTimeInterval()) {
+        if (!closed && isLargerThanStartTimeInterval() && isSmallerThanEndTimeInterval()) {
             if (iterationCount % 1000 == 0) {
                 logger.info("time = {}, timestep= {}", time, dt);
             }
             if ((time - lastUpdateTime + MovsimConstants.SMALL_VALUE) >= traj.getDt()) {
                 lastUpdateTime = time;
-                String formattedTime = ProjectMetaData.getInstance().getFormatedTimeWithOffset(simulationTime);
+                final String formattedTime = binaryWriter == null ? ProjectMetaData.getInstance()
+                        .getFormatedTimeWithOffset(simulationTime) : null;
                 writeTrajectories(formattedTime);
             }
         }
@@ -131,7 +175,8 @@ public class FileTrajectories extends FileOutputBase implements SimulationTimeSt
                     if (!traj.isSetRandomFraction() || vehicle.getRandomFix() < traj.getRandomFraction()) {
                         if (vehicle.getFrontPosition() >= positionIntervalStart
                                 && vehicle.getFrontPosition() <= positionIntervalEnd) {
-                            writeVehicleData(vehicle, positionOnRoute, laneSegment.frontVehicle(vehicle), formattedTime);
+                            writeVehicleData(vehicle, positionOnRoute, laneSegment.frontNeighbour(vehicle),
+                                    formattedTime);
                         }
                     }
                 }
@@ -147,14 +192,31 @@ public class FileTrajectories extends FileOutputBase implements SimulationTimeSt
      * @param positionOnRoute
      * @param frontVehicle
      */
-    private void writeVehicleData(Vehicle me, double positionOnRoute, Vehicle frontVehicle, String formattedTime) {
+    private void writeVehicleData(Vehicle me, double positionOnRoute, NeighbourView frontVehicle,
+            String formattedTime) {
         final double pos = me.getFrontPosition() + positionOnRoute;
-        final double s = (frontVehicle == null || frontVehicle.type() == Vehicle.Type.OBSTACLE) ? 0 : me
+        final double s = (frontVehicle == null || frontVehicle.vehicle().type() == Vehicle.Type.OBSTACLE) ? 0 : me
                 .getNetDistance(frontVehicle);
-        final double dv = (frontVehicle == null || frontVehicle.type() == Vehicle.Type.OBSTACLE) ? 0 : me
+        final double dv = (frontVehicle == null || frontVehicle.vehicle().type() == Vehicle.Type.OBSTACLE) ? 0 : me
                 .getRelSpeed(frontVehicle);
+        if (binaryWriter != null) {
+            writeBinaryVehicleData(me, pos, s, dv);
+            return;
+        }
         write(outputFormat, time, me.lane(), pos, me.getSpeed(), me.getAcc(), s, dv, me.getLabel(), me.getId(),
                 me.roadSegmentId(), me.originRoadSegmentId(), me.getInfoComment(), formattedTime,
                 pos + traj.getOffsetPosition());
     }
+
+    private void writeBinaryVehicleData(Vehicle me, double pos, double s, double dv) {
+        try {
+            if (!binaryWriter.hasVehicle(me.getId())) {
+                binaryWriter.addVehicle(new TrajectoryVehicle(me.getId(), Strings.nullToEmpty(me.getLabel()), me
+                        .originRoadSegmentId(), Strings.nullToEmpty(me.getInfoComment())));
+            }
+            binaryWriter.add(time, me.getId(), me.roadSegmentId(), me.lane(), pos, me.getSpeed(), me.getAcc(), s, dv);
+        } catch (IOException e) {
+            throw new IllegalStateException("cannot write trajectory output", e);
+        }
+    }
 }
@@ -2,6 +2,7 @@ package org.movsim.output.route;
 
 import org.movsim.input.ProjectMetaData;
 import org.movsim.output.fileoutput.FileOutputBase;
+import org.movsim.output.fileoutput.OutputCompression;
 import org.movsim.simulator.MovsimConstants;
 import org.movsim.simulator.roadnetwork.routing.Route;
 import org.movsim.utilities.Units;
@@ -18,8 +19,9 @@ public class FileTravelTimeOnRoute extends FileOutputBase {
 
     private double lastUpdateTime;
 
-    public FileTravelTimeOnRoute(double dtOut, Route route) {
-        super(ProjectMetaData.getInstance().getOutputPath(), ProjectMetaData.getInstance().getProjectName());
+    public FileTravelTimeOnRoute(double dtOut, Route route, OutputCompression compression) {
+        super(ProjectMetaData.getInstance().getOutputPath(), ProjectMetaData.getInstance().getProjectName(),
+                compression);
         this.dtOutput = dtOut;
         lastUpdateTime = 0;
         writer = createWriter(String.format(extensionFormat, route.getName()));
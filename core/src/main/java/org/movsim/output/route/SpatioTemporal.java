@@ -25,15 +25,16 @@
  */
 package org.movsim.output.route;
 
+import java.util.Arrays;
 import java.util.Comparator;
-import java.util.TreeSet;
 
+import org.movsim.output.fileoutput.OutputCompression;
+import org.movsim.simulator.roadnetwork.LaneSegment;
 import org.movsim.simulator.roadnetwork.RoadNetwork;
 import org.movsim.simulator.roadnetwork.RoadSegment;
 import org.movsim.simulator.roadnetwork.routing.Route;
 import org.movsim.simulator.vehicles.Vehicle;
 import org.movsim.simulator.vehicles.Vehicle.Type;
-import org.movsim.utilities.Tables;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -45,6 +46,11 @@ public class SpatioTemporal extends OutputOnRouteBase {
     /** The Constant LOG. */
     final static Logger logger = LoggerFactory.getLogger(SpatioTemporal.class);
 
+    /** data points closer than this are a jump of the interpolated function */
+    private static final double TINY_VALUE = 1.e-10;
+
+    private static final int INITIAL_CAPACITY = 256;
+
     private final double dxOutput;
     private final double dtOutput;
 
@@ -55,7 +61,21 @@ public class SpatioTemporal extends OutputOnRouteBase {
 
     private final FileSpatioTemporal fileWriter;
 
-    public SpatioTemporal(double dxOut, double dtOut, RoadNetwork roadNetwork, Route route, boolean writeOutput) {
+    /** the data points along the route in increasing order, reused between the samples */
+    private double[] positions = new double[INITIAL_CAPACITY];
+    private double[] speeds = new double[INITIAL_CAPACITY];
+    private double[] accelerations = new double[INITIAL_CAPACITY];
+    /** order of the vehicle in the iteration of the road segments, decides between vehicles at the same position */
+    private int[] orders = new int[INITIAL_CAPACITY];
+    private int dataCount;
+
+    /** the lanes of the road segment and the index of their next vehicle while merging, from rear to front */
+    private LaneSegment[] laneSegments = new LaneSegment[0];
+    private int[] laneIndexes = new int[0];
+    private int[] laneOrders = new int[0];
+
+    public SpatioTemporal(double dxOut, double dtOut, RoadNetwork roadNetwork, Route route, boolean writeOutput,
+            OutputCompression compression) {
         super(roadNetwork, route);
         this.dxOutput = dxOut;
         this.dtOutput = dtOut;
@@ -65,7 +85,7 @@ public class SpatioTemporal extends OutputOnRouteBase {
         macroSpeed = new double[size];
         macroAcceleration = new double[size];
 
-        fileWriter = writeOutput ? new FileSpatioTemporal(route.getName()) : null;
+        fileWriter = writeOutput ? new FileSpatioTemporal(route.getName(), compression) : null;
     }
 
     @Override
@@ -83,56 +103,188 @@ public class SpatioTemporal extends OutputOnRouteBase {
      * Calculate data.
      */
     private void calcData() {
-
-        TreeSet<SpatialTemporal> dataPoints = gatherData();
-
-        if (!dataPoints.isEmpty()) {
-            interpolateGridData(dataPoints);
+        gatherData();
+        if (dataCount > 0) {
+            interpolateGridData();
         }
     }
 
-    private void interpolateGridData(TreeSet<SpatialTemporal> dataPoints) {
-        int size = dataPoints.size();
-        final double[] xMicro = new double[size];
-        final double[] vMicro = new double[size];
-        final double[] aMicro = new double[size];
-        int j = 0;
-        for (SpatialTemporal dp : dataPoints) {
-            // LOG.debug("data point for interpolation={}", dp.toString());
-            vMicro[j] = dp.speed;
-            xMicro[j] = dp.position;
-            aMicro[j] = dp.acceleration;
-            ++j;
-        }
-
+    /**
+     * Interpolates the data points linearly at the grid positions in one sweep, the grid and the data points are both
+     * in increasing order. Data points closer than {@link #TINY_VALUE} are a jump, as in
+     * {@link org.movsim.utilities.InterpolationTable}.
+     */
+    private void interpolateGridData() {
+        final int n = dataCount;
+        // number of data points at or before the grid position, at most n-1
+        int index = 0;
         for (int i = 0; i < macroSpeed.length; ++i) {
             final double x = i * dxOutput;
-            macroSpeed[i] = Tables.intpextp(xMicro, vMicro, x);
-            macroAcceleration[i] = Tables.intpextp(xMicro, aMicro, x);
+            while (index < n - 1 && positions[index] <= x) {
+                ++index;
+            }
+            if (index == 0) {
+                macroSpeed[i] = speeds[0];
+                macroAcceleration[i] = accelerations[0];
+            } else if (index == n - 1 && x > positions[n - 1]) {
+                macroSpeed[i] = speeds[n - 1];
+                macroAcceleration[i] = accelerations[n - 1];
+            } else {
+                macroSpeed[i] = interpolate(speeds, index, x);
+                macroAcceleration[i] = interpolate(accelerations, index, x);
+            }
         }
     }
 
-    /** Returns sorted set with increasing vehicle positions along the route. Not efficient but robust. */
-    private TreeSet<SpatialTemporal> gatherData() {
-        TreeSet<SpatialTemporal> dataPoints = new TreeSet<>(new Comparator<SpatialTemporal>() {
-            @Override
-            public int compare(SpatialTemporal o1, SpatialTemporal o2) {
-                return (new Double(o1.position)).compareTo(new Double(o2.position));
-            }
-        });
+    private double interpolate(double[] y, int i, double x) {
+        final double dx = positions[i] - positions[i - 1];
+        double offset = y[i - 1];
+        double slope = 0;
+        if (Math.abs(dx) < TINY_VALUE) {
+            offset = y[i];
+        } else {
+            slope = (y[i] - y[i - 1]) / dx;
+        }
+        return offset + slope * (x - positions[i - 1]);
+    }
 
+    /**
+     * Gathers the vehicles along the route in order of increasing position into the data arrays, a vehicle at the same
+     * position as a vehicle gathered before is ignored. The lanes of a road segment are sorted already and merged in
+     * one sweep; should a lane or the road segments overlap, the data points are sorted.
+     */
+    private void gatherData() {
+        dataCount = 0;
+        boolean sorted = true;
         double positionOnRoute = 0;
+        int order = 0;
         for (final RoadSegment roadSegment : route) {
-            for (Vehicle veh : roadSegment) {
-                if (veh.type() == Type.OBSTACLE) {
-                    continue;
-                }
-                double position = positionOnRoute + veh.getFrontPosition();
-                dataPoints.add(new SpatialTemporal(position, veh.getSpeed(), veh.getLength(), veh.getAcc()));
+            final int start = dataCount;
+            sorted &= mergeLanes(roadSegment, positionOnRoute, order);
+            if (start > 0 && dataCount > start && positions[start] < positions[start - 1]) {
+                sorted = false;
             }
+            order += roadSegment.getVehicleCount();
             positionOnRoute += roadSegment.roadLength();
         }
-        return dataPoints;
+        if (!sorted) {
+            sortData();
+        }
+    }
+
+    /**
+     * Merges the lanes of the road segment, each from the rear to the front vehicle, into the data arrays.
+     * 
+     * @return false if a lane is not sorted by the front positions of the vehicles
+     */
+    private boolean mergeLanes(RoadSegment roadSegment, double positionOnRoute, int order) {
+        final int laneCount = roadSegment.laneCount();
+        if (laneIndexes.length < laneCount) {
+            laneSegments = new LaneSegment[laneCount];
+            laneIndexes = new int[laneCount];
+            laneOrders = new int[laneCount];
+        }
+        int lane = 0;
+        int laneOrder = order;
+        for (final LaneSegment laneSegment : roadSegment.laneSegments()) {
+            laneSegments[lane] = laneSegment;
+            laneIndexes[lane] = laneSegment.vehicleCount() - 1;
+            laneOrders[lane] = laneOrder;
+            laneOrder += laneSegment.vehicleCount();
+            ++lane;
+        }
+        boolean sorted = true;
+        while (true) {
+            int nextLane = -1;
+            Vehicle next = null;
+            for (int i = 0; i < laneCount; ++i) {
+                final Vehicle vehicle = rearmostVehicle(i);
+                // ties go to the lower lane, which is iterated first
+                if (vehicle != null && (next == null || vehicle.getFrontPosition() < next.getFrontPosition())) {
+                    next = vehicle;
+                    nextLane = i;
+                }
+            }
+            if (next == null) {
+                return sorted;
+            }
+            final int index = laneIndexes[nextLane]--;
+            final LaneSegment laneSegment = laneSegments[nextLane];
+            if (index > 0 && laneSegment.getVehicle(index - 1).getFrontPosition() < next.getFrontPosition()) {
+                sorted = false;
+            }
+            addData(positionOnRoute + next.getFrontPosition(), next.getSpeed(), next.getAcc(), laneOrders[nextLane]
+                    + index);
+        }
+    }
+
+    /**
+     * Returns the rearmost vehicle of the lane not merged yet, skipping obstacles, or null.
+     */
+    private Vehicle rearmostVehicle(int lane) {
+        while (laneIndexes[lane] >= 0) {
+            final Vehicle vehicle = laneSegments[lane].getVehicle(laneIndexes[lane]);
+            if (vehicle.type() != Type.OBSTACLE) {
+                return vehicle;
+            }
+            --laneIndexes[lane];
+        }
+        return null;
+    }
+
+    private void addData(double position, double speed, double acceleration, int order) {
+        if (dataCount > 0 && Double.compare(position, positions[dataCount - 1]) == 0) {
+            // of two vehicles at the same position the one gathered first in road segment iteration order is kept
+            if (order < orders[dataCount - 1]) {
+                speeds[dataCount - 1] = speed;
+                accelerations[dataCount - 1] = acceleration;
+                orders[dataCount - 1] = order;
+            }
+            return;
+        }
+        if (dataCount == positions.length) {
+            final int capacity = 2 * dataCount;
+            positions = Arrays.copyOf(positions, capacity);
+            speeds = Arrays.copyOf(speeds, capacity);
+            accelerations = Arrays.copyOf(accelerations, capacity);
+            orders = Arrays.copyOf(orders, capacity);
+        }
+        positions[dataCount] = position;
+        speeds[dataCount] = speed;
+        accelerations[dataCount] = acceleration;
+        orders[dataCount] = order;
+        ++dataCount;
+    }
+
+    /**
+     * Sorts the data points by position and, for equal positions, by the order in which they were gathered and keeps
+     * only the first data point of equal positions. Only needed if the vehicles are not sorted along the route.
+     */
+    private void sortData() {
+        final int n = dataCount;
+        final Integer[] sortedIndexes = new Integer[n];
+        for (int i = 0; i < n; ++i) {
+            sortedIndexes[i] = i;
+        }
+        final double[] unsortedPositions = positions;
+        final int[] unsortedOrders = orders;
+        Arrays.sort(sortedIndexes, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer i1, Integer i2) {
+                final int compare = Double.compare(unsortedPositions[i1], unsortedPositions[i2]);
+                return compare != 0 ? compare : Integer.compare(unsortedOrders[i1], unsortedOrders[i2]);
+            }
+        });
+        final double[] unsortedSpeeds = speeds;
+        final double[] unsortedAccelerations = accelerations;
+        positions = new double[unsortedPositions.length];
+        speeds = new double[unsortedPositions.length];
+        accelerations = new double[unsortedPositions.length];
+        orders = new int[unsortedPositions.length];
+        dataCount = 0;
+        for (final Integer i : sortedIndexes) {
+            addData(unsortedPositions[i], unsortedSpeeds[i], unsortedAccelerations[i], unsortedOrders[i]);
+        }
     }
 
     /**
@@ -184,27 +336,4 @@ public class SpatioTemporal extends OutputOnRouteBase {
         return lastTimeOutput;
     }
 
-    /**
-     * convenience class of one spatio-temporal data point
-     */
-    final class SpatialTemporal {
-        final double position;
-        final double speed;
-        final double length;
-        final double acceleration;
-
-        SpatialTemporal(double position, double speed, double length, double acceleration) {
-            this.position = position;
-            this.speed = speed;
-            this.length = length;
-            this.acceleration = acceleration;
-        }
-
-        @Override
-        public String toString() {
-            return "SpatialTemporal [position=" + position + ", speed=" + speed + ", length=" + length
-                    + ", acceleration=" + acceleration + "]";
-        }
-    }
-
 }
@@ -26,6 +26,7 @@
 package org.movsim.output.route;
 
 import org.movsim.autogen.TravelTimes;
+import org.movsim.output.fileoutput.OutputCompression;
 import org.movsim.simulator.roadnetwork.RoadNetwork;
 import org.movsim.simulator.roadnetwork.routing.Route;
 import org.movsim.utilities.ExponentialMovingAverage;
@@ -58,7 +59,9 @@ public class TravelTimeOnRoute extends OutputOnRouteBase {
         super(roadNetwork, route);
         this.tauEMA = travelTimeInput.getTauEMA();
         this.beta = Math.exp(-simulationTimestep / tauEMA);
-        fileWriter = writeOutput ? new FileTravelTimeOnRoute(travelTimeInput.getDt(), route) : null;
+        fileWriter = writeOutput ? new FileTravelTimeOnRoute(travelTimeInput.getDt(), route,
+                OutputCompression.of(travelTimeInput.isCompression(), travelTimeInput.getCompressionLevel(),
+                        travelTimeInput.getCompressionBlockSize())) : null;
         totalTravelTime = 0;
     }
 
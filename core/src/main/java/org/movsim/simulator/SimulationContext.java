@@ -0,0 +1,273 @@
+/*
+ * Copyright (C) 2010, 2011, 2012 by Arne Kesting, Martin Treiber, Ralph Germ, Martin Budden
+ * <movsim.org@gmail.com>
+ * -----------------------------------------------------------------------------------------
+ * 
+ * This file is part of
+ * 
+ * MovSim - the multi-model open-source vehicular-traffic simulator.
+ * 
+ * MovSim is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * MovSim is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MovSim. If not, see <http://www.gnu.org/licenses/>
+ * or <http://www.movsim.org>.
+ * 
+ * -----------------------------------------------------------------------------------------
+ */
+
+package org.movsim.simulator;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Random;
+
+import org.movsim.input.ProjectMetaData;
+import org.movsim.simulator.roadnetwork.RoadSegment;
+import org.movsim.simulator.vehicles.Vehicle;
+import org.movsim.utilities.RandomStream;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * <p>
+ * State which is shared by all parts of a simulation but must not be shared between simulations running concurrently
+ * in the same JVM: the project configuration, the id generators and the seed of the random number streams.
+ * </p>
+ * 
+ * <p>
+ * The {@link Simulator}, the road network, the vehicle factory and the traffic composition generators hold their
+ * context. The vehicles and road segments get their ids, and {@link ProjectMetaData#getInstance()} its instance, from
+ * the context bound to the current thread, see {@link #enter()}. Without a bound context the global context is used,
+ * which reproduces the former JVM-global state.
+ * </p>
+ * 
+ * <p>
+ * Random numbers are drawn from {@link RandomStream}s keyed by the seed, an owner id (usually the vehicle id) and a
+ * {@link RandomPurpose}. So the results only depend on the seed, not on the number of threads or the order in which
+ * the vehicles are updated.
+ * </p>
+ */
+public final class SimulationContext {
+
+    /**
+     * Distinguishes the random number streams of an owner.
+     */
+    public enum RandomPurpose {
+        /** properties of the vehicle itself, e.g. the random fix */
+        VEHICLE,
+        /** randomization of the model parameters */
+        PARAMETERS,
+        /** stochastic acceleration models */
+        ACCELERATION,
+        /** acceleration noise */
+        NOISE,
+        /** choice of the vehicle type by a traffic composition */
+        VEHICLE_TYPE;
+    }
+
+    private static final SimulationContext GLOBAL = new SimulationContext(ProjectMetaData.getInstance());
+
+    private static final ThreadLocal<SimulationContext> current = new ThreadLocal<>();
+
+    private final ProjectMetaData projectMetaData;
+
+    private long seed;
+    /** ids of streams without an owner are negative */
+    private long nextAnonymousStreamId = -1;
+    /** the iteration count of the current time step, for random numbers which are keyed by the time step */
+    private volatile long iterationCount;
+
+    private long nextVehicleId = Vehicle.INITIAL_ID;
+    private int nextRoadSegmentId = RoadSegment.INITIAL_ID;
+    private long nextVertexId = 0;
+
+    /**
+     * Binding of a context to the current thread, closing restores the previously bound context.
+     */
+    public final class Scope implements AutoCloseable {
+        private final SimulationContext previousContext;
+        private final ProjectMetaData previousProjectMetaData;
+
+        private Scope() {
+            previousContext = current.get();
+            current.set(SimulationContext.this);
+            previousProjectMetaData = ProjectMetaData.bind(projectMetaData);
+        }
+
+        @Override
+        public void close() {
+            ProjectMetaData.bind(previousProjectMetaData);
+            if (previousContext == null) {
+                current.remove();
+            } else {
+                current.set(previousContext);
+            }
+        }
+    }
+
+    /**
+     * Constructor, creates a context with a random seed.
+     * 
+     * @param projectMetaData
+     *            the project configuration
+     */
+    public SimulationContext(ProjectMetaData projectMetaData) {
+        this.projectMetaData = Preconditions.checkNotNull(projectMetaData);
+        this.seed = new Random().nextLong();
+    }
+
+    /**
+     * Returns the context bound to the current thread, or the global context.
+     * 
+     * @return the current context
+     */
+    public static SimulationContext current() {
+        final SimulationContext context = current.get();
+        return context == null ? GLOBAL : context;
+    }
+
+    /**
+     * Binds this context to the current thread until the returned scope is closed. Scopes may be nested.
+     * 
+     * @return the scope
+     */
+    public Scope enter() {
+        return new Scope();
+    }
+
+    public ProjectMetaData projectMetaData() {
+        return projectMetaData;
+    }
+
+    /**
+     * Sets the seed of the random number streams created afterwards.
+     * 
+     * @param seed
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public long seed() {
+        return seed;
+    }
+
+    /**
+     * Returns the random number stream of an owner.
+     * 
+     * @param id
+     *            the id of the owner, for example the vehicle id
+     * @param purpose
+     * @return the random number stream
+     */
+    public RandomStream randomStream(long id, RandomPurpose purpose) {
+        return new RandomStream(seed, id, purpose.ordinal());
+    }
+
+    /**
+     * Returns a new random number stream without an owner, for example for a traffic composition. The streams are
+     * numbered in the order of their creation, so they must be created in a reproducible order.
+     * 
+     * @param purpose
+     * @return the random number stream
+     */
+    public RandomStream newRandomStream(RandomPurpose purpose) {
+        return randomStream(nextAnonymousStreamId--, purpose);
+    }
+
+    /**
+     * Sets the iteration count of the time step being calculated.
+     * 
+     * @param iterationCount
+     */
+    public void setIterationCount(long iterationCount) {
+        this.iterationCount = iterationCount;
+    }
+
+    /**
+     * Returns the iteration count of the time step being calculated, used as counter of the random numbers which are
+     * drawn once per time step.
+     * 
+     * @return the iteration count
+     */
+    public long iterationCount() {
+        return iterationCount;
+    }
+
+    public long nextVehicleId() {
+        return nextVehicleId++;
+    }
+
+    public long lastVehicleId() {
+        return nextVehicleId - 1;
+    }
+
+    public long vehicleCount() {
+        return nextVehicleId - Vehicle.INITIAL_ID;
+    }
+
+    public void resetVehicleIds() {
+        nextVehicleId = Vehicle.INITIAL_ID;
+    }
+
+    /**
+     * Sets the id of the next vehicle created, used to recreate vehicles with their original ids.
+     * 
+     * @param id
+     */
+    public void setNextVehicleId(long id) {
+        nextVehicleId = id;
+    }
+
+    public int nextRoadSegmentId() {
+        return nextRoadSegmentId++;
+    }
+
+    public int roadSegmentCount() {
+        return nextRoadSegmentId - RoadSegment.INITIAL_ID;
+    }
+
+    public void resetRoadSegmentIds() {
+        nextRoadSegmentId = RoadSegment.INITIAL_ID;
+    }
+
+    public long nextVertexId() {
+        return nextVertexId++;
+    }
+
+    /**
+     * Writes the seed, the iteration count and the counters of the vehicle and random stream ids.
+     * 
+     * @param out
+     * @throws IOException
+     */
+    public void writeState(DataOutput out) throws IOException {
+        out.writeLong(seed);
+        out.writeLong(iterationCount);
+        out.writeLong(nextVehicleId);
+        out.writeLong(nextAnonymousStreamId);
+    }
+
+    /**
+     * Reads the state written by {@link #writeState(DataOutput)}.
+     * 
+     * @param in
+     * @throws IOException
+     */
+    public void readState(DataInput in) throws IOException {
+        seed = in.readLong();
+        iterationCount = in.readLong();
+        nextVehicleId = in.readLong();
+        nextAnonymousStreamId = in.readLong();
+    }
+}
@@ -49,6 +49,8 @@ public class SimulationRun {
         public void updateStatus(double simulationTime);
     }
 
+    private static final int DEFAULT_SNAPSHOT_INTERVAL = 100; // timesteps between snapshots
+
     protected double dt; // timestep, seconds
     protected double duration; // duration, seconds
     protected double simulationTime; // Simulation time, seconds (reset to 0.0 in each run)
@@ -56,6 +58,7 @@ public class SimulationRun {
     protected long totalSimulationTime;
     protected List<UpdateStatusCallback> updateStatusCallbacks;
     protected CompletionCallback completionCallback;
+    protected volatile int snapshotInterval = DEFAULT_SNAPSHOT_INTERVAL;
     // simulation is an object that implements the SimulationTimeStep interface.
     protected final SimulationTimeStep simulation;
 
@@ -153,6 +156,45 @@ public class SimulationRun {
         return totalSimulationTime;
     }
 
+    /**
+     * Returns the number of timesteps calculated per second of execution time.
+     * 
+     * @return timesteps per second, 0 if no timestep has been calculated
+     */
+    public final double stepsPerSecond() {
+        return totalSimulationTime == 0 ? 0 : 1000.0 * iterationCount / totalSimulationTime;
+    }
+
+    /**
+     * Returns the ratio of the simulation time to the execution time of the simulation.
+     * 
+     * @return the achieved time warp, 0 if no timestep has been calculated
+     */
+    public final double achievedTimewarp() {
+        return totalSimulationTime == 0 ? 0 : 1000.0 * simulationTime / totalSimulationTime;
+    }
+
+    /**
+     * Sets the number of timesteps between snapshots. Snapshots are the points where the simulation state may be
+     * observed, the timesteps between two snapshots are calculated without interruption.
+     * 
+     * @param snapshotInterval
+     *            number of timesteps, at least 1
+     */
+    public final void setSnapshotInterval(int snapshotInterval) {
+        assert snapshotInterval > 0;
+        this.snapshotInterval = Math.max(1, snapshotInterval);
+    }
+
+    /**
+     * Returns the number of timesteps between snapshots.
+     * 
+     * @return number of timesteps
+     */
+    public final int snapshotInterval() {
+        return snapshotInterval;
+    }
+
     /**
      * Resets the simulation instrumentation data.
      */
@@ -162,6 +204,20 @@ public class SimulationRun {
         totalSimulationTime = 0;
     }
 
+    /**
+     * Sets the simulation time and the iteration count, used when the simulation state is restored from a checkpoint.
+     * 
+     * @param simulationTime
+     *            the simulation time, seconds
+     * @param iterationCount
+     *            the number of iterations executed
+     */
+    public void restore(double simulationTime, long iterationCount) {
+        this.simulationTime = simulationTime;
+        this.iterationCount = iterationCount;
+        totalSimulationTime = 0;
+    }
+
     /**
      * Adds a update status callback.
      * 
@@ -185,13 +241,36 @@ public class SimulationRun {
      * Runs the simulation to completion and then calls the completion callback.
      */
     public void runToCompletion() {
+        reset();
+        resumeToCompletion();
+    }
+
+    /**
+     * Continues the simulation from the current simulation time, for example after restoring a checkpoint, and then
+     * calls the completion callback.
+     */
+    public void resumeToCompletion() {
         assert dt != 0.0;
         assert duration != 0.0;
         assert duration > 0.0;
-        reset();
-        final long timeBeforeSim_ms = System.currentTimeMillis();
         final double timeLimit = duration + dt / 2.0; // allow for rounding errors
         while (simulationTime <= timeLimit) {
+            runSnapshotInterval(timeLimit);
+        }
+        if (completionCallback != null) {
+            completionCallback.simulationComplete(simulationTime);
+        }
+    }
+
+    /**
+     * Calculates the timesteps up to the next snapshot, without calculating beyond the time limit.
+     * 
+     * @param timeLimit
+     *            simulation time after which no further timestep is calculated, seconds
+     */
+    protected void runSnapshotInterval(double timeLimit) {
+        final long timeBeforeSim_ms = System.currentTimeMillis();
+        for (int i = 0; i < snapshotInterval && simulationTime <= timeLimit; ++i) {
             // perform the timeStep for the road network
             simulation.timeStep(dt, simulationTime, iterationCount);
             for (final UpdateStatusCallback updateStatusCallback : updateStatusCallbacks) {
@@ -200,9 +279,6 @@ public class SimulationRun {
             simulationTime += dt;
             ++iterationCount;
         }
-        totalSimulationTime = System.currentTimeMillis() - timeBeforeSim_ms;
-        if (completionCallback != null) {
-            completionCallback.simulationComplete(simulationTime);
-        }
+        totalSimulationTime += System.currentTimeMillis() - timeBeforeSim_ms;
     }
 }
@@ -83,9 +83,13 @@ public class SimulationRunnable extends SimulationRun implements Runnable {
     private static final double DEFAULT_TIMESTEP_S = 0.25; // default timestep, seconds
     private static final int DEFAULT_SLEEP_TIME_MS = 40; // default sleep time, milliseconds
     private boolean pausedWhenRunning;
+    private volatile boolean fastForward;
     private long lastUpdateTime_ms;
+    private double lastUpdateSimulationTime;
+    private long lastUpdateIterationCount;
     private double actualTimewarp = 0;
     private double smoothedTimewarp = 0;
+    private double stepsPerSecond = 0;
     private final double betaTimewarp = Math.exp(-1.0 / 50); // moving exponential average scale
 
     // Thread and thread synchronization.
@@ -156,6 +160,35 @@ public class SimulationRunnable extends SimulationRun implements Runnable {
         return sleepTime_ms;
     }
 
+    /**
+     * Switches the fast-forward mode on or off, this may be done while the simulation thread is running. In
+     * fast-forward mode the timesteps are calculated without sleeping, the data lock is only released and the drawing
+     * updated at every snapshot, see {@link #setSnapshotInterval(int)}.
+     * 
+     * @param fastForward
+     */
+    public void setFastForward(boolean fastForward) {
+        this.fastForward = fastForward;
+    }
+
+    /**
+     * Returns true if the simulation runs in fast-forward mode.
+     * 
+     * @return true in fast-forward mode
+     */
+    public boolean isFastForward() {
+        return fastForward;
+    }
+
+    /**
+     * Returns the number of timesteps per second of real time measured at the last drawing update.
+     * 
+     * @return timesteps per second
+     */
+    public double getStepsPerSecond() {
+        return stepsPerSecond;
+    }
+
     /**
      * Returns the time warp.
      * 
@@ -278,6 +311,11 @@ public class SimulationRunnable extends SimulationRun implements Runnable {
                 }
                 break;
             }
+            if (fastForward) {
+                // stop at the end of the simulation as in the paced mode
+                runSnapshotInterval(duration > 0.0 ? Math.nextAfter(duration, 0.0) : Double.MAX_VALUE);
+                continue;
+            }
             try {
                 Thread.sleep(sleepTimeUsed);
             } catch (final InterruptedException e) {
@@ -286,22 +324,7 @@ public class SimulationRunnable extends SimulationRun implements Runnable {
             synchronized (dataLock) {
                 // synchronized so that the UI framework does not try to draw elements
                 // while they are being added, updated or removed
-                final long timeBeforeSim_ms = System.currentTimeMillis();
-                // perform the simulation timestep
-                try {
-                    simulation.timeStep(dt, simulationTime, iterationCount);
-                } catch (final Exception e) {
-                    if (handleExceptionCallback != null) {
-                        handleExceptionCallback.handleException(e);
-                    }
-                    e.printStackTrace();
-                }
-                for (final UpdateStatusCallback updateStatusCallback : updateStatusCallbacks) {
-                    updateStatusCallback.updateStatus(simulationTime);
-                }
-                simulationTime += dt;
-                ++iterationCount;
-                totalSimulationTime += System.currentTimeMillis() - timeBeforeSim_ms;
+                performTimeStep();
             }
             // updateDrawing calls back to the UI framework which then asynchronously
             // redraws the view
@@ -310,13 +333,79 @@ public class SimulationRunnable extends SimulationRun implements Runnable {
         }
     }
 
+    /**
+     * Calculates the timesteps up to the next snapshot while holding the data lock, and then updates the drawing. This
+     * is used in fast-forward mode and by {@link #runToCompletion()}, where no drawing callback need be set.
+     */
+    @Override
+    protected void runSnapshotInterval(double timeLimit) {
+        synchronized (dataLock) {
+            for (int i = 0; i < snapshotInterval && simulationTime <= timeLimit; ++i) {
+                performTimeStep();
+            }
+        }
+        if (updateDrawingCallback != null) {
+            updateDrawingCallback.updateDrawing(simulationTime);
+        }
+        calculateTimewarp();
+    }
+
+    /**
+     * Performs a single simulation timestep, must be called holding the data lock.
+     */
+    private void performTimeStep() {
+        final long timeBeforeSim_ms = System.currentTimeMillis();
+        // perform the simulation timestep
+        try {
+            simulation.timeStep(dt, simulationTime, iterationCount);
+        } catch (final RuntimeException e) {
+            if (Thread.currentThread() != thread) {
+                // runToCompletion, the exception is passed to the caller
+                throw e;
+            }
+            if (handleExceptionCallback != null) {
+                handleExceptionCallback.handleException(e);
+            }
+            e.printStackTrace();
+        }
+        for (final UpdateStatusCallback updateStatusCallback : updateStatusCallbacks) {
+            updateStatusCallback.updateStatus(simulationTime);
+        }
+        simulationTime += dt;
+        ++iterationCount;
+        totalSimulationTime += System.currentTimeMillis() - timeBeforeSim_ms;
+    }
+
     private void calculateTimewarp() {
         final long timeAfterSim_ms = System.currentTimeMillis();
-        actualTimewarp = dt / (0.001 * (timeAfterSim_ms - lastUpdateTime_ms));
+        // guard against a zero interval when a snapshot takes less than a millisecond
+        final double elapsed_s = 0.001 * Math.max(1, timeAfterSim_ms - lastUpdateTime_ms);
+        actualTimewarp = (simulationTime - lastUpdateSimulationTime) / elapsed_s;
+        stepsPerSecond = (iterationCount - lastUpdateIterationCount) / elapsed_s;
         lastUpdateTime_ms = timeAfterSim_ms;
+        lastUpdateSimulationTime = simulationTime;
+        lastUpdateIterationCount = iterationCount;
+
+        // the time warp is only limited for the animation, in fast-forward mode it is the achieved throughput
+        final double smoothed = smoothedTimewarp == 0.0 ? actualTimewarp : betaTimewarp * smoothedTimewarp
+                + (1.0 - betaTimewarp) * actualTimewarp;
+        smoothedTimewarp = fastForward ? smoothed : Math.min(1000, smoothed);
+    }
 
-        smoothedTimewarp = Math.min(1000, smoothedTimewarp == 0.0 ? actualTimewarp : betaTimewarp * smoothedTimewarp
-                + (1.0 - betaTimewarp) * actualTimewarp);
+    @Override
+    public void reset() {
+        super.reset();
+        lastUpdateTime_ms = System.currentTimeMillis();
+        lastUpdateSimulationTime = 0;
+        lastUpdateIterationCount = 0;
+    }
+
+    @Override
+    public void restore(double simulationTime, long iterationCount) {
+        super.restore(simulationTime, iterationCount);
+        lastUpdateTime_ms = System.currentTimeMillis();
+        lastUpdateSimulationTime = simulationTime;
+        lastUpdateIterationCount = iterationCount;
     }
 
     public boolean isFiniteDuration() {
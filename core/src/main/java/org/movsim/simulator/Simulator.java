@@ -25,6 +25,14 @@
  */
 package org.movsim.simulator;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.List;
 
 import javax.xml.bind.JAXBException;
@@ -47,6 +55,7 @@ import org.movsim.input.network.OpenDriveReader;
 import org.movsim.output.SimulationOutput;
 import org.movsim.output.detector.LoopDetectors;
 import org.movsim.output.fileoutput.FileTrafficSourceData;
+import org.movsim.output.fileoutput.OutputPipeline;
 import org.movsim.roadmappings.RoadMapping;
 import org.movsim.roadmappings.RoadMappingPolyS;
 import org.movsim.simulator.roadnetwork.AbstractTrafficSource;
@@ -66,8 +75,8 @@ import org.movsim.simulator.trafficlights.TrafficLights;
 import org.movsim.simulator.vehicles.TestVehicle;
 import org.movsim.simulator.vehicles.TrafficCompositionGenerator;
 import org.movsim.simulator.vehicles.Vehicle;
+import org.movsim.simulator.vehicles.Vehicle.IntegrationType;
 import org.movsim.simulator.vehicles.VehicleFactory;
-import org.movsim.utilities.MyRandom;
 import org.movsim.utilities.Units;
 import org.movsim.xml.MovsimInputLoader;
 import org.slf4j.Logger;
@@ -81,14 +90,22 @@ public class Simulator implements SimulationTimeStep, SimulationRun.CompletionCa
     /** The Constant LOG. */
     private static final Logger LOG = LoggerFactory.getLogger(Simulator.class);
 
+    /** Identifies a checkpoint ("MVSC"). */
+    private static final int CHECKPOINT_MAGIC = 0x4d565343;
+    /** Version of the checkpoint format, to be incremented with each change of the format. */
+    private static final int CHECKPOINT_VERSION = 1;
+
     private long startTimeMillis;
 
+    private final SimulationContext context;
     private final ProjectMetaData projectMetaData;
     private String projectName;
     private Movsim inputData;
 
     private VehicleFactory vehicleFactory;
     private TrafficCompositionGenerator defaultTrafficComposition;
+    /** all traffic compositions in the order of their creation */
+    private final List<TrafficCompositionGenerator> trafficCompositions = new ArrayList<>();
     private TrafficLights trafficLights;
     private SimulationOutput simOutput;
     private final RoadNetwork roadNetwork;
@@ -98,26 +115,65 @@ public class Simulator implements SimulationTimeStep, SimulationRun.CompletionCa
     private long timeOffsetMillis;
 
     /**
-     * Constructor.
+     * Constructor, the simulation uses the single instance of ProjectMetaData.
      * 
      * @throws SAXException
      * @throws JAXBException
      */
     public Simulator() {
-        this.projectMetaData = ProjectMetaData.getInstance();
-        roadNetwork = new RoadNetwork();
+        this(new SimulationContext(ProjectMetaData.getInstance()));
+    }
+
+    /**
+     * Constructor. Simulations with separate contexts (and separate ProjectMetaData instances) can run concurrently in
+     * the same JVM.
+     * 
+     * @param context
+     *            the context of this simulation
+     */
+    public Simulator(SimulationContext context) {
+        this.context = Preconditions.checkNotNull(context);
+        this.projectMetaData = context.projectMetaData();
+        roadNetwork = new RoadNetwork(context);
         simulationRunnable = new SimulationRunnable(this);
         simulationRunnable.setCompletionCallback(this);
     }
 
+    public SimulationContext context() {
+        return context;
+    }
+
     public void initialize() throws JAXBException, SAXException {
+        try (SimulationContext.Scope scope = context.enter()) {
+            initializeScenario(MovsimInputLoader.getInputData(projectMetaData.getInputFile()));
+        }
+    }
+
+    /**
+     * Initializes the simulation from already parsed input data instead of the project's input file. The input data
+     * are used, not copied, so they must not be shared with other simulations. The network file is still loaded from
+     * the project's path.
+     * 
+     * @param inputData
+     *            the parsed scenario
+     * @throws JAXBException
+     * @throws SAXException
+     */
+    public void initialize(Movsim inputData) throws JAXBException, SAXException {
+        Preconditions.checkNotNull(inputData);
+        try (SimulationContext.Scope scope = context.enter()) {
+            initializeScenario(inputData);
+        }
+    }
+
+    private void initializeScenario(Movsim inputData) throws JAXBException, SAXException {
         LOG.info("Copyright '\u00A9' by Arne Kesting, Martin Treiber, Ralph Germ and Martin Budden (2011-2013)");
 
         projectName = projectMetaData.getProjectName();
         // TODO temporary handling of Variable Message Sign until added to XML
         roadNetwork.setHasVariableMessageSign(projectName.startsWith("routing"));
 
-        inputData = MovsimInputLoader.getInputData(projectMetaData.getInputFile());
+        this.inputData = inputData;
 
         timeOffsetMillis = 0;
         if (inputData.getScenario().getSimulation().isSetTimeOffset()) {
@@ -125,19 +181,27 @@ public class Simulator implements SimulationTimeStep, SimulationRun.CompletionCa
                     DateTimeFormat.forPattern("YYYY-MM-dd'T'HH:mm:ssZ")).toDateTime(DateTimeZone.UTC);
             timeOffsetMillis = dateTime.getMillis();
             LOG.info("global time offset set={} --> {} milliseconds.", dateTime, timeOffsetMillis);
-            ProjectMetaData.getInstance().setTimeOffsetMillis(timeOffsetMillis);
+            projectMetaData.setTimeOffsetMillis(timeOffsetMillis);
         }
         projectMetaData.setXodrNetworkFilename(inputData.getScenario().getNetworkFilename()); // TODO
 
         Simulation simulationInput = inputData.getScenario().getSimulation();
 
+        // seed before creating the obstacles of the road network and the vehicle prototypes, the equilibrium
+        // properties of stochastic models draw random numbers
+        if (simulationInput.isWithSeed()) {
+            context.setSeed(simulationInput.getSeed());
+        }
+
         final boolean loadedRoadNetwork = parseOpenDriveXml(roadNetwork, projectMetaData);
         routing = new Routing(inputData.getScenario().getRoutes(), roadNetwork);
-        
-        vehicleFactory = new VehicleFactory(simulationInput.getTimestep(), inputData.getVehiclePrototypes(),
+
+        vehicleFactory = new VehicleFactory(context, simulationInput.getTimestep(), inputData.getVehiclePrototypes(),
                 inputData.getConsumption(), routing);
 
         roadNetwork.setWithCrashExit(simulationInput.isCrashExit());
+        roadNetwork.setThreadCount(simulationInput.getThreads());
+        roadNetwork.setIntegrationType(IntegrationType.valueOf(simulationInput.getIntegration().name()));
 
         simulationRunnable.setTimeStep(simulationInput.getTimestep());
 
@@ -146,12 +210,10 @@ public class Simulator implements SimulationTimeStep, SimulationRun.CompletionCa
 
         simulationRunnable.setDuration(duration < 0 ? Double.MAX_VALUE : duration);
 
-        if (simulationInput.isWithSeed()) {
-            MyRandom.initializeWithSeed(simulationInput.getSeed());
-        }
-
+        trafficCompositions.clear();
         defaultTrafficComposition = new TrafficCompositionGenerator(simulationInput.getTrafficComposition(),
                 vehicleFactory);
+        trafficCompositions.add(defaultTrafficComposition);
 
         // For each road in the MovSim XML input data, find the corresponding roadSegment and
         // set its input data accordingly
@@ -199,10 +261,12 @@ public class Simulator implements SimulationTimeStep, SimulationRun.CompletionCa
      */
     public void loadScenarioFromXml(String scenario, String path) throws JAXBException, SAXException
              {
-        roadNetwork.clear();
-        projectMetaData.setProjectName(scenario);
-        projectMetaData.setPathToProjectXmlFile(path);
-        initialize();
+        try (SimulationContext.Scope scope = context.enter()) {
+            roadNetwork.clear();
+            projectMetaData.setProjectName(scenario);
+            projectMetaData.setPathToProjectXmlFile(path);
+            initializeScenario(MovsimInputLoader.getInputData(projectMetaData.getInputFile()));
+        }
     }
 
     private void matchRoadSegmentsAndRoadInput(List<Road> roads) {
@@ -267,6 +331,7 @@ public class Simulator implements SimulationTimeStep, SimulationRun.CompletionCa
                 roadInput.getTrafficComposition(), vehicleFactory) : defaultTrafficComposition;
         if (roadInput.isSetTrafficComposition()) {
             LOG.info("road with id={} has its own vehicle composition generator.", roadSegment.id());
+            trafficCompositions.add(composition);
         }
 
         // set up the traffic source
@@ -466,13 +531,15 @@ public class Simulator implements SimulationTimeStep, SimulationRun.CompletionCa
     }
 
     public void reset() {
-        simulationRunnable.reset();
-        if (inputData.getScenario().isSetOutputConfiguration()) {
-            simOutput = new SimulationOutput(simulationRunnable.timeStep(),
-                    projectMetaData.isInstantaneousFileOutput(), inputData.getScenario().getOutputConfiguration(),
-                    roadNetwork, routing, vehicleFactory);
+        try (SimulationContext.Scope scope = context.enter()) {
+            simulationRunnable.reset();
+            if (inputData.getScenario().isSetOutputConfiguration()) {
+                simOutput = new SimulationOutput(simulationRunnable.timeStep(),
+                        projectMetaData.isInstantaneousFileOutput(), inputData.getScenario().getOutputConfiguration(),
+                        roadNetwork, routing, vehicleFactory);
+            }
+            obstacleCount = roadNetwork.obstacleCount();
         }
-        obstacleCount = roadNetwork.obstacleCount();
     }
 
     public void runToCompletion() {
@@ -484,7 +551,107 @@ public class Simulator implements SimulationTimeStep, SimulationRun.CompletionCa
         // TODO FloatingCars do not need this call. First output line for t=0 is written twice to file
         // simOutput.timeStep(simulationRunnable.timeStep(), simulationRunnable.simulationTime(),
         // simulationRunnable.iterationCount());
-        simulationRunnable.runToCompletion();
+        try (SimulationContext.Scope scope = context.enter()) {
+            simulationRunnable.runToCompletion();
+        }
+    }
+
+    /**
+     * Continues the simulation from the current simulation time, for example after
+     * {@link #restoreCheckpoint(InputStream)}.
+     */
+    public void resumeToCompletion() {
+        LOG.info("Simulator.run: resume simulation at {} seconds of simulation project={}",
+                simulationRunnable.simulationTime(), projectName);
+        startTimeMillis = System.currentTimeMillis();
+        try (SimulationContext.Scope scope = context.enter()) {
+            simulationRunnable.resumeToCompletion();
+        }
+    }
+
+    /**
+     * <p>
+     * Writes a checkpoint of the complete simulation state: the vehicles on the road network and in the queues of the
+     * traffic sources, the state of the sources, sinks, detectors and traffic lights, and the positions of the random
+     * number streams.
+     * </p>
+     * <p>
+     * The checkpoint is a compact binary format starting with a version number. It does not contain the scenario
+     * itself, it is restored by a simulator which has loaded the same scenario. The stream is flushed but not closed.
+     * </p>
+     * 
+     * @param outputStream
+     * @throws IOException
+     */
+    public void writeCheckpoint(OutputStream outputStream) throws IOException {
+        Preconditions.checkState(vehicleFactory != null, "no scenario loaded");
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputStream));
+        out.writeInt(CHECKPOINT_MAGIC);
+        out.writeInt(CHECKPOINT_VERSION);
+        out.writeUTF(projectName);
+        out.writeDouble(simulationRunnable.timeStep());
+        out.writeDouble(simulationRunnable.simulationTime());
+        out.writeLong(simulationRunnable.iterationCount());
+        roadNetwork.writeState(out, vehicleFactory);
+        trafficLights.writeState(out);
+        out.writeInt(trafficCompositions.size());
+        for (final TrafficCompositionGenerator trafficComposition : trafficCompositions) {
+            trafficComposition.writeState(out);
+        }
+        context.writeState(out);
+        out.flush();
+        LOG.info("wrote checkpoint at simulation time={}s with {} vehicles", simulationRunnable.simulationTime(),
+                roadNetwork.vehicleCount());
+    }
+
+    /**
+     * Restores the simulation state from a checkpoint written by {@link #writeCheckpoint(OutputStream)}. The scenario
+     * of the checkpoint must have been loaded, the simulation then continues from the time of the checkpoint, see
+     * {@link #resumeToCompletion()}. The outputs are not restored, they start at the time of the checkpoint.
+     * 
+     * @param inputStream
+     * @throws IOException
+     *             if the checkpoint cannot be read or does not match the loaded scenario
+     */
+    public void restoreCheckpoint(InputStream inputStream) throws IOException {
+        Preconditions.checkState(vehicleFactory != null, "no scenario loaded");
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(inputStream));
+        if (in.readInt() != CHECKPOINT_MAGIC) {
+            throw new IOException("not a movsim checkpoint");
+        }
+        final int version = in.readInt();
+        if (version != CHECKPOINT_VERSION) {
+            throw new IOException("unsupported checkpoint version=" + version + ", expected version="
+                    + CHECKPOINT_VERSION);
+        }
+        final String checkpointProjectName = in.readUTF();
+        if (!checkpointProjectName.equals(projectName)) {
+            throw new IOException("checkpoint of project=" + checkpointProjectName + " does not match project="
+                    + projectName);
+        }
+        final double dt = in.readDouble();
+        if (dt != simulationRunnable.timeStep()) {
+            throw new IOException("checkpoint with timestep=" + dt + " does not match timestep="
+                    + simulationRunnable.timeStep());
+        }
+        final double simulationTime = in.readDouble();
+        final long iterationCount = in.readLong();
+        try (SimulationContext.Scope scope = context.enter()) {
+            roadNetwork.readState(in, vehicleFactory);
+            trafficLights.readState(in);
+            if (in.readInt() != trafficCompositions.size()) {
+                throw new IOException("checkpoint does not match the number of traffic compositions");
+            }
+            for (final TrafficCompositionGenerator trafficComposition : trafficCompositions) {
+                trafficComposition.readState(in);
+            }
+            // restored last, recreating the vehicles draws anonymous random stream ids
+            context.readState(in);
+        }
+        simulationRunnable.restore(simulationTime, iterationCount);
+        obstacleCount = roadNetwork.obstacleCount();
+        LOG.info("restored checkpoint at simulation time={}s with {} vehicles", simulationTime,
+                roadNetwork.vehicleCount());
     }
 
     /**
@@ -499,12 +666,20 @@ public class Simulator implements SimulationTimeStep, SimulationRun.CompletionCa
 
     @Override
     public void simulationComplete(double simulationTime) {
+        // the output files are complete when the simulation run returns
+        if (simOutput != null) {
+            simOutput.close();
+        }
+        projectMetaData.closeCompressedWriters();
+        OutputPipeline.flushDefault();
         LOG.info(String.format("Simulator.run: stop after time = %.2fs = %.2fh of simulation project=%s",
                 simulationTime, simulationTime / 3600, projectName));
         final double elapsedTime = 0.001 * (System.currentTimeMillis() - startTimeMillis);
         LOG.info(String.format(
                 "time elapsed = %.3fs --> simulation time warp = %.2f, time per 1000 update steps=%.3fs", elapsedTime,
                 simulationTime / elapsedTime, 1000 * elapsedTime / simulationRunnable.iterationCount()));
+        LOG.info(String.format("update steps per second = %.1f, time warp of the update steps = %.2f",
+                simulationRunnable.stepsPerSecond(), simulationRunnable.achievedTimewarp()));
     }
 
     @Override
@@ -516,10 +691,12 @@ public class Simulator implements SimulationTimeStep, SimulationRun.CompletionCa
             }
         }
 
-        trafficLights.timeStep(dt, simulationTime, iterationCount);
-        roadNetwork.timeStep(dt, simulationTime, iterationCount);
-        if (simOutput != null) {
-            simOutput.timeStep(dt, simulationTime, iterationCount);
+        try (SimulationContext.Scope scope = context.enter()) {
+            trafficLights.timeStep(dt, simulationTime, iterationCount);
+            roadNetwork.timeStep(dt, simulationTime, iterationCount);
+            if (simOutput != null) {
+                simOutput.timeStep(dt, simulationTime, iterationCount);
+            }
         }
     }
 }
@@ -1,11 +1,16 @@
 package org.movsim.simulator.roadnetwork;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import javax.annotation.Nullable;
 
 import org.movsim.simulator.SimulationTimeStep;
 import org.movsim.simulator.vehicles.TestVehicle;
 import org.movsim.simulator.vehicles.TrafficCompositionGenerator;
 import org.movsim.simulator.vehicles.Vehicle;
+import org.movsim.simulator.vehicles.VehicleFactory;
 import org.movsim.utilities.Units;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -163,4 +168,41 @@ public abstract class AbstractTrafficSource implements SimulationTimeStep {
         }
     }
 
+    /**
+     * Writes the state of the traffic source.
+     * 
+     * @param out
+     * @param vehicleFactory
+     *            writes the waiting vehicles
+     * @throws IOException
+     */
+    public void writeState(DataOutput out, VehicleFactory vehicleFactory) throws IOException {
+        out.writeDouble(measuredTime);
+        out.writeInt(measuredInflowCount);
+        out.writeDouble(measuredInflow);
+        out.writeInt(enteringVehCounter);
+        out.writeDouble(xEnterLast);
+        out.writeDouble(vEnterLast);
+        out.writeInt(laneEnterLast);
+        out.writeDouble(nWait);
+    }
+
+    /**
+     * Reads the state written by {@link #writeState(DataOutput, VehicleFactory)}.
+     * 
+     * @param in
+     * @param vehicleFactory
+     *            recreates the waiting vehicles
+     * @throws IOException
+     */
+    public void readState(DataInput in, VehicleFactory vehicleFactory) throws IOException {
+        measuredTime = in.readDouble();
+        measuredInflowCount = in.readInt();
+        measuredInflow = in.readDouble();
+        enteringVehCounter = in.readInt();
+        xEnterLast = in.readDouble();
+        vEnterLast = in.readDouble();
+        laneEnterLast = in.readInt();
+        nWait = in.readDouble();
+    }
 }
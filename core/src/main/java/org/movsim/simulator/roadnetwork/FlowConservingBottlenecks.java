@@ -25,12 +25,15 @@
  */
 package org.movsim.simulator.roadnetwork;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 
 import org.movsim.autogen.FlowConservingInhomogeneities;
 import org.movsim.autogen.Inhomogeneity;
-import org.movsim.utilities.Tables;
+import org.movsim.utilities.InterpolationTable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -41,14 +44,11 @@ public class FlowConservingBottlenecks {
 
     final static Logger logger = LoggerFactory.getLogger(FlowConservingBottlenecks.class);
 
-    /** The pos values. */
-    private double[] posValues;
+    /** The alpha t values as function of the position. */
+    private final InterpolationTable alphaTTable;
 
-    /** The alpha t values. */
-    private double[] alphaTValues;
-
-    /** The alpha v0 values. */
-    private double[] alphaV0Values;
+    /** The alpha v0 values as function of the position. */
+    private final InterpolationTable alphaV0Table;
 
     /**
      * Instantiates a new flow conserving bottlenecks impl.
@@ -57,20 +57,18 @@ public class FlowConservingBottlenecks {
      *            the flow cons data points
      */
     public FlowConservingBottlenecks(FlowConservingInhomogeneities flowConservingInhomogeneities) {
-        generateSpaceSeriesData(flowConservingInhomogeneities.getInhomogeneity());
-    }
-
-    /**
-     * Generate space series data.
-     * 
-     * @param list
-     *            the data
-     */
-    private void generateSpaceSeriesData(List<Inhomogeneity> list) {
+        final List<Inhomogeneity> list = new ArrayList<>(flowConservingInhomogeneities.getInhomogeneity());
+        // the interpolation needs increasing positions
+        Collections.sort(list, new Comparator<Inhomogeneity>() {
+            @Override
+            public int compare(Inhomogeneity o1, Inhomogeneity o2) {
+                return Double.compare(o1.getPosition(), o2.getPosition());
+            }
+        });
         final int size = list.size();
-        posValues = new double[size];
-        alphaTValues = new double[size];
-        alphaV0Values = new double[size];
+        final double[] posValues = new double[size];
+        final double[] alphaTValues = new double[size];
+        final double[] alphaV0Values = new double[size];
         for (int i = 0; i < size; i++) {
             posValues[i] = list.get(i).getPosition();
             alphaTValues[i] = list.get(i).getAlphaT();
@@ -78,6 +76,14 @@ public class FlowConservingBottlenecks {
             // LOG.debug("add data: alphaT={}, alphaV0={}", alphaTValues[i],
             // alphaV0Values[i]);
         }
+        if (size == 0) {
+            // no inhomogeneities: constant alpha=1
+            alphaTTable = InterpolationTable.linear(new double[] { 0 }, new double[] { 1 });
+            alphaV0Table = alphaTTable;
+        } else {
+            alphaTTable = InterpolationTable.linear(posValues, alphaTValues);
+            alphaV0Table = InterpolationTable.linear(posValues, alphaV0Values);
+        }
     }
 
     /**
@@ -88,7 +94,7 @@ public class FlowConservingBottlenecks {
      * @return the double
      */
     public double alphaT(double x) {
-        return (alphaTValues.length == 0) ? 1 : Tables.intpextp(posValues, alphaTValues, x);
+        return alphaTTable.value(x);
     }
 
     /**
@@ -99,7 +105,25 @@ public class FlowConservingBottlenecks {
      * @return the double
      */
     public double alphaV0(double x) {
-        return (alphaV0Values.length == 0) ? 1 : Tables.intpextp(posValues, alphaV0Values, x);
+        return alphaV0Table.value(x);
+    }
+
+    /**
+     * Returns a new cursor for looking up alpha t for the vehicles of a lane in position order.
+     * 
+     * @return the cursor
+     */
+    InterpolationTable.Cursor alphaTCursor() {
+        return alphaTTable.cursor();
+    }
+
+    /**
+     * Returns a new cursor for looking up alpha v0 for the vehicles of a lane in position order.
+     * 
+     * @return the cursor
+     */
+    InterpolationTable.Cursor alphaV0Cursor() {
+        return alphaV0Table.cursor();
     }
 
     private final class FlowConservingBottleneckDataPoint {
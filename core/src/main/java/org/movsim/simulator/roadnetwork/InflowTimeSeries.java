@@ -31,7 +31,7 @@ import java.util.Comparator;
 import java.util.List;
 
 import org.movsim.autogen.Inflow;
-import org.movsim.utilities.Tables;
+import org.movsim.utilities.InterpolationTable;
 import org.movsim.utilities.Units;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -44,11 +44,9 @@ public class InflowTimeSeries {
     /** The Constant LOG. */
     final static Logger logger = LoggerFactory.getLogger(InflowTimeSeries.class);
 
-    private double[] timeValues;
+    private InterpolationTable flowTable;
 
-    private double[] flowValues;
-
-    private double[] speedValues;
+    private InterpolationTable speedTable;
 
     private double constantFlowPerLane = -1;
 
@@ -80,9 +78,9 @@ public class InflowTimeSeries {
         if (sortedInflowDataPoints.isEmpty()) {
             logger.info("no inflow data points --> no inflow.");
         }
-        timeValues = new double[size];
-        flowValues = new double[size];
-        speedValues = new double[size];
+        final double[] timeValues = new double[size];
+        final double[] flowValues = new double[size];
+        final double[] speedValues = new double[size];
         for (int i = 0; i < size; i++) {
             final InflowDataPoint inflowDataPoint = sortedInflowDataPoints.get(i);
             timeValues[i] = inflowDataPoint.getTime();
@@ -90,6 +88,8 @@ public class InflowTimeSeries {
             speedValues[i] = inflowDataPoint.getSpeed();
             logger.debug("add data: flow={}, speed={}", flowValues[i], speedValues[i]);
         }
+        flowTable = InterpolationTable.linear(timeValues, flowValues);
+        speedTable = InterpolationTable.linear(timeValues, speedValues);
     }
 
     private List<InflowDataPoint> getSortedInflowDataPoints(List<Inflow> inflow) {
@@ -119,7 +119,7 @@ public class InflowTimeSeries {
         if (constantFlowPerLane >= 0) {
             return constantFlowPerLane;
         }
-        return Tables.intpextp(timeValues, flowValues, time);
+        return flowTable.value(time);
     }
 
     /**
@@ -133,7 +133,7 @@ public class InflowTimeSeries {
         if (constantFlowPerLane >= 0) {
             return constantInitSpeed;
         }
-        return Tables.intpextp(timeValues, speedValues, time);
+        return speedTable.value(time);
     }
 
     private final class InflowDataPoint {
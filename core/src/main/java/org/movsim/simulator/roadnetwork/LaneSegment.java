@@ -26,11 +26,17 @@
 
 package org.movsim.simulator.roadnetwork;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 
+import org.movsim.simulator.vehicles.NeighbourView;
+import org.movsim.simulator.vehicles.PositionAdjustedVehicle;
 import org.movsim.simulator.vehicles.Vehicle;
+import org.movsim.simulator.vehicles.VehicleFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -43,8 +49,9 @@ import org.slf4j.LoggerFactory;
  * behavior (and especially lane change behavior) is different in each type of lane.
  * </p>
  * <p>
- * The vehicles in a lane segment are stored in a sorted ArrayList. This ArrayList is kept sorted so that the vehicles in front of and
- * behind a given vehicle can be found efficiently.
+ * The vehicles in a lane segment are stored in a sorted ring buffer. The ring buffer is kept sorted so that the vehicles in front of
+ * and behind a given vehicle can be found efficiently. Vehicles leaving the front and entering the rear of the lane segment are removed
+ * and added in constant time.
  * </p>
  * <p>
  * Vehicles are sorted in order of decreasing position:
@@ -52,6 +59,15 @@ import org.slf4j.LoggerFactory;
  * <p>
  * V[n+1].pos < V[n].pos < V[n-1].pos ... < V[1].pos < V[0].pos
  * </p>
+ * <p>
+ * Vehicles on the sink and source lane segments are returned by the neighbour searches as position adjusted views,
+ * see {@link PositionAdjustedVehicle}. A view is cached and only made again when another vehicle becomes the neighbour.
+ * </p>
+ * <p>
+ * The neighbour index records the position of each vehicle in the ring buffer, so the front and rear vehicles of a vehicle in
+ * this lane segment are found without a search. It is updated once per phase by {@link #updateNeighbourIndex()}; a
+ * recorded position which is outdated because the lane segment has changed is detected and the search is used instead.
+ * </p>
  */
 public class LaneSegment implements Iterable<Vehicle> {
 
@@ -67,8 +83,12 @@ public class LaneSegment implements Iterable<Vehicle> {
     // physical lane, not the laneIndex
     private final int lane;
     private Lanes.Type type;
-    final ArrayList<Vehicle> vehicles;
+    final VehicleRingBuffer vehicles;
     private int removedVehicleCount; // used for calculating traffic flow
+    // position adjusted views of the vehicles on the source and sink lane segments, reused by the neighbour searches
+    private PositionAdjustedVehicle sourceFrontVehicleView;
+    private PositionAdjustedVehicle sinkRearVehicleView;
+    private PositionAdjustedVehicle sinkSecondLastVehicleView;
 
     /**
      * Constructor.
@@ -81,7 +101,7 @@ public class LaneSegment implements Iterable<Vehicle> {
         this.roadSegment = roadSegment;
         assert lane >= Lanes.MOST_INNER_LANE;
         this.lane = lane;
-        vehicles = new ArrayList<>(VEHICLES_PER_LANE_INITIAL_SIZE);
+        vehicles = new VehicleRingBuffer(VEHICLES_PER_LANE_INITIAL_SIZE);
         type = Lanes.Type.TRAFFIC;
     }
 
@@ -159,6 +179,67 @@ public class LaneSegment implements Iterable<Vehicle> {
         vehicles.clear();
     }
 
+    /**
+     * Writes the vehicles of this lane segment.
+     * 
+     * @param out
+     * @param vehicleFactory
+     *            writes the vehicles
+     * @throws IOException
+     */
+    final void writeState(DataOutput out, VehicleFactory vehicleFactory) throws IOException {
+        out.writeInt(removedVehicleCount);
+        out.writeInt(vehicles.size());
+        for (final Vehicle vehicle : vehicles) {
+            vehicleFactory.writeVehicle(out, vehicle);
+        }
+    }
+
+    /**
+     * Replaces the vehicles of this lane segment by the vehicles written by
+     * {@link #writeState(DataOutput, VehicleFactory)}.
+     * 
+     * @param in
+     * @param vehicleFactory
+     *            recreates the vehicles
+     * @throws IOException
+     */
+    final void readState(DataInput in, VehicleFactory vehicleFactory) throws IOException {
+        removedVehicleCount = in.readInt();
+        vehicles.clear();
+        for (int i = 0, count = in.readInt(); i < count; ++i) {
+            vehicles.add(vehicleFactory.readVehicle(in));
+        }
+        if (!vehicles.isEmpty()) {
+            roadSegment.activate();
+        }
+        assert laneIsSorted();
+    }
+
+    /**
+     * Records the index of each vehicle in this lane segment, see {@link Vehicle#laneSlot()}.
+     */
+    final void updateNeighbourIndex() {
+        final int count = vehicles.size();
+        for (int i = 0; i < count; ++i) {
+            vehicles.get(i).setLaneSlot(i);
+        }
+    }
+
+    /**
+     * Returns the index of the given vehicle in this lane segment from the neighbour index.
+     * 
+     * @param vehicle
+     * @return the index, -1 if the vehicle is not in this lane segment or the neighbour index is outdated
+     */
+    private int indexOf(Vehicle vehicle) {
+        final int slot = vehicle.laneSlot();
+        if (slot >= 0 && slot < vehicles.size() && vehicles.get(slot) == vehicle) {
+            return slot;
+        }
+        return -1;
+    }
+
     /**
      * Returns the number of vehicles on this lane segment.
      * 
@@ -354,31 +435,11 @@ public class LaneSegment implements Iterable<Vehicle> {
             // vehicle is in the same position as an existing vehicle - this should not happen
             assert false;
         }
+        roadSegment.activate();
         assert laneIsSorted();
         assert assertInvariant();
     }
 
-    public int addVehicleTemp(Vehicle vehicle) {
-        // assert vehicle.getFrontPosition() >= 0.0;
-        assert vehicle.getSpeed() >= 0.0;
-        assert vehicle.lane() == lane;
-        assert assertInvariant();
-        final int index = positionBinarySearch(vehicle.getRearPosition());
-        int pos = 0;
-        if (index < 0) {
-            pos = -index - 1;
-            vehicles.add(pos, vehicle);
-        } else if (index == 0) {
-            vehicles.add(pos, vehicle);
-        } else {
-            // vehicle is in the same position as an existing vehicle - this should not happen
-            assert false;
-        }
-        assert laneIsSorted();
-        assert assertInvariant();
-        return pos;
-    }
-
     // TODO testwise add vehicle
 //    public void addVehicleTestwise(Vehicle vehicle) {
 //        if (vehicle != null) {
@@ -412,6 +473,7 @@ public class LaneSegment implements Iterable<Vehicle> {
             }
         }
         vehicles.add(vehicle);
+        roadSegment.activate();
         assert laneIsSorted();
         assert assertInvariant();
     }
@@ -434,9 +496,21 @@ public class LaneSegment implements Iterable<Vehicle> {
      * 
      * @param vehiclePos
      * 
-     * @return reference to the rear vehicle
+     * @return reference to the rear vehicle, a position adjusted copy if it is on the source lane segment
      */
     public Vehicle rearVehicle(double vehiclePos) {
+        return toVehicle(rearNeighbour(vehiclePos));
+    }
+
+    /**
+     * Finds the neighbour immediately at or behind the given position. A vehicle on the source lane segment is returned
+     * as a position adjusted view, no vehicle is copied.
+     * 
+     * @param vehiclePos
+     * 
+     * @return the rear neighbour
+     */
+    public NeighbourView rearNeighbour(double vehiclePos) {
 
         final int index = positionBinarySearch(vehiclePos);
         final int insertionPoint = -index - 1;
@@ -458,10 +532,11 @@ public class LaneSegment implements Iterable<Vehicle> {
             // check the previous (source) road segment
             final Vehicle sourceFrontVehicle = sourceLaneSegment.frontVehicle();
             if (sourceFrontVehicle != null) {
-                // return a copy of the front vehicle on the source road segment, with its
+                // return the front vehicle on the source road segment, with its
                 // position set relative to the current road segment
-                final Vehicle rearVehicle = new Vehicle(sourceFrontVehicle);
-                rearVehicle.setFrontPosition(rearVehicle.getFrontPosition() - sourceLaneSegment.roadLength());
+                final PositionAdjustedVehicle rearVehicle = PositionAdjustedVehicle.of(sourceFrontVehicleView,
+                        sourceFrontVehicle, -sourceLaneSegment.roadLength());
+                sourceFrontVehicleView = rearVehicle;
                 return rearVehicle;
             }
         }
@@ -469,10 +544,33 @@ public class LaneSegment implements Iterable<Vehicle> {
     }
 
     public final Vehicle rearVehicle(Vehicle vehicle) {
-        return rearVehicle(vehicle.getRearPosition());
+        return toVehicle(rearNeighbour(vehicle));
+    }
+
+    /**
+     * Returns the neighbour behind the given vehicle or view, see {@link #rearNeighbour(double)}.
+     * 
+     * @param vehicle
+     * @return the rear neighbour
+     */
+    public final NeighbourView rearNeighbour(NeighbourView vehicle) {
+        if (vehicle instanceof Vehicle && indexOf((Vehicle) vehicle) >= 0) {
+            // exact position match, see rearNeighbour(double)
+            return vehicle;
+        }
+        return rearNeighbour(vehicle.getRearPosition());
     }
 
     public Vehicle rearVehicleOnSinkLanePosAdjusted() {
+        return toVehicle(rearNeighbourOnSinkLane());
+    }
+
+    /**
+     * Returns the rear vehicle of the sink lane segment, with its position set relative to this lane segment.
+     * 
+     * @return the position adjusted view, or null
+     */
+    public PositionAdjustedVehicle rearNeighbourOnSinkLane() {
 
         // subject vehicle is front vehicle on this road segment, so check sink road segment
         if (sinkLaneSegment == null) {
@@ -483,14 +581,16 @@ public class LaneSegment implements Iterable<Vehicle> {
         if (sinkRearVehicle == null) {
             return null;
         }
-        // return a copy of the rear vehicle on the sink road segment, with its position
+        // return the rear vehicle on the sink road segment, with its position
         // set relative to the current road segment
-        final Vehicle ret = new Vehicle(sinkRearVehicle);
-        ret.setFrontPosition(ret.getFrontPosition() + roadSegment.roadLength());
-        return ret;
+        return sinkRearVehicleView(sinkRearVehicle);
     }
 
     Vehicle secondLastVehicleOnSinkLanePosAdjusted() {
+        return toVehicle(secondLastNeighbourOnSinkLane());
+    }
+
+    PositionAdjustedVehicle secondLastNeighbourOnSinkLane() {
         // subject vehicle is front vehicle on this lane segment, so check sink lane segment
         if (sinkLaneSegment == null) {
             return null;
@@ -503,13 +603,32 @@ public class LaneSegment implements Iterable<Vehicle> {
             return null;
         }
         final Vehicle vehicle = sinkLaneSegment.getVehicle(sinkLaneVehicleCount - 2);
-        // return a copy of the rear vehicle on the sink lane segment, with its position
+        // return the second last vehicle on the sink lane segment, with its position
         // set relative to the current road segment
-        final Vehicle ret = new Vehicle(vehicle);
-        ret.setFrontPosition(ret.getFrontPosition() + roadSegment.roadLength());
+        final PositionAdjustedVehicle ret = PositionAdjustedVehicle.of(sinkSecondLastVehicleView, vehicle,
+                roadSegment.roadLength());
+        sinkSecondLastVehicleView = ret;
+        return ret;
+    }
+
+    private PositionAdjustedVehicle sinkRearVehicleView(Vehicle sinkRearVehicle) {
+        final PositionAdjustedVehicle ret = PositionAdjustedVehicle.of(sinkRearVehicleView, sinkRearVehicle,
+                roadSegment.roadLength());
+        sinkRearVehicleView = ret;
         return ret;
     }
 
+    /**
+     * Converts a neighbour to a vehicle for the searches which return vehicles. A vehicle on an adjacent lane segment is
+     * copied.
+     */
+    private static Vehicle toVehicle(NeighbourView neighbour) {
+        if (neighbour instanceof PositionAdjustedVehicle) {
+            return ((PositionAdjustedVehicle) neighbour).copy();
+        }
+        return (Vehicle) neighbour;
+    }
+
     /**
      * Returns the front vehicle which is the most downstream vehicle in the {@link LaneSegment}.
      * 
@@ -528,9 +647,21 @@ public class LaneSegment implements Iterable<Vehicle> {
      * 
      * @param vehiclePos
      * 
-     * @return reference to the front vehicle
+     * @return reference to the front vehicle, a position adjusted copy if it is on the sink lane segment
      */
     public Vehicle frontVehicle(double vehiclePos) {
+        return toVehicle(frontNeighbour(vehiclePos));
+    }
+
+    /**
+     * Finds the neighbour immediately in front of the given position, see {@link #frontVehicle(double)}. A vehicle on
+     * the sink lane segment is returned as a position adjusted view, no vehicle is copied.
+     * 
+     * @param vehiclePos
+     * 
+     * @return the front neighbour
+     */
+    public NeighbourView frontNeighbour(double vehiclePos) {
         // index = Collections.binarySearch(vehicles, subjectVehicle, vehiclePositionComparator);
         final int index = positionBinarySearch(vehiclePos);
         final int insertionPoint = -index - 1;
@@ -549,11 +680,9 @@ public class LaneSegment implements Iterable<Vehicle> {
             // find the rear vehicle in the sink lane on the sink road segment
             final Vehicle sinkRearVehicle = sinkLaneSegment.rearVehicle();
             if (sinkRearVehicle != null) {
-                // return a copy of the rear vehicle on the sink road segment, with its position
+                // return the rear vehicle on the sink road segment, with its position
                 // set relative to the current road segment
-                final Vehicle frontVehicle = new Vehicle(sinkRearVehicle);
-                frontVehicle.setFrontPosition(frontVehicle.getFrontPosition() + roadSegment.roadLength());
-                return frontVehicle;
+                return sinkRearVehicleView(sinkRearVehicle);
             }
         }
         return null;
@@ -566,9 +695,50 @@ public class LaneSegment implements Iterable<Vehicle> {
      * @return the next downstream vehicle
      */
     public final Vehicle frontVehicle(Vehicle vehicle) {
-        return frontVehicle(vehicle.getRearPosition());
+        return toVehicle(frontNeighbour(vehicle));
+    }
+
+    /**
+     * Returns the neighbour in front of the given vehicle or view.
+     * 
+     * @param vehicle
+     * @return the next downstream vehicle, or a position adjusted view of it
+     */
+    public final NeighbourView frontNeighbour(NeighbourView vehicle) {
+        if (vehicle instanceof Vehicle) {
+            final int index = indexOf((Vehicle) vehicle);
+            if (index > 0) {
+                return vehicles.get(index - 1);
+            }
+        }
+        return frontNeighbour(vehicle.getRearPosition());
     }
     
+    /**
+     * Returns the neighbour that would be immediately in front of the given vehicle if it was inserted into this lane
+     * segment. The lane segment is not modified, so this can be used to evaluate lane changes while other threads read
+     * the lane.
+     * 
+     * @param vehicle
+     *            vehicle not contained in this lane segment
+     * @return the virtual front vehicle, may be a position adjusted view of a vehicle on the sink lane segment
+     */
+    public final NeighbourView virtualFrontNeighbour(Vehicle vehicle) {
+        return frontNeighbour(vehicle.getRearPosition());
+    }
+
+    /**
+     * Returns the neighbour that would be immediately behind the given vehicle if it was inserted into this lane
+     * segment. The lane segment is not modified.
+     * 
+     * @param vehicle
+     *            vehicle not contained in this lane segment
+     * @return the virtual rear vehicle, may be a position adjusted view of a vehicle on the source lane segment
+     */
+    public final NeighbourView virtualRearNeighbour(Vehicle vehicle) {
+        return rearNeighbour(vehicle.getRearPosition());
+    }
+
     private int positionBinarySearch(double vehiclePos) {
         int low = 0;
         int high = vehicles.size() - 1;
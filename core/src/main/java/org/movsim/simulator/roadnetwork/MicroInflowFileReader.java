@@ -2,8 +2,8 @@ package org.movsim.simulator.roadnetwork;
 
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.util.Arrays;
 import java.util.List;
 
@@ -198,7 +198,7 @@ public final class MicroInflowFileReader {
         List<String[]> myEntries = Lists.newArrayList();
         CSVReader reader = null;
         try {
-            reader = new CSVReader(new FileReader(file), separator);
+            reader = new CSVReader(new InputStreamReader(FileUtils.openInputStream(file)), separator);
             myEntries = reader.readAll();
         } catch (FileNotFoundException e) {
             e.printStackTrace();
@@ -26,14 +26,24 @@
 
 package org.movsim.simulator.roadnetwork;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Iterator;
+import java.util.List;
 
+import org.movsim.simulator.SimulationContext;
 import org.movsim.simulator.SimulationTimeStep;
 import org.movsim.simulator.roadnetwork.routing.Route;
+import org.movsim.simulator.vehicles.Vehicle.IntegrationType;
+import org.movsim.simulator.vehicles.VehicleFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Preconditions;
+
 /**
  * Iterable collection of the road segments in the road network.
  */
@@ -43,10 +53,48 @@ public class RoadNetwork implements SimulationTimeStep, Iterable<RoadSegment> {
     private static final Logger LOG = LoggerFactory.getLogger(RoadNetwork.class);
 
     private final ArrayList<RoadSegment> roadSegments = new ArrayList<>();
+    /** network indexes of the road segments with vehicles or with a source, sink or detectors */
+    private final BitSet activeSegmentIndexes = new BitSet();
+    /** the active road segments in network order, rebuilt when the active set has changed */
+    private List<RoadSegment> activeSegments = new ArrayList<>();
+    private boolean activeSegmentsValid;
+    private boolean withActiveSegments = true;
     private String name;
 
     private boolean isWithCrashExit;
     private boolean hasVariableMessageSign;
+    private boolean withBatchAccelerations = true;
+    private IntegrationType integrationType = IntegrationType.KINEMATIC;
+
+    private final SimulationContext context;
+    private final RoadSegmentPhaseExecutor phaseExecutor;
+
+    /**
+     * Constructor, the road network belongs to the simulation context bound to the current thread.
+     */
+    public RoadNetwork() {
+        this(SimulationContext.current());
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param context
+     *            the context of the simulation the road network belongs to
+     */
+    public RoadNetwork(SimulationContext context) {
+        this.context = Preconditions.checkNotNull(context);
+        phaseExecutor = new RoadSegmentPhaseExecutor(context);
+    }
+
+    /**
+     * Returns the context of the simulation the road network belongs to.
+     * 
+     * @return the simulation context
+     */
+    public SimulationContext context() {
+        return context;
+    }
 
     /**
      * Sets the name of the road network.
@@ -105,10 +153,49 @@ public class RoadNetwork implements SimulationTimeStep, Iterable<RoadSegment> {
         hasVariableMessageSign = false;
         // LaneChangeModel.resetCount();
         // LongitudinalDriverModel.resetNextId();
-        RoadSegment.resetNextId();
+        context.resetRoadSegmentIds();
         // TrafficFlowBase.resetNextId();
         // Vehicle.resetNextId();
         roadSegments.clear();
+        activeSegmentIndexes.clear();
+        activeSegmentsValid = false;
+    }
+
+    /**
+     * Writes the state of all road segments.
+     * 
+     * @param out
+     * @param vehicleFactory
+     *            writes the vehicles
+     * @throws IOException
+     */
+    public void writeState(DataOutput out, VehicleFactory vehicleFactory) throws IOException {
+        out.writeInt(roadSegments.size());
+        for (final RoadSegment roadSegment : roadSegments) {
+            out.writeInt(roadSegment.id());
+            roadSegment.writeState(out, vehicleFactory);
+        }
+    }
+
+    /**
+     * Reads the state written by {@link #writeState(DataOutput, VehicleFactory)}. The road network must have been
+     * created from the same scenario.
+     * 
+     * @param in
+     * @param vehicleFactory
+     *            recreates the vehicles
+     * @throws IOException
+     */
+    public void readState(DataInput in, VehicleFactory vehicleFactory) throws IOException {
+        if (in.readInt() != roadSegments.size()) {
+            throw new IOException("checkpoint does not match the number of road segments");
+        }
+        for (final RoadSegment roadSegment : roadSegments) {
+            if (in.readInt() != roadSegment.id()) {
+                throw new IOException("checkpoint does not match road segment " + roadSegment.userId());
+            }
+            roadSegment.readState(in, vehicleFactory);
+        }
     }
 
     /**
@@ -137,7 +224,10 @@ public class RoadNetwork implements SimulationTimeStep, Iterable<RoadSegment> {
     public RoadSegment add(RoadSegment roadSegment) {
         assert roadSegment != null;
         assert roadSegment.eachLaneIsSorted();
+        roadSegment.setBatchAccelerationsEnabled(withBatchAccelerations);
+        roadSegment.setRoadNetwork(this, roadSegments.size());
         roadSegments.add(roadSegment);
+        activate(roadSegment);
         return roadSegment;
     }
 
@@ -192,47 +282,273 @@ public class RoadNetwork implements SimulationTimeStep, Iterable<RoadSegment> {
      *            the counter of performed update steps
      */
     @Override
-    public void timeStep(double dt, double simulationTime, long iterationCount) {
+    public void timeStep(final double dt, final double simulationTime, final long iterationCount) {
         // Make each type of update for each road segment, this avoids problems with vehicles
         // being updated twice (for example when a vehicle moves of the end of a road segment
         // onto the next road segment.
+        // Phases which only change the state of their own road segment may be run in parallel. Committing lane changes,
+        // outflow and inflow modify other road segments or draw random numbers and are always applied sequentially.
+        // Only the active road segments are updated, empty road segments without source, sink or detectors are skipped.
 
         LOG.debug("called timeStep: time={}, timestep=", simulationTime, dt);
-        for (final RoadSegment roadSegment : roadSegments) {
-            roadSegment.updateRoadConditions(dt, simulationTime, iterationCount);
-        }
+        context.setIterationCount(iterationCount);
+        phaseExecutor.execute(activeRoadSegments(), new RoadSegmentPhaseExecutor.Phase() {
+            @Override
+            public void apply(RoadSegment roadSegment) {
+                roadSegment.updateRoadConditions(dt, simulationTime, iterationCount);
+            }
+        });
 
         // Note: must do lane changes before vehicle positions are updated (or after outFlow) to ensure
         // the vehicle's roadSegmentId is correctly set
-        for (final RoadSegment roadSegment : roadSegments) {
-            roadSegment.makeLaneChanges(dt, simulationTime, iterationCount);
+        // the lane-changing decisions are made on the unchanged lanes, the lane changes are then executed in road
+        // segment order
+        final RoadSegmentPhaseExecutor.Phase laneChangeDecisions = new RoadSegmentPhaseExecutor.Phase() {
+            @Override
+            public void apply(RoadSegment roadSegment) {
+                roadSegment.decideLaneChanges(dt, simulationTime, iterationCount);
+            }
+        };
+        phaseExecutor.execute(activeRoadSegments(), laneChangeDecisions);
+        for (int i = activeSegmentIndexes.nextSetBit(0); i >= 0; i = activeSegmentIndexes.nextSetBit(i + 1)) {
+            roadSegments.get(i).commitLaneChanges(dt, simulationTime, iterationCount);
         }
 
-        for (final RoadSegment roadSegment : roadSegments) {
-            roadSegment.updateVehicleAccelerations(dt, simulationTime, iterationCount);
+        updateLaneIndexes();
+
+        // the accelerations are computed from the committed state of all vehicles and then committed in a separate
+        // phase, so that no vehicle sees the new acceleration of another vehicle during the compute phase
+        final RoadSegmentPhaseExecutor.Phase accelerations = new RoadSegmentPhaseExecutor.Phase() {
+            @Override
+            public void apply(RoadSegment roadSegment) {
+                roadSegment.computeVehicleAccelerations(dt, simulationTime, iterationCount);
+            }
+        };
+        // stochastic models draw their random numbers keyed by vehicle and time step, so they may be run in parallel
+        phaseExecutor.execute(activeRoadSegments(), accelerations);
+
+        phaseExecutor.execute(activeRoadSegments(), new RoadSegmentPhaseExecutor.Phase() {
+            @Override
+            public void apply(RoadSegment roadSegment) {
+                roadSegment.commitVehicleAccelerations();
+            }
+        });
+
+        if (integrationType.isRungeKutta()) {
+            integrate(dt);
+        } else {
+            phaseExecutor.execute(activeRoadSegments(), new RoadSegmentPhaseExecutor.Phase() {
+                @Override
+                public void apply(RoadSegment roadSegment) {
+                    roadSegment.updateVehiclePositionsAndSpeeds(dt, integrationType);
+                }
+            });
         }
 
-        for (final RoadSegment roadSegment : roadSegments) {
-            roadSegment.updateVehiclePositionsAndSpeeds(dt, simulationTime, iterationCount);
+        phaseExecutor.execute(activeRoadSegments(), new RoadSegmentPhaseExecutor.Phase() {
+            @Override
+            public void apply(RoadSegment roadSegment) {
+                roadSegment.checkForInconsistencies(simulationTime, iterationCount, isWithCrashExit);
+            }
+        });
+
+        for (int i = activeSegmentIndexes.nextSetBit(0); i >= 0; i = activeSegmentIndexes.nextSetBit(i + 1)) {
+            roadSegments.get(i).outFlow(dt, simulationTime, iterationCount);
         }
 
-        for (final RoadSegment roadSegment : roadSegments) {
-            roadSegment.checkForInconsistencies(simulationTime, iterationCount, isWithCrashExit);
+        for (int i = activeSegmentIndexes.nextSetBit(0); i >= 0; i = activeSegmentIndexes.nextSetBit(i + 1)) {
+            roadSegments.get(i).inFlow(dt, simulationTime, iterationCount);
         }
 
-        for (final RoadSegment roadSegment : roadSegments) {
-            roadSegment.outFlow(dt, simulationTime, iterationCount);
+        // the lane indexes remain valid for the detectors, the output and the next lane-changing decisions
+        updateLaneIndexes();
+
+        phaseExecutor.execute(activeRoadSegments(), new RoadSegmentPhaseExecutor.Phase() {
+            @Override
+            public void apply(RoadSegment roadSegment) {
+                roadSegment.updateDetectors(dt, simulationTime, iterationCount);
+            }
+        });
+
+        deactivateEmptyRoadSegments();
+    }
+
+    /**
+     * Updates the vehicle positions and speeds with a Runge-Kutta scheme. The committed accelerations are the first
+     * stage, for the further stages all vehicles of the road network are moved to the intermediate state and the
+     * accelerations are recalculated. The vehicles do not change lanes or road segments during the stages, so the
+     * neighbour indexes are reused.
+     * 
+     * @param dt
+     *            simulation time interval, seconds.
+     */
+    private void integrate(final double dt) {
+        // Butcher tableaux: the stages start at the beginning of the step plus stageFraction*dt
+        final double[] stageFractions;
+        final double[] weights;
+        if (integrationType == IntegrationType.HEUN) {
+            stageFractions = new double[] { 0, 1 };
+            weights = new double[] { 0.5, 0.5 };
+        } else {
+            stageFractions = new double[] { 0, 0.5, 0.5, 1 };
+            weights = new double[] { 1.0 / 6, 1.0 / 3, 1.0 / 3, 1.0 / 6 };
         }
+        phaseExecutor.execute(activeRoadSegments(), new RoadSegmentPhaseExecutor.Phase() {
+            @Override
+            public void apply(RoadSegment roadSegment) {
+                roadSegment.startIntegration(weights[0]);
+            }
+        });
+        for (int stage = 1; stage < weights.length; ++stage) {
+            final double stageDt = stageFractions[stage] * dt;
+            final double weight = weights[stage];
+            phaseExecutor.execute(activeRoadSegments(), new RoadSegmentPhaseExecutor.Phase() {
+                @Override
+                public void apply(RoadSegment roadSegment) {
+                    roadSegment.setIntegrationStage(stageDt);
+                }
+            });
+            // the acceleration noise of the first stage is reused, so no random numbers are drawn
+            phaseExecutor.execute(activeRoadSegments(), new RoadSegmentPhaseExecutor.Phase() {
+                @Override
+                public void apply(RoadSegment roadSegment) {
+                    roadSegment.computeStageAccelerations(weight);
+                }
+            });
+        }
+        phaseExecutor.execute(activeRoadSegments(), new RoadSegmentPhaseExecutor.Phase() {
+            @Override
+            public void apply(RoadSegment roadSegment) {
+                roadSegment.finishIntegration(dt);
+            }
+        });
+    }
 
-        for (final RoadSegment roadSegment : roadSegments) {
-            roadSegment.inFlow(dt, simulationTime, iterationCount);
+    /**
+     * Updates the neighbour indexes of all lane segments after the lanes have been modified.
+     */
+    private void updateLaneIndexes() {
+        phaseExecutor.execute(activeRoadSegments(), new RoadSegmentPhaseExecutor.Phase() {
+            @Override
+            public void apply(RoadSegment roadSegment) {
+                roadSegment.updateNeighbourIndex();
+            }
+        });
+    }
+
+    /**
+     * Adds the road segment to the active road segments, which are updated by the phases of the time step. A road
+     * segment becomes active when a vehicle enters it. The sequential phases traverse the active road segments in
+     * network order, so a road segment activated by the outflow of an upstream road segment is still visited by the
+     * outflow of the same time step, just as without the active set.
+     * 
+     * @param roadSegment
+     */
+    void activate(RoadSegment roadSegment) {
+        final int index = roadSegment.networkIndex();
+        assert roadSegments.get(index) == roadSegment;
+        if (!activeSegmentIndexes.get(index)) {
+            activeSegmentIndexes.set(index);
+            activeSegmentsValid = false;
+        }
+    }
+
+    /**
+     * Removes the road segments without vehicles from the active road segments, unless they have a source, sink or
+     * detectors which are updated in each time step. Called at the end of the time step, after the neighbour indexes
+     * of the emptied road segments have been updated.
+     */
+    private void deactivateEmptyRoadSegments() {
+        if (!withActiveSegments) {
+            return;
         }
+        for (int i = activeSegmentIndexes.nextSetBit(0); i >= 0; i = activeSegmentIndexes.nextSetBit(i + 1)) {
+            final RoadSegment roadSegment = roadSegments.get(i);
+            if (roadSegment.getVehicleCount() == 0 && !roadSegment.isAlwaysActive()) {
+                activeSegmentIndexes.clear(i);
+                activeSegmentsValid = false;
+            }
+        }
+    }
+
+    private List<RoadSegment> activeRoadSegments() {
+        if (!activeSegmentsValid) {
+            // a new list, so that a phase iterating over the previous list is not affected
+            final List<RoadSegment> active = new ArrayList<>(activeSegmentIndexes.cardinality());
+            for (int i = activeSegmentIndexes.nextSetBit(0); i >= 0; i = activeSegmentIndexes.nextSetBit(i + 1)) {
+                active.add(roadSegments.get(i));
+            }
+            activeSegments = active;
+            activeSegmentsValid = true;
+        }
+        return activeSegments;
+    }
 
+    /**
+     * Returns the number of road segments which are currently updated in each time step.
+     * 
+     * @return the number of active road segments
+     */
+    public int activeRoadSegmentCount() {
+        return activeSegmentIndexes.cardinality();
+    }
+
+    /**
+     * Sets if only the active road segments are updated in the time step: the road segments with vehicles and those
+     * with a source, sink or detectors. Otherwise all road segments are updated. The simulation results do not depend
+     * on this setting.
+     * 
+     * @param withActiveSegments
+     */
+    public void setWithActiveSegments(boolean withActiveSegments) {
+        this.withActiveSegments = withActiveSegments;
+        if (!withActiveSegments) {
+            activeSegmentIndexes.set(0, roadSegments.size());
+            activeSegmentsValid = false;
+        }
+    }
+
+    /**
+     * Sets if the model accelerations of the vehicles in a lane which share a longitudinal model are calculated by the
+     * batch kernel of the model, where available. The simulation results do not depend on this setting.
+     * 
+     * @param withBatchAccelerations
+     */
+    public void setWithBatchAccelerations(boolean withBatchAccelerations) {
+        this.withBatchAccelerations = withBatchAccelerations;
         for (final RoadSegment roadSegment : roadSegments) {
-            roadSegment.updateDetectors(dt, simulationTime, iterationCount);
+            roadSegment.setBatchAccelerationsEnabled(withBatchAccelerations);
         }
     }
 
+    /**
+     * Sets the number of threads used for updating the road segments. 1 (default) updates the road segments
+     * sequentially. The simulation results do not depend on the number of threads.
+     * 
+     * @param threadCount
+     */
+    public void setThreadCount(int threadCount) {
+        phaseExecutor.setThreadCount(threadCount);
+    }
+
+    /**
+     * Sets the numerical integration of the vehicle positions and speeds. The Euler and Runge-Kutta integrations are
+     * only applied to time-continuous models, the other models are always updated with their own update rule.
+     * 
+     * @param integrationType
+     */
+    public void setIntegrationType(IntegrationType integrationType) {
+        this.integrationType = Preconditions.checkNotNull(integrationType);
+    }
+
+    public IntegrationType integrationType() {
+        return integrationType;
+    }
+
+    public int threadCount() {
+        return phaseExecutor.threadCount();
+    }
+
     public void setWithCrashExit(boolean isWithCrashExit) {
         this.isWithCrashExit = isWithCrashExit;
     }
@@ -323,6 +639,21 @@ public class RoadNetwork implements SimulationTimeStep, Iterable<RoadSegment> {
         return vehicleCount;
     }
 
+    /**
+     * Returns the number of vehicles that have exited this road network through its sinks.
+     * 
+     * @return the number of exited vehicles
+     */
+    public int totalVehiclesRemoved() {
+        int totalVehiclesRemoved = 0;
+        for (RoadSegment roadSegment : roadSegments) {
+            if (roadSegment.sink() != null) {
+                totalVehiclesRemoved += roadSegment.sink().totalVehiclesRemoved();
+            }
+        }
+        return totalVehiclesRemoved;
+    }
+
     /**
      * Returns the total travel time of all vehicles on this road network, including those that have exited.
      * 
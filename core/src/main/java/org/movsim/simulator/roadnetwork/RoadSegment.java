@@ -26,6 +26,9 @@
 
 package org.movsim.simulator.roadnetwork;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.EnumMap;
@@ -40,8 +43,15 @@ import org.movsim.network.autogen.opendrive.OpenDRIVE.Road.ElevationProfile;
 import org.movsim.output.detector.LoopDetectors;
 import org.movsim.roadmappings.RoadMapping;
 import org.movsim.simulator.MovsimConstants;
+import org.movsim.simulator.SimulationContext;
 import org.movsim.simulator.trafficlights.TrafficLightLocation;
+import org.movsim.simulator.vehicles.NeighbourView;
 import org.movsim.simulator.vehicles.Vehicle;
+import org.movsim.simulator.vehicles.Vehicle.IntegrationType;
+import org.movsim.simulator.vehicles.VehicleFactory;
+import org.movsim.simulator.vehicles.longitudinalmodel.acceleration.AccelerationBatch;
+import org.movsim.simulator.vehicles.longitudinalmodel.acceleration.LongitudinalModelBase;
+import org.movsim.utilities.InterpolationTable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -89,7 +99,6 @@ public class RoadSegment extends DefaultWeightedEdge implements Iterable<Vehicle
 
     public static final int ID_NOT_SET = -1;
     public static final int INITIAL_ID = 1;
-    private static int nextId = INITIAL_ID;
 
     /** the id is an internally used unique identifier for the road. */
     private final int id;
@@ -118,6 +127,14 @@ public class RoadSegment extends DefaultWeightedEdge implements Iterable<Vehicle
 
     private SpeedLimits speedLimits;
     private Slopes slopes;
+    /** cursors of the fused sweep over the vehicles in updateRoadConditions, null if not applied */
+    private InterpolationTable.Cursor speedLimitCursor;
+    private InterpolationTable.Cursor slopeCursor;
+    /** cursors of the sweep over the vehicles in computeVehicleAccelerations, null without bottlenecks */
+    private InterpolationTable.Cursor alphaTCursor;
+    private InterpolationTable.Cursor alphaV0Cursor;
+    /** input and output of the batch acceleration kernels, null if disabled */
+    private AccelerationBatch accelerationBatch;
     private VariableMessageSigns variableMessageSigns;
 
     // Sources and Sinks
@@ -128,6 +145,11 @@ public class RoadSegment extends DefaultWeightedEdge implements Iterable<Vehicle
     /** simple ramp with dropping mechanism */
     private SimpleRamp simpleRamp;
 
+    /** the road network this road segment has been added to, notified when vehicles enter the road segment */
+    private RoadNetwork roadNetwork;
+    /** index of this road segment in its road network */
+    private int networkIndex;
+
     public static class TestCar {
         public double s = 0.0; // distance
         public double vdiff = 0.0; // approaching rate
@@ -139,7 +161,7 @@ public class RoadSegment extends DefaultWeightedEdge implements Iterable<Vehicle
      * Resets the next id.
      */
     public static void resetNextId() {
-        nextId = INITIAL_ID;
+        SimulationContext.current().resetRoadSegmentIds();
     }
 
     /**
@@ -148,7 +170,7 @@ public class RoadSegment extends DefaultWeightedEdge implements Iterable<Vehicle
      * @return the number of road segment that have been created
      */
     public static int count() {
-        return nextId - INITIAL_ID;
+        return SimulationContext.current().roadSegmentCount();
     }
 
     /**
@@ -166,7 +188,7 @@ public class RoadSegment extends DefaultWeightedEdge implements Iterable<Vehicle
         for (int index = 0; index < laneCount; ++index) {
             laneSegments[index] = new LaneSegment(this, index + 1);
         }
-        id = nextId++;
+        id = SimulationContext.current().nextRoadSegmentId();
         assert roadLength > 0;
         this.roadLength = roadLength;
         this.laneCount = laneCount;
@@ -257,6 +279,7 @@ public class RoadSegment extends DefaultWeightedEdge implements Iterable<Vehicle
         Preconditions.checkArgument(this.trafficSource == null, "roadSegment=" + id()
                 + " already has a traffic source.");
         this.trafficSource = trafficSource;
+        activate();
     }
 
     /**
@@ -276,6 +299,43 @@ public class RoadSegment extends DefaultWeightedEdge implements Iterable<Vehicle
      */
     public final void setSink(TrafficSink sink) {
         this.sink = sink;
+        activate();
+    }
+
+    /**
+     * Sets the road network this road segment has been added to.
+     * 
+     * @param roadNetwork
+     * @param networkIndex
+     *            the index of this road segment in the road network
+     */
+    final void setRoadNetwork(RoadNetwork roadNetwork, int networkIndex) {
+        this.roadNetwork = roadNetwork;
+        this.networkIndex = networkIndex;
+    }
+
+    final int networkIndex() {
+        return networkIndex;
+    }
+
+    /**
+     * Marks this road segment as active in its road network, so that it is updated by the remaining phases of the
+     * current time step and by the following time steps. Called whenever a vehicle enters the road segment.
+     */
+    final void activate() {
+        if (roadNetwork != null) {
+            roadNetwork.activate(this);
+        }
+    }
+
+    /**
+     * Returns true if this road segment has to be updated in each time step even without vehicles, that is if it has a
+     * traffic source, a sink, a simple ramp or detectors.
+     * 
+     * @return true if this road segment is always updated
+     */
+    final boolean isAlwaysActive() {
+        return trafficSource != null || sink != null || simpleRamp != null || loopDetectors != null;
     }
 
     /**
@@ -655,7 +715,12 @@ public class RoadSegment extends DefaultWeightedEdge implements Iterable<Vehicle
     }
 
     /**
-     * Updates the road conditions.
+     * Updates the road conditions: applies the speed limits, slopes and variable message signs to the vehicles.
+     * <p>
+     * The road conditions are applied in a single sweep over the vehicles of each lane. The vehicles are sorted by
+     * position, so the cursors into the speed limits and slopes only advance when a vehicle is past the next
+     * breakpoint and the sweep costs O(vehicles + breakpoints).
+     * </p>
      * 
      * @param dt
      *            delta-t, simulation time interval, seconds
@@ -665,9 +730,26 @@ public class RoadSegment extends DefaultWeightedEdge implements Iterable<Vehicle
      *            the number of iterations that have been executed
      */
     public void updateRoadConditions(double dt, double simulationTime, long iterationCount) {
-        applySpeedLimits();
-        applySlopes();
-        applyVariableMessageSigns();
+        final VariableMessageSigns signs = variableMessageSigns == null || variableMessageSigns.isEmpty() ? null
+                : variableMessageSigns;
+        if (speedLimitCursor == null && slopeCursor == null && signs == null) {
+            return;
+        }
+        for (final LaneSegment laneSegment : laneSegments) {
+            for (final Vehicle vehicle : laneSegment) {
+                assert vehicle.roadSegmentId() == id;
+                final double position = vehicle.getFrontPosition();
+                if (speedLimitCursor != null) {
+                    vehicle.setSpeedlimit(speedLimitCursor.value(position));
+                }
+                if (slopeCursor != null) {
+                    vehicle.setSlope(slopeCursor.value(position));
+                }
+                if (signs != null) {
+                    signs.apply(vehicle, this);
+                }
+            }
+        }
     }
 
     /**
@@ -708,39 +790,6 @@ public class RoadSegment extends DefaultWeightedEdge implements Iterable<Vehicle
                 distance);
     }
 
-    private void applySpeedLimits() {
-        if (speedLimits != null && speedLimits.isEmpty() == false) {
-            for (final LaneSegment laneSegment : laneSegments) {
-                for (final Vehicle vehicle : laneSegment) {
-                    assert vehicle.roadSegmentId() == id;
-                    speedLimits.apply(vehicle);
-                }
-            }
-        }
-    }
-
-    private void applySlopes() {
-        if (slopes != null && slopes.isEmpty() == false) {
-            for (final LaneSegment laneSegment : laneSegments) {
-                for (final Vehicle vehicle : laneSegment) {
-                    assert vehicle.roadSegmentId() == id;
-                    slopes.apply(vehicle);
-                }
-            }
-        }
-    }
-
-    private void applyVariableMessageSigns() {
-        if (variableMessageSigns != null && variableMessageSigns.isEmpty() == false) {
-            for (final LaneSegment laneSegment : laneSegments) {
-                for (final Vehicle vehicle : laneSegment) {
-                    assert vehicle.roadSegmentId() == id;
-                    variableMessageSigns.apply(vehicle, this);
-                }
-            }
-        }
-    }
-
     public void addVariableMessageSign(VariableMessageSignBase variableMessageSign) {
         if (variableMessageSigns == null) {
             variableMessageSigns = new VariableMessageSigns();
@@ -783,6 +832,47 @@ public class RoadSegment extends DefaultWeightedEdge implements Iterable<Vehicle
      *            the number of iterations that have been executed
      */
     public void makeLaneChanges(double dt, double simulationTime, long iterationCount) {
+        decideLaneChanges(dt, simulationTime, iterationCount);
+        commitLaneChanges(dt, simulationTime, iterationCount);
+    }
+
+    /**
+     * Decision stage of the lane changes: determines the lane-changing decisions of all vehicles on this road segment
+     * without modifying any lane. Must be followed by {@link #commitLaneChanges(double, double, long)}.
+     * 
+     * @param dt
+     *            delta-t, simulation time interval, seconds
+     * @param simulationTime
+     *            current simulation time, seconds
+     * @param iterationCount
+     *            the number of iterations that have been executed
+     */
+    public void decideLaneChanges(double dt, double simulationTime, long iterationCount) {
+        if (laneCount < 2) {
+            // need at least 2 lanes for lane changing
+            return;
+        }
+        for (final LaneSegment laneSegment : laneSegments) {
+            assert laneSegment.assertInvariant();
+            for (final Vehicle vehicle : laneSegment) {
+                assert vehicle.roadSegmentId() == id;
+                vehicle.decideLaneChange(this);
+            }
+        }
+    }
+
+    /**
+     * Commit stage of the lane changes: moves the vehicles to their target lanes. A lane change is cancelled if it has
+     * become unsafe through a lane change committed before it.
+     * 
+     * @param dt
+     *            delta-t, simulation time interval, seconds
+     * @param simulationTime
+     *            current simulation time, seconds
+     * @param iterationCount
+     *            the number of iterations that have been executed
+     */
+    public void commitLaneChanges(double dt, double simulationTime, long iterationCount) {
         if (laneCount < 2) {
             // need at least 2 lanes for lane changing
             return;
@@ -793,7 +883,7 @@ public class RoadSegment extends DefaultWeightedEdge implements Iterable<Vehicle
             for (Iterator<Vehicle> vehIterator = laneSegment.iterator(); vehIterator.hasNext();) {
                 Vehicle vehicle = vehIterator.next();
                 assert vehicle.roadSegmentId() == id;
-                if (vehicle.considerLaneChange(dt, this)) {
+                if (vehicle.commitLaneChange(dt, this)) {
                     final int targetLane = vehicle.getTargetLane();
                     assert targetLane != Lanes.NONE;
                     assert laneSegments[targetLane - 1].type() != Lanes.Type.ENTRANCE;
@@ -807,7 +897,9 @@ public class RoadSegment extends DefaultWeightedEdge implements Iterable<Vehicle
     }
 
     /**
-     * Accelerate.
+     * Compute stage of the acceleration update: calculates the accelerations of all vehicles on this road segment
+     * without changing the accelerations visible to other vehicles. Must be followed by
+     * {@link #commitVehicleAccelerations()} once the accelerations of all road segments have been computed.
      * 
      * @param dt
      *            delta-t, simulation time interval, seconds
@@ -816,21 +908,77 @@ public class RoadSegment extends DefaultWeightedEdge implements Iterable<Vehicle
      * @param iterationCount
      *            the number of iterations that have been executed
      */
-    public void updateVehicleAccelerations(double dt, double simulationTime, long iterationCount) {
+    public void computeVehicleAccelerations(double dt, double simulationTime, long iterationCount) {
         for (final LaneSegment laneSegment : laneSegments) {
             assert laneSegment.laneIsSorted();
             assert laneSegment.assertInvariant();
             // final int leftlane = laneSegment.getLaneIndex()+MovsimConstants.TO_LEFT;
             final LaneSegment leftLaneSegment = null; // TODO get left laneIndex ( leftLaneIndex < vehContainers.size() ) ?
                                                       // vehContainers.get(leftLaneIndex) : null;
+            final LongitudinalModelBase batchModel = batchModel(laneSegment);
+            if (batchModel != null && leftLaneSegment == null) {
+                computeBatchAccelerations(dt, laneSegment, batchModel);
+                continue;
+            }
             for (final Vehicle vehicle : laneSegment) {
                 final double x = vehicle.getFrontPosition();
-                final double alphaT = (flowConservingBottlenecks == null) ? 1 : flowConservingBottlenecks.alphaT(x);
-                final double alphaV0 = (flowConservingBottlenecks == null) ? 1 : flowConservingBottlenecks.alphaV0(x);
+                final double alphaT = (alphaTCursor == null) ? 1 : alphaTCursor.value(x);
+                final double alphaV0 = (alphaV0Cursor == null) ? 1 : alphaV0Cursor.value(x);
                 // LOG.debug("i={}, x_pos={}", i, x);
                 // LOG.debug("alphaT={}, alphaV0={}", alphaT, alphaV0);
-                // TODO hack for testing acceleration behavior to exit
-                vehicle.updateAcceleration(dt, this, laneSegment, leftLaneSegment, alphaT, alphaV0);
+                vehicle.computeAcceleration(dt, this, laneSegment, leftLaneSegment, alphaT, alphaV0);
+            }
+        }
+    }
+
+    /**
+     * Returns the longitudinal model shared by all vehicles of the lane segment if their model accelerations can be
+     * calculated by its batch kernel, otherwise null.
+     */
+    private LongitudinalModelBase batchModel(LaneSegment laneSegment) {
+        if (accelerationBatch == null || laneSegment.vehicleCount() == 0) {
+            return null;
+        }
+        final LongitudinalModelBase model = laneSegment.getVehicle(0).getLongitudinalModel();
+        for (final Vehicle vehicle : laneSegment) {
+            if (vehicle.getLongitudinalModel() != model || !vehicle.hasBatchAcceleration()) {
+                return null;
+            }
+        }
+        return model;
+    }
+
+    /**
+     * Calculates the model accelerations of the vehicles in the lane segment with one call of the batch kernel, then
+     * completes the acceleration update of each vehicle.
+     */
+    private void computeBatchAccelerations(double dt, LaneSegment laneSegment, LongitudinalModelBase model) {
+        final int count = laneSegment.vehicleCount();
+        accelerationBatch.clear(count);
+        for (int i = 0; i < count; ++i) {
+            final Vehicle vehicle = laneSegment.getVehicle(i);
+            final NeighbourView frontVehicle = (i == 0) ? laneSegment.frontNeighbour(vehicle) : laneSegment
+                    .getVehicle(i - 1);
+            final double x = vehicle.getFrontPosition();
+            final double alphaT = (alphaTCursor == null) ? 1 : alphaTCursor.value(x);
+            final double alphaV0 = (alphaV0Cursor == null) ? 1 : alphaV0Cursor.value(x);
+            vehicle.addToBatch(accelerationBatch, frontVehicle, alphaT, alphaV0);
+        }
+        model.calcAccBatch(accelerationBatch);
+        for (int i = 0; i < count; ++i) {
+            laneSegment.getVehicle(i).computeAcceleration(dt, this, laneSegment, accelerationBatch.alphaT(i),
+                    accelerationBatch.alphaV0(i), accelerationBatch.acc(i));
+        }
+    }
+
+    /**
+     * Commit stage of the acceleration update: makes the computed accelerations of all vehicles on this road segment
+     * visible.
+     */
+    public void commitVehicleAccelerations() {
+        for (final LaneSegment laneSegment : laneSegments) {
+            for (final Vehicle vehicle : laneSegment) {
+                vehicle.commitAcceleration();
             }
         }
     }
@@ -846,14 +994,105 @@ public class RoadSegment extends DefaultWeightedEdge implements Iterable<Vehicle
      *            the number of iterations that have been executed
      */
     public void updateVehiclePositionsAndSpeeds(double dt, double simulationTime, long iterationCount) {
+        updateVehiclePositionsAndSpeeds(dt, IntegrationType.KINEMATIC);
+    }
+
+    /**
+     * Update the vehicle positions and velocities with the given integration type. The Runge-Kutta schemes are
+     * applied stage by stage over the whole road network, see {@link #startIntegration(double)}.
+     * 
+     * @param dt
+     *            delta-t, simulation time interval, seconds
+     * @param integrationType
+     */
+    public void updateVehiclePositionsAndSpeeds(double dt, IntegrationType integrationType) {
         for (final LaneSegment laneSegment : laneSegments) {
             assert laneSegment.laneIsSorted();
             for (final Vehicle vehicle : laneSegment) {
-                vehicle.updatePositionAndSpeed(dt);
+                vehicle.updatePositionAndSpeed(dt, integrationType);
+            }
+        }
+    }
+
+    /**
+     * Starts a Runge-Kutta step for all vehicles on this road segment. The committed accelerations are the first
+     * stage.
+     * 
+     * @param weight
+     *            weight of the first stage
+     */
+    public void startIntegration(double weight) {
+        for (final LaneSegment laneSegment : laneSegments) {
+            for (final Vehicle vehicle : laneSegment) {
+                vehicle.startIntegration(weight);
+            }
+        }
+    }
+
+    /**
+     * Moves all vehicles on this road segment to the state of the next Runge-Kutta stage. The vehicles keep their
+     * order in the lanes, so the neighbour indexes remain valid.
+     * 
+     * @param stageDt
+     *            time from the beginning of the step to the stage, seconds
+     */
+    public void setIntegrationStage(double stageDt) {
+        for (final LaneSegment laneSegment : laneSegments) {
+            for (final Vehicle vehicle : laneSegment) {
+                vehicle.setIntegrationStage(stageDt);
+            }
+        }
+    }
+
+    /**
+     * Calculates the accelerations of all vehicles on this road segment at the current Runge-Kutta stage.
+     * 
+     * @param weight
+     *            weight of the stage
+     */
+    public void computeStageAccelerations(double weight) {
+        for (final LaneSegment laneSegment : laneSegments) {
+            final LaneSegment leftLaneSegment = null; // see computeVehicleAccelerations
+            for (final Vehicle vehicle : laneSegment) {
+                vehicle.computeStageAcceleration(laneSegment, leftLaneSegment, weight);
+            }
+        }
+    }
+
+    /**
+     * Finishes the Runge-Kutta step for all vehicles on this road segment.
+     * 
+     * @param dt
+     *            delta-t, simulation time interval, seconds
+     */
+    public void finishIntegration(double dt) {
+        for (final LaneSegment laneSegment : laneSegments) {
+            for (final Vehicle vehicle : laneSegment) {
+                vehicle.finishIntegration(dt);
             }
         }
     }
 
+    /**
+     * Enables or disables the batch acceleration kernels for lanes whose vehicles share a longitudinal model, see
+     * {@link LongitudinalModelBase#calcAccBatch(AccelerationBatch)}.
+     * 
+     * @param enabled
+     */
+    public void setBatchAccelerationsEnabled(boolean enabled) {
+        accelerationBatch = enabled ? new AccelerationBatch() : null;
+    }
+
+    /**
+     * Updates the neighbour indexes of the lane segments, so the front and rear vehicles of each vehicle are found
+     * without a search until the lanes are modified.
+     */
+    public void updateNeighbourIndex() {
+        for (final LaneSegment laneSegment : laneSegments) {
+            laneSegment.updateNeighbourIndex();
+        }
+    }
+
     /**
      * If there is a traffic sink, use it to perform any traffic outflow.
      * 
@@ -980,6 +1219,7 @@ public class RoadSegment extends DefaultWeightedEdge implements Iterable<Vehicle
      */
     public void setSpeedLimits(List<Speed> list) {
         this.speedLimits = new SpeedLimits(list);
+        speedLimitCursor = speedLimits.isEmpty() ? null : speedLimits.newCursor();
     }
 
     /**
@@ -998,7 +1238,7 @@ public class RoadSegment extends DefaultWeightedEdge implements Iterable<Vehicle
      */
     public void setElevationProfile(ElevationProfile elevationProfile) {
         this.slopes = new Slopes(elevationProfile.getElevation());
-
+        slopeCursor = slopes.isEmpty() ? null : slopes.newCursor();
     }
 
     /**
@@ -1120,7 +1360,7 @@ public class RoadSegment extends DefaultWeightedEdge implements Iterable<Vehicle
                 if (vehicle.type() == Vehicle.Type.OBSTACLE) {
                     continue;
                 }
-                final Vehicle vehFront = laneSegment.frontVehicle(vehicle);
+                final NeighbourView vehFront = laneSegment.frontNeighbour(vehicle);
                 final double netDistance = vehicle.getNetDistance(vehFront);
                 if (netDistance < 0) {
                     LOG.error("Crash happened!!!");
@@ -1128,7 +1368,7 @@ public class RoadSegment extends DefaultWeightedEdge implements Iterable<Vehicle
                     sb.append(String.format("Crash of Vehicle i=%d (id=%d) at x=%.4f ", index, vehicle.getId(),
                             vehicle.getFrontPosition()));
                     if (vehFront != null) {
-                        sb.append(String.format("with veh (id=%d) in front at x=%.4f on lane=%d\n", vehFront.getId(),
+                        sb.append(String.format("with veh (id=%d) in front at x=%.4f on lane=%d\n", vehFront.vehicle().getId(),
                                 vehFront.getFrontPosition(), vehicle.lane()));
                     }
                     sb.append("roadID=").append(id);
@@ -1211,11 +1451,14 @@ public class RoadSegment extends DefaultWeightedEdge implements Iterable<Vehicle
 
     public void setLoopDetectors(LoopDetectors loopDetectors) {
         this.loopDetectors = loopDetectors;
+        activate();
     }
 
     public void setFlowConservingBottlenecks(FlowConservingBottlenecks flowConservingBottlenecks) {
         Preconditions.checkNotNull(flowConservingBottlenecks);
         this.flowConservingBottlenecks = flowConservingBottlenecks;
+        alphaTCursor = flowConservingBottlenecks.alphaTCursor();
+        alphaV0Cursor = flowConservingBottlenecks.alphaV0Cursor();
     }
 
     /**
@@ -1237,6 +1480,7 @@ public class RoadSegment extends DefaultWeightedEdge implements Iterable<Vehicle
 
     public void setSimpleRamp(SimpleRamp simpleRamp) {
         this.simpleRamp = simpleRamp;
+        activate();
     }
 
     /**
@@ -1314,6 +1558,79 @@ public class RoadSegment extends DefaultWeightedEdge implements Iterable<Vehicle
         nodeIds.put(nodeType, nodeId);
     }
 
+    /**
+     * Writes the vehicles on this road segment and the state of its sources, sink and detectors.
+     * 
+     * @param out
+     * @param vehicleFactory
+     *            writes the vehicles
+     * @throws IOException
+     */
+    public void writeState(DataOutput out, VehicleFactory vehicleFactory) throws IOException {
+        out.writeInt(laneCount);
+        for (final LaneSegment laneSegment : laneSegments) {
+            laneSegment.writeState(out, vehicleFactory);
+        }
+        out.writeBoolean(trafficSource != null);
+        if (trafficSource != null) {
+            trafficSource.writeState(out, vehicleFactory);
+        }
+        out.writeBoolean(simpleRamp != null);
+        if (simpleRamp != null) {
+            simpleRamp.writeState(out, vehicleFactory);
+        }
+        out.writeBoolean(sink != null);
+        if (sink != null) {
+            sink.writeState(out);
+        }
+        out.writeBoolean(loopDetectors != null);
+        if (loopDetectors != null) {
+            loopDetectors.writeState(out);
+        }
+    }
+
+    /**
+     * Replaces the vehicles on this road segment and the state of its sources, sink and detectors by the state written
+     * by {@link #writeState(DataOutput, VehicleFactory)}.
+     * 
+     * @param in
+     * @param vehicleFactory
+     *            recreates the vehicles
+     * @throws IOException
+     */
+    public void readState(DataInput in, VehicleFactory vehicleFactory) throws IOException {
+        if (in.readInt() != laneCount) {
+            throw new IOException("checkpoint does not match the lane count of road segment " + userId);
+        }
+        for (final LaneSegment laneSegment : laneSegments) {
+            laneSegment.readState(in, vehicleFactory);
+        }
+        if (in.readBoolean() != (trafficSource != null)) {
+            throw new IOException("checkpoint does not match the traffic source of road segment " + userId);
+        }
+        if (trafficSource != null) {
+            trafficSource.readState(in, vehicleFactory);
+        }
+        if (in.readBoolean() != (simpleRamp != null)) {
+            throw new IOException("checkpoint does not match the simple ramp of road segment " + userId);
+        }
+        if (simpleRamp != null) {
+            simpleRamp.readState(in, vehicleFactory);
+        }
+        if (in.readBoolean() != (sink != null)) {
+            throw new IOException("checkpoint does not match the sink of road segment " + userId);
+        }
+        if (sink != null) {
+            sink.readState(in);
+        }
+        if (in.readBoolean() != (loopDetectors != null)) {
+            throw new IOException("checkpoint does not match the detectors of road segment " + userId);
+        }
+        if (loopDetectors != null) {
+            loopDetectors.readState(in);
+        }
+    }
+
     @Override
     public String toString() {
         return "RoadSegment [id=" + id + ", userId=" + userId + ", roadName=" + roadName + ", roadLength=" + roadLength
@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2010, 2011, 2012 by Arne Kesting, Martin Treiber, Ralph Germ, Martin Budden
+ * <movsim.org@gmail.com>
+ * -----------------------------------------------------------------------------------------
+ * 
+ * This file is part of
+ * 
+ * MovSim - the multi-model open-source vehicular-traffic simulator.
+ * 
+ * MovSim is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * MovSim is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MovSim. If not, see <http://www.gnu.org/licenses/>
+ * or <http://www.movsim.org>.
+ * 
+ * -----------------------------------------------------------------------------------------
+ */
+
+package org.movsim.simulator.roadnetwork;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.movsim.simulator.SimulationContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Executes one update phase of the road network for all road segments. With more than one thread the road segments
+ * are split into work units which are processed by a fork/join pool. {@link #execute(List, Phase)} returns only after
+ * all road segments have been processed, so that consecutive calls are separated by a barrier.
+ * 
+ * <p>
+ * A phase may only be executed in parallel if it changes the state of the road segment it is applied to (and of the
+ * vehicles on it) and at most reads the state of other road segments. Then the result does not depend on the order in
+ * which the road segments are processed and is identical to the sequential update.
+ * </p>
+ * 
+ * <p>
+ * The worker threads process the road segments with the simulation context of the road network bound.
+ * </p>
+ */
+public class RoadSegmentPhaseExecutor {
+
+    /** The Constant LOG. */
+    private static final Logger LOG = LoggerFactory.getLogger(RoadSegmentPhaseExecutor.class);
+
+    /** number of work units per thread, more units balance road segments with different vehicle counts */
+    private static final int WORK_UNITS_PER_THREAD = 4;
+
+    /**
+     * Update applied to a single road segment.
+     */
+    public interface Phase {
+        void apply(RoadSegment roadSegment);
+    }
+
+    private final SimulationContext context;
+
+    private int threadCount = 1;
+
+    /** null for sequential execution */
+    private ForkJoinPool pool;
+
+    /**
+     * Constructor.
+     * 
+     * @param context
+     *            the simulation context bound in the worker threads
+     */
+    public RoadSegmentPhaseExecutor(SimulationContext context) {
+        this.context = Preconditions.checkNotNull(context);
+    }
+
+    /**
+     * Sets the number of threads, 1 for sequential execution.
+     * 
+     * @param threadCount
+     */
+    public void setThreadCount(int threadCount) {
+        Preconditions.checkArgument(threadCount >= 1, "threadCount=" + threadCount + " must be at least 1");
+        if (threadCount == this.threadCount) {
+            return;
+        }
+        shutdown();
+        this.threadCount = threadCount;
+        if (threadCount > 1) {
+            pool = new ForkJoinPool(threadCount);
+        }
+        LOG.info("update road segments with {} thread(s)", threadCount);
+    }
+
+    public int threadCount() {
+        return threadCount;
+    }
+
+    public boolean isParallel() {
+        return pool != null;
+    }
+
+    /**
+     * Applies the phase to all road segments, in parallel if configured.
+     * 
+     * @param roadSegments
+     * @param phase
+     */
+    public void execute(List<RoadSegment> roadSegments, Phase phase) {
+        if (pool == null || roadSegments.size() < 2) {
+            executeSequentially(roadSegments, phase);
+            return;
+        }
+        final int unitSize = Math.max(1, roadSegments.size() / (WORK_UNITS_PER_THREAD * threadCount));
+        pool.invoke(new PhaseTask(context, roadSegments, 0, roadSegments.size(), unitSize, phase));
+    }
+
+    /**
+     * Applies the phase to all road segments in their order, for phases that move vehicles between road segments or
+     * depend on the order of the road segments.
+     * 
+     * @param roadSegments
+     * @param phase
+     */
+    public static void executeSequentially(List<RoadSegment> roadSegments, Phase phase) {
+        for (final RoadSegment roadSegment : roadSegments) {
+            phase.apply(roadSegment);
+        }
+    }
+
+    /**
+     * Stops the worker threads, further phases are executed sequentially.
+     */
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+        threadCount = 1;
+    }
+
+    /**
+     * Recursively splits the range of road segments in halves until the work unit size is reached.
+     */
+    private static final class PhaseTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final SimulationContext context;
+        private final List<RoadSegment> roadSegments;
+        private final int from;
+        private final int to;
+        private final int unitSize;
+        private final Phase phase;
+
+        PhaseTask(SimulationContext context, List<RoadSegment> roadSegments, int from, int to, int unitSize,
+                Phase phase) {
+            this.context = context;
+            this.roadSegments = roadSegments;
+            this.from = from;
+            this.to = to;
+            this.unitSize = unitSize;
+            this.phase = phase;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= unitSize) {
+                try (SimulationContext.Scope scope = context.enter()) {
+                    for (int i = from; i < to; ++i) {
+                        phase.apply(roadSegments.get(i));
+                    }
+                }
+                return;
+            }
+            final int mid = (from + to) >>> 1;
+            invokeAll(new PhaseTask(context, roadSegments, from, mid, unitSize, phase), new PhaseTask(context,
+                    roadSegments, mid, to, unitSize, phase));
+        }
+    }
+}
@@ -29,6 +29,7 @@ import java.util.SortedSet;
 import java.util.TreeSet;
 
 import org.movsim.simulator.MovsimConstants;
+import org.movsim.simulator.vehicles.NeighbourView;
 import org.movsim.simulator.vehicles.TestVehicle;
 import org.movsim.simulator.vehicles.TrafficCompositionGenerator;
 import org.movsim.simulator.vehicles.Vehicle;
@@ -131,7 +132,7 @@ public class SimpleRamp extends AbstractTrafficSource {
             LOG.debug("no sufficient upstream gap: rearPosition={}", vehicle.getRearPosition());
             return;
         }
-        Vehicle rearVehicle = laneSegment.rearVehicle(vehicle.getRearPosition() - 1); // TODO finds not rear vehicle but
+        NeighbourView rearVehicle = laneSegment.rearNeighbour(vehicle.getRearPosition() - 1); // TODO finds not rear vehicle but
                                                                                       // itself !!!
                                                                                       // if (rearVehicle == vehicle) {
         // System.out.println("!!! rear vehicle is identical to vehicle!");
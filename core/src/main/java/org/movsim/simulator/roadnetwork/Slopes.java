@@ -33,7 +33,7 @@ import java.util.List;
 
 import org.movsim.network.autogen.opendrive.OpenDRIVE.Road.ElevationProfile.Elevation;
 import org.movsim.simulator.vehicles.Vehicle;
-import org.movsim.utilities.Tables;
+import org.movsim.utilities.InterpolationTable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -51,6 +51,7 @@ class Slopes implements Iterable<Slope> {
     private double[] positions;
     private double[] elevations;
     private double[] gradients;
+    private InterpolationTable gradientTable;
     private final Collection<Slope> slopes;
 
     /**
@@ -97,6 +98,7 @@ class Slopes implements Iterable<Slope> {
         }
         // add last point
         slopes.add(new Slope(positions[size - 1], 0));
+        gradientTable = InterpolationTable.step(positions, gradients);
     }
 
     /**
@@ -119,9 +121,17 @@ class Slopes implements Iterable<Slope> {
         LOG.debug("pos={} --> slope gradient={}", pos, slope);
     }
 
+    /**
+     * Returns a new cursor for looking up the slopes of the vehicles of a lane in position order.
+     * 
+     * @return the cursor
+     */
+    InterpolationTable.Cursor newCursor() {
+        return gradientTable.cursor();
+    }
+
     public double calcSlope(double position) {
-        return gradients.length == 0 ? 0 :
-            Tables.stepExtrapolation(positions, gradients, position);
+        return gradients.length == 0 ? 0 : gradientTable.value(position);
     }
 
     @Override
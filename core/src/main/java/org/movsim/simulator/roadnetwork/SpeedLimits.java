@@ -33,7 +33,7 @@ import java.util.List;
 
 import org.movsim.simulator.MovsimConstants;
 import org.movsim.simulator.vehicles.Vehicle;
-import org.movsim.utilities.Tables;
+import org.movsim.utilities.InterpolationTable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -48,6 +48,7 @@ class SpeedLimits implements Iterable<SpeedLimit> {
 
     private double[] positions;
     private double[] speeds;
+    private InterpolationTable speedTable;
     private final Collection<SpeedLimit> speedLimits;
 
     /**
@@ -83,6 +84,7 @@ class SpeedLimits implements Iterable<SpeedLimit> {
             speeds[i] = data.get(i - 1).getMax(); // given in m/s
             speedLimits.add(new SpeedLimit(positions[i], speeds[i]));
         }
+        speedTable = InterpolationTable.step(positions, speeds);
     }
 
     /**
@@ -105,6 +107,15 @@ class SpeedLimits implements Iterable<SpeedLimit> {
         logger.debug("pos={} --> speedlimit in km/h={}", pos, 3.6 * speedlimit);
     }
 
+    /**
+     * Returns a new cursor for looking up the speed limits of the vehicles of a lane in position order.
+     * 
+     * @return the cursor
+     */
+    InterpolationTable.Cursor newCursor() {
+        return speedTable.cursor();
+    }
+
     /**
      * Calculates the speed limit.
      * 
@@ -112,8 +123,7 @@ class SpeedLimits implements Iterable<SpeedLimit> {
      * @return the double
      */
     public double calcSpeedLimit(double position) {
-        return speeds.length == 0 ? MovsimConstants.MAX_VEHICLE_SPEED : Tables.stepExtrapolation(positions, speeds,
-                position);
+        return speeds.length == 0 ? MovsimConstants.MAX_VEHICLE_SPEED : speedTable.value(position);
     }
 
     @Override
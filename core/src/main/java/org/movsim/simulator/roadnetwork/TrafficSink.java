@@ -26,6 +26,10 @@
 
 package org.movsim.simulator.roadnetwork;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import org.movsim.autogen.Parking;
 import org.movsim.simulator.SimulationTimeStep;
 import org.movsim.simulator.vehicles.Vehicle;
@@ -108,6 +112,14 @@ public class TrafficSink implements SimulationTimeStep {
         return dQ;
     }
 
+    /**
+     * Returns the number of vehicles that have been removed by this traffic sink.
+     * @return number of removed vehicles
+     */
+    public final int totalVehiclesRemoved() {
+        return totalVehiclesRemoved;
+    }
+
     /**
      * Returns the total travel distance of all vehicles that have been removed by this traffic sink.
      * @return total travel distance
@@ -169,4 +181,38 @@ public class TrafficSink implements SimulationTimeStep {
         this.reEntranceTrafficSource = trafficSource;
         this.timeDelayReentrance = parking.getTimeDelay();
     }
+
+    /**
+     * Writes the measured outflow and the totals of the removed vehicles.
+     * 
+     * @param out
+     * @throws IOException
+     */
+    public void writeState(DataOutput out) throws IOException {
+        out.writeInt(vehiclesRemovedInInterval);
+        out.writeDouble(measuredOutflow);
+        out.writeDouble(measuredTime);
+        out.writeDouble(dQ);
+        out.writeInt(totalVehiclesRemoved);
+        out.writeDouble(totalVehicleTravelDistance);
+        out.writeDouble(totalVehicleTravelTime);
+        out.writeDouble(totalVehicleFuelUsedLiters);
+    }
+
+    /**
+     * Reads the state written by {@link #writeState(DataOutput)}.
+     * 
+     * @param in
+     * @throws IOException
+     */
+    public void readState(DataInput in) throws IOException {
+        vehiclesRemovedInInterval = in.readInt();
+        measuredOutflow = in.readDouble();
+        measuredTime = in.readDouble();
+        dQ = in.readDouble();
+        totalVehiclesRemoved = in.readInt();
+        totalVehicleTravelDistance = in.readDouble();
+        totalVehicleTravelTime = in.readDouble();
+        totalVehicleFuelUsedLiters = in.readDouble();
+    }
 }
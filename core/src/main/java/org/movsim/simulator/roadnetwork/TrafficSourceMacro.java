@@ -25,9 +25,14 @@
  */
 package org.movsim.simulator.roadnetwork;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import org.movsim.simulator.vehicles.TestVehicle;
 import org.movsim.simulator.vehicles.TrafficCompositionGenerator;
 import org.movsim.simulator.vehicles.Vehicle;
+import org.movsim.simulator.vehicles.VehicleFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -191,4 +196,17 @@ public class TrafficSourceMacro extends AbstractTrafficSource {
         return inflowTimeSeries.getFlowPerLane(time) * roadSegment.laneCount();
     }
 
+    @Override
+    public void writeState(DataOutput out, VehicleFactory vehicleFactory) throws IOException {
+        super.writeState(out, vehicleFactory);
+        // the type of the next vehicle is already chosen
+        out.writeUTF(testVehicle == null ? "" : testVehicle.getVehicleType().getVehiclePrototypeLabel());
+    }
+
+    @Override
+    public void readState(DataInput in, VehicleFactory vehicleFactory) throws IOException {
+        super.readState(in, vehicleFactory);
+        final String label = in.readUTF();
+        testVehicle = label.isEmpty() ? null : vehGenerator.getTestVehicle(label);
+    }
 }
@@ -1,10 +1,14 @@
 package org.movsim.simulator.roadnetwork;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
 import org.movsim.simulator.vehicles.TrafficCompositionGenerator;
 import org.movsim.simulator.vehicles.Vehicle;
+import org.movsim.simulator.vehicles.VehicleFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -65,7 +69,7 @@ public class TrafficSourceMicro extends AbstractTrafficSource {
         // check if gap to leader is sufficiently large (xEnter of road section is assumed to be zero)
         final double netGapToLeader = leader.getRearPosition();
         // very crude approximation for minimum gap
-        double minRequiredGap = vehicle.getEffectiveLength() + 2 * vehicle.getLongitudinalModel().getDesiredSpeed();
+        double minRequiredGap = vehicle.getEffectiveLength() + 2 * vehicle.getDesiredSpeed();
         if (vehicle.getLongitudinalModel().isCA()) {
             minRequiredGap = leader.getSpeed();
         }
@@ -87,4 +91,23 @@ public class TrafficSourceMicro extends AbstractTrafficSource {
         return 0; // no flow-based input
     }
 
+    @Override
+    public void writeState(DataOutput out, VehicleFactory vehicleFactory) throws IOException {
+        super.writeState(out, vehicleFactory);
+        out.writeInt(vehicleQueue.size());
+        for (final SortedMap.Entry<Long, Vehicle> entry : vehicleQueue.entrySet()) {
+            out.writeLong(entry.getKey().longValue());
+            vehicleFactory.writeVehicle(out, entry.getValue());
+        }
+    }
+
+    @Override
+    public void readState(DataInput in, VehicleFactory vehicleFactory) throws IOException {
+        super.readState(in, vehicleFactory);
+        vehicleQueue.clear();
+        for (int i = 0, count = in.readInt(); i < count; ++i) {
+            final long time = in.readLong();
+            vehicleQueue.put(time, vehicleFactory.readVehicle(in));
+        }
+    }
 }
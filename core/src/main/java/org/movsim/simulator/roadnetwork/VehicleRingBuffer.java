@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2010, 2011, 2012 by Arne Kesting, Martin Treiber, Ralph Germ, Martin Budden
+ * <movsim.org@gmail.com>
+ * -----------------------------------------------------------------------------------------
+ * 
+ * This file is part of
+ * 
+ * MovSim - the multi-model open-source vehicular-traffic simulator.
+ * 
+ * MovSim is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * MovSim is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MovSim. If not, see <http://www.gnu.org/licenses/>
+ * or <http://www.movsim.org>.
+ * 
+ * -----------------------------------------------------------------------------------------
+ */
+package org.movsim.simulator.roadnetwork;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+import org.movsim.simulator.vehicles.Vehicle;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * <p>
+ * Ring buffer of the vehicles in a {@link LaneSegment}.
+ * </p>
+ * <p>
+ * Vehicles leave a lane segment at its front (index 0) and enter it at its rear (index size-1), so both operations are
+ * O(1). Indexed access, as needed by the binary position search, is also O(1). Insertion and removal in the middle of
+ * the lane (lane changes) move the elements on the shorter side of the given index.
+ * </p>
+ */
+final class VehicleRingBuffer extends AbstractList<Vehicle> implements RandomAccess {
+
+    private Vehicle[] elements;
+    // capacity is always a power of two, so the index can be wrapped with a mask
+    private int mask;
+    private int head;
+    private int size;
+
+    VehicleRingBuffer(int initialCapacity) {
+        Preconditions.checkArgument(initialCapacity > 0, "initialCapacity=" + initialCapacity);
+        int capacity = 1;
+        while (capacity < initialCapacity) {
+            capacity <<= 1;
+        }
+        elements = new Vehicle[capacity];
+        mask = capacity - 1;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Vehicle get(int index) {
+        checkElementIndex(index);
+        return elements[(head + index) & mask];
+    }
+
+    @Override
+    public Vehicle set(int index, Vehicle vehicle) {
+        checkElementIndex(index);
+        final int i = (head + index) & mask;
+        final Vehicle previous = elements[i];
+        elements[i] = vehicle;
+        return previous;
+    }
+
+    @Override
+    public void add(int index, Vehicle vehicle) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("index=" + index + ", size=" + size);
+        }
+        if (size == elements.length) {
+            grow();
+        }
+        if (index < (size >> 1)) {
+            // move the front part one position towards the front
+            head = (head - 1) & mask;
+            for (int j = 0; j < index; ++j) {
+                elements[(head + j) & mask] = elements[(head + j + 1) & mask];
+            }
+        } else {
+            // move the rear part one position towards the rear
+            for (int j = size; j > index; --j) {
+                elements[(head + j) & mask] = elements[(head + j - 1) & mask];
+            }
+        }
+        elements[(head + index) & mask] = vehicle;
+        ++size;
+        ++modCount;
+    }
+
+    @Override
+    public Vehicle remove(int index) {
+        checkElementIndex(index);
+        final Vehicle removed = elements[(head + index) & mask];
+        if (index < (size >> 1)) {
+            // move the front part one position towards the rear
+            for (int j = index; j > 0; --j) {
+                elements[(head + j) & mask] = elements[(head + j - 1) & mask];
+            }
+            elements[head] = null;
+            head = (head + 1) & mask;
+        } else {
+            // move the rear part one position towards the front
+            for (int j = index; j < size - 1; ++j) {
+                elements[(head + j) & mask] = elements[(head + j + 1) & mask];
+            }
+            elements[(head + size - 1) & mask] = null;
+        }
+        --size;
+        ++modCount;
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(elements, null);
+        head = 0;
+        size = 0;
+        ++modCount;
+    }
+
+    private void grow() {
+        final Vehicle[] grown = new Vehicle[elements.length << 1];
+        for (int j = 0; j < size; ++j) {
+            grown[j] = elements[(head + j) & mask];
+        }
+        elements = grown;
+        mask = grown.length - 1;
+        head = 0;
+    }
+
+    private void checkElementIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index=" + index + ", size=" + size);
+        }
+    }
+}
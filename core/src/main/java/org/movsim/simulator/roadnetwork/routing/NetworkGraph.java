@@ -27,6 +27,7 @@ package org.movsim.simulator.roadnetwork.routing;
 
 import org.jgrapht.WeightedGraph;
 import org.jgrapht.graph.DefaultDirectedWeightedGraph;
+import org.movsim.simulator.SimulationContext;
 import org.movsim.simulator.roadnetwork.LaneSegment;
 import org.movsim.simulator.roadnetwork.RoadNetwork;
 import org.movsim.simulator.roadnetwork.RoadSegment;
@@ -39,8 +40,6 @@ final class NetworkGraph {
     /** The Constant LOG. */
     private static final Logger LOG = LoggerFactory.getLogger(NetworkGraph.class);
 
-    private static long vertexId = 0;
-
     private NetworkGraph() {
         // private constructor
     }
@@ -48,8 +47,8 @@ final class NetworkGraph {
     public static WeightedGraph<Long, RoadSegment> create(RoadNetwork roadNetwork) {
         DefaultDirectedWeightedGraph<Long, RoadSegment> graph = new DefaultDirectedWeightedGraph<>(RoadSegment.class);
         for (RoadSegment roadSegment : roadNetwork) {
-            Long fromVertex = getOrCreateVertex(NodeType.ORIGIN, roadSegment);
-            Long toVertex = getOrCreateVertex(NodeType.DESTINATION, roadSegment);
+            Long fromVertex = getOrCreateVertex(NodeType.ORIGIN, roadSegment, roadNetwork.context());
+            Long toVertex = getOrCreateVertex(NodeType.DESTINATION, roadSegment, roadNetwork.context());
             graph.addVertex(fromVertex);
             graph.addVertex(toVertex);
             graph.addEdge(fromVertex, toVertex, roadSegment);
@@ -76,10 +75,10 @@ final class NetworkGraph {
         return graph;
     }
 
-    private static long getOrCreateVertex(NodeType nodeType, RoadSegment roadSegment) {
+    private static long getOrCreateVertex(NodeType nodeType, RoadSegment roadSegment, SimulationContext context) {
         Long vertex = roadSegment.getNode(nodeType);
         if (vertex == null) {
-            vertex = vertexId++;
+            vertex = context.nextVertexId();
             roadSegment.setNode(nodeType, vertex);
         }
         return vertex;
@@ -1,5 +1,8 @@
 package org.movsim.simulator.trafficlights;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -8,14 +11,17 @@ import org.movsim.autogen.ControllerGroup;
 import org.movsim.autogen.Phase;
 import org.movsim.autogen.TrafficLightCondition;
 import org.movsim.autogen.TrafficLightState;
+import org.movsim.autogen.TrafficLightStatus;
 import org.movsim.simulator.SimulationTimeStep;
 import org.movsim.simulator.roadnetwork.LaneSegment;
+import org.movsim.simulator.vehicles.NeighbourView;
 import org.movsim.simulator.vehicles.Vehicle;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Ordering;
 
 class TrafficLightControlGroup implements SimulationTimeStep, TriggerCallback {
 
@@ -112,7 +118,7 @@ class TrafficLightControlGroup implements SimulationTimeStep, TriggerCallback {
 
     private boolean vehicleIsInFrontOfLight(TrafficLight trafficLight) {
         for (LaneSegment laneSegment : trafficLight.roadSegment().laneSegments()) {
-            Vehicle vehicle = laneSegment.rearVehicle(trafficLight.position());
+            NeighbourView vehicle = laneSegment.rearNeighbour(trafficLight.position());
             if (vehicle != null && (trafficLight.position() - vehicle.getFrontPosition() < conditionRange)) {
                 LOG.debug("condition check: vehicle is in front of trafficlight: vehPos={}, trafficlightPos={}",
                         vehicle.getFrontPosition(), trafficLight.position());
@@ -124,7 +130,7 @@ class TrafficLightControlGroup implements SimulationTimeStep, TriggerCallback {
 
     private boolean vehicleIsInFrontOfLightAndDriving(TrafficLight trafficLight) {
         for (LaneSegment laneSegment : trafficLight.roadSegment().laneSegments()) {
-            Vehicle vehicle = laneSegment.rearVehicle(trafficLight.position());
+            NeighbourView vehicle = laneSegment.rearNeighbour(trafficLight.position());
             if (vehicle != null && (trafficLight.position() - vehicle.getFrontPosition() < conditionRange)
                     && vehicle.getSpeed() > 0) {
                 LOG.debug("condition check: vehicle is in front of trafficlight: vehPos={}, trafficlightPos={}",
@@ -167,6 +173,39 @@ class TrafficLightControlGroup implements SimulationTimeStep, TriggerCallback {
         return firstSignalId;
     }
 
+    /**
+     * Writes the current phase and the status of the traffic lights, ordered by name.
+     * 
+     * @param out
+     * @throws IOException
+     */
+    void writeState(DataOutput out) throws IOException {
+        out.writeInt(currentPhaseIndex);
+        out.writeDouble(currentPhaseDuration);
+        out.writeInt(trafficLights.size());
+        for (final String name : Ordering.natural().sortedCopy(trafficLights.keySet())) {
+            final TrafficLightStatus status = trafficLights.get(name).status();
+            out.writeUTF(name);
+            out.writeUTF(status == null ? "" : status.name());
+        }
+    }
+
+    void readState(DataInput in) throws IOException {
+        currentPhaseIndex = in.readInt();
+        currentPhaseDuration = in.readDouble();
+        if (currentPhaseIndex < 0 || currentPhaseIndex >= phases.size() || in.readInt() != trafficLights.size()) {
+            throw new IOException("checkpoint does not match the phases of controller group=" + groupId);
+        }
+        for (int i = 0, count = trafficLights.size(); i < count; ++i) {
+            final TrafficLight trafficLight = trafficLights.get(in.readUTF());
+            if (trafficLight == null) {
+                throw new IOException("checkpoint does not match the traffic lights of controller group=" + groupId);
+            }
+            final String status = in.readUTF();
+            trafficLight.setState(status.isEmpty() ? null : TrafficLightStatus.valueOf(status));
+        }
+    }
+
     public interface RecordDataCallback {
         /**
          * Callback to allow the application to process or record the traffic light data.
@@ -25,6 +25,9 @@
  */
 package org.movsim.simulator.trafficlights;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -89,6 +92,38 @@ public class TrafficLights implements SimulationTimeStep {
         }
     }
 
+    /**
+     * Writes the state of the controller groups.
+     * 
+     * @param out
+     * @throws IOException
+     */
+    public void writeState(DataOutput out) throws IOException {
+        out.writeInt(trafficLightControlGroups.size());
+        for (TrafficLightControlGroup group : trafficLightControlGroups) {
+            out.writeUTF(group.groupId());
+            group.writeState(out);
+        }
+    }
+
+    /**
+     * Reads the state written by {@link #writeState(DataOutput)}.
+     * 
+     * @param in
+     * @throws IOException
+     */
+    public void readState(DataInput in) throws IOException {
+        if (in.readInt() != trafficLightControlGroups.size()) {
+            throw new IOException("checkpoint does not match the number of traffic light controller groups");
+        }
+        for (TrafficLightControlGroup group : trafficLightControlGroups) {
+            if (!in.readUTF().equals(group.groupId())) {
+                throw new IOException("checkpoint does not match controller group=" + group.groupId());
+            }
+            group.readState(in);
+        }
+    }
+
     private void setUp(org.movsim.autogen.TrafficLights trafficLightsInput, RoadNetwork roadNetwork) {
         Map<String, ControllerGroup> controllerGroupInput = createControllerMapping(trafficLightsInput);
         for (RoadSegment roadSegment : roadNetwork) {
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2010, 2011, 2012 by Arne Kesting, Martin Treiber, Ralph Germ, Martin Budden
+ * <movsim.org@gmail.com>
+ * -----------------------------------------------------------------------------------------
+ * 
+ * This file is part of
+ * 
+ * MovSim - the multi-model open-source vehicular-traffic simulator.
+ * 
+ * MovSim is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * MovSim is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MovSim. If not, see <http://www.gnu.org/licenses/>
+ * or <http://www.movsim.org>.
+ * 
+ * -----------------------------------------------------------------------------------------
+ */
+package org.movsim.simulator.vehicles;
+
+/**
+ * <p>
+ * The state of a neighbour vehicle which the longitudinal models and the lane-changing models read: position, speed,
+ * acceleration and length, together with the original vehicle.
+ * </p>
+ * <p>
+ * A vehicle is its own neighbour view. A vehicle on an adjacent lane segment is seen through a
+ * {@link PositionAdjustedVehicle}, which gives its position relative to the lane segment of the search without copying
+ * the vehicle.
+ * </p>
+ */
+public interface NeighbourView {
+
+    /**
+     * Returns the position of the front of the vehicle.
+     * 
+     * @return the front position, in meters
+     */
+    double getFrontPosition();
+
+    /**
+     * Returns the position of the rear of the vehicle.
+     * 
+     * @return the rear position, in meters
+     */
+    double getRearPosition();
+
+    double getSpeed();
+
+    double getAcc();
+
+    double getLength();
+
+    /**
+     * Returns the original vehicle, for properties which do not depend on the position.
+     * 
+     * @return the vehicle
+     */
+    Vehicle vehicle();
+
+    /**
+     * Calculates the model acceleration of the vehicle for the given front vehicle.
+     * 
+     * @param frontVehicle
+     *            the (virtual) front vehicle, may be null
+     * @return the model acceleration
+     */
+    double calcAccModel(NeighbourView frontVehicle);
+}
@@ -25,11 +25,19 @@
  */
 package org.movsim.simulator.vehicles;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import org.movsim.autogen.NoiseParameter;
-import org.movsim.utilities.MyRandom;
+import org.movsim.simulator.SimulationContext;
+import org.movsim.simulator.SimulationContext.RandomPurpose;
+import org.movsim.utilities.RandomStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Preconditions;
+
 /**
  * Acceleration noise for microscopic traffic models with (random process) models for white noise or correlated noise
  * (Wiener process).
@@ -68,15 +76,27 @@ public class Noise {
     /** The xi acc as dynamic state variable (output) */
     private double xiAcc;
 
+    private RandomStream randomStream;
+
     public Noise(NoiseParameter parameters) {
         xiAcc = 0;
         fluctStrength = parameters.getFluctStrength();
         tauRelaxAcc = parameters.getTau();
 
         isWienerProcess = (tauRelaxAcc != 0) ? true : false;
+        randomStream = SimulationContext.current().newRandomStream(RandomPurpose.NOISE);
         LOG.debug("tauRelaxAcc = {}, isWienerProcess = {}", tauRelaxAcc, isWienerProcess);
     }
 
+    /**
+     * Sets the random number stream of the vehicle.
+     * 
+     * @param randomStream
+     */
+    public void setRandomStream(RandomStream randomStream) {
+        this.randomStream = Preconditions.checkNotNull(randomStream);
+    }
+
     /**
      * Update. Calculates the acceleration noise {code xiAcc} modelled by a Wiener process or as delta-correlated random
      * process.
@@ -105,8 +125,8 @@ public class Noise {
      * 
      * @return random variable realization
      */
-    private static double getUniformlyDistributedRealization() {
-        final double randomVar = MyRandom.nextDouble();
+    private double getUniformlyDistributedRealization() {
+        final double randomVar = randomStream.nextUniform();
         final double randomMu0Sigma1 = SQRT12 * (randomVar - 0.5);
         return randomMu0Sigma1;
     }
@@ -120,4 +140,25 @@ public class Noise {
         return xiAcc;
     }
 
+    /**
+     * Writes the dynamic state variable and the position of the random number stream.
+     * 
+     * @param out
+     * @throws IOException
+     */
+    public void writeState(DataOutput out) throws IOException {
+        out.writeDouble(xiAcc);
+        out.writeLong(randomStream.position());
+    }
+
+    /**
+     * Reads the state written by {@link #writeState(DataOutput)}.
+     * 
+     * @param in
+     * @throws IOException
+     */
+    public void readState(DataInput in) throws IOException {
+        xiAcc = in.readDouble();
+        randomStream.setPosition(in.readLong());
+    }
 }
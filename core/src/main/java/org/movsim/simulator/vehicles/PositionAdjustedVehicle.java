@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2010, 2011, 2012 by Arne Kesting, Martin Treiber, Ralph Germ, Martin Budden
+ * <movsim.org@gmail.com>
+ * -----------------------------------------------------------------------------------------
+ * 
+ * This file is part of
+ * 
+ * MovSim - the multi-model open-source vehicular-traffic simulator.
+ * 
+ * MovSim is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * MovSim is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MovSim. If not, see <http://www.gnu.org/licenses/>
+ * or <http://www.movsim.org>.
+ * 
+ * -----------------------------------------------------------------------------------------
+ */
+package org.movsim.simulator.vehicles;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * <p>
+ * Position adjusted view of a vehicle, as returned by the neighbour searches of a lane segment for the vehicles on the
+ * adjacent (sink or source) lane segments. The position is the position of the vehicle shifted by a constant offset,
+ * the other properties are read from the vehicle, so the view stays valid while the vehicle moves.
+ * </p>
+ * <p>
+ * Instances are immutable and can be shared between threads. A lane segment keeps the view of each adjacent vehicle
+ * and only creates a new one when another vehicle becomes its neighbour.
+ * </p>
+ */
+public final class PositionAdjustedVehicle implements NeighbourView {
+
+    private final NeighbourView view;
+    private final double positionOffset;
+
+    /**
+     * Constructor.
+     * 
+     * @param view
+     *            the vehicle or view to adjust
+     * @param positionOffset
+     *            added to the position, in meters
+     */
+    public PositionAdjustedVehicle(NeighbourView view, double positionOffset) {
+        this.view = Preconditions.checkNotNull(view);
+        this.positionOffset = positionOffset;
+    }
+
+    /**
+     * Returns the given view if it is a view of the given vehicle with the given offset, otherwise a new view.
+     * 
+     * @param cached
+     *            the previous view, may be null
+     * @param vehicle
+     * @param positionOffset
+     * @return the view
+     */
+    public static PositionAdjustedVehicle of(PositionAdjustedVehicle cached, Vehicle vehicle, double positionOffset) {
+        if (cached != null && cached.view == vehicle && cached.positionOffset == positionOffset) {
+            return cached;
+        }
+        return new PositionAdjustedVehicle(vehicle, positionOffset);
+    }
+
+    @Override
+    public double getFrontPosition() {
+        return view.getFrontPosition() + positionOffset;
+    }
+
+    @Override
+    public double getRearPosition() {
+        return view.getRearPosition() + positionOffset;
+    }
+
+    @Override
+    public double getSpeed() {
+        return view.getSpeed();
+    }
+
+    @Override
+    public double getAcc() {
+        return view.getAcc();
+    }
+
+    @Override
+    public double getLength() {
+        return view.getLength();
+    }
+
+    @Override
+    public Vehicle vehicle() {
+        return view.vehicle();
+    }
+
+    /**
+     * Calculates the model acceleration of the vehicle for the given front vehicle. The model only depends on the
+     * distance, so the front vehicle is moved by the negative offset instead of moving this vehicle.
+     */
+    @Override
+    public double calcAccModel(NeighbourView frontVehicle) {
+        return view.calcAccModel(frontVehicle == null ? null : new PositionAdjustedVehicle(frontVehicle,
+                -positionOffset));
+    }
+
+    /**
+     * Returns a position adjusted copy of the vehicle, for the callers which need a complete vehicle.
+     * 
+     * @return the copy
+     */
+    public Vehicle copy() {
+        final Vehicle copy = new Vehicle(vehicle());
+        copy.setFrontPosition(getFrontPosition());
+        return copy;
+    }
+}
@@ -13,7 +13,7 @@ public class TestVehicle {
 
     TestVehicle(VehicleType vehicleType, VehiclePrototype prototype) {
         this.vehicleType = vehicleType;
-        this.longitudinalModelBase = prototype.createAccelerationModel();
+        this.longitudinalModelBase = prototype.getAccelerationModel();
         this.equiProperties = prototype.getEquiProperties();
         this.length = prototype.getLength();
     }
@@ -1,13 +1,17 @@
 package org.movsim.simulator.vehicles;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
 import org.movsim.autogen.TrafficComposition;
+import org.movsim.simulator.SimulationContext.RandomPurpose;
 import org.movsim.simulator.roadnetwork.routing.Route;
-import org.movsim.utilities.MyRandom;
+import org.movsim.utilities.RandomStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -24,10 +28,13 @@ public class TrafficCompositionGenerator {
 
     private final VehicleFactory vehicleFactory;
 
+    private final RandomStream randomStream;
+
     public TrafficCompositionGenerator(TrafficComposition configuration, VehicleFactory vehicleFactory) {
         Preconditions.checkNotNull(configuration);
         this.configuration = configuration;
         this.vehicleFactory = vehicleFactory;
+        this.randomStream = vehicleFactory.context().newRandomStream(RandomPurpose.VEHICLE_TYPE);
         setUpComposition();
     }
 
@@ -63,7 +70,7 @@ public class TrafficCompositionGenerator {
     }
 
     private VehicleType determineVehicleType() {
-        final double randomNumber = MyRandom.nextDouble();
+        final double randomNumber = randomStream.nextUniform();
         double sumFraction = 0;
         for (final VehicleType vehicleType : vehicleTypes.values()) {
             sumFraction += vehicleType.getFraction();
@@ -74,6 +81,20 @@ public class TrafficCompositionGenerator {
         throw new IllegalStateException("no vehicle prototype found for randomNumber=" + randomNumber);
     }
 
+    /**
+     * Writes the position of the random number stream which determines the vehicle types.
+     * 
+     * @param out
+     * @throws IOException
+     */
+    public void writeState(DataOutput out) throws IOException {
+        out.writeLong(randomStream.position());
+    }
+
+    public void readState(DataInput in) throws IOException {
+        randomStream.setPosition(in.readLong());
+    }
+
     private void setUpComposition() {
         checkUniqueness();
         normalizeFractions();
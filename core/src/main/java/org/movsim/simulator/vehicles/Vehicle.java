@@ -25,11 +25,17 @@
  */
 package org.movsim.simulator.vehicles;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import javax.annotation.Nullable;
 
 import org.movsim.autogen.VehiclePrototypeConfiguration;
 import org.movsim.consumption.model.EnergyFlowModel;
 import org.movsim.simulator.MovsimConstants;
+import org.movsim.simulator.SimulationContext;
+import org.movsim.simulator.SimulationContext.RandomPurpose;
 import org.movsim.simulator.roadnetwork.LaneSegment;
 import org.movsim.simulator.roadnetwork.Lanes;
 import org.movsim.simulator.roadnetwork.RoadSegment;
@@ -40,10 +46,12 @@ import org.movsim.simulator.vehicles.lanechange.LaneChangeModel;
 import org.movsim.simulator.vehicles.lanechange.LaneChangeModel.LaneChangeDecision;
 import org.movsim.simulator.vehicles.longitudinalmodel.Memory;
 import org.movsim.simulator.vehicles.longitudinalmodel.TrafficLightApproaching;
+import org.movsim.simulator.vehicles.longitudinalmodel.acceleration.AccelerationBatch;
 import org.movsim.simulator.vehicles.longitudinalmodel.acceleration.LongitudinalModelBase;
+import org.movsim.simulator.vehicles.longitudinalmodel.acceleration.LongitudinalModelBase.ModelCategory;
 import org.movsim.simulator.vehicles.longitudinalmodel.acceleration.LongitudinalModelBase.ModelName;
+import org.movsim.simulator.vehicles.longitudinalmodel.acceleration.LongitudinalModelModifier;
 import org.movsim.utilities.Colors;
-import org.movsim.utilities.MyRandom;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -78,15 +86,14 @@ import com.google.common.base.Preconditions;
  * Vehicles are quite frequently created and destroyed, so by design they have few allocated properties.
  * </p>
  */
-public class Vehicle {
+public class Vehicle implements NeighbourView {
 
     /** The Constant LOG. */
     private static final Logger LOG = LoggerFactory.getLogger(Vehicle.class);
 
-    protected static final int INITIAL_ID = 1;
+    public static final int INITIAL_ID = 1;
     protected static final int INITIAL_TEMPLATE_ID = -1;
 
-    private static long nextId = INITIAL_ID;
     private static long nextTemplateId = INITIAL_TEMPLATE_ID;
 
     /**
@@ -140,6 +147,25 @@ public class Vehicle {
 
     private double accOld;
 
+    /** Scratch buffers for the accelerations computed in the current update step, see {@link #commitAcceleration()}. */
+    private double accModelNew;
+    private double accNew;
+
+    /** Inputs of the acceleration kept constant over the stages of a Runge-Kutta step, set by computeAcceleration. */
+    private double alphaTStage = 1;
+    private double alphaV0Stage = 1;
+    private double alphaAStage = 1;
+    private double accErrorStage;
+    private double accLimitStage = Double.POSITIVE_INFINITY;
+
+    /** State at the beginning of a Runge-Kutta step, derivatives of the last stage and their weighted sums. */
+    private double frontPositionStart;
+    private double speedStart;
+    private double speedStage;
+    private double accStage;
+    private double speedSum;
+    private double accSum;
+
     /** The max deceleration . */
     private final double maxDeceleration;
 
@@ -155,16 +181,26 @@ public class Vehicle {
     private int lane = LANE_NOT_SET;
     private int laneOld;
 
+    /** index of the vehicle in its lane segment when the lane segment's neighbour index was last updated */
+    private int laneSlot = -1;
+
     /** variable for remembering new target lane when assigning to new laneSegment */
     private int targetLane;
 
     /** finite lane-changing duration */
     private double tLaneChangeDelay;
 
+    /** lane-changing decision of the current update step, executed by {@link #commitLaneChange(double, RoadSegment)} */
+    private LaneChangeDecision laneChangeDecision = LaneChangeDecision.NONE;
+    private boolean laneChangeDecisionPending;
+
     private double speedlimit;
     private double slope;
 
     private LongitudinalModelBase longitudinalModel;
+
+    /** per-vehicle part of the longitudinal model, which may be shared with other vehicles */
+    private LongitudinalModelModifier longitudinalModelModifier;
     /** can be null */
     private LaneChangeModel laneChangeModel;
 
@@ -209,19 +245,30 @@ public class Vehicle {
          * Kinematic (second order) numerical integration.
          */
         KINEMATIC,
+        /**
+         * Heun (second order Runge-Kutta) numerical integration.
+         */
+        HEUN,
         /**
          * Runge-Kutta (fourth order) numerical integration.
          */
-        RUNGE_KUTTA
-    }
+        RUNGE_KUTTA;
 
-    private static IntegrationType integrationType = IntegrationType.KINEMATIC;
+        /**
+         * Returns true if the integration evaluates the accelerations at intermediate stages of the update step.
+         * 
+         * @return true for the Runge-Kutta schemes
+         */
+        public boolean isRungeKutta() {
+            return this == HEUN || this == RUNGE_KUTTA;
+        }
+    }
 
     /**
      * Resets the next id.
      */
     public static void resetNextId() {
-        nextId = INITIAL_ID;
+        SimulationContext.current().resetVehicleIds();
         nextTemplateId = INITIAL_TEMPLATE_ID;
     }
 
@@ -231,7 +278,7 @@ public class Vehicle {
      * @return the id of the last vehicle created
      */
     public static long lastIdSet() {
-        return nextId - 1;
+        return SimulationContext.current().lastVehicleId();
     }
 
     /**
@@ -240,7 +287,7 @@ public class Vehicle {
      * @return the number of vehicles that have been created
      */
     public static long count() {
-        return nextId - INITIAL_ID;
+        return SimulationContext.current().vehicleCount();
     }
 
     public Vehicle(String label, LongitudinalModelBase longitudinalModel, VehiclePrototypeConfiguration vehInput,
@@ -252,11 +299,12 @@ public class Vehicle {
         this.width = vehInput.getWidth();
         this.maxDeceleration = vehInput.getMaximumDeceleration();
 
-        id = nextId++;
-        randomFix = MyRandom.nextDouble();
+        id = SimulationContext.current().nextVehicleId();
+        randomFix = SimulationContext.current().randomStream(id, RandomPurpose.VEHICLE).uniform(0);
 
         initialize();
         this.longitudinalModel = longitudinalModel;
+        this.longitudinalModelModifier = new LongitudinalModelModifier();
         physQuantities = new PhysicalQuantities(this);
 
         this.laneChangeModel = lcModel;
@@ -277,8 +325,8 @@ public class Vehicle {
     public Vehicle(double rearPosition, double speed, int lane, double length, double width) {
         assert rearPosition >= 0.0;
         assert speed >= 0.0;
-        id = nextId++;
-        randomFix = MyRandom.nextDouble();
+        id = SimulationContext.current().nextVehicleId();
+        randomFix = SimulationContext.current().randomStream(id, RandomPurpose.VEHICLE).uniform(0);
         this.length = length;
         setRearPosition(rearPosition);
         this.speed = speed;
@@ -318,6 +366,7 @@ public class Vehicle {
         maxDeceleration = source.maxDeceleration;
         laneChangeModel = source.laneChangeModel;
         longitudinalModel = source.longitudinalModel;
+        longitudinalModelModifier = source.longitudinalModelModifier;
         label = source.label;
         speedlimit = MovsimConstants.MAX_VEHICLE_SPEED;
         slope = source.slope;
@@ -386,6 +435,16 @@ public class Vehicle {
         return length;
     }
 
+    /**
+     * Returns this vehicle, which is its own neighbour view.
+     * 
+     * @return this vehicle
+     */
+    @Override
+    public final Vehicle vehicle() {
+        return this;
+    }
+
     /**
      * Returns the vehicle's physical length plus the dynamic contribution from a model's minimum gap.
      * 
@@ -539,7 +598,7 @@ public class Vehicle {
      * @param frontVehicle
      * @return
      */
-    public double getNetDistance(Vehicle frontVehicle) {
+    public double getNetDistance(NeighbourView frontVehicle) {
         if (frontVehicle == null) {
             return MovsimConstants.GAP_INFINITY;
         }
@@ -553,7 +612,7 @@ public class Vehicle {
      * @param frontVehicle
      * @return
      */
-    public double getBrutDistance(Vehicle frontVehicle) {
+    public double getBrutDistance(NeighbourView frontVehicle) {
         if (frontVehicle == null) {
             return MovsimConstants.GAP_INFINITY;
         }
@@ -567,34 +626,49 @@ public class Vehicle {
      * @param rearVehicle
      * @return
      */
-    public double getNetDistanceToRearVehicle(Vehicle rearVehicle) {
+    public double getNetDistanceToRearVehicle(NeighbourView rearVehicle) {
         if (rearVehicle == null) {
             return MovsimConstants.GAP_INFINITY;
         }
         return getRearPosition() - rearVehicle.getFrontPosition();
     }
 
-    public final double getRelSpeed(Vehicle frontVehicle) {
+    public final double getRelSpeed(NeighbourView frontVehicle) {
         if (frontVehicle == null) {
             return 0;
         }
         return speed - frontVehicle.getSpeed();
     }
 
+    /**
+     * Calculates and commits the acceleration, see {@link #computeAcceleration} and {@link #commitAcceleration()}.
+     */
     public void updateAcceleration(double dt, RoadSegment roadSegment, LaneSegment laneSegment,
             LaneSegment leftLaneSegment, double alphaT, double alphaV0) {
+        computeAcceleration(dt, roadSegment, laneSegment, leftLaneSegment, alphaT, alphaV0);
+        commitAcceleration();
+    }
+
+    /**
+     * Compute stage of the acceleration update. Reads the committed state of this vehicle and its neighbours and
+     * writes the result to this vehicle's scratch buffers only, so that the visible acceleration of all vehicles
+     * remains unchanged until {@link #commitAcceleration()} is called. Apart from the scratch buffers only the
+     * vehicle's own dynamic state variables (memory, noise, stochastic model state, traffic light approaching) are
+     * updated.
+     * 
+     * @param dt
+     *            simulation time interval, seconds
+     * @param roadSegment
+     * @param laneSegment
+     * @param leftLaneSegment
+     * @param alphaT
+     * @param alphaV0
+     */
+    public void computeAcceleration(double dt, RoadSegment roadSegment, LaneSegment laneSegment,
+            LaneSegment leftLaneSegment, double alphaT, double alphaV0) {
 
-        accOld = acc;
         // acceleration noise:
-        double accError = 0;
-        if (noise != null) {
-            noise.update(dt);
-            accError = noise.getAccError();
-            final Vehicle frontVehicle = laneSegment.frontVehicle(this);
-            if (getNetDistance(frontVehicle) < MovsimConstants.CRITICAL_GAP) {
-                accError = Math.min(accError, 0.); // !!!
-            }
-        }
+        final double accError = updateAccelerationNoise(dt, laneSegment);
 
         // TODO extract to super class
         double alphaTLocal = alphaT;
@@ -604,19 +678,107 @@ public class Vehicle {
         // TODO check concept here: combination with alphaV0 (consideration of reference v0 instead of dynamic v0 which
         // depends on speedlimits)
         if (memory != null) {
-            final double v0 = longitudinalModel.getDesiredSpeed();
+            final double v0 = longitudinalModel.getDesiredSpeed(longitudinalModelModifier);
             memory.update(dt, speed, v0);
             alphaTLocal *= memory.alphaT();
             alphaV0Local *= memory.alphaV0();
             alphaALocal *= memory.alphaA();
         }
 
-        accModel = calcAccModel(laneSegment, leftLaneSegment, alphaTLocal, alphaV0Local, alphaALocal);
+        final double accModel = calcAccModel(laneSegment, leftLaneSegment, alphaTLocal, alphaV0Local, alphaALocal);
+        setComputedAcceleration(roadSegment, accModel, accError, alphaTLocal, alphaV0Local, alphaALocal);
+    }
+
+    /**
+     * Returns true if the model acceleration of this vehicle may be calculated by the batch kernel of its longitudinal
+     * model, see {@link LongitudinalModelBase#calcAccBatch(AccelerationBatch)}. This requires a model with a kernel
+     * and alpha factors which are not modified by a memory.
+     * 
+     * @return true, if the acceleration may be calculated in a batch
+     */
+    public boolean hasBatchAcceleration() {
+        return longitudinalModel != null && memory == null && longitudinalModel.hasBatchKernel();
+    }
+
+    /**
+     * Adds the input of the batch acceleration kernel for this vehicle.
+     * 
+     * @param batch
+     * @param frontVehicle
+     *            the front vehicle in the lane, may be null
+     * @param alphaT
+     * @param alphaV0
+     * @return the index of this vehicle in the batch
+     */
+    public int addToBatch(AccelerationBatch batch, NeighbourView frontVehicle, double alphaT, double alphaV0) {
+        assert hasBatchAcceleration();
+        final double aLead = frontVehicle == null ? acc : frontVehicle.getAcc();
+        return batch.add(getNetDistance(frontVehicle), speed, getRelSpeed(frontVehicle), aLead,
+                longitudinalModel.getDesiredSpeed(longitudinalModelModifier), speedlimit, alphaT, alphaV0, 1);
+    }
+
+    /**
+     * Compute stage of the acceleration update with the model acceleration calculated by the batch kernel, see
+     * {@link #computeAcceleration(double, RoadSegment, LaneSegment, LaneSegment, double, double)}. Without a left
+     * lane segment the result is the same.
+     * 
+     * @param dt
+     *            simulation time interval, seconds
+     * @param roadSegment
+     * @param laneSegment
+     * @param alphaT
+     * @param alphaV0
+     * @param accModel
+     *            the model acceleration calculated by the batch kernel
+     */
+    public void computeAcceleration(double dt, RoadSegment roadSegment, LaneSegment laneSegment, double alphaT,
+            double alphaV0, double accModel) {
+        assert hasBatchAcceleration();
+        final double accError = updateAccelerationNoise(dt, laneSegment);
+        setComputedAcceleration(roadSegment, accModel, accError, alphaT, alphaV0, 1);
+    }
+
+    private double updateAccelerationNoise(double dt, LaneSegment laneSegment) {
+        if (longitudinalModel != null) {
+            longitudinalModel.updateStochasticState(dt);
+        }
+        double accError = 0;
+        if (noise != null) {
+            noise.update(dt);
+            accError = noise.getAccError();
+            final NeighbourView frontVehicle = laneSegment.frontNeighbour(this);
+            if (getNetDistance(frontVehicle) < MovsimConstants.CRITICAL_GAP) {
+                accError = Math.min(accError, 0.); // !!!
+            }
+        }
+        return accError;
+    }
+
+    private void setComputedAcceleration(RoadSegment roadSegment, double accModel, double accError,
+            double alphaTLocal, double alphaV0Local, double alphaALocal) {
+        accModelNew = accModel;
 
         // moderate acceleration by traffic lights or for preparing mandatory lane changes to exit sliproads
-        acc = moderateAcceleration(accModel, roadSegment);
+        final double accModerated = moderateAcceleration(accModelNew, roadSegment);
+
+        accNew = Math.max(accModerated + accError, -maxDeceleration); // limited to maximum deceleration
 
-        acc = Math.max(acc + accError, -maxDeceleration); // limited to maximum deceleration
+        // the further stages of a Runge-Kutta step use the same parameters, noise and moderation
+        alphaTStage = alphaTLocal;
+        alphaV0Stage = alphaV0Local;
+        alphaAStage = alphaALocal;
+        accErrorStage = accError;
+        accLimitStage = accModerated < accModelNew ? accModerated : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Commit stage of the acceleration update. Makes the acceleration calculated by
+     * {@link #computeAcceleration} visible to the other vehicles.
+     */
+    public void commitAcceleration() {
+        accOld = acc;
+        accModel = accModelNew;
+        acc = accNew;
     }
 
     /**
@@ -686,7 +848,7 @@ public class Vehicle {
             if (exitLaneSegment != null && exitLaneSegment.type() == Lanes.Type.EXIT) {
                 // this front vehicle could also result in negative net distances
                 // but the deceleration is limited anyway
-                Vehicle frontVehicle = exitLaneSegment.frontVehicle(this);
+                final NeighbourView frontVehicle = exitLaneSegment.frontNeighbour(this);
                 double accToVehicleInExitLane = longitudinalModel.calcAcc(this, frontVehicle);
                 final double decelLimit = 4.0;
                 accToVehicleInExitLane = Math.max(accToVehicleInExitLane, -decelLimit);
@@ -709,6 +871,23 @@ public class Vehicle {
         return calcAccModel(laneSegment, leftLaneSegment, 1.0, 1.0, 1.0);
     }
 
+    /**
+     * Calculates the model acceleration of this vehicle for the given front vehicle. In contrast to
+     * {@link #calcAccModel(LaneSegment, LaneSegment)} the front vehicle need not be in the same lane, so this is used to
+     * evaluate virtual situations without modifying the lanes.
+     * 
+     * @param frontVehicle
+     *            the (virtual) front vehicle, may be null
+     * @return the model acceleration
+     */
+    @Override
+    public double calcAccModel(NeighbourView frontVehicle) {
+        if (longitudinalModel == null) {
+            return 0.0;
+        }
+        return longitudinalModel.calcAcc(this, frontVehicle);
+    }
+
     private double calcAccModel(LaneSegment laneSegment, LaneSegment leftLaneSegment, double alphaTLocal,
             double alphaV0Local, double alphaALocal) {
         if (longitudinalModel == null) {
@@ -728,12 +907,28 @@ public class Vehicle {
     }
 
     /**
-     * Update position and speed. Case distinction between cellular automata, Newell and continuos models/iterated maps
+     * Update position and speed with the kinematic integration, see
+     * {@link #updatePositionAndSpeed(double, IntegrationType)}.
      * 
      * @param dt
      *            delta-t, simulation time interval, seconds
      */
     public void updatePositionAndSpeed(double dt) {
+        updatePositionAndSpeed(dt, IntegrationType.KINEMATIC);
+    }
+
+    /**
+     * Update position and speed. Case distinction between cellular automata, Newell and continuos models/iterated maps.
+     * The Euler integration is only applied to time-continuous models. The Runge-Kutta schemes are applied by
+     * {@link #startIntegration(double)}, {@link #setIntegrationStage(double)},
+     * {@link #computeStageAcceleration(LaneSegment, LaneSegment, double)} and {@link #finishIntegration(double)}; here
+     * they fall back to the kinematic integration.
+     * 
+     * @param dt
+     *            delta-t, simulation time interval, seconds
+     * @param integrationType
+     */
+    public void updatePositionAndSpeed(double dt, IntegrationType integrationType) {
         totalTravelTime += dt;
         frontPositionOld = frontPosition;
         if (longitudinalModel != null && longitudinalModel.isCA()) {
@@ -760,7 +955,12 @@ public class Vehicle {
             if (speed < 0) {
                 speed = 0;
             }
-            final double advance = (acc * dt >= -speed) ? speed * dt + 0.5 * acc * dt * dt : -0.5 * speed * speed / acc;
+            final double advance;
+            if (integrationType == IntegrationType.EULER && isTimeContinuous()) {
+                advance = speed * dt;
+            } else {
+                advance = (acc * dt >= -speed) ? speed * dt + 0.5 * acc * dt * dt : -0.5 * speed * speed / acc;
+            }
             frontPosition += advance;
             totalTravelDistance += advance;
             speed += dt * acc;
@@ -774,6 +974,97 @@ public class Vehicle {
         }
     }
 
+    /**
+     * Returns true if the vehicle's longitudinal model is time-continuous, only then the Euler and Runge-Kutta
+     * integrations are applied.
+     * 
+     * @return true for a time-continuous longitudinal model
+     */
+    public final boolean isTimeContinuous() {
+        return longitudinalModel != null
+                && longitudinalModel.getModelCategory() == ModelCategory.TIME_CONTINUOUS_MODEL;
+    }
+
+    /**
+     * Starts a Runge-Kutta step. The first stage uses the committed acceleration, see {@link #commitAcceleration()}.
+     * 
+     * @param weight
+     *            weight of the first stage
+     */
+    public void startIntegration(double weight) {
+        if (speed < 0) {
+            speed = 0;
+        }
+        frontPositionStart = frontPosition;
+        speedStart = speed;
+        speedStage = speed;
+        accStage = acc;
+        speedSum = weight * speedStage;
+        accSum = weight * accStage;
+    }
+
+    /**
+     * Moves the vehicle to the state of the next Runge-Kutta stage, which is reached from the state at the beginning of
+     * the step with the derivatives of the previous stage. Vehicles with models which are not time-continuous are not
+     * moved.
+     * 
+     * @param stageDt
+     *            time from the beginning of the step to the stage, seconds
+     */
+    public void setIntegrationStage(double stageDt) {
+        if (isTimeContinuous()) {
+            frontPosition = frontPositionStart + stageDt * speedStage;
+            speed = Math.max(0, speedStart + stageDt * accStage);
+        }
+    }
+
+    /**
+     * Calculates the acceleration at the current Runge-Kutta stage. The neighbours are in the state of the same stage.
+     * Acceleration noise and the moderation by traffic lights and exits are taken from the first stage.
+     * 
+     * @param laneSegment
+     * @param leftLaneSegment
+     * @param weight
+     *            weight of this stage
+     */
+    public void computeStageAcceleration(LaneSegment laneSegment, LaneSegment leftLaneSegment, double weight) {
+        if (isTimeContinuous()) {
+            final double accModelStage = calcAccModel(laneSegment, leftLaneSegment, alphaTStage, alphaV0Stage,
+                    alphaAStage);
+            speedStage = speed;
+            accStage = Math.max(Math.min(accModelStage, accLimitStage) + accErrorStage, -maxDeceleration);
+            speedSum += weight * speedStage;
+            accSum += weight * accStage;
+        }
+    }
+
+    /**
+     * Finishes a Runge-Kutta step with the weighted derivatives of all stages. Vehicles with models which are not
+     * time-continuous are updated with the kinematic integration.
+     * 
+     * @param dt
+     *            delta-t, simulation time interval, seconds
+     */
+    public void finishIntegration(double dt) {
+        if (!isTimeContinuous()) {
+            updatePositionAndSpeed(dt, IntegrationType.KINEMATIC);
+            return;
+        }
+        totalTravelTime += dt;
+        frontPositionOld = frontPositionStart;
+        final double advance = Math.max(0, dt * speedSum);
+        frontPosition = frontPositionStart + advance;
+        totalTravelDistance += advance;
+        speed = speedStart + dt * accSum;
+        if (speed < 0) {
+            speed = 0;
+            acc = 0;
+        }
+        if (fuelModel != null) {
+            totalFuelUsedLiters += fuelModel.getFuelFlowInLiterPerS(speed, acc) * dt;
+        }
+    }
+
     public final int lane() {
         return lane;
     }
@@ -786,6 +1077,20 @@ public class Vehicle {
         targetLane = Lanes.NONE;
     }
 
+    /**
+     * Returns the index of the vehicle in its lane segment as recorded by the lane segment's neighbour index. The index
+     * is outdated if the lane segment has changed since, so it must be checked before use.
+     * 
+     * @return the recorded index, -1 if not set
+     */
+    public final int laneSlot() {
+        return laneSlot;
+    }
+
+    public final void setLaneSlot(int laneSlot) {
+        this.laneSlot = laneSlot;
+    }
+
     public LaneChangeModel getLaneChangeModel() {
         return laneChangeModel;
     }
@@ -800,42 +1105,114 @@ public class Vehicle {
 
     public void setLongitudinalModel(LongitudinalModelBase longitudinalModel) {
         this.longitudinalModel = longitudinalModel;
+        if (longitudinalModelModifier == null) {
+            longitudinalModelModifier = new LongitudinalModelModifier();
+        }
+    }
+
+    /**
+     * Returns the per-vehicle part of the longitudinal model: the randomized desired speed and the random numbers.
+     * 
+     * @return the longitudinal model modifier, null for vehicles without longitudinal model
+     */
+    public LongitudinalModelModifier getLongitudinalModelModifier() {
+        return longitudinalModelModifier;
+    }
+
+    /**
+     * Returns the desired speed of this vehicle, including the randomization.
+     * 
+     * @return the desired speed (m/s)
+     */
+    public double getDesiredSpeed() {
+        return longitudinalModel.getDesiredSpeed(longitudinalModelModifier);
     }
 
     // ---------------------------------------------------------------------------------
     // lane-changing related methods
     // ---------------------------------------------------------------------------------
 
+    /**
+     * Determines and executes the lane-changing decision, see {@link #decideLaneChange(RoadSegment)} and
+     * {@link #commitLaneChange(double, RoadSegment)}.
+     * 
+     * @param dt
+     * @param roadSegment
+     * @return true if the vehicle changes to its target lane
+     */
     public boolean considerLaneChange(double dt, RoadSegment roadSegment) {
+        decideLaneChange(roadSegment);
+        return commitLaneChange(dt, roadSegment);
+    }
+
+    /**
+     * Determines the lane-changing decision without modifying the road segment or the vehicle's lane-changing state.
+     * The decision is executed by {@link #commitLaneChange(double, RoadSegment)}.
+     * 
+     * @param roadSegment
+     */
+    public void decideLaneChange(RoadSegment roadSegment) {
+        laneChangeDecision = LaneChangeDecision.NONE;
+        laneChangeDecisionPending = false;
 
         // no lane changing when not configured in xml.
         if (laneChangeModel == null || !laneChangeModel.isInitialized()) {
-            return false;
+            return;
         }
 
         // no lane-changing decision necessary for one-lane road
         if (roadSegment.laneCount() < 2) {
+            return;
+        }
+
+        laneChangeDecisionPending = true;
+        if (inProcessOfLaneChange()) {
+            return;
+        }
+
+        // if not in lane-changing process do determine if new lane is more attractive and lane change is possible
+        laneChangeDecision = laneChangeModel.makeDecision(roadSegment);
+    }
+
+    /**
+     * Executes the lane-changing decision of the current update step. A lane change is cancelled if it is not safe
+     * anymore because of lane changes already executed in this update step.
+     * 
+     * @param dt
+     *            delta-t, simulation time interval, seconds
+     * @param roadSegment
+     * @return true if the vehicle changes to its target lane
+     */
+    public boolean commitLaneChange(double dt, RoadSegment roadSegment) {
+        if (!laneChangeDecisionPending) {
             return false;
         }
+        laneChangeDecisionPending = false;
 
         if (inProcessOfLaneChange()) {
             updateLaneChangeDelay(dt);
             return false;
         }
 
-        // if not in lane-changing process do determine if new lane is more attractive and lane change is possible
-        LaneChangeDecision lcDecision = laneChangeModel.makeDecision(roadSegment);
-        final int laneChangeDirection = lcDecision.getDirection();
+        if (laneChangeModel.hasCooperativeAcceleration()) {
+            setSpeed(speed + dt * laneChangeModel.cooperativeAcceleration());
+        }
 
-        // initiates a lane change: set targetLane to new value the lane will be assigned by the vehicle container !!
-        if (laneChangeDirection != Lanes.NO_CHANGE) {
-            setTargetLane(lane + laneChangeDirection);
-            resetDelay();
-            updateLaneChangeDelay(dt);
-            LOG.debug("do lane change to={} into target lane={}", laneChangeDirection, targetLane);
-            return true;
+        final int laneChangeDirection = laneChangeDecision.getDirection();
+        if (laneChangeDirection == Lanes.NO_CHANGE) {
+            return false;
+        }
+        if (!laneChangeModel.isLaneChangeStillSafe(laneChangeDirection, roadSegment)) {
+            LOG.debug("cancel lane change to={}, target lane not safe anymore", laneChangeDirection);
+            return false;
         }
-        return false;
+
+        // initiates a lane change: set targetLane to new value the lane will be assigned by the vehicle container !!
+        setTargetLane(lane + laneChangeDirection);
+        resetDelay();
+        updateLaneChangeDelay(dt);
+        LOG.debug("do lane change to={} into target lane={}", laneChangeDirection, targetLane);
+        return true;
     }
 
     public int getTargetLane() {
@@ -1215,4 +1592,110 @@ public class Vehicle {
         this.route = route;
     }
 
+    public Route getRoute() {
+        return route;
+    }
+
+    /**
+     * Writes the dynamic state of this vehicle, including the state of its memory, noise and longitudinal model. The
+     * vehicle's identity (id, label, route) is written by the {@link VehicleFactory}.
+     * 
+     * @param out
+     * @throws IOException
+     */
+    public void writeState(DataOutput out) throws IOException {
+        out.writeByte(type.ordinal());
+        out.writeDouble(length);
+        out.writeDouble(weight);
+        out.writeDouble(frontPosition);
+        out.writeDouble(frontPositionOld);
+        out.writeDouble(speed);
+        out.writeDouble(accModel);
+        out.writeDouble(acc);
+        out.writeDouble(accOld);
+        out.writeDouble(totalTravelDistance);
+        out.writeDouble(totalTravelTime);
+        out.writeDouble(totalFuelUsedLiters);
+        out.writeInt(vehNumber);
+        out.writeInt(lane);
+        out.writeInt(laneOld);
+        out.writeInt(targetLane);
+        out.writeDouble(tLaneChangeDelay);
+        out.writeByte(laneChangeDecision.ordinal());
+        out.writeBoolean(laneChangeDecisionPending);
+        out.writeDouble(speedlimit);
+        out.writeDouble(slope);
+        out.writeInt(color);
+        out.writeBoolean(isBrakeLightOn);
+        out.writeInt(roadSegmentId);
+        out.writeDouble(roadSegmentLength);
+        out.writeInt(exitRoadSegmentId);
+        out.writeInt(originRoadSegmentId);
+        out.writeInt(routeIndex);
+        out.writeUTF(infoComment);
+        if (memory != null) {
+            memory.writeState(out);
+        }
+        if (noise != null) {
+            noise.writeState(out);
+        }
+        if (trafficLightApproaching != null) {
+            trafficLightApproaching.writeState(out);
+        }
+        if (longitudinalModel != null) {
+            longitudinalModelModifier.writeState(out);
+        }
+    }
+
+    /**
+     * Reads the state written by {@link #writeState(DataOutput)}. The vehicle must have been created from the same
+     * prototype as the vehicle whose state was written.
+     * 
+     * @param in
+     * @throws IOException
+     */
+    public void readState(DataInput in) throws IOException {
+        type = Type.values()[in.readByte()];
+        length = in.readDouble();
+        weight = in.readDouble();
+        frontPosition = in.readDouble();
+        frontPositionOld = in.readDouble();
+        speed = in.readDouble();
+        accModel = in.readDouble();
+        acc = in.readDouble();
+        accOld = in.readDouble();
+        totalTravelDistance = in.readDouble();
+        totalTravelTime = in.readDouble();
+        totalFuelUsedLiters = in.readDouble();
+        vehNumber = in.readInt();
+        lane = in.readInt();
+        laneOld = in.readInt();
+        targetLane = in.readInt();
+        tLaneChangeDelay = in.readDouble();
+        laneChangeDecision = LaneChangeDecision.values()[in.readByte()];
+        laneChangeDecisionPending = in.readBoolean();
+        speedlimit = in.readDouble();
+        slope = in.readDouble();
+        color = in.readInt();
+        isBrakeLightOn = in.readBoolean();
+        roadSegmentId = in.readInt();
+        roadSegmentLength = in.readDouble();
+        exitRoadSegmentId = in.readInt();
+        originRoadSegmentId = in.readInt();
+        routeIndex = in.readInt();
+        infoComment = in.readUTF();
+        if (memory != null) {
+            memory.readState(in);
+        }
+        if (noise != null) {
+            noise.readState(in);
+        }
+        if (trafficLightApproaching != null) {
+            trafficLightApproaching.readState(in);
+        }
+        if (longitudinalModel != null) {
+            longitudinalModelModifier.readState(in);
+        }
+    }
+
 }
@@ -1,5 +1,8 @@
 package org.movsim.simulator.vehicles;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -11,6 +14,8 @@ import org.movsim.autogen.Consumption;
 import org.movsim.autogen.VehiclePrototypeConfiguration;
 import org.movsim.autogen.VehiclePrototypes;
 import org.movsim.consumption.model.EnergyFlowModelFactory;
+import org.movsim.simulator.SimulationContext;
+import org.movsim.simulator.SimulationContext.RandomPurpose;
 import org.movsim.simulator.roadnetwork.routing.Route;
 import org.movsim.simulator.roadnetwork.routing.Routing;
 import org.movsim.simulator.vehicles.lanechange.LaneChangeModel;
@@ -28,10 +33,13 @@ public final class VehicleFactory {
 
     private Routing routing;
 
+    private final SimulationContext context;
+
     private final EnergyFlowModelFactory fuelModelFactory = new EnergyFlowModelFactory();
 
-    public VehicleFactory(double simulationTimestep, VehiclePrototypes vehPrototypes,
+    public VehicleFactory(SimulationContext context, double simulationTimestep, VehiclePrototypes vehPrototypes,
             @Nullable Consumption consumption, Routing routing) {
+        this.context = Preconditions.checkNotNull(context);
         Preconditions.checkNotNull(vehPrototypes);
         this.routing = Preconditions.checkNotNull(routing);
 
@@ -47,22 +55,92 @@ public final class VehicleFactory {
 
     // set route explicitely, e.g. in microscopic initial or boundary conditions
     public Vehicle create(VehicleType vehicleType, @Nullable Route route) {
-        VehiclePrototype prototype = getPrototype(vehicleType.getVehiclePrototypeLabel());
-        LongitudinalModelBase accelerationModel = prototype.createAccelerationModel();
-        accelerationModel.setRelativeRandomizationV0(vehicleType.getRelativeV0Randomization(),
-                vehicleType.getV0DistributionType());
+        // the vehicle id and the randomized parameters are taken from the context of this simulation
+        try (SimulationContext.Scope scope = context.enter()) {
+            Vehicle vehicle = create(getPrototype(vehicleType.getVehiclePrototypeLabel()), route);
+            vehicle.getLongitudinalModel().setRelativeRandomizationV0(vehicle.getLongitudinalModelModifier(),
+                    vehicleType.getRelativeV0Randomization(), vehicleType.getV0DistributionType(),
+                    context.randomStream(vehicle.getId(), RandomPurpose.PARAMETERS));
+            return vehicle;
+        }
+    }
+
+    private Vehicle create(VehiclePrototype prototype, @Nullable Route route) {
+        LongitudinalModelBase accelerationModel = prototype.getAccelerationModel();
         LaneChangeModel laneChangeModel = prototype.createLaneChangeModel();
 
         Vehicle vehicle = new Vehicle(prototype.getLabel(), accelerationModel, prototype.getConfiguration(),
                 laneChangeModel);
 
+        // the random numbers of the vehicle are keyed by its id
+        final long id = vehicle.getId();
+        vehicle.getLongitudinalModelModifier().setRandomStream(context,
+                context.randomStream(id, RandomPurpose.ACCELERATION));
+        final Noise noise = prototype.createAccNoiseModel();
+        if (noise != null) {
+            noise.setRandomStream(context.randomStream(id, RandomPurpose.NOISE));
+        }
+
         vehicle.setRoute(route);
         vehicle.setMemory(prototype.createMemoryModel());
-        vehicle.setNoise(prototype.createAccNoiseModel());
+        vehicle.setNoise(noise);
         vehicle.setFuelModel(prototype.getEnergyFlowModel());
         return vehicle;
     }
 
+    /**
+     * Writes the identity (id, prototype label and route) and the state of the vehicle.
+     * 
+     * @param out
+     * @param vehicle
+     * @throws IOException
+     */
+    public void writeVehicle(DataOutput out, Vehicle vehicle) throws IOException {
+        out.writeLong(vehicle.getId());
+        // vehicles without longitudinal model are obstacles which are not created from a prototype
+        final boolean hasPrototype = vehicle.getLongitudinalModel() != null;
+        out.writeBoolean(hasPrototype);
+        if (hasPrototype) {
+            out.writeUTF(vehicle.getLabel());
+        } else {
+            out.writeDouble(vehicle.getWidth());
+        }
+        out.writeUTF(vehicle.getRoute() == null ? "" : vehicle.getRoute().getName());
+        vehicle.writeState(out);
+    }
+
+    /**
+     * Recreates a vehicle written by {@link #writeVehicle(DataOutput, Vehicle)} with its original id. The randomized
+     * parameters are restored from the state, not drawn again.
+     * 
+     * @param in
+     * @return the vehicle
+     * @throws IOException
+     */
+    public Vehicle readVehicle(DataInput in) throws IOException {
+        final long id = in.readLong();
+        final boolean hasPrototype = in.readBoolean();
+        final String label = hasPrototype ? in.readUTF() : null;
+        final double width = hasPrototype ? 0 : in.readDouble();
+        final String routeName = in.readUTF();
+        try (SimulationContext.Scope scope = context.enter()) {
+            final long nextVehicleId = context.lastVehicleId() + 1;
+            context.setNextVehicleId(id);
+            final Vehicle vehicle;
+            if (hasPrototype) {
+                if (!vehiclePrototypes.containsKey(label)) {
+                    throw new IOException("checkpoint contains unknown vehicle prototype label=" + label);
+                }
+                vehicle = create(vehiclePrototypes.get(label), routeName.isEmpty() ? null : routing.get(routeName));
+            } else {
+                vehicle = new Vehicle(0, 0, Vehicle.LANE_NOT_SET, 1.0, width);
+            }
+            context.setNextVehicleId(nextVehicleId);
+            vehicle.readState(in);
+            return vehicle;
+        }
+    }
+
     // route is determined via the traffic composition
     public Vehicle create(VehicleType vehicleType) {
         Route route = null;
@@ -92,6 +170,10 @@ public final class VehicleFactory {
         }
     }
 
+    public SimulationContext context() {
+        return context;
+    }
+
     public VehiclePrototype getPrototype(String label) {
         if (!vehiclePrototypes.containsKey(label)) {
             throw new IllegalArgumentException("cannot create vehicle for unknown label =\"" + label);
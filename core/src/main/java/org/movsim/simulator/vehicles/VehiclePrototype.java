@@ -19,13 +19,17 @@ class VehiclePrototype {
 
     private final EquilibriumProperties equiProperties;
 
+    /** model shared by the vehicles of this prototype, see {@link LongitudinalModelBase#isShareable()} */
+    private final LongitudinalModelBase accelerationModel;
+
     private final double simulationTimestep;
 
     VehiclePrototype(double simulationTimestep, VehiclePrototypeConfiguration configuration) {
         Preconditions.checkNotNull(configuration);
         this.configuration = configuration;
         this.simulationTimestep = simulationTimestep;
-        equiProperties = EquilibriumPropertiesFactory.create(getLength(), createAccelerationModel());
+        accelerationModel = createAccelerationModel();
+        equiProperties = EquilibriumPropertiesFactory.create(getLength(), accelerationModel);
     }
 
     double getLength() {
@@ -48,7 +52,17 @@ class VehiclePrototype {
         return configuration;
     }
 
-    LongitudinalModelBase createAccelerationModel() {
+    /**
+     * Returns the acceleration model for a new vehicle: the shared model of this prototype, or a new instance if the
+     * model keeps state for each vehicle.
+     * 
+     * @return the acceleration model
+     */
+    LongitudinalModelBase getAccelerationModel() {
+        return accelerationModel.isShareable() ? accelerationModel : createAccelerationModel();
+    }
+
+    private LongitudinalModelBase createAccelerationModel() {
         return LongitudinalModelFactory.create(getLength(), configuration.getAccelerationModelType(),
                 simulationTimestep);
     }
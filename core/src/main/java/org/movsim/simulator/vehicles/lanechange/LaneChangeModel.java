@@ -28,6 +28,7 @@ package org.movsim.simulator.vehicles.lanechange;
 import org.movsim.simulator.roadnetwork.LaneSegment;
 import org.movsim.simulator.roadnetwork.Lanes;
 import org.movsim.simulator.roadnetwork.RoadSegment;
+import org.movsim.simulator.vehicles.NeighbourView;
 import org.movsim.simulator.vehicles.Vehicle;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -148,8 +149,16 @@ public class LaneChangeModel {
         return parameter.getCritSpeedEur();
     }
 
+    /**
+     * Determines the lane-changing decision of the vehicle. The lanes of the road segment are not modified, so
+     * decisions of different vehicles can be made concurrently.
+     * 
+     * @param roadSegment
+     * @return the lane-changing decision
+     */
     public LaneChangeDecision makeDecision(RoadSegment roadSegment) {
         LaneChangeDecision decision = LaneChangeDecision.NONE;
+        lcModelMOBIL.resetCooperativeAcceleration();
 
         // check for mandatory lane changes to reach exit lane
         decision = checkForMandatoryLaneChangeToExit(roadSegment);
@@ -173,14 +182,39 @@ public class LaneChangeModel {
         return decision;
     }
 
+    /**
+     * Checks if a lane change into the given direction is still safe. Decisions are made for all vehicles before any
+     * lane change is executed, so the target lane may have changed since the decision.
+     * 
+     * @param direction
+     * @param roadSegment
+     * @return true if the lane change can be executed
+     */
+    public boolean isLaneChangeStillSafe(int direction, RoadSegment roadSegment) {
+        return lcModelMOBIL.isSafeInsertion(me, roadSegment.laneSegment(me.lane() + direction));
+    }
+
+    /**
+     * Returns true if the last decision determined a cooperative acceleration.
+     * 
+     * @return true if there is a cooperative acceleration
+     */
+    public boolean hasCooperativeAcceleration() {
+        return lcModelMOBIL.hasCooperativeAcceleration();
+    }
+
+    public double cooperativeAcceleration() {
+        return lcModelMOBIL.cooperativeAcceleration();
+    }
+
     private boolean isSafeLaneChange(LaneSegment laneSegment) {
-        final Vehicle front = laneSegment.frontVehicle(me);
-        final Vehicle back = laneSegment.rearVehicle(me);
+        final NeighbourView front = laneSegment.frontNeighbour(me);
+        final NeighbourView back = laneSegment.rearNeighbour(me);
         final boolean changeSafe = checkSafetyCriterion(front, back);
         return changeSafe;
     }
 
-    private boolean checkSafetyCriterion(Vehicle frontVeh, Vehicle backVeh) {
+    private boolean checkSafetyCriterion(NeighbourView frontVeh, NeighbourView backVeh) {
 
         final double safeDeceleration = lcModelMOBIL.getParameter().getSafeDeceleration();
 
@@ -193,13 +227,13 @@ public class LaneChangeModel {
 
         // check distance to vehicle at behind
         if (backVeh != null) {
-            final double gapBack = backVeh.getNetDistance(me);
+            final double gapBack = me.getNetDistanceToRearVehicle(backVeh);
             if (gapBack < lcModelMOBIL.getParameter().getMinimumGap()) {
                 LOG.debug("gapBack={}", gapBack);
                 return false;
             }
             // check acceleration of back vehicle
-            final double backNewAcc = backVeh.getLongitudinalModel().calcAcc(backVeh, me);
+            final double backNewAcc = backVeh.calcAccModel(me);
             if (backNewAcc <= -safeDeceleration) {
                 LOG.debug("gapFront = {}, gapBack = {}", gapFront, gapBack);
                 LOG.debug("backNewAcc={}, bSafe={}", backNewAcc, safeDeceleration);
@@ -273,9 +307,9 @@ public class LaneChangeModel {
                                 : LaneChangeDecision.MANDATORY_TO_RIGHT;
                     }
                     // evaluate additional motivation to leave entrance lane
-                    double accInCurrentLane = me.getLongitudinalModel()
-                            .calcAcc(me, currentLaneSegment.frontVehicle(me));
-                    double accInNewLane = me.getLongitudinalModel().calcAcc(me, newLaneSegment.frontVehicle(me));
+                    double accInCurrentLane = me.getLongitudinalModel().calcAcc(me,
+                            currentLaneSegment.frontNeighbour(me));
+                    double accInNewLane = me.getLongitudinalModel().calcAcc(me, newLaneSegment.frontNeighbour(me));
                     double bias = biasForMandatoryChange(distanceToRoadSegmentEnd);
                     if (accInNewLane + bias > accInCurrentLane) {
                         if (LOG.isDebugEnabled()) {
@@ -347,8 +381,8 @@ public class LaneChangeModel {
         if (roadSegment.laneCount() > 2
                 && roadSegment.laneSegment(roadSegment.laneCount()).type() == Lanes.Type.ENTRANCE
                 && currentLane == roadSegment.trafficLaneMax()) {
-            Vehicle frontVehicle = roadSegment.laneSegment(roadSegment.trafficLaneMax()).frontVehicle(me);
-            if(frontVehicle==null || frontVehicle.type() == Vehicle.Type.OBSTACLE){
+            NeighbourView frontVehicle = roadSegment.laneSegment(roadSegment.trafficLaneMax()).frontNeighbour(me);
+            if(frontVehicle==null || frontVehicle.vehicle().type() == Vehicle.Type.OBSTACLE){
                 return LaneChangeDecision.NONE;
             }
             
@@ -368,9 +402,9 @@ public class LaneChangeModel {
                     // never change lane into an entrance lane
                     return LaneChangeDecision.NONE; 
                 }
-                final Vehicle newFront = newLaneSegment.frontVehicle(me);
+                final NeighbourView newFront = newLaneSegment.virtualFrontNeighbour(me);
                 if (newFront != null) {
-                    if (newFront.inProcessOfLaneChange()) {
+                    if (newFront.vehicle().inProcessOfLaneChange()) {
                         return LaneChangeDecision.NONE;
                     }
                     final double gapFront = me.getNetDistance(newFront);
@@ -378,22 +412,19 @@ public class LaneChangeModel {
                         return LaneChangeDecision.NONE;
                     }
                 }
-                final Vehicle newBack = newLaneSegment.rearVehicle(me);
+                final NeighbourView newBack = newLaneSegment.virtualRearNeighbour(me);
                 if (newBack != null) {
-                    if (newBack.inProcessOfLaneChange()) {
+                    if (newBack.vehicle().inProcessOfLaneChange()) {
                         return LaneChangeDecision.NONE;
                     }
-                    final double gapRear = newBack.getNetDistance(me);
+                    final double gapRear = me.getNetDistanceToRearVehicle(newBack);
                     if (gapRear < lcModelMOBIL.getParameter().getMinimumGap()) {
                         return LaneChangeDecision.NONE;
                     }
                 }
-                me.setLane(newLane);
-                final int index = newLaneSegment.addVehicleTemp(me);
-                final double newBackNewAcc = newBack == null ? 0 : newBack.calcAccModel(newLaneSegment, null);
-                final double meNewAcc = me.calcAccModel(newLaneSegment, null);
-                newLaneSegment.removeVehicle(index);
-                me.setLane(currentLane);
+                // me is virtually inserted into the new lane between newFront and newBack
+                final double newBackNewAcc = newBack == null ? 0 : newBack.calcAccModel(me);
+                final double meNewAcc = me.calcAccModel(newFront);
 
                 if (lcModelMOBIL.safetyCheckAcceleration(newBackNewAcc) || lcModelMOBIL.safetyCheckAcceleration(meNewAcc)) {
                     return LaneChangeDecision.NONE;
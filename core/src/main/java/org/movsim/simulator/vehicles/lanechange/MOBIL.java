@@ -29,6 +29,7 @@ import org.movsim.autogen.ModelParameterMOBIL;
 import org.movsim.simulator.roadnetwork.LaneSegment;
 import org.movsim.simulator.roadnetwork.Lanes;
 import org.movsim.simulator.roadnetwork.RoadSegment;
+import org.movsim.simulator.vehicles.NeighbourView;
 import org.movsim.simulator.vehicles.Vehicle;
 import org.movsim.simulator.vehicles.longitudinalmodel.acceleration.LongitudinalModelBase.ModelName;
 import org.slf4j.Logger;
@@ -57,6 +58,12 @@ public class MOBIL {
 
     private ModelParameterMOBIL param;
 
+    /**
+     * Cooperative acceleration determined by the CCS balance, applied when the lane-changing decision is committed.
+     */
+    private double accCooperative;
+    private boolean hasAccCooperative;
+
     /**
      * Instantiates a new MOBIL.
      * 
@@ -84,6 +91,41 @@ public class MOBIL {
         return acc <= -param.getSafeDeceleration();
     }
 
+    /**
+     * Checks if vehicle me can be inserted into the given lane segment: the minimum gaps to the new front and back
+     * vehicles are kept and the new back vehicle does not need to brake harder than the safe deceleration. Does not
+     * modify the lane segment.
+     * 
+     * @param me
+     * @param newLaneSegment
+     * @return true if the insertion is safe
+     */
+    public boolean isSafeInsertion(Vehicle me, LaneSegment newLaneSegment) {
+        final NeighbourView newFront = newLaneSegment.virtualFrontNeighbour(me);
+        if (newFront != null && me.getNetDistance(newFront) < param.getMinimumGap()) {
+            return false;
+        }
+        final NeighbourView newBack = newLaneSegment.virtualRearNeighbour(me);
+        if (newBack != null) {
+            if (me.getNetDistanceToRearVehicle(newBack) < param.getMinimumGap()) {
+                return false;
+            }
+            if (safetyCheckAcceleration(newBack.calcAccModel(me))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Calculates the MOBIL balance for a lane change of vehicle me into the given direction. The lanes are not
+     * modified: the new situation is evaluated with the virtual neighbours of me in the new lane.
+     * 
+     * @param me
+     * @param direction
+     * @param roadSegment
+     * @return the acceleration balance, -Double.MAX_VALUE if the lane change is not possible or not safe
+     */
     public double calcAccelerationBalance(Vehicle me, int direction, RoadSegment roadSegment) {
 
         // set prospectiveBalance to large negative to indicate no lane change when not safe
@@ -97,9 +139,9 @@ public class MOBIL {
             return prospectiveBalance;
         }
 
-        final Vehicle newFront = newLaneSegment.frontVehicle(me);
+        final NeighbourView newFront = newLaneSegment.virtualFrontNeighbour(me);
         if (newFront != null) {
-            if (newFront.inProcessOfLaneChange()) {
+            if (newFront.vehicle().inProcessOfLaneChange()) {
                 return prospectiveBalance;
             }
             final double gapFront = me.getNetDistance(newFront);
@@ -107,20 +149,20 @@ public class MOBIL {
                 return prospectiveBalance;
             }
         }
-        final Vehicle newBack = newLaneSegment.rearVehicle(me);
+        final NeighbourView newBack = newLaneSegment.virtualRearNeighbour(me);
         if (newBack != null) {
-            if (newBack.inProcessOfLaneChange()) {
+            if (newBack.vehicle().inProcessOfLaneChange()) {
                 return prospectiveBalance;
             }
-            final double gapRear = newBack.getNetDistance(me);
+            final double gapRear = me.getNetDistanceToRearVehicle(newBack);
             if (gapRear < param.getMinimumGap()) {
                 return prospectiveBalance;
             }
         }
         final LaneSegment currentLaneSegment = roadSegment.laneSegment(currentLane);
-        final Vehicle oldFront = currentLaneSegment.frontVehicle(me);
+        final NeighbourView oldFront = currentLaneSegment.frontNeighbour(me);
         if (oldFront != null) {
-            if (oldFront.inProcessOfLaneChange()) {
+            if (oldFront.vehicle().inProcessOfLaneChange()) {
                 return prospectiveBalance;
             }
         }
@@ -128,13 +170,9 @@ public class MOBIL {
         // new situation: newBack with me as leader and following left lane cases
         // TO_LEFT --> just the actual situation
         // TO_RIGHT --> consideration of left-lane (with me's leader) has no effect
-        // temporarily add the current vehicle to the new lane to calculate the new accelerations
-        me.setLane(newLane);
-        final int index = newLaneSegment.addVehicleTemp(me);
-        final double newBackNewAcc = newBack == null ? 0 : newBack.calcAccModel(newLaneSegment, null);
-        final double meNewAcc = me.calcAccModel(newLaneSegment, null);
-        newLaneSegment.removeVehicle(index);
-        me.setLane(currentLane);
+        // me is virtually inserted into the new lane between newFront and newBack
+        final double newBackNewAcc = newBack == null ? 0 : newBack.calcAccModel(me);
+        final double meNewAcc = me.calcAccModel(newFront);
 
         if (safetyCheckAcceleration(newBackNewAcc)) {
             return prospectiveBalance;
@@ -148,11 +186,13 @@ public class MOBIL {
 
         // old situation for old back
         // in old situation same left lane as me
-        final Vehicle oldBack = currentLaneSegment.rearVehicle(me);
-        final double oldBackOldAcc = (oldBack != null) ? oldBack.calcAccModel(currentLaneSegment, null) : 0.0;
+        final NeighbourView oldBack = currentLaneSegment.rearNeighbour(me);
+        final double oldBackOldAcc = (oldBack != null) ? oldBack.calcAccModel(currentLaneSegment
+                .frontNeighbour(oldBack)) : 0.0;
 
         // old situation for new back: just provides the actual left-lane situation
-        final double newBackOldAcc = (newBack != null) ? newBack.calcAccModel(newLaneSegment, null) : 0.0;
+        final double newBackOldAcc = (newBack != null) ? newBack.calcAccModel(newLaneSegment.frontNeighbour(newBack))
+                : 0.0;
 
         // new situation for new back:
         final double oldBackNewAcc;
@@ -162,8 +202,9 @@ public class MOBIL {
             // cannot temporarily remove the current vehicle from the current lane, since we are in a loop
             // that iterates over the vehicles in the current lane. So calculate oldBackNewAcc based on just
             // the front vehicle.
-            if (currentLaneSegment.frontVehicle(me) != null) { // TODO remove quickhack for avoiding nullpointer
-                oldBackNewAcc = oldBack.getLongitudinalModel().calcAcc(oldBack, currentLaneSegment.frontVehicle(me));
+            final NeighbourView frontVehicle = currentLaneSegment.frontNeighbour(me);
+            if (frontVehicle != null) { // TODO remove quickhack for avoiding nullpointer
+                oldBackNewAcc = oldBack.calcAccModel(frontVehicle);
             } else {
                 oldBackNewAcc = 0.0;
             }
@@ -207,7 +248,6 @@ public class MOBIL {
             double biasmax = 50; // maximum bias
             double fracCoop = 0.8; // fraction of cooperative runners/vehicles
             double b = 10; // normal deceleration (=b in acc models)
-            double dt = 0.2; // !! get elsewhere!!
 
             // local variables need for both (1) and (2)
 
@@ -219,10 +259,10 @@ public class MOBIL {
 
             final LaneSegment laneSegmentPlus = roadSegment.laneSegment(lanePlus);
             final LaneSegment laneSegmentMinus = roadSegment.laneSegment(laneMinus);
-            final Vehicle frontPlus = laneSegmentPlus.frontVehicle(me);
-            final Vehicle rearPlus = laneSegmentPlus.rearVehicle(me);
-            final Vehicle frontMinus = laneSegmentMinus.frontVehicle(me);
-            final Vehicle rearMinus = laneSegmentMinus.rearVehicle(me);
+            final NeighbourView frontPlus = laneSegmentPlus.frontNeighbour(me);
+            final NeighbourView rearPlus = laneSegmentPlus.rearNeighbour(me);
+            final NeighbourView frontMinus = laneSegmentMinus.frontNeighbour(me);
+            final NeighbourView rearMinus = laneSegmentMinus.rearNeighbour(me);
             if ((frontPlus == null) || (frontMinus == null) || (rearPlus == null) || (rearMinus == null)) {
                 return prospectiveBalance;
             }
@@ -234,13 +274,16 @@ public class MOBIL {
             // (1) cooperative braking of runners/vehicles
             // to make space for agents on congested adjacent lane(s)
 
+            // the speed change is applied with the simulation timestep when the decision is committed
+
             int vehPerCoopVeh = (int) (1. / (fracCoop + 1e-6));
             double accCoop = 0;
             if (me.getId() % vehPerCoopVeh == 0) {
                 accCoop = -b * Math.max(0., (vc - vAdj) / vc)
                         * (Math.min(1., Math.max(0, ((me.getSpeed() - vc) / vc))));
                 accCoop = Math.max(-b, accCoop + me.getAcc());
-                me.setSpeed(me.getSpeed() + dt * accCoop);
+                accCooperative = accCoop;
+                hasAccCooperative = true;
             }
 
             // (2) anticipatory lane changes of runners adjacent of congested lanes
@@ -268,6 +311,27 @@ public class MOBIL {
         return prospectiveBalance;
     }
 
+    /**
+     * Clears the cooperative acceleration before a new lane-changing decision.
+     */
+    public void resetCooperativeAcceleration() {
+        accCooperative = 0;
+        hasAccCooperative = false;
+    }
+
+    /**
+     * Returns true if the last lane-changing decision determined a cooperative acceleration (CCS only).
+     * 
+     * @return true if there is a cooperative acceleration
+     */
+    public boolean hasCooperativeAcceleration() {
+        return hasAccCooperative;
+    }
+
+    public double cooperativeAcceleration() {
+        return accCooperative;
+    }
+
     public ModelParameterMOBIL getParameter() {
         // remark: returned object is not immutable
         return param;
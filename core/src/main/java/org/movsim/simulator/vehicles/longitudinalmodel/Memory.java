@@ -25,6 +25,10 @@
  */
 package org.movsim.simulator.vehicles.longitudinalmodel;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import org.movsim.autogen.MemoryParameter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -145,4 +149,28 @@ public class Memory {
     public double alphaT() {
         return alphaT;
     }
+
+    /**
+     * Writes the dynamic state variables.
+     * 
+     * @param out
+     * @throws IOException
+     */
+    public void writeState(DataOutput out) throws IOException {
+        out.writeDouble(alphaA);
+        out.writeDouble(alphaV0);
+        out.writeDouble(alphaT);
+    }
+
+    /**
+     * Reads the dynamic state variables.
+     * 
+     * @param in
+     * @throws IOException
+     */
+    public void readState(DataInput in) throws IOException {
+        alphaA = in.readDouble();
+        alphaV0 = in.readDouble();
+        alphaT = in.readDouble();
+    }
 }
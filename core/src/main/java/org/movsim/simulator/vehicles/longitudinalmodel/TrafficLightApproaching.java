@@ -25,6 +25,10 @@
  */
 package org.movsim.simulator.vehicles.longitudinalmodel;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import org.movsim.autogen.TrafficLightStatus;
 import org.movsim.simulator.MovsimConstants;
 import org.movsim.simulator.roadnetwork.RoadSegment.TrafficLightLocationWithDistance;
@@ -121,7 +125,8 @@ public class TrafficLightApproaching {
 
     private static double calcAccelerationToTrafficlight(Vehicle me, double distanceToTrafficlight) {
         final double speed = me.getSpeed();
-        return Math.min(0, me.getLongitudinalModel().calcAccSimple(distanceToTrafficlight, speed, speed));
+        return Math.min(0, me.getLongitudinalModel().calcAccSimple(distanceToTrafficlight, speed, speed,
+                me.getLongitudinalModelModifier()));
     }
 
     /**
@@ -190,4 +195,28 @@ public class TrafficLightApproaching {
         }
         return sumEffectiveLengths;
     }
-}
\ No newline at end of file
+
+    /**
+     * Writes the state of the traffic light approaching.
+     * 
+     * @param out
+     * @throws IOException
+     */
+    public void writeState(DataOutput out) throws IOException {
+        out.writeBoolean(considerTrafficLight);
+        out.writeDouble(accTrafficLight);
+        out.writeDouble(distanceToTrafficlight);
+    }
+
+    /**
+     * Reads the state of the traffic light approaching.
+     * 
+     * @param in
+     * @throws IOException
+     */
+    public void readState(DataInput in) throws IOException {
+        considerTrafficLight = in.readBoolean();
+        accTrafficLight = in.readDouble();
+        distanceToTrafficlight = in.readDouble();
+    }
+}
@@ -25,6 +25,7 @@
  */
 package org.movsim.simulator.vehicles.longitudinalmodel.acceleration;
 
+import org.movsim.simulator.vehicles.NeighbourView;
 import org.movsim.simulator.vehicles.Vehicle;
 import org.movsim.simulator.vehicles.longitudinalmodel.acceleration.parameter.IModelParameterACC;
 import org.slf4j.Logger;
@@ -64,7 +65,8 @@ class ACC extends LongitudinalModelBase {
     }
 
     @Override
-    public double calcAcc(Vehicle me, Vehicle frontVehicle, double alphaT, double alphaV0, double alphaA) {
+    public double calcAcc(Vehicle me, NeighbourView frontVehicle, LongitudinalModelModifier modifier, double alphaT,
+            double alphaV0, double alphaA) {
 
         // Local dynamical variables
         final double s = me.getNetDistance(frontVehicle);
@@ -81,15 +83,15 @@ class ACC extends LongitudinalModelBase {
         // me.getPosition(), me.getSpeed(), alphaT, alphaV0, T, Tlocal);
         // }
         // consider external speedlimit
-        final double v0Local = Math.min(alphaV0 * getDesiredSpeed(), me.getSpeedlimit());
+        final double v0Local = Math.min(alphaV0 * getDesiredSpeed(modifier), me.getSpeedlimit());
         final double aLocal = alphaA * param.getA();
 
         return acc(s, v, dv, aLead, Tlocal, v0Local, aLocal);
     }
 
     @Override
-    public double calcAccSimple(double s, double v, double dv) {
-        return acc(s, v, dv, 0, param.getT(), getDesiredSpeed(), param.getA());
+    public double calcAccSimple(double s, double v, double dv, LongitudinalModelModifier modifier) {
+        return acc(s, v, dv, 0, param.getT(), getDesiredSpeed(modifier), param.getA());
     }
 
     // Implementation of ACC model with improved IDM (IIDM)
@@ -113,18 +115,26 @@ class ACC extends LongitudinalModelBase {
      * @return the double
      */
     private double acc(double s, double v, double dv, double aLead, double TLocal, double v0Local, double aLocal) {
+        return acc(s, v, dv, aLead, TLocal, v0Local, aLocal, getMinimumGap(), param.getS1(), param.getB(),
+                param.getDelta(), param.getCoolness());
+    }
+
+    /**
+     * ACC acceleration with the parameters given as arguments, shared by the scalar and the batch calculation.
+     */
+    private static double acc(double s, double v, double dv, double aLead, double TLocal, double v0Local,
+            double aLocal, double s0, double s1, double b, double delta, double coolness) {
         // treat special case of v0=0 (standing obstacle)
         if (v0Local == 0) {
             return 0;
         }
 
-        final double sstar = getMinimumGap()
-                + Math.max(
-                        TLocal * v + param.getS1() * Math.sqrt((v + 0.00001) / v0Local) + 0.5 * v * dv
-                                / Math.sqrt(aLocal * param.getB()), 0.);
+        final double sstar = s0
+                + Math.max(TLocal * v + s1 * Math.sqrt((v + 0.00001) / v0Local) + 0.5 * v * dv / Math.sqrt(aLocal * b),
+                        0.);
         final double z = sstar / Math.max(s, 0.01);
-        final double accEmpty = (v <= v0Local) ? aLocal * (1 - Math.pow((v / v0Local), param.getDelta())) : -param
-                .getB() * (1 - Math.pow((v0Local / v), aLocal * param.getDelta() / param.getB()));
+        final double accEmpty = (v <= v0Local) ? aLocal * (1 - Math.pow((v / v0Local), delta)) : -b
+                * (1 - Math.pow((v0Local / v), aLocal * delta / b));
         final double accPos = accEmpty * (1. - Math.pow(z, Math.min(2 * aLocal / accEmpty, 100.)));
         final double accInt = aLocal * (1 - z * z);
 
@@ -142,9 +152,42 @@ class ACC extends LongitudinalModelBase {
 
         // ACC with IIDM
 
-        final double accACC_IIDM = (accIIDM > accCAH) ? accIIDM : (1 - param.getCoolness()) * accIIDM
-                + param.getCoolness() * (accCAH + param.getB() * Math.tanh((accIIDM - accCAH) / param.getB()));
+        final double accACC_IIDM = (accIIDM > accCAH) ? accIIDM : (1 - coolness) * accIIDM + coolness
+                * (accCAH + b * Math.tanh((accIIDM - accCAH) / b));
 
         return accACC_IIDM;
     }
+
+    @Override
+    public boolean hasBatchKernel() {
+        return true;
+    }
+
+    @Override
+    public void calcAccBatch(AccelerationBatch batch) {
+        final double T = param.getT();
+        final double a = param.getA();
+        final double b = param.getB();
+        final double s0 = getMinimumGap();
+        final double s1 = param.getS1();
+        final double delta = param.getDelta();
+        final double coolness = param.getCoolness();
+        final double[] gap = batch.gap;
+        final double[] speed = batch.speed;
+        final double[] relSpeed = batch.relSpeed;
+        final double[] leaderAcc = batch.leaderAcc;
+        final double[] desiredSpeed = batch.desiredSpeed;
+        final double[] speedlimit = batch.speedlimit;
+        final double[] alphaT = batch.alphaT;
+        final double[] alphaV0 = batch.alphaV0;
+        final double[] alphaA = batch.alphaA;
+        final double[] acc = batch.acc;
+        for (int i = 0, n = batch.size; i < n; ++i) {
+            final double Tlocal = alphaT[i] * T;
+            final double v0Local = Math.min(alphaV0[i] * desiredSpeed[i], speedlimit[i]);
+            final double aLocal = alphaA[i] * a;
+            acc[i] = acc(gap[i], speed[i], relSpeed[i], leaderAcc[i], Tlocal, v0Local, aLocal, s0, s1, b, delta,
+                    coolness);
+        }
+    }
 }
@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2010, 2011, 2012 by Arne Kesting, Martin Treiber, Ralph Germ, Martin Budden
+ *                                   <movsim.org@gmail.com>
+ * -----------------------------------------------------------------------------------------
+ * 
+ * This file is part of
+ * 
+ * MovSim - the multi-model open-source vehicular-traffic simulator.
+ * 
+ * MovSim is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * MovSim is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MovSim. If not, see <http://www.gnu.org/licenses/>
+ * or <http://www.movsim.org>.
+ * 
+ * -----------------------------------------------------------------------------------------
+ */
+package org.movsim.simulator.vehicles.longitudinalmodel.acceleration;
+
+/**
+ * <p>
+ * Structure-of-arrays input and output of the batch acceleration kernels, see
+ * {@link LongitudinalModelBase#calcAccBatch(AccelerationBatch)}: for each vehicle the gap and approaching rate to its
+ * front vehicle, its speed, the acceleration of the front vehicle, the randomized desired speed, the speed limit and
+ * the alpha factors. The kernel writes the model accelerations.
+ * </p>
+ * <p>
+ * A batch is reused for the lanes of a road segment, so it must not be shared between threads.
+ * </p>
+ */
+public final class AccelerationBatch {
+
+    private static final int INITIAL_CAPACITY = 50;
+
+    double[] gap;
+    double[] speed;
+    double[] relSpeed;
+    double[] leaderAcc;
+    double[] desiredSpeed;
+    double[] speedlimit;
+    double[] alphaT;
+    double[] alphaV0;
+    double[] alphaA;
+    double[] acc;
+    int size;
+
+    public AccelerationBatch() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    private void allocate(int capacity) {
+        gap = new double[capacity];
+        speed = new double[capacity];
+        relSpeed = new double[capacity];
+        leaderAcc = new double[capacity];
+        desiredSpeed = new double[capacity];
+        speedlimit = new double[capacity];
+        alphaT = new double[capacity];
+        alphaV0 = new double[capacity];
+        alphaA = new double[capacity];
+        acc = new double[capacity];
+    }
+
+    /**
+     * Removes all vehicles from the batch and makes sure that the given number of vehicles fits without reallocation.
+     * 
+     * @param capacity
+     */
+    public void clear(int capacity) {
+        size = 0;
+        if (capacity > gap.length) {
+            allocate(Math.max(capacity, 2 * gap.length));
+        }
+    }
+
+    /**
+     * Adds the input of a vehicle.
+     * 
+     * @param s
+     *            the net distance to the front vehicle (m)
+     * @param v
+     *            the speed (m/s)
+     * @param dv
+     *            the approaching rate to the front vehicle (m/s)
+     * @param aLead
+     *            the acceleration of the front vehicle (m/s^2)
+     * @param v0
+     *            the desired speed of the vehicle including its randomization (m/s)
+     * @param vLimit
+     *            the speed limit (m/s)
+     * @param alphaTValue
+     * @param alphaV0Value
+     * @param alphaAValue
+     * @return the index of the vehicle in the batch
+     */
+    public int add(double s, double v, double dv, double aLead, double v0, double vLimit, double alphaTValue,
+            double alphaV0Value, double alphaAValue) {
+        assert size < gap.length : "capacity exceeded, see clear(int)";
+        gap[size] = s;
+        speed[size] = v;
+        relSpeed[size] = dv;
+        leaderAcc[size] = aLead;
+        desiredSpeed[size] = v0;
+        speedlimit[size] = vLimit;
+        alphaT[size] = alphaTValue;
+        alphaV0[size] = alphaV0Value;
+        alphaA[size] = alphaAValue;
+        return size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double alphaT(int index) {
+        return alphaT[index];
+    }
+
+    public double alphaV0(int index) {
+        return alphaV0[index];
+    }
+
+    /**
+     * Returns the model acceleration calculated by the kernel.
+     * 
+     * @param index
+     * @return the acceleration (m/s^2)
+     */
+    public double acc(int index) {
+        return acc[index];
+    }
+}
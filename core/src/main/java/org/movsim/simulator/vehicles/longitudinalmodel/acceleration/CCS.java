@@ -1,5 +1,6 @@
 package org.movsim.simulator.vehicles.longitudinalmodel.acceleration;
 
+import org.movsim.simulator.vehicles.NeighbourView;
 import org.movsim.simulator.vehicles.Vehicle;
 import org.movsim.simulator.vehicles.longitudinalmodel.acceleration.parameter.IModelParameterCCS;
 import org.slf4j.Logger;
@@ -56,36 +57,44 @@ public class CCS extends LongitudinalModelBase {
     /**
      * make (mis)use of randomization factor intended for desired speed.
      */
-    private double getP0() {
-        return param.getP0() * v0RandomizationFactor;
+    private double getP0(LongitudinalModelModifier modifier) {
+        return param.getP0() * modifier.v0RandomizationFactor();
+    }
+
+    /**
+     * The wave start hack counts the calculations of each vehicle, so the model cannot be shared.
+     */
+    @Override
+    public boolean isShareable() {
+        return false;
     }
 
     @Override
-    public double calcAcc(Vehicle me, final Vehicle frontVehicle) {
+    public double calcAcc(Vehicle me, final NeighbourView frontVehicle) {
         // Local dynamical variables
         final double s = me.getNetDistance(frontVehicle);
         final double v = me.getSpeed();
         final double dv = me.getRelSpeed(frontVehicle);
         final double gradient = me.getSlope();
 
-        return acc(s, v, dv, gradient);
+        return acc(s, v, dv, gradient, me.getLongitudinalModelModifier());
     }
 
     @Override
-    public double calcAccSimple(double s, double v, double dv) {
-        return acc(s, v, dv, 0);
+    public double calcAccSimple(double s, double v, double dv, LongitudinalModelModifier modifier) {
+        return acc(s, v, dv, 0, modifier);
     }
 
-    private double acc(double s, double v, double dv, double gradient) {
+    private double acc(double s, double v, double dv, double gradient, LongitudinalModelModifier modifier) {
 
         // System.out.println("v," +v+"   gradient "+gradient );
 
         final double v_c = param.getVC();
 
-        double a_max = 4 * getP0() / (v_c * param.getMass());
+        double a_max = 4 * getP0(modifier) / (v_c * param.getMass());
         double gradientSlip = a_max / EARTH_GRAVITY;
 
-        double F_diagonal = (4 * getP0() / v_c) * (1 - v / v_c) * ((v < v_c) ? 1 : 0);
+        double F_diagonal = (4 * getP0(modifier) / v_c) * (1 - v / v_c) * ((v < v_c) ? 1 : 0);
         double F_herringbone = (4 * param.getPHerringbone() / param.getVCHerringbone()) * (1 - v / v_c)
                 * ((v < param.getVCHerringbone()) ? 1 : 0);
 
@@ -109,7 +118,8 @@ public class CCS extends LongitudinalModelBase {
     }
 
     @Override
-    public double calcAcc(Vehicle me, Vehicle frontVehicle, double alphaT, double alphaV0, double alphaA) {
+    public double calcAcc(Vehicle me, NeighbourView frontVehicle, LongitudinalModelModifier modifier, double alphaT,
+            double alphaV0, double alphaA) {
         // wave start hack 300 = 1min
         if (wave == Waves.FOURWAVES) {
             if ((me.roadSegmentId() <= 7 && counter < 1500) || (me.roadSegmentId() <= 5 && counter < 3000)
@@ -134,7 +144,7 @@ public class CCS extends LongitudinalModelBase {
         final double v = me.getSpeed();
         final double dv = me.getRelSpeed(frontVehicle);
         final double gradient = me.getSlope();
-        return acc(s, v, dv, gradient);
+        return acc(s, v, dv, gradient, modifier);
     }
 
     @Override
@@ -26,8 +26,10 @@
 package org.movsim.simulator.vehicles.longitudinalmodel.acceleration;
 
 import org.movsim.autogen.DistributionTypeEnum;
+import org.movsim.simulator.vehicles.NeighbourView;
 import org.movsim.simulator.vehicles.Vehicle;
 import org.movsim.simulator.vehicles.longitudinalmodel.acceleration.parameter.IModelParameterGipps;
+import org.movsim.utilities.RandomStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -62,12 +64,14 @@ class Gipps extends LongitudinalModelBase {
 
 
     @Override
-    public void setRelativeRandomizationV0(double relRandomizationFactor, DistributionTypeEnum distributionType) {
+    public void setRelativeRandomizationV0(LongitudinalModelModifier modifier, double relRandomizationFactor,
+            DistributionTypeEnum distributionType, RandomStream parameterRandom) {
         // no modification of desired speed by randomization.
     }
 
     @Override
-    public double calcAcc(Vehicle me, Vehicle frontVehicle, double alphaT, double alphaV0, double alphaA) {
+    public double calcAcc(Vehicle me, NeighbourView frontVehicle, LongitudinalModelModifier modifier, double alphaT,
+            double alphaV0, double alphaA) {
 
         // Local dynamical variables
         final double s = me.getNetDistance(frontVehicle);
@@ -77,7 +81,7 @@ class Gipps extends LongitudinalModelBase {
         // space dependencies modeled by speedlimits, alpha's
 
         // consider external speedlimit
-        final double v0Local = Math.min(alphaV0 * getDesiredSpeed(), me.getSpeedlimit());
+        final double v0Local = Math.min(alphaV0 * getDesiredSpeed(modifier), me.getSpeedlimit());
 
         // #############################################################
         // space dependencies modelled by alpha_T
@@ -91,8 +95,8 @@ class Gipps extends LongitudinalModelBase {
     }
 
     @Override
-    public double calcAccSimple(double s, double v, double dv) {
-        return acc(s, v, dv, getDesiredSpeed(), parameterT);
+    public double calcAccSimple(double s, double v, double dv, LongitudinalModelModifier modifier) {
+        return acc(s, v, dv, getDesiredSpeed(modifier), parameterT);
     }
 
     /**
@@ -111,17 +115,47 @@ class Gipps extends LongitudinalModelBase {
      * @return the double
      */
     private double acc(double s, double v, double dv, double v0Local, double TLocal) {
+        return acc(s, v, dv, v0Local, TLocal, param.getA(), param.getB(), getMinimumGap());
+    }
+
+    /**
+     * Gipps acceleration with the parameters given as arguments, shared by the scalar and the batch calculation.
+     */
+    private static double acc(double s, double v, double dv, double v0Local, double TLocal, double a, double b,
+            double s0) {
         final double vp = v - dv;
         // safe speed
-        final double a = param.getA();
-        final double b = param.getB();
-        final double vSafe = -b * TLocal
-                + Math.sqrt(b * b * TLocal * TLocal + vp * vp + 2 * b * Math.max(s - getMinimumGap(), 0.));
+        final double vSafe = -b * TLocal + Math.sqrt(b * b * TLocal * TLocal + vp * vp + 2 * b * Math.max(s - s0, 0.));
         final double vNew = Math.min(vSafe, Math.min(v + a * TLocal, v0Local));
         final double aWanted = (vNew - v) / TLocal;
         return aWanted;
     }
 
+    @Override
+    public boolean hasBatchKernel() {
+        return true;
+    }
+
+    @Override
+    public void calcAccBatch(AccelerationBatch batch) {
+        final double a = param.getA();
+        final double b = param.getB();
+        final double s0 = getMinimumGap();
+        final double[] gap = batch.gap;
+        final double[] speed = batch.speed;
+        final double[] relSpeed = batch.relSpeed;
+        final double[] desiredSpeed = batch.desiredSpeed;
+        final double[] speedlimit = batch.speedlimit;
+        final double[] alphaT = batch.alphaT;
+        final double[] alphaV0 = batch.alphaV0;
+        final double[] acc = batch.acc;
+        for (int i = 0, n = batch.size; i < n; ++i) {
+            final double v0Local = Math.min(alphaV0[i] * desiredSpeed[i], speedlimit[i]);
+            final double TLocal = alphaT[i] * parameterT;
+            acc[i] = acc(gap[i], speed[i], relSpeed[i], v0Local, TLocal, a, b, s0);
+        }
+    }
+
     @Override
     protected IModelParameterGipps getParameter() {
         return param;
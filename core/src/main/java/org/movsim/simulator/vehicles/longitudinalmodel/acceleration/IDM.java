@@ -26,6 +26,7 @@
 package org.movsim.simulator.vehicles.longitudinalmodel.acceleration;
 
 import org.movsim.autogen.ModelParameterIDM;
+import org.movsim.simulator.vehicles.NeighbourView;
 import org.movsim.simulator.vehicles.Vehicle;
 import org.movsim.simulator.vehicles.longitudinalmodel.acceleration.parameter.IModelParameterIDM;
 import org.slf4j.Logger;
@@ -113,7 +114,8 @@ public class IDM extends LongitudinalModelBase {
     }
 
     @Override
-    public double calcAcc(Vehicle me, Vehicle frontVehicle, double alphaT, double alphaV0, double alphaA) {
+    public double calcAcc(Vehicle me, NeighbourView frontVehicle, LongitudinalModelModifier modifier, double alphaT,
+            double alphaV0, double alphaA) {
 
         // Local dynamical variables
         final double s = me.getNetDistance(frontVehicle);
@@ -126,9 +128,9 @@ public class IDM extends LongitudinalModelBase {
         // consider external speedlimit
         final double localV0;
         if (me.getSpeedlimit() != 0.0) {
-            localV0 = Math.min(alphaV0 * getDesiredSpeed(), me.getSpeedlimit());
+            localV0 = Math.min(alphaV0 * getDesiredSpeed(modifier), me.getSpeedlimit());
         } else {
-            localV0 = alphaV0 * getDesiredSpeed();
+            localV0 = alphaV0 * getDesiredSpeed(modifier);
         }
         final double localA = alphaA * param.getA();
 
@@ -136,10 +138,41 @@ public class IDM extends LongitudinalModelBase {
     }
 
     @Override
-    public double calcAccSimple(double s, double v, double dv) {
+    public double calcAccSimple(double s, double v, double dv, LongitudinalModelModifier modifier) {
         return acc(s, v, dv, param.getT(), param.getV0(), param.getA());
     }
 
+    @Override
+    public boolean hasBatchKernel() {
+        return true;
+    }
+
+    @Override
+    public void calcAccBatch(AccelerationBatch batch) {
+        final double T = param.getT();
+        final double a = param.getA();
+        final double b = param.getB();
+        final double s0 = getMinimumGap();
+        final double s1 = param.getS1();
+        final double delta = param.getDelta();
+        final double[] gap = batch.gap;
+        final double[] speed = batch.speed;
+        final double[] relSpeed = batch.relSpeed;
+        final double[] desiredSpeed = batch.desiredSpeed;
+        final double[] speedlimit = batch.speedlimit;
+        final double[] alphaT = batch.alphaT;
+        final double[] alphaV0 = batch.alphaV0;
+        final double[] alphaA = batch.alphaA;
+        final double[] acc = batch.acc;
+        for (int i = 0, n = batch.size; i < n; ++i) {
+            final double localT = alphaT[i] * T;
+            final double localV0 = (speedlimit[i] != 0.0) ? Math.min(alphaV0[i] * desiredSpeed[i], speedlimit[i])
+                    : alphaV0[i] * desiredSpeed[i];
+            final double localA = alphaA[i] * a;
+            acc[i] = acc(gap[i], speed[i], relSpeed[i], localT, localV0, localA, s0, s1, b, delta);
+        }
+    }
+
     /**
      * Acc.
      * 
@@ -158,23 +191,30 @@ public class IDM extends LongitudinalModelBase {
      * @return the double
      */
     private double acc(double s, double v, double dv, double TLocal, double v0Local, double aLocal) {
+        final double aWanted = acc(s, v, dv, TLocal, v0Local, aLocal, getMinimumGap(), param.getS1(), param.getB(),
+                param.getDelta());
+        LOG.debug("aWanted = {}", aWanted);
+        return aWanted; // limit to -bMax in Vehicle
+    }
+
+    /**
+     * IDM acceleration with the parameters given as arguments, shared by the scalar and the batch calculation.
+     */
+    private static double acc(double s, double v, double dv, double TLocal, double v0Local, double aLocal, double s0,
+            double s1, double b, double delta) {
         // treat special case of v0=0 (standing obstacle)
         if (v0Local == 0.0) {
             return 0.0;
         }
 
-        final double s0 = getMinimumGap();
-        double sstar = s0 + TLocal * v + param.getS1() * Math.sqrt((v + 0.0001) / v0Local) + (0.5 * v * dv)
-                / Math.sqrt(aLocal * param.getB());
+        double sstar = s0 + TLocal * v + s1 * Math.sqrt((v + 0.0001) / v0Local) + (0.5 * v * dv)
+                / Math.sqrt(aLocal * b);
 
         if (sstar < s0) {
             sstar = s0;
         }
 
-        final double aWanted = aLocal * (1.0 - Math.pow((v / v0Local), param.getDelta()) - (sstar / s) * (sstar / s));
-
-        LOG.debug("aWanted = {}", aWanted);
-        return aWanted; // limit to -bMax in Vehicle
+        return aLocal * (1.0 - Math.pow((v / v0Local), delta) - (sstar / s) * (sstar / s));
     }
 
     @Override
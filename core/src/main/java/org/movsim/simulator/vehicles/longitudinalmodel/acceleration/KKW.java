@@ -26,9 +26,10 @@
 package org.movsim.simulator.vehicles.longitudinalmodel.acceleration;
 
 import org.movsim.autogen.DistributionTypeEnum;
+import org.movsim.simulator.vehicles.NeighbourView;
 import org.movsim.simulator.vehicles.Vehicle;
 import org.movsim.simulator.vehicles.longitudinalmodel.acceleration.parameter.IModelParameterKKW;
-import org.movsim.utilities.MyRandom;
+import org.movsim.utilities.RandomStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -73,7 +74,8 @@ class KKW extends LongitudinalModelBase {
     }
 
     @Override
-    public void setRelativeRandomizationV0(double relRandomizationFactor, DistributionTypeEnum distributionType) {
+    public void setRelativeRandomizationV0(LongitudinalModelModifier modifier, double relRandomizationFactor,
+            DistributionTypeEnum distributionType, RandomStream parameterRandom) {
         // no modification of desired speed by randomization.
     }
 
@@ -83,18 +85,19 @@ class KKW extends LongitudinalModelBase {
     }
 
     @Override
-    public double calcAcc(Vehicle me, Vehicle frontVehicle, double alphaT, double alphaV0, double alphaA) {
+    public double calcAcc(Vehicle me, NeighbourView frontVehicle, LongitudinalModelModifier modifier, double alphaT,
+            double alphaV0, double alphaA) {
         // Local dynamical variables
         final double s = me.getNetDistance(frontVehicle);
         final double v = me.getSpeed();
         final double dv = me.getRelSpeed(frontVehicle);
 
-        return acc(s, v, dv, alphaT, alphaV0);
+        return acc(s, v, dv, alphaT, alphaV0, modifier);
     }
 
     @Override
-    public double calcAccSimple(double s, double v, double dv) {
-        return acc(s, v, dv, 1.0, 1.0);
+    public double calcAccSimple(double s, double v, double dv, LongitudinalModelModifier modifier) {
+        return acc(s, v, dv, 1.0, 1.0, modifier);
     }
 
     /**
@@ -110,11 +113,14 @@ class KKW extends LongitudinalModelBase {
      *            the alpha t
      * @param alphaV0
      *            the alpha v0
+     * @param modifier
+     *            the per-vehicle part of the model
      * @return the double
      */
-    private double acc(double s, double v, double dv, double alphaT, double alphaV0) {
+    private double acc(double s, double v, double dv, double alphaT, double alphaV0,
+            LongitudinalModelModifier modifier) {
 
-        final int v0Loc = (int) (alphaV0 * getDesiredSpeed() + 0.5); // adapt v0 spatially
+        final int v0Loc = (int) (alphaV0 * getDesiredSpeed(modifier) + 0.5); // adapt v0 spatially
         final int vLoc = (int) (v + 0.5);
 
         final double kLoc = alphaT * param.getK();
@@ -134,7 +140,7 @@ class KKW extends LongitudinalModelBase {
         vtilde = Math.max(0, vtilde);
 
         // stochastic part
-        final double r1 = MyRandom.nextDouble(); // noise terms ~ G(0,1)
+        final double r1 = nextRandomUniform(modifier); // noise terms ~ G(0,1)
         final int xi = (r1 < pb) ? -1 : (r1 < pb + pa) ? 1 : 0;
 
         int vNew = 0;
@@ -25,9 +25,9 @@
  */
 package org.movsim.simulator.vehicles.longitudinalmodel.acceleration;
 
+import org.movsim.simulator.vehicles.NeighbourView;
 import org.movsim.simulator.vehicles.Vehicle;
 import org.movsim.simulator.vehicles.longitudinalmodel.acceleration.parameter.IModelParameterKrauss;
-import org.movsim.utilities.MyRandom;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -71,20 +71,21 @@ class Krauss extends LongitudinalModelBase {
 
 
     @Override
-    public double calcAcc(Vehicle me, Vehicle frontVehicle, double alphaT, double alphaV0, double alphaA) {
+    public double calcAcc(Vehicle me, NeighbourView frontVehicle, LongitudinalModelModifier modifier, double alphaT,
+            double alphaV0, double alphaA) {
         final double s = me.getNetDistance(frontVehicle);
         final double v = me.getSpeed();
         final double dv = me.getRelSpeed(frontVehicle);
 
         final double localT = alphaT * T;
-        final double localV0 = Math.min(alphaV0 * getDesiredSpeed(), me.getSpeedlimit());
+        final double localV0 = Math.min(alphaV0 * getDesiredSpeed(modifier), me.getSpeedlimit());
 
-        return acc(s, v, dv, localT, localV0);
+        return acc(s, v, dv, localT, localV0, modifier);
     }
 
     @Override
-    public double calcAccSimple(double s, double v, double dv) {
-        return acc(s, v, dv, T, getDesiredSpeed());
+    public double calcAccSimple(double s, double v, double dv, LongitudinalModelModifier modifier) {
+        return acc(s, v, dv, T, getDesiredSpeed(modifier), modifier);
     }
 
     /**
@@ -101,10 +102,13 @@ class Krauss extends LongitudinalModelBase {
      *            dt=T=tau_relax making the vSafe formula possibly inconsistent
      * @param v0Local
      *            the v0 local
+     * @param modifier
+     *            the per-vehicle part of the model
      * 
      * @return the double
      */
-    private double acc(double s, double v, double dv, double TLocal, double v0Local) {
+    private double acc(double s, double v, double dv, double TLocal, double v0Local,
+            LongitudinalModelModifier modifier) {
         final double vp = v - dv;
         /**
          * safe speed; complicated formula in PRE 55, 5601 (1997) is essentially the vSafe formula for the simple Gipps
@@ -129,7 +133,7 @@ class Krauss extends LongitudinalModelBase {
          * recognized/treated in the PRE publication
          */
         final double vLower = (1 - param.getEpsilon()) * vUpper + param.getEpsilon() * Math.max(0, (v - b * TLocal));
-        final double r = MyRandom.nextDouble(); // instance of uniform(0,1) distribution
+        final double r = nextRandomUniform(modifier); // instance of uniform(0,1) distribution
         final double vNew = vLower + r * (vUpper - vLower);
         final double aWanted = (vNew - v) / TLocal;
 
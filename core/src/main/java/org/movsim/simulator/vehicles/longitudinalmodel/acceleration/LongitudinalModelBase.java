@@ -27,16 +27,15 @@ package org.movsim.simulator.vehicles.longitudinalmodel.acceleration;
 
 import org.movsim.autogen.DistributionTypeEnum;
 import org.movsim.simulator.roadnetwork.LaneSegment;
+import org.movsim.simulator.vehicles.NeighbourView;
 import org.movsim.simulator.vehicles.Vehicle;
 import org.movsim.simulator.vehicles.longitudinalmodel.acceleration.parameter.IModelParameter;
-import org.movsim.utilities.MyRandom;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import com.google.common.base.Preconditions;
+import org.movsim.utilities.RandomStream;
 
 /**
- * Abstract base class for a general microscopic traffic longitudinal driver model.
+ * Abstract base class for a general microscopic traffic longitudinal driver model. A model instance holds the
+ * parameters and is shared by the vehicles of a prototype (see {@link #isShareable()}), the randomized parameters and
+ * random numbers of a vehicle are held by its {@link LongitudinalModelModifier}.
  */
 public abstract class LongitudinalModelBase {
 
@@ -94,11 +93,11 @@ public abstract class LongitudinalModelBase {
         }
     }
 
-    /** The Constant LOG. */
-    private static final Logger LOG = LoggerFactory.getLogger(LongitudinalModelBase.class);
     protected final ModelName modelName;
     private final double scalingLength;
-    protected double v0RandomizationFactor = 1;
+
+    /** modifier for calculations without a vehicle, e.g. for the equilibrium properties */
+    private final LongitudinalModelModifier prototypeModifier;
 
     // protected long id;
 
@@ -113,6 +112,41 @@ public abstract class LongitudinalModelBase {
     protected LongitudinalModelBase(ModelName modelName) {
         this.modelName = modelName;
         this.scalingLength = ScalingHelper.getScalingLength(modelName);
+        this.prototypeModifier = new LongitudinalModelModifier();
+    }
+
+    /**
+     * Returns true if a single instance of the model can be used by all vehicles of a prototype. This is the case if
+     * the model has no state besides its parameters: the per-vehicle state is kept in the
+     * {@link LongitudinalModelModifier} of the vehicle.
+     * 
+     * @return true, if the model can be shared
+     */
+    public boolean isShareable() {
+        return true;
+    }
+
+    /**
+     * Advances the stochastic state of an unshareable model by one time step. Called once per step before the
+     * acceleration of the vehicle is calculated, so that all calculations of the step (Runge-Kutta stages, lane-changing
+     * decisions) see the same state. Models without such a state do nothing.
+     * 
+     * @param dt
+     *            simulation time interval, seconds
+     */
+    public void updateStochasticState(double dt) {
+    }
+
+    /**
+     * Returns a uniformly distributed random number in [0, 1), for stochastic models drawing one number per
+     * acceleration calculation.
+     * 
+     * @param modifier
+     *            the per-vehicle part of the model
+     * @return the random number
+     */
+    protected static double nextRandomUniform(LongitudinalModelModifier modifier) {
+        return modifier.nextRandomUniform();
     }
 
     /**
@@ -161,16 +195,26 @@ public abstract class LongitudinalModelBase {
     }
 
     /**
-     * Returns the desired speed.
+     * Returns the desired speed of the model parameters, without the randomization of a vehicle.
      * 
      * <br>
-     * Overwrite {@link setRelativeRandomizationV0} if model is not able to handle such randomization. <br>
      * Remark: CCS is the only model without a desired speed, so that this method cannot be final :(
      * 
      * @return the desired speed (m/s)
      */
     public double getDesiredSpeed() {
-        return v0RandomizationFactor * getParameter().getV0();
+        return getParameter().getV0();
+    }
+
+    /**
+     * Returns the desired speed of a vehicle.
+     * 
+     * @param modifier
+     *            the per-vehicle part of the model
+     * @return the desired speed (m/s)
+     */
+    public final double getDesiredSpeed(LongitudinalModelModifier modifier) {
+        return modifier.v0RandomizationFactor() * getDesiredSpeed();
     }
 
     /**
@@ -188,23 +232,22 @@ public abstract class LongitudinalModelBase {
     protected abstract IModelParameter getParameter();
 
     /**
-     * Sets the relative randomization v0.
+     * Sets the relative randomization v0 of a vehicle.
      * 
      * <br>
      * Needs to be overwritten if not applicable to model.
      * 
+     * @param modifier
+     *            the per-vehicle part of the model
      * @param relRandomizationFactor
      *            the new relative randomization v0
+     * @param distributionType
+     * @param parameterRandom
+     *            the random number stream for the parameters of the vehicle
      */
-    public void setRelativeRandomizationV0(double relRandomizationFactor, DistributionTypeEnum distributionType) {
-        if (distributionType == DistributionTypeEnum.GAUSSIAN) {
-            v0RandomizationFactor = MyRandom.getGaussiansDistributedRandomizedFactor(relRandomizationFactor, 3);
-        }else {
-            v0RandomizationFactor = MyRandom.getUniformlyDistributedRandomizedFactor(relRandomizationFactor);
-        }
-        Preconditions.checkArgument(v0RandomizationFactor > 0, "relative v0 randomization factor must be > 0");
-        LOG.debug("randomization (of type={}) of desired speeds with randomization factor=", distributionType,
-                v0RandomizationFactor);
+    public void setRelativeRandomizationV0(LongitudinalModelModifier modifier, double relRandomizationFactor,
+            DistributionTypeEnum distributionType, RandomStream parameterRandom) {
+        modifier.randomizeV0(relRandomizationFactor, distributionType, parameterRandom);
     }
 
     final static double calcSmoothFraction(double speedMe, double speedFront) {
@@ -241,7 +284,7 @@ public abstract class LongitudinalModelBase {
         }
 
         // check left-vehicle's speed
-        final Vehicle newFrontLeft = leftLaneSegment.frontVehicle(me);
+        final NeighbourView newFrontLeft = leftLaneSegment.frontNeighbour(me);
         if (newFrontLeft == null) {
             return accInOwnLane;
         }
@@ -280,7 +323,7 @@ public abstract class LongitudinalModelBase {
     public double calcAcc(Vehicle me, LaneSegment laneSegment, double alphaT, double alphaV0, double alphaA) {
         // By default only consider the vehicle in front when calculating acceleration.
         // LDMs that consider more than the front vehicle should override this method.
-        final Vehicle frontVehicle = laneSegment.frontVehicle(me);
+        final NeighbourView frontVehicle = laneSegment.frontNeighbour(me);
         return calcAcc(me, frontVehicle, alphaT, alphaV0, alphaA);
     }
 
@@ -294,7 +337,24 @@ public abstract class LongitudinalModelBase {
      * @param alphaA
      * @return the calculated acceleration
      */
-    public abstract double calcAcc(Vehicle me, Vehicle frontVehicle, double alphaT, double alphaV0, double alphaA);
+    public final double calcAcc(Vehicle me, NeighbourView frontVehicle, double alphaT, double alphaV0, double alphaA) {
+        return calcAcc(me, frontVehicle, me.getLongitudinalModelModifier(), alphaT, alphaV0, alphaA);
+    }
+
+    /**
+     * Calculates the acceleration of vehicle me from the shared model and the per-vehicle modifier.
+     * 
+     * @param me
+     * @param frontVehicle
+     * @param modifier
+     *            the per-vehicle part of the model
+     * @param alphaT
+     * @param alphaV0
+     * @param alphaA
+     * @return the calculated acceleration
+     */
+    public abstract double calcAcc(Vehicle me, NeighbourView frontVehicle, LongitudinalModelModifier modifier,
+            double alphaT, double alphaV0, double alphaA);
 
     /**
      * Calculates the acceleration of vehicle me.
@@ -303,12 +363,35 @@ public abstract class LongitudinalModelBase {
      * @param frontVehicle
      * @return the calculated acceleration
      */
-    public double calcAcc(Vehicle me, Vehicle frontVehicle) {
+    public double calcAcc(Vehicle me, NeighbourView frontVehicle) {
         return calcAcc(me, frontVehicle, 1.0, 1.0, 1.0);
     }
 
     /**
-     * Calculates the vehicular acceleration.
+     * Returns true if the model provides the batch kernel {@link #calcAccBatch(AccelerationBatch)}.
+     * 
+     * @return true, if the model has a batch kernel
+     */
+    public boolean hasBatchKernel() {
+        return false;
+    }
+
+    /**
+     * Calculates the accelerations of a batch of vehicles which all use this model. For each vehicle the result is
+     * bit-identical to {@link #calcAcc(Vehicle, Vehicle, LongitudinalModelModifier, double, double, double)} with the
+     * same input. The parameters are read once per batch.
+     * 
+     * @param batch
+     *            the input of the vehicles, the accelerations are written to the batch
+     * @throws UnsupportedOperationException
+     *             if the model has no batch kernel
+     */
+    public void calcAccBatch(AccelerationBatch batch) {
+        throw new UnsupportedOperationException("no batch kernel for model " + modelName);
+    }
+
+    /**
+     * Calculates the vehicular acceleration of the model without randomization.
      * 
      * @param s
      *            the s
@@ -318,6 +401,22 @@ public abstract class LongitudinalModelBase {
      *            the dv
      * @return the calculated acceleration
      */
-    public abstract double calcAccSimple(double s, double v, double dv);
+    public final double calcAccSimple(double s, double v, double dv) {
+        return calcAccSimple(s, v, dv, prototypeModifier);
+    }
 
+    /**
+     * Calculates the vehicular acceleration.
+     * 
+     * @param s
+     *            the s
+     * @param v
+     *            the v
+     * @param dv
+     *            the dv
+     * @param modifier
+     *            the per-vehicle part of the model
+     * @return the calculated acceleration
+     */
+    public abstract double calcAccSimple(double s, double v, double dv, LongitudinalModelModifier modifier);
 }
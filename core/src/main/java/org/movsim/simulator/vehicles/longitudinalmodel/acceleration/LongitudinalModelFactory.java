@@ -65,7 +65,7 @@ public class LongitudinalModelFactory {
         } else if (longitudinalModelType.isSetModelParameterCCS()) {
             longModel = new CCS(longitudinalModelType.getModelParameterCCS(), vehLength);
         } else if (longitudinalModelType.isSetModelParameterPTM()) {
-            longModel = new PTM(simulationTimestep, longitudinalModelType.getModelParameterPTM());
+            longModel = new PTM(longitudinalModelType.getModelParameterPTM());
         } else {
             throw new IllegalArgumentException("unknown acceleration model=" + longitudinalModelType.toString());
         }
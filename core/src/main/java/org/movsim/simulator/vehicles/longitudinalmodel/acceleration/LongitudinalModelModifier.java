@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2010, 2011, 2012 by Arne Kesting, Martin Treiber, Ralph Germ, Martin Budden
+ *                                   <movsim.org@gmail.com>
+ * -----------------------------------------------------------------------------------------
+ * 
+ * This file is part of
+ * 
+ * MovSim - the multi-model open-source vehicular-traffic simulator.
+ * 
+ * MovSim is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * MovSim is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MovSim. If not, see <http://www.gnu.org/licenses/>
+ * or <http://www.movsim.org>.
+ * 
+ * -----------------------------------------------------------------------------------------
+ */
+package org.movsim.simulator.vehicles.longitudinalmodel.acceleration;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.movsim.autogen.DistributionTypeEnum;
+import org.movsim.simulator.SimulationContext;
+import org.movsim.simulator.SimulationContext.RandomPurpose;
+import org.movsim.utilities.RandomStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Per-vehicle part of a longitudinal model: the randomization factor of the desired speed and the random number
+ * stream of stochastic models. The {@link LongitudinalModelBase} itself only holds the parameters and is shared by all
+ * vehicles of a prototype, the acceleration is calculated from both parts.
+ * 
+ * <p>
+ * The spatial alpha factors and the factors of the driver's {@link org.movsim.simulator.vehicles.longitudinalmodel.Memory
+ * Memory} change in every time step and are passed to the acceleration calculation as arguments.
+ * </p>
+ */
+public final class LongitudinalModelModifier {
+
+    /** The Constant LOG. */
+    private static final Logger LOG = LoggerFactory.getLogger(LongitudinalModelModifier.class);
+
+    private double v0RandomizationFactor = 1;
+
+    /** context and stream of the random numbers of stochastic models, see {@link #setRandomStream} */
+    private SimulationContext context;
+    private RandomStream randomStream;
+
+    /**
+     * Constructor. The random numbers are drawn in sequence from an anonymous stream until a vehicle stream is set.
+     */
+    public LongitudinalModelModifier() {
+        this.randomStream = SimulationContext.current().newRandomStream(RandomPurpose.ACCELERATION);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param context
+     *            the context providing the time step
+     * @param randomStream
+     *            the random number stream of the vehicle
+     */
+    public LongitudinalModelModifier(SimulationContext context, RandomStream randomStream) {
+        setRandomStream(context, randomStream);
+    }
+
+    /**
+     * Sets the random number stream of the vehicle. The random numbers are then keyed by the time step of the context:
+     * all evaluations of the acceleration in one time step, also by the lane-changing decisions of other vehicles, see
+     * the same random numbers, whatever thread performs them. Without a vehicle stream the numbers are drawn in
+     * sequence, e.g. for the equilibrium properties.
+     * 
+     * @param context
+     *            the context providing the time step
+     * @param randomStream
+     *            the random number stream of the vehicle
+     */
+    public void setRandomStream(SimulationContext context, RandomStream randomStream) {
+        this.context = Preconditions.checkNotNull(context);
+        this.randomStream = Preconditions.checkNotNull(randomStream);
+    }
+
+    /**
+     * Returns a uniformly distributed random number in [0, 1), for stochastic models drawing one number per
+     * acceleration calculation.
+     * 
+     * @return the random number
+     */
+    double nextRandomUniform() {
+        return context == null ? randomStream.nextUniform() : randomStream.uniform(context.iterationCount());
+    }
+
+    /**
+     * Returns the randomization factor of the desired speed, 1 without randomization.
+     * 
+     * @return the randomization factor of the desired speed
+     */
+    public double v0RandomizationFactor() {
+        return v0RandomizationFactor;
+    }
+
+    /**
+     * Draws the randomization factor of the desired speed.
+     * 
+     * @param relRandomizationFactor
+     *            the relative randomization
+     * @param distributionType
+     * @param parameterRandom
+     *            the random number stream for the parameters of the vehicle
+     */
+    void randomizeV0(double relRandomizationFactor, DistributionTypeEnum distributionType,
+            RandomStream parameterRandom) {
+        if (distributionType == DistributionTypeEnum.GAUSSIAN) {
+            v0RandomizationFactor = parameterRandom.nextGaussiansDistributedRandomizedFactor(relRandomizationFactor, 3);
+        } else {
+            v0RandomizationFactor = parameterRandom.nextUniformlyDistributedRandomizedFactor(relRandomizationFactor);
+        }
+        Preconditions.checkArgument(v0RandomizationFactor > 0, "relative v0 randomization factor must be > 0");
+        LOG.debug("randomization (of type={}) of desired speeds with randomization factor=", distributionType,
+                v0RandomizationFactor);
+    }
+
+    /**
+     * Writes the randomized parameters and the position of the random number stream.
+     * 
+     * @param out
+     * @throws IOException
+     */
+    public void writeState(DataOutput out) throws IOException {
+        out.writeDouble(v0RandomizationFactor);
+        out.writeLong(randomStream.position());
+    }
+
+    /**
+     * Reads the state written by {@link #writeState(DataOutput)}.
+     * 
+     * @param in
+     * @throws IOException
+     */
+    public void readState(DataInput in) throws IOException {
+        v0RandomizationFactor = in.readDouble();
+        randomStream.setPosition(in.readLong());
+    }
+}
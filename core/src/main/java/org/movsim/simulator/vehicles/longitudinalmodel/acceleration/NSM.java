@@ -26,9 +26,10 @@
 package org.movsim.simulator.vehicles.longitudinalmodel.acceleration;
 
 import org.movsim.autogen.DistributionTypeEnum;
+import org.movsim.simulator.vehicles.NeighbourView;
 import org.movsim.simulator.vehicles.Vehicle;
 import org.movsim.simulator.vehicles.longitudinalmodel.acceleration.parameter.IModelParameterNSM;
-import org.movsim.utilities.MyRandom;
+import org.movsim.utilities.RandomStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -59,7 +60,8 @@ class NSM extends LongitudinalModelBase {
     }
 
     @Override
-    public void setRelativeRandomizationV0(double relRandomizationFactor, DistributionTypeEnum distributionType) {
+    public void setRelativeRandomizationV0(LongitudinalModelModifier modifier, double relRandomizationFactor,
+            DistributionTypeEnum distributionType, RandomStream parameterRandom) {
         // no modification of desired speed by randomization.
     }
 
@@ -69,29 +71,30 @@ class NSM extends LongitudinalModelBase {
     }
 
     @Override
-    public double calcAcc(Vehicle me, Vehicle frontVehicle, double alphaT, double alphaV0, double alphaA) {
+    public double calcAcc(Vehicle me, NeighbourView frontVehicle, LongitudinalModelModifier modifier, double alphaT,
+            double alphaV0, double alphaA) {
         // local dynamical variables
         final double s = me.getNetDistance(frontVehicle);
         final double v = me.getSpeed();
         final double dv = me.getRelSpeed(frontVehicle);
 
         // consider external speedlimit
-        final double localV0 = Math.min(alphaV0 * getDesiredSpeed(), me.getSpeedlimit()
+        final double localV0 = Math.min(alphaV0 * getDesiredSpeed(modifier), me.getSpeedlimit()
                 / me.physicalQuantities().getvScale());
         if (logger.isDebugEnabled()) {
-            if (localV0 < getDesiredSpeed()) {
+            if (localV0 < getDesiredSpeed(modifier)) {
                 logger.debug(String.format("CA v0=%.2f, localV0=%.2f, external speedlimit=%.2f, v-scaling=%.2f\n",
-                        getDesiredSpeed(),
+                        getDesiredSpeed(modifier),
                         localV0, me.getSpeedlimit(), me.physicalQuantities().getvScale()));
             }
         }
 
-        return acc(s, v, dv, localV0);
+        return acc(s, v, dv, localV0, modifier);
     }
 
     @Override
-    public double calcAccSimple(double s, double v, double dv) {
-        return acc(s, v, dv, getDesiredSpeed());
+    public double calcAccSimple(double s, double v, double dv, LongitudinalModelModifier modifier) {
+        return acc(s, v, dv, getDesiredSpeed(modifier), modifier);
     }
 
     /**
@@ -109,12 +112,12 @@ class NSM extends LongitudinalModelBase {
      *            the local v0
      * @return the double
      */
-    private double acc(double s, double v, double dv, double localV0) {
+    private double acc(double s, double v, double dv, double localV0, LongitudinalModelModifier modifier) {
         final int localIntegerV0 = (int) (localV0 + 0.5);
         final int vLocal = (int) (v + 0.5);
         int vNew = 0;
 
-        final double r1 = MyRandom.nextDouble();
+        final double r1 = nextRandomUniform(modifier);
         final double pb = (vLocal < 1) ? param.getPSlowStart() : param.getPSlowdown();
         final int slowdown = (r1 < pb) ? 1 : 0;
 
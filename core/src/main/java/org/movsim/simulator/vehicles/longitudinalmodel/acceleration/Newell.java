@@ -19,6 +19,7 @@
  */
 package org.movsim.simulator.vehicles.longitudinalmodel.acceleration;
 
+import org.movsim.simulator.vehicles.NeighbourView;
 import org.movsim.simulator.vehicles.Vehicle;
 import org.movsim.simulator.vehicles.longitudinalmodel.acceleration.parameter.IModelParameterNewell;
 import org.slf4j.Logger;
@@ -50,7 +51,8 @@ class Newell extends LongitudinalModelBase {
     }
 
     @Override
-    public double calcAcc(Vehicle me, Vehicle frontVehicle, double alphaT, double alphaV0, double alphaA) {
+    public double calcAcc(Vehicle me, NeighbourView frontVehicle, LongitudinalModelModifier modifier, double alphaT,
+            double alphaV0, double alphaA) {
 
         // Local dynamical variables
         final double s = me.getNetDistance(frontVehicle);
@@ -60,15 +62,15 @@ class Newell extends LongitudinalModelBase {
         // TODO check modeling of parameter dt=T (dt is the constant update time and cannot be changed)
         final double dtLocal = alphaT * dt;
         // consider external speedlimit
-        final double v0Local = Math.min(alphaV0 * getDesiredSpeed(), me.getSpeedlimit());
+        final double v0Local = Math.min(alphaV0 * getDesiredSpeed(modifier), me.getSpeedlimit());
 
         // actual Newell formula
         return acc(s, v, dv, dtLocal, v0Local);
     }
 
     @Override
-    public double calcAccSimple(double s, double v, double dv) {
-        return acc(s, v, dv, dt, getDesiredSpeed());
+    public double calcAccSimple(double s, double v, double dv, LongitudinalModelModifier modifier) {
+        return acc(s, v, dv, dt, getDesiredSpeed(modifier));
     }
 
     /**
@@ -27,6 +27,7 @@ package org.movsim.simulator.vehicles.longitudinalmodel.acceleration;
 
 import org.movsim.autogen.OptimalVelocityFunctionEnum;
 import org.movsim.simulator.MovsimConstants;
+import org.movsim.simulator.vehicles.NeighbourView;
 import org.movsim.simulator.vehicles.Vehicle;
 import org.movsim.simulator.vehicles.longitudinalmodel.acceleration.parameter.IModelParameterOVMFVDM;
 import org.slf4j.Logger;
@@ -67,7 +68,8 @@ class OVM_FVDM extends LongitudinalModelBase {
     }
 
     @Override
-    public double calcAcc(Vehicle me, Vehicle frontVehicle, double alphaT, double alphaV0, double alphaA) {
+    public double calcAcc(Vehicle me, NeighbourView frontVehicle, LongitudinalModelModifier modifier, double alphaT,
+            double alphaV0, double alphaA) {
 
         // Local dynamic variables
         final double s = me.getNetDistance(frontVehicle);
@@ -75,15 +77,15 @@ class OVM_FVDM extends LongitudinalModelBase {
         final double dv = me.getRelSpeed(frontVehicle); // only needed for VDIFF
 
         // speed limit: OVM causes accidents due to immediate braking reaction
-        final double v0Local = Math.min(alphaV0 * getDesiredSpeed(), me.getSpeedlimit());
+        final double v0Local = Math.min(alphaV0 * getDesiredSpeed(modifier), me.getSpeedlimit());
         // System.out.println("Test: accSimple(...)="+accSimple(700.,3.6664,3.6664));System.exit(1);
         return acc(s, v, dv, alphaT, v0Local);
     }
 
     @Override
-    public double calcAccSimple(double s, double v, double dv) {
+    public double calcAccSimple(double s, double v, double dv, LongitudinalModelModifier modifier) {
         final double alphaT = 1;
-        return acc(s, v, dv, alphaT, getDesiredSpeed());
+        return acc(s, v, dv, alphaT, getDesiredSpeed(modifier));
     }
 
     /**
@@ -102,18 +104,23 @@ class OVM_FVDM extends LongitudinalModelBase {
      * @return the double
      */
     private double acc(double s, double v, double dv, double alphaT, double v0Local) {
+        return acc(s, v, dv, alphaT, v0Local, getMinimumGap(), param.getTransitionWidth(), param.getBeta(),
+                param.getTau(), param.getGamma(), param.getOptimalSpeedFunction());
+    }
 
-        final double transitionWidthLoc = Math.max(1e-6, param.getTransitionWidth() * alphaT);
+    /**
+     * OVM/FVDM acceleration with the parameters given as arguments, shared by the scalar and the batch calculation.
+     */
+    private static double acc(double s, double v, double dv, double alphaT, double v0Local, double s0,
+            double transitionWidth, double beta, double tau, double gamma, OptimalVelocityFunctionEnum variant) {
+
+        final double transitionWidthLoc = Math.max(1e-6, transitionWidth * alphaT);
 
         // final double betaLoc=beta*alpha_T;
-        final double betaLoc = param.getBeta();
+        final double betaLoc = beta;
 
         double vOptimal = 0;// optimal velocity
 
-        final double s0 = getMinimumGap();
-
-        OptimalVelocityFunctionEnum variant = param.getOptimalSpeedFunction();
-
         if (variant == OptimalVelocityFunctionEnum.BANDO) {
             // standard OVM function (Bando model)
             // scale OVM/VDIFF so that v0 represents actual desired speed
@@ -122,7 +129,7 @@ class OVM_FVDM extends LongitudinalModelBase {
             // LOG.debug("s = {}, vOpt = {}", s, vOpt);
         } else if (variant == OptimalVelocityFunctionEnum.TRIANGULAR) {
             // triangular OVM function
-            final double T = param.getBeta(); // interpret this as "time headway"
+            final double T = beta; // interpret this as "time headway"
             vOptimal = Math.max(Math.min((s - s0) / T, v0Local), 0.0);
         } else if (variant == OptimalVelocityFunctionEnum.THREEPHASE) {
             // "Three-phase" OVM function
@@ -133,14 +140,12 @@ class OVM_FVDM extends LongitudinalModelBase {
             vOptimal = (Tdyn > Tmax) ? Math.min((s - s0) / Tmax, v0Local) : (Tdyn > Tmin) ? Math.min(v, v0Local)
                     : (Tdyn > 0) ? Math.min((s - s0) / Tmin, v0Local) : 0;
         } else {
-            logger.error("cannot map to optimal velocity variant = {}", param.getOptimalSpeedFunction());
+            logger.error("cannot map to optimal velocity variant = {}", variant);
             // System.exit(-1); // TODO throw exception
         }
 
         // calc acceleration
         double aWanted = 0; // return value
-        final double tau = param.getTau();
-        final double gamma = param.getGamma();
         if (variant == OptimalVelocityFunctionEnum.BANDO) {
             // original VDIFF model, OVM: lambda == 0
             aWanted = (vOptimal - v) / tau - gamma * dv;
@@ -159,6 +164,34 @@ class OVM_FVDM extends LongitudinalModelBase {
         return aWanted;
     }
 
+    @Override
+    public boolean hasBatchKernel() {
+        return true;
+    }
+
+    @Override
+    public void calcAccBatch(AccelerationBatch batch) {
+        final double s0 = getMinimumGap();
+        final double transitionWidth = param.getTransitionWidth();
+        final double beta = param.getBeta();
+        final double tau = param.getTau();
+        final double gamma = param.getGamma();
+        final OptimalVelocityFunctionEnum variant = param.getOptimalSpeedFunction();
+        final double[] gap = batch.gap;
+        final double[] speed = batch.speed;
+        final double[] relSpeed = batch.relSpeed;
+        final double[] desiredSpeed = batch.desiredSpeed;
+        final double[] speedlimit = batch.speedlimit;
+        final double[] alphaT = batch.alphaT;
+        final double[] alphaV0 = batch.alphaV0;
+        final double[] acc = batch.acc;
+        for (int i = 0, n = batch.size; i < n; ++i) {
+            final double v0Local = Math.min(alphaV0[i] * desiredSpeed[i], speedlimit[i]);
+            acc[i] = acc(gap[i], speed[i], relSpeed[i], alphaT[i], v0Local, s0, transitionWidth, beta, tau, gamma,
+                    variant);
+        }
+    }
+
     @Override
     protected IModelParameterOVMFVDM getParameter() {
         return param;
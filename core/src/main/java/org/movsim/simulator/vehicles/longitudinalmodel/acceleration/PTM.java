@@ -2,6 +2,7 @@ package org.movsim.simulator.vehicles.longitudinalmodel.acceleration;
 
 import org.movsim.autogen.NoiseParameter;
 import org.movsim.simulator.vehicles.Noise;
+import org.movsim.simulator.vehicles.NeighbourView;
 import org.movsim.simulator.vehicles.Vehicle;
 import org.movsim.simulator.vehicles.longitudinalmodel.acceleration.parameter.IModelParameter;
 import org.movsim.simulator.vehicles.longitudinalmodel.acceleration.parameter.IModelParameterPTM;
@@ -21,8 +22,6 @@ class PTM extends LongitudinalModelBase {
     private double delta; // 0.5*(1-gamma)
     private double dw; // 1-wm
 
-    private double dt;
-
     private Noise wienerProcess;
 
     final int NTABMAX = 100;
@@ -42,10 +41,9 @@ class PTM extends LongitudinalModelBase {
     // double dvref=0;
     // double delta_dv=(dvmax-dvmin)/(n-1);
 
-    PTM(double simulationTimestep, IModelParameterPTM parameters) {
+    PTM(IModelParameterPTM parameters) {
         super(ModelName.PTM);
         this.param = parameters;
-        this.dt = simulationTimestep;
         init();
         initNoise();
         initTables();
@@ -63,6 +61,14 @@ class PTM extends LongitudinalModelBase {
         dw = 1 - param.getWeightMinus();
     }
 
+    /**
+     * The Wiener process of the acceleration error is a state of the vehicle, so the model cannot be shared.
+     */
+    @Override
+    public boolean isShareable() {
+        return false;
+    }
+
     @Override
     protected IModelParameter getParameter() {
         return param;
@@ -83,8 +89,17 @@ class PTM extends LongitudinalModelBase {
                 * Math.pow(a / param.getA0(), -2 * delta - 1);
     }
 
+    /**
+     * Advances the Wiener process of the acceleration error, which is the same for all calculations within the step.
+     */
+    @Override
+    public void updateStochasticState(double dt) {
+        wienerProcess.update(dt);
+    }
+
     @Override
-    public double calcAcc(Vehicle me, Vehicle frontVehicle, double alphaT, double alphaV0, double alphaA) {
+    public double calcAcc(Vehicle me, NeighbourView frontVehicle, LongitudinalModelModifier modifier, double alphaT,
+            double alphaV0, double alphaA) {
         // Local dynamical variables
         final double s = me.getNetDistance(frontVehicle);
         final double v = me.getSpeed();
@@ -96,15 +111,12 @@ class PTM extends LongitudinalModelBase {
         // consider external speedlimit
         final double localV0;
         if (me.getSpeedlimit() != 0.0) {
-            localV0 = Math.min(alphaV0 * getDesiredSpeed(), me.getSpeedlimit());
+            localV0 = Math.min(alphaV0 * getDesiredSpeed(modifier), me.getSpeedlimit());
         } else {
-            localV0 = alphaV0 * getDesiredSpeed();
+            localV0 = alphaV0 * getDesiredSpeed(modifier);
         }
         // final double localA = alphaA * param.getA();
 
-        // update dynamical variables in class scope
-        wienerProcess.update(dt);
-
         return acc(s, v, dv, alphaT, localV0, 1);
     }
 
@@ -117,7 +129,7 @@ class PTM extends LongitudinalModelBase {
      * alpha_v0, alpha_T = multiplicators of v0 and T (flowc bottl)
      */
     @Override
-    public double calcAccSimple(double s, double v, double dv) {
+    public double calcAccSimple(double s, double v, double dv, LongitudinalModelModifier modifier) {
         return acc(s, v, dv, 1, param.getV0(), 1);
     }
 
@@ -204,7 +216,7 @@ class PTM extends LongitudinalModelBase {
         }
 
         // Implementing correlations with unit Wiener process
-        // Wiener variable updated in next higher-level function PTmodel::acc
+        // Wiener variable updated once per time step in updateStochasticState
 
         double aPT = astar + stddeva * wienerProcess.getAccError();
         double aVeryNear = -0. / Math.sqrt(sloc); // -0.2/sqrt(sloc); quick hack to introduce s0 effect !!!
@@ -231,6 +243,8 @@ class PTM extends LongitudinalModelBase {
 
     private void initTables() {
         // in File Constructor: Initialize Tables of d(U_PT)/da and d^2(U_PT)/da^2
+        uPTatab = new double[NTABMAX];
+        uPTaatab = new double[NTABMAX];
         for (int i = 0; i < NTABMAX; i++) {
             double a = param.getBMax() * (-1 + 2 * i / ((double) (NTABMAX - 1)));
             double x = a / param.getA0();
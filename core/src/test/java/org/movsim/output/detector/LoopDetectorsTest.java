@@ -0,0 +1,238 @@
+/*
+ * Copyright (C) 2010, 2011, 2012 by Arne Kesting, Martin Treiber, Ralph Germ, Martin Budden
+ *                                   <movsim.org@gmail.com>
+ * -----------------------------------------------------------------------------------------
+ * 
+ * This file is part of
+ * 
+ * MovSim - the multi-model open-source vehicular-traffic simulator.
+ * 
+ * MovSim is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * MovSim is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MovSim. If not, see <http://www.gnu.org/licenses/>
+ * or <http://www.movsim.org>.
+ * 
+ * -----------------------------------------------------------------------------------------
+ */
+package org.movsim.output.detector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.movsim.autogen.CrossSection;
+import org.movsim.autogen.Detectors;
+import org.movsim.input.ProjectMetaData;
+import org.movsim.output.fileoutput.OutputCompression;
+import org.movsim.simulator.SimulationContext;
+import org.movsim.simulator.Simulator;
+import org.movsim.simulator.roadnetwork.LaneSegment;
+import org.movsim.simulator.roadnetwork.Lanes;
+import org.movsim.simulator.roadnetwork.Link;
+import org.movsim.simulator.roadnetwork.RoadNetwork;
+import org.movsim.simulator.roadnetwork.RoadSegment;
+import org.movsim.simulator.vehicles.Vehicle;
+
+/**
+ * Tests that the position triggers of {@link LoopDetectors} count the same vehicles with the same data as the brute
+ * force search, in which each detector checks every vehicle of the road segment.
+ */
+public class LoopDetectorsTest {
+
+    private static final double DT_SAMPLE = 60.0;
+
+    @Rule
+    public TemporaryFolder outputFolder = new TemporaryFolder();
+
+    private static Detectors detectorInput(double... positions) {
+        final Detectors detectors = new Detectors();
+        detectors.setSampleInterval(DT_SAMPLE);
+        detectors.setLogging(false);
+        for (final double position : positions) {
+            final CrossSection crossSection = new CrossSection();
+            crossSection.setPosition(position);
+            detectors.getCrossSection().add(crossSection);
+        }
+        return detectors;
+    }
+
+    /**
+     * Creates a detector for each detector of the given loop detectors, which is fed by {@link #bruteForce}.
+     */
+    private static List<LoopDetector> referenceDetectors(RoadSegment roadSegment, LoopDetectors loopDetectors) {
+        final List<LoopDetector> references = new ArrayList<>();
+        for (final LoopDetector detector : loopDetectors.getDetectors()) {
+            references.add(new LoopDetector(roadSegment, detector.getDetPosition(), detector.getDtSample(), false,
+                    false, OutputCompression.NONE));
+        }
+        return references;
+    }
+
+    /**
+     * The brute force search which the position triggers replace: every detector iterates over all lanes and vehicles.
+     */
+    private static void bruteForce(RoadSegment roadSegment, List<LoopDetector> references, double dt,
+            double simulationTime, long iterationCount) {
+        for (final LoopDetector detector : references) {
+            final double detPosition = detector.getDetPosition();
+            for (final LaneSegment laneSegment : roadSegment.laneSegments()) {
+                for (final Vehicle vehicle : laneSegment) {
+                    if ((vehicle.getFrontPositionOld() < detPosition) && (vehicle.getFrontPosition() >= detPosition)) {
+                        detector.countVehicle(laneSegment, vehicle);
+                    }
+                }
+            }
+            detector.timeStep(dt, simulationTime, iterationCount);
+        }
+    }
+
+    private static byte[] state(List<LoopDetector> detectors) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(detectors.size());
+        for (final LoopDetector detector : detectors) {
+            detector.writeState(out);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static byte[] state(LoopDetectors loopDetectors) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        loopDetectors.writeState(out);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static void assertSameCounts(LoopDetectors loopDetectors, List<LoopDetector> references, int laneCount) {
+        for (int i = 0; i < references.size(); i++) {
+            final LoopDetector detector = loopDetectors.getDetectors().get(i);
+            for (int laneIndex = 0; laneIndex < laneCount; laneIndex++) {
+                assertEquals("detector at " + detector.getDetPosition() + ", lane index " + laneIndex, references
+                        .get(i).getVehCumulatedCountOutput(laneIndex), detector.getVehCumulatedCountOutput(laneIndex));
+            }
+        }
+    }
+
+    @Test
+    public void testCrossingCases() throws IOException {
+        RoadSegment.resetNextId();
+        Vehicle.resetNextId();
+        final RoadSegment r0 = new RoadSegment(700.0, 2);
+        final RoadSegment r1 = new RoadSegment(1000.0, 2);
+        Link.addJoin(r0, r1);
+        final LoopDetectors loopDetectors = new LoopDetectors(r1, detectorInput(300.0, 100.0, 110.0, 2.0, 5.0,
+                500.0));
+        final List<LoopDetector> references = referenceDetectors(r1, loopDetectors);
+
+        // crosses the detectors at 100 and 110 in one step
+        final Vehicle fast = new Vehicle(90.0, 20.0, Lanes.LANE1, 5.0, 2.5);
+        r1.addVehicle(fast);
+        // reaches the detector at 300 exactly at its front position
+        final Vehicle exact = new Vehicle(290.0, 5.0, Lanes.LANE2, 5.0, 2.5);
+        r1.addVehicle(exact);
+        // stands in front of the detector at 500
+        final Vehicle stopped = new Vehicle(490.0, 0.0, Lanes.LANE2, 5.0, 2.5);
+        r1.addVehicle(stopped);
+        // enters the road segment over the join in this step
+        final Vehicle entering = new Vehicle(690.0, 10.0, Lanes.LANE1, 5.0, 2.5);
+        r0.addVehicle(entering);
+
+        r0.updateVehiclePositionsAndSpeeds(1.0, Vehicle.IntegrationType.KINEMATIC);
+        r1.updateVehiclePositionsAndSpeeds(1.0, Vehicle.IntegrationType.KINEMATIC);
+        r0.outFlow(1.0, 1.0, 1);
+        assertEquals(2, r1.laneSegment(Lanes.LANE1).vehicleCount());
+        assertEquals(300.0, exact.getFrontPosition(), 0.0);
+        assertTrue(entering.getFrontPosition() < entering.getFrontPositionOld());
+
+        loopDetectors.timeStep(1.0, 1.0, 1);
+        bruteForce(r1, references, 1.0, 1.0, 1);
+        assertTrue(Arrays.equals(state(references), state(loopDetectors)));
+        assertSameCounts(loopDetectors, references, r1.laneCount());
+
+        final Map<Double, LoopDetector> byPosition = new HashMap<>();
+        for (final LoopDetector detector : loopDetectors.getDetectors()) {
+            byPosition.put(Double.valueOf(detector.getDetPosition()), detector);
+        }
+        final int lane1 = Lanes.LANE1 - 1;
+        final int lane2 = Lanes.LANE2 - 1;
+        assertEquals(1, byPosition.get(Double.valueOf(100.0)).getVehCumulatedCountOutput(lane1));
+        assertEquals(1, byPosition.get(Double.valueOf(110.0)).getVehCumulatedCountOutput(lane1));
+        assertEquals(1, byPosition.get(Double.valueOf(300.0)).getVehCumulatedCountOutput(lane2));
+        assertEquals(0, byPosition.get(Double.valueOf(500.0)).getVehCumulatedCountOutputAllLanes());
+        // the entering vehicle is not counted, its old position is still on the upstream road segment
+        assertEquals(0, byPosition.get(Double.valueOf(2.0)).getVehCumulatedCountOutputAllLanes());
+        assertEquals(0, byPosition.get(Double.valueOf(5.0)).getVehCumulatedCountOutputAllLanes());
+
+        // a vehicle added by a traffic source has not moved yet, its old position is the start of the road segment
+        final Vehicle inserted = new Vehicle(0.0, 10.0, Lanes.LANE2, 5.0, 2.5);
+        r1.addVehicle(inserted);
+        loopDetectors.timeStep(1.0, 2.0, 2);
+        bruteForce(r1, references, 1.0, 2.0, 2);
+        assertTrue(Arrays.equals(state(references), state(loopDetectors)));
+        assertEquals(1, byPosition.get(Double.valueOf(2.0)).getVehCumulatedCountOutput(lane2));
+        assertEquals(1, byPosition.get(Double.valueOf(5.0)).getVehCumulatedCountOutput(lane2));
+    }
+
+    @Test
+    public void testOnrampScenario() throws Exception {
+        final ProjectMetaData projectMetaData = ProjectMetaData.newInstance();
+        projectMetaData.setOutputPath(outputFolder.getRoot().getAbsolutePath());
+        final Simulator simulator = new Simulator(new SimulationContext(projectMetaData));
+        simulator.loadScenarioFromXml("onramp_IDM", new File(".." + File.separator + "sim" + File.separator
+                + "bookScenarioSimpleOnramp").getAbsolutePath() + File.separator);
+        final RoadNetwork roadNetwork = simulator.getRoadNetwork();
+        final Map<RoadSegment, List<LoopDetector>> references = new IdentityHashMap<>();
+        for (final RoadSegment roadSegment : roadNetwork) {
+            if (roadSegment.getLoopDetectors() != null) {
+                references.put(roadSegment, referenceDetectors(roadSegment, roadSegment.getLoopDetectors()));
+            }
+        }
+        assertTrue(references.size() >= 2);
+
+        final double dt = simulator.getSimulationRunnable().timeStep();
+        long count = 0;
+        for (int iteration = 0; iteration < 2000; ++iteration) {
+            final double simulationTime = iteration * dt;
+            simulator.timeStep(dt, simulationTime, iteration);
+            // the detectors are updated last, so the lanes are the same as in the detector phase
+            for (final Map.Entry<RoadSegment, List<LoopDetector>> entry : references.entrySet()) {
+                final RoadSegment roadSegment = entry.getKey();
+                bruteForce(roadSegment, entry.getValue(), dt, simulationTime, iteration);
+                assertTrue(roadSegment.userId() + " at iteration " + iteration,
+                        Arrays.equals(state(entry.getValue()), state(roadSegment.getLoopDetectors())));
+            }
+        }
+        for (final Map.Entry<RoadSegment, List<LoopDetector>> entry : references.entrySet()) {
+            assertSameCounts(entry.getKey().getLoopDetectors(), entry.getValue(), entry.getKey().laneCount());
+            for (final LoopDetector detector : entry.getValue()) {
+                count += detector.getVehCumulatedCountOutputAllLanes();
+            }
+        }
+        // vehicles have passed several detectors
+        assertTrue(count > 100);
+    }
+}
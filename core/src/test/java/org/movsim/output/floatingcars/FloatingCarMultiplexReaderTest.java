@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2010, 2011, 2012 by Arne Kesting, Martin Treiber, Ralph Germ, Martin Budden
+ * <movsim.org@gmail.com>
+ * -----------------------------------------------------------------------------------------
+ * 
+ * This file is part of
+ * 
+ * MovSim - the multi-model open-source vehicular-traffic simulator.
+ * 
+ * MovSim is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * MovSim is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MovSim. If not, see <http://www.gnu.org/licenses/>
+ * or <http://www.movsim.org>.
+ * 
+ * -----------------------------------------------------------------------------------------
+ */
+package org.movsim.output.floatingcars;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.movsim.output.fileoutput.OutputCompression;
+
+public class FloatingCarMultiplexReaderTest {
+
+    private static final int VEHICLE_COUNT = 3;
+    private static final int STEPS = 400;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static String expectedText(int vehicleNumber) {
+        final StringBuilder text = new StringBuilder();
+        text.append(String.format("# vehicle number = %d%n", vehicleNumber));
+        for (int step = vehicleNumber; step < STEPS; step++) {
+            text.append(String.format("%10.2f,%10d,%10.3f%n", 0.2 * step, vehicleNumber, Math.cos(0.01 * step)));
+        }
+        return text.toString();
+    }
+
+    private File writeFile(String name, int blockSize, OutputCompression compression) throws IOException {
+        final File file = folder.newFile(name);
+        final FloatingCarMultiplexWriter writer = new FloatingCarMultiplexWriter(file, blockSize, compression);
+        final PrintWriter[] writers = new PrintWriter[VEHICLE_COUNT];
+        for (int step = 0; step < STEPS; step++) {
+            // the vehicles enter one after the other, the records are interleaved
+            for (int vehicleNumber = 0; vehicleNumber < VEHICLE_COUNT && vehicleNumber <= step; vehicleNumber++) {
+                if (writers[vehicleNumber] == null) {
+                    writers[vehicleNumber] = writer.createWriter(vehicleNumber);
+                    writers[vehicleNumber].println(String.format("# vehicle number = %d", vehicleNumber));
+                }
+                writers[vehicleNumber].printf("%10.2f,%10d,%10.3f%n", 0.2 * step, vehicleNumber,
+                        Math.cos(0.01 * step));
+                writers[vehicleNumber].flush();
+            }
+        }
+        writer.close();
+        return file;
+    }
+
+    private static void assertVehicles(FloatingCarMultiplexReader reader) throws IOException {
+        assertEquals(Arrays.asList(0, 1, 2), reader.vehicleNumbers());
+        for (int vehicleNumber = 0; vehicleNumber < VEHICLE_COUNT; vehicleNumber++) {
+            assertEquals(expectedText(vehicleNumber), reader.readVehicle(vehicleNumber));
+        }
+        assertEquals("", reader.readVehicle(VEHICLE_COUNT));
+    }
+
+    @Test
+    public void testReadVehicles() throws IOException {
+        final File file = writeFile("a.car.route_main.mux", 1000, OutputCompression.NONE);
+        try (FloatingCarMultiplexReader reader = new FloatingCarMultiplexReader(file)) {
+            assertTrue(reader.isIndexed());
+            assertFalse(reader.isDeflated());
+            assertTrue(reader.blockCount(0) > 1);
+            assertVehicles(reader);
+        }
+    }
+
+    @Test
+    public void testReadDeflatedVehicles() throws IOException {
+        final File plainFile = writeFile("plain.mux", 4096, OutputCompression.NONE);
+        final File file = writeFile("deflated.mux", 4096, OutputCompression.of(9, 1024));
+        assertTrue(file.length() < plainFile.length() / 2);
+        try (FloatingCarMultiplexReader reader = new FloatingCarMultiplexReader(file)) {
+            assertTrue(reader.isDeflated());
+            assertVehicles(reader);
+        }
+    }
+
+    @Test
+    public void testScanBlocksWithoutIndex() throws IOException {
+        final File file = writeFile("aborted.mux", 1000, OutputCompression.NONE);
+        final int blockCount;
+        try (FloatingCarMultiplexReader reader = new FloatingCarMultiplexReader(file)) {
+            blockCount = reader.blockCount(1);
+        }
+        // cut the file in the middle of the trailer, as of a run which did not complete
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 5);
+        }
+        try (FloatingCarMultiplexReader reader = new FloatingCarMultiplexReader(file)) {
+            assertFalse(reader.isIndexed());
+            assertEquals(blockCount, reader.blockCount(1));
+            assertVehicles(reader);
+        }
+    }
+
+    @Test
+    public void testSplit() throws IOException {
+        final File file = writeFile("project.car.route_main" + FileFloatingCars.MULTIPLEXED_EXTENSION, 1000,
+                OutputCompression.NONE);
+        final File outputDirectory = folder.newFolder("split");
+        final List<File> files = FloatingCarMultiplexSplitter.split(file, outputDirectory);
+        assertEquals(VEHICLE_COUNT, files.size());
+        assertEquals(new File(outputDirectory, "project.car.route_main.000002.csv"), files.get(2));
+        for (int vehicleNumber = 0; vehicleNumber < VEHICLE_COUNT; vehicleNumber++) {
+            final String text = new String(Files.readAllBytes(files.get(vehicleNumber).toPath()),
+                    Charset.defaultCharset());
+            assertEquals(expectedText(vehicleNumber), text);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2010, 2011, 2012 by Arne Kesting, Martin Treiber, Ralph Germ, Martin Budden
+ * <movsim.org@gmail.com>
+ * -----------------------------------------------------------------------------------------
+ * 
+ * This file is part of
+ * 
+ * MovSim - the multi-model open-source vehicular-traffic simulator.
+ * 
+ * MovSim is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * MovSim is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MovSim. If not, see <http://www.gnu.org/licenses/>
+ * or <http://www.movsim.org>.
+ * 
+ * -----------------------------------------------------------------------------------------
+ */
+package org.movsim.output.route;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Comparator;
+import java.util.TreeSet;
+
+import org.junit.Test;
+import org.movsim.output.fileoutput.OutputCompression;
+import org.movsim.simulator.roadnetwork.Lanes;
+import org.movsim.simulator.roadnetwork.Link;
+import org.movsim.simulator.roadnetwork.RoadNetwork;
+import org.movsim.simulator.roadnetwork.RoadSegment;
+import org.movsim.simulator.roadnetwork.routing.Route;
+import org.movsim.simulator.vehicles.Vehicle;
+import org.movsim.utilities.InterpolationTable;
+
+public class SpatioTemporalTest {
+
+    private static final double DX = 10;
+
+    private static Vehicle newVehicle(double rearPosition, double speed, int lane, double length) {
+        final Vehicle vehicle = new Vehicle(0, speed, lane, length, 2.5);
+        // a vehicle entering a road segment has a negative rear position
+        vehicle.setRearPosition(rearPosition);
+        return vehicle;
+    }
+
+    private static Route newRoute(RoadSegment r1, RoadSegment r2) {
+        Link.addJoin(r1, r2);
+        final Route route = new Route("main");
+        route.add(r1);
+        route.add(r2);
+        return route;
+    }
+
+    /**
+     * The gridding of a sorted set of the vehicle positions and a search for each grid position, which the gridding
+     * in one sweep has to reproduce.
+     */
+    private static double[] expectedSpeeds(Route route, int size) {
+        final TreeSet<double[]> dataPoints = new TreeSet<>(new Comparator<double[]>() {
+            @Override
+            public int compare(double[] o1, double[] o2) {
+                return Double.compare(o1[0], o2[0]);
+            }
+        });
+        double positionOnRoute = 0;
+        for (final RoadSegment roadSegment : route) {
+            for (final Vehicle vehicle : roadSegment) {
+                if (vehicle.type() != Vehicle.Type.OBSTACLE) {
+                    dataPoints.add(new double[] { positionOnRoute + vehicle.getFrontPosition(), vehicle.getSpeed() });
+                }
+            }
+            positionOnRoute += roadSegment.roadLength();
+        }
+        final double[] x = new double[dataPoints.size()];
+        final double[] v = new double[dataPoints.size()];
+        int j = 0;
+        for (final double[] dataPoint : dataPoints) {
+            x[j] = dataPoint[0];
+            v[j] = dataPoint[1];
+            ++j;
+        }
+        final InterpolationTable table = InterpolationTable.linear(x, v);
+        final double[] speeds = new double[size];
+        for (int i = 0; i < size; i++) {
+            speeds[i] = table.value(i * DX);
+        }
+        return speeds;
+    }
+
+    private static void assertGridding(Route route) {
+        final SpatioTemporal spatioTemporal = new SpatioTemporal(DX, 1, new RoadNetwork(), route, false,
+                OutputCompression.NONE);
+        spatioTemporal.timeStep(0.5, 1.0, 2);
+        final double[] expected = expectedSpeeds(route, spatioTemporal.size());
+        for (int i = 0; i < spatioTemporal.size(); i++) {
+            assertEquals("x=" + i * DX, expected[i], spatioTemporal.getAverageSpeed(i), 0.0);
+        }
+    }
+
+    @Test
+    public void testSortedLanes() {
+        final RoadSegment r1 = new RoadSegment(1000, 2);
+        final RoadSegment r2 = new RoadSegment(500, 2);
+        r1.addVehicle(newVehicle(100, 10, Lanes.LANE1, 5));
+        r1.addVehicle(newVehicle(300, 12, Lanes.LANE1, 5));
+        // same front position as in lane 1, the vehicle of lane 1 is taken
+        r1.addVehicle(newVehicle(100, 20, Lanes.LANE2, 5));
+        r1.addVehicle(newVehicle(500, 22, Lanes.LANE2, 5));
+        r1.addVehicle(newVehicle(995, 24, Lanes.LANE2, 5));
+        final Vehicle obstacle = newVehicle(700, 0, Lanes.LANE1, 1);
+        obstacle.setType(Vehicle.Type.OBSTACLE);
+        r1.addObstacle(obstacle);
+        // at the end of the first road segment, the vehicle of the first road segment is taken
+        r2.addVehicle(newVehicle(-5, 30, Lanes.LANE1, 5));
+        r2.addVehicle(newVehicle(250, 32, Lanes.LANE2, 5));
+        assertGridding(newRoute(r1, r2));
+    }
+
+    @Test
+    public void testOverlappingVehicles() {
+        final RoadSegment r1 = new RoadSegment(1000, 2);
+        final RoadSegment r2 = new RoadSegment(500, 1);
+        r1.addVehicle(newVehicle(200, 10, Lanes.LANE1, 5));
+        // the front of the long vehicle behind is ahead of the front of the vehicle in front
+        r1.addVehicle(newVehicle(190, 12, Lanes.LANE1, 40));
+        r1.addVehicle(newVehicle(400, 14, Lanes.LANE2, 5));
+        r1.addVehicle(newVehicle(990, 16, Lanes.LANE2, 5));
+        // behind the last vehicle of the first road segment
+        r2.addVehicle(newVehicle(-20, 18, Lanes.LANE1, 5));
+        r2.addVehicle(newVehicle(300, 20, Lanes.LANE1, 5));
+        assertGridding(newRoute(r1, r2));
+    }
+
+    @Test
+    public void testSingleVehicle() {
+        final RoadSegment r1 = new RoadSegment(1000, 1);
+        final RoadSegment r2 = new RoadSegment(500, 1);
+        r2.addVehicle(newVehicle(100, 25, Lanes.LANE1, 5));
+        assertGridding(newRoute(r1, r2));
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2010, 2011, 2012 by Arne Kesting, Martin Treiber, Ralph Germ, Martin Budden
+ *                                   <movsim.org@gmail.com>
+ * -----------------------------------------------------------------------------------------
+ * 
+ * This file is part of
+ * 
+ * MovSim - the multi-model open-source vehicular-traffic simulator.
+ * 
+ * MovSim is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * MovSim is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MovSim. If not, see <http://www.gnu.org/licenses/>
+ * or <http://www.movsim.org>.
+ * 
+ * -----------------------------------------------------------------------------------------
+ */
+
+
+package org.movsim.simulator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.movsim.simulator.roadnetwork.LaneSegment;
+import org.movsim.simulator.roadnetwork.RoadNetwork;
+import org.movsim.simulator.roadnetwork.RoadSegment;
+import org.movsim.simulator.vehicles.Vehicle;
+
+/**
+ * Tests that a simulation restored from a checkpoint continues exactly as the simulation which wrote the checkpoint.
+ */
+public class CheckpointTest {
+
+    private static final int WARMUP_ITERATIONS = 600;
+    private static final int ITERATIONS = 600;
+
+    @Rule
+    public TemporaryFolder outputFolder = new TemporaryFolder();
+
+    private Simulator load(String directory, String scenario) throws Exception {
+        return SimulationTestSupport.load(directory, scenario, outputFolder.getRoot());
+    }
+
+    private static void run(Simulator simulator, int iterations, List<Long> states) {
+        final SimulationRunnable simulationRunnable = simulator.getSimulationRunnable();
+        final double dt = simulationRunnable.timeStep();
+        final long start = simulationRunnable.iterationCount();
+        for (long iteration = start; iteration < start + iterations; ++iteration) {
+            simulator.timeStep(dt, iteration * dt, iteration);
+            if (states == null) {
+                continue;
+            }
+            final RoadNetwork roadNetwork = simulator.getRoadNetwork();
+            SimulationTestSupport.captureState(roadNetwork, states);
+            for (final RoadSegment roadSegment : roadNetwork) {
+                for (final LaneSegment laneSegment : roadSegment.laneSegments()) {
+                    for (final Vehicle vehicle : laneSegment) {
+                        states.add(Long.valueOf(Double.doubleToLongBits(vehicle.totalFuelUsedLiters())));
+                    }
+                }
+                if (roadSegment.sink() != null) {
+                    states.add(Long.valueOf(Double.doubleToLongBits(roadSegment.sink().totalVehicleTravelTime())));
+                }
+            }
+        }
+        simulationRunnable.restore(simulationRunnable.simulationTime() + iterations * dt, start + iterations);
+    }
+
+    private void assertRestoredRunIsIdentical(String directory, String scenario) throws Exception {
+        final Simulator simulator = load(directory, scenario);
+        run(simulator, WARMUP_ITERATIONS, null);
+        final ByteArrayOutputStream checkpoint = new ByteArrayOutputStream();
+        simulator.writeCheckpoint(checkpoint);
+        final List<Long> expected = new ArrayList<>();
+        run(simulator, ITERATIONS, expected);
+        assertTrue(simulator.getRoadNetwork().vehicleCount() > 0);
+
+        // restore twice: a warm state can be forked several times
+        for (int i = 0; i < 2; ++i) {
+            final Simulator restored = load(directory, scenario);
+            restored.restoreCheckpoint(new ByteArrayInputStream(checkpoint.toByteArray()));
+            assertEquals(WARMUP_ITERATIONS, restored.getSimulationRunnable().iterationCount());
+            final List<Long> actual = new ArrayList<>();
+            run(restored, ITERATIONS, actual);
+            assertEquals(scenario, expected, actual);
+        }
+    }
+
+    @Test
+    public void testStochasticModel() throws Exception {
+        assertRestoredRunIsIdentical("bookScenarioSimpleOnramp", "onramp_KKW");
+    }
+
+    @Test
+    public void testMemory() throws Exception {
+        assertRestoredRunIsIdentical("bookScenarioStartStop", "startStop_IDMM");
+    }
+
+    @Test
+    public void testNoise() throws Exception {
+        assertRestoredRunIsIdentical("bookScenarioStartStop", "startStop_IDM_w_noise");
+    }
+
+    @Test
+    public void testTrafficLightsAndDetectors() throws Exception {
+        assertRestoredRunIsIdentical("buildingBlocks", "trafficlight");
+    }
+
+    @Test
+    public void testMicroBoundaryConditions() throws Exception {
+        assertRestoredRunIsIdentical("features/microBoundaryConditions", "micro_boundary_conditions_routes");
+    }
+
+    @Test
+    public void testRandomizedDesiredSpeeds() throws Exception {
+        assertRestoredRunIsIdentical("buildingBlocks", "laneclosure");
+    }
+
+    @Test
+    public void testWrongScenario() throws Exception {
+        final Simulator simulator = load("bookScenarioSimpleOnramp", "onramp_KKW");
+        final ByteArrayOutputStream checkpoint = new ByteArrayOutputStream();
+        simulator.writeCheckpoint(checkpoint);
+        try {
+            load("bookScenarioStartStop", "startStop_IDMM").restoreCheckpoint(
+                    new ByteArrayInputStream(checkpoint.toByteArray()));
+            fail("checkpoint of another scenario restored");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testUnsupportedVersion() throws Exception {
+        final Simulator simulator = load("bookScenarioSimpleOnramp", "onramp_KKW");
+        final ByteArrayOutputStream checkpoint = new ByteArrayOutputStream();
+        simulator.writeCheckpoint(checkpoint);
+        final byte[] bytes = checkpoint.toByteArray();
+        bytes[7] = 99; // version follows the 4 byte magic number
+        simulator.restoreCheckpoint(new ByteArrayInputStream(bytes));
+    }
+}
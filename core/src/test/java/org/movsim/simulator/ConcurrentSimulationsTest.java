@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2010, 2011, 2012 by Arne Kesting, Martin Treiber, Ralph Germ, Martin Budden
+ *                                   <movsim.org@gmail.com>
+ * -----------------------------------------------------------------------------------------
+ * 
+ * This file is part of
+ * 
+ * MovSim - the multi-model open-source vehicular-traffic simulator.
+ * 
+ * MovSim is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * MovSim is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MovSim. If not, see <http://www.gnu.org/licenses/>
+ * or <http://www.movsim.org>.
+ * 
+ * -----------------------------------------------------------------------------------------
+ */
+
+
+package org.movsim.simulator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.movsim.simulator.roadnetwork.RoadNetwork;
+import org.movsim.utilities.FileUtils;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.CharStreams;
+import com.google.common.io.Files;
+
+/**
+ * Tests that simulations with separate contexts running concurrently in the same JVM give the same results as a
+ * simulation running alone.
+ */
+public class ConcurrentSimulationsTest {
+
+    private static final int ITERATIONS = 600;
+    private static final int SIMULATIONS = 4;
+
+    private final AtomicInteger runCount = new AtomicInteger();
+
+    @Rule
+    public TemporaryFolder outputFolder = new TemporaryFolder();
+
+    private List<Long> run(String directory, String scenario) throws Exception {
+        final Simulator simulator = SimulationTestSupport.load(directory, scenario,
+                outputFolder.newFolder("run" + runCount.incrementAndGet()));
+        final RoadNetwork roadNetwork = simulator.getRoadNetwork();
+        final double dt = simulator.getSimulationRunnable().timeStep();
+        final List<Long> states = new ArrayList<>();
+        for (int iteration = 0; iteration < ITERATIONS; ++iteration) {
+            simulator.timeStep(dt, iteration * dt, iteration);
+            SimulationTestSupport.captureState(roadNetwork, states);
+        }
+        return states;
+    }
+
+    private void assertIdenticalResults(final String directory, final String scenario) throws Exception {
+        final List<Long> alone = run(directory, scenario);
+        assertTrue(alone.size() > ITERATIONS);
+        final ExecutorService executor = Executors.newFixedThreadPool(SIMULATIONS);
+        try {
+            final List<Future<List<Long>>> results = new ArrayList<>();
+            for (int i = 0; i < SIMULATIONS; ++i) {
+                results.add(executor.submit(new Callable<List<Long>>() {
+                    @Override
+                    public List<Long> call() throws Exception {
+                        return run(directory, scenario);
+                    }
+                }));
+            }
+            for (final Future<List<Long>> result : results) {
+                assertEquals(alone, result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testOnramp() throws Exception {
+        assertIdenticalResults("bookScenarioSimpleOnramp", "onramp_IDM");
+    }
+
+    @Test
+    public void testOnrampStochastic() throws Exception {
+        assertIdenticalResults("bookScenarioSimpleOnramp", "onramp_KKW");
+    }
+
+    private static List<String> readLines(File file) throws IOException {
+        try (InputStream in = FileUtils.openInputStream(file)) {
+            return CharStreams.readLines(new InputStreamReader(in, Charsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testCompressedOutput() throws Exception {
+        // startStop_IDM with compressed trajectories
+        final File directory = new File(SimulationTestSupport.SIM_PATH + "bookScenarioStartStop");
+        final File scenarioFolder = outputFolder.newFolder("scenario");
+        Files.copy(new File(directory, "startStop.xodr"), new File(scenarioFolder, "startStop.xodr"));
+        final String trajectories = "<Trajectories dt=\"1\" route=\"main\"";
+        final String project = Files.toString(new File(directory, "startStop_IDM.xprj"), Charsets.UTF_8);
+        assertTrue(project.contains(trajectories));
+        Files.write(project.replace(trajectories, trajectories + " compression=\"true\""), new File(scenarioFolder,
+                "startStop_IDM.xprj"), Charsets.UTF_8);
+
+        // the completion of the first simulation must not close the compressed files of the second one
+        final File[] outputs = { outputFolder.newFolder("first"), outputFolder.newFolder("second") };
+        final Simulator first = SimulationTestSupport.load(scenarioFolder, "startStop_IDM", outputs[0]);
+        final Simulator second = SimulationTestSupport.load(scenarioFolder, "startStop_IDM", outputs[1]);
+        first.getSimulationRunnable().runToCompletion();
+        second.getSimulationRunnable().runToCompletion();
+        final String filename = "startStop_IDM.traj.route_main.csv.gz";
+        final List<String> expected = readLines(new File(outputs[0], filename));
+        assertTrue(expected.size() > 1000);
+        final List<String> actual = readLines(new File(outputs[1], filename));
+        assertEquals(expected.size(), actual.size());
+        assertEquals(expected, actual);
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2010, 2011, 2012 by Arne Kesting, Martin Treiber, Ralph Germ, Martin Budden
+ *                                   <movsim.org@gmail.com>
+ * -----------------------------------------------------------------------------------------
+ * 
+ * This file is part of
+ * 
+ * MovSim - the multi-model open-source vehicular-traffic simulator.
+ * 
+ * MovSim is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * MovSim is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MovSim. If not, see <http://www.gnu.org/licenses/>
+ * or <http://www.movsim.org>.
+ * 
+ * -----------------------------------------------------------------------------------------
+ */
+
+
+package org.movsim.simulator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.movsim.autogen.AccelerationModelType;
+import org.movsim.autogen.ModelParameterPTM;
+import org.movsim.simulator.roadnetwork.LaneSegment;
+import org.movsim.simulator.roadnetwork.RoadNetwork;
+import org.movsim.simulator.roadnetwork.RoadSegment;
+import org.movsim.simulator.vehicles.Vehicle;
+import org.movsim.simulator.vehicles.Vehicle.IntegrationType;
+import org.movsim.simulator.vehicles.longitudinalmodel.acceleration.LongitudinalModelFactory;
+
+/**
+ * Tests the accuracy of the numerical integrations in dependence of the time step on the start-stop scenario. The
+ * positions are compared with a reference solution calculated with the Runge-Kutta integration and a small time step.
+ */
+public class IntegrationAccuracyTest {
+
+    private static final String DIRECTORY = "bookScenarioStartStop";
+    private static final String SCENARIO = "startStop_IDM";
+
+    private static final double SIMULATION_TIME = 40;
+    private static final double REFERENCE_DT = 0.05;
+
+    private static Map<Long, Double> reference;
+
+    @Rule
+    public TemporaryFolder outputFolder = new TemporaryFolder();
+
+    private Map<Long, Double> run(IntegrationType integrationType, double dt) throws Exception {
+        return run(SimulationTestSupport.load(DIRECTORY, SCENARIO, outputFolder.getRoot()), integrationType, dt);
+    }
+
+    private static Map<Long, Double> run(Simulator simulator, IntegrationType integrationType, double dt) {
+        final RoadNetwork roadNetwork = simulator.getRoadNetwork();
+        roadNetwork.setIntegrationType(integrationType);
+        final int iterations = (int) Math.round(SIMULATION_TIME / dt);
+        for (int iteration = 0; iteration < iterations; ++iteration) {
+            simulator.timeStep(dt, iteration * dt, iteration);
+        }
+        final Map<Long, Double> positions = new HashMap<>();
+        for (final RoadSegment roadSegment : roadNetwork) {
+            for (final LaneSegment laneSegment : roadSegment.laneSegments()) {
+                for (final Vehicle vehicle : laneSegment) {
+                    positions.put(Long.valueOf(vehicle.getId()), Double.valueOf(vehicle.getFrontPosition()));
+                }
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * Returns the maximum deviation of the vehicle positions from the reference positions.
+     */
+    private static double maxError(Map<Long, Double> reference, Map<Long, Double> positions) {
+        assertEquals(reference.keySet(), positions.keySet());
+        double maxError = 0;
+        for (final Map.Entry<Long, Double> entry : reference.entrySet()) {
+            final double error = Math.abs(entry.getValue().doubleValue() - positions.get(entry.getKey()).doubleValue());
+            maxError = Math.max(maxError, error);
+        }
+        return maxError;
+    }
+
+    private Map<Long, Double> reference() throws Exception {
+        if (reference == null) {
+            reference = run(IntegrationType.RUNGE_KUTTA, REFERENCE_DT);
+            assertTrue(reference.size() > 10);
+        }
+        return reference;
+    }
+
+    private double error(IntegrationType integrationType, double dt) throws Exception {
+        return maxError(reference(), run(integrationType, dt));
+    }
+
+    @Test
+    public void testLargeTimeStep() throws Exception {
+        // the start-stop waves move the vehicles by several hundred meters, the errors are maximum deviations in meters
+        final double errorKinematic = error(IntegrationType.KINEMATIC, 0.1);
+        final double errorHeun = error(IntegrationType.HEUN, 0.5);
+        final double errorRungeKutta = error(IntegrationType.RUNGE_KUTTA, 0.5);
+        assertTrue("kinematic dt=0.1: " + errorKinematic, errorKinematic < 2);
+        assertTrue("heun dt=0.5: " + errorHeun, errorHeun < errorKinematic);
+        assertTrue("runge-kutta dt=0.5: " + errorRungeKutta, errorRungeKutta < 0.05);
+        assertTrue(error(IntegrationType.EULER, 0.5) > error(IntegrationType.KINEMATIC, 0.5));
+    }
+
+    @Test
+    public void testConvergenceOrder() throws Exception {
+        // halving the time step reduces the error by about 2^order
+        final double[] minReduction = { 1.5, 1.5, 3, 10 };
+        final double[] maxReduction = { 3, 3, 6, 30 };
+        for (final IntegrationType integrationType : IntegrationType.values()) {
+            final double reduction = error(integrationType, 0.4) / error(integrationType, 0.2);
+            final String message = integrationType + " error reduction: " + reduction;
+            assertTrue(message, reduction > minReduction[integrationType.ordinal()]);
+            assertTrue(message, reduction < maxReduction[integrationType.ordinal()]);
+        }
+    }
+
+    /**
+     * Replaces the model of the moving vehicles by the prospect theory model with its Wiener process, one instance per
+     * vehicle. A scenario with this model cannot be loaded, since it has no fundamental diagram.
+     */
+    private static void usePtm(RoadNetwork roadNetwork, double dt) {
+        final ModelParameterPTM parameter = new ModelParameterPTM();
+        parameter.setV0(15);
+        parameter.setS0(2);
+        parameter.setTau(5);
+        final AccelerationModelType modelType = new AccelerationModelType();
+        modelType.setModelParameterPTM(parameter);
+        for (final RoadSegment roadSegment : roadNetwork) {
+            for (final LaneSegment laneSegment : roadSegment.laneSegments()) {
+                for (final Vehicle vehicle : laneSegment) {
+                    if (vehicle.getLongitudinalModel().getDesiredSpeed() > 0) {
+                        vehicle.setLongitudinalModel(LongitudinalModelFactory.create(vehicle.getLength(), modelType,
+                                dt));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testStochasticModel() throws Exception {
+        // the Wiener process of the model is advanced once per step and not per Runge-Kutta stage, so that the
+        // integrations see the same noise and give nearly the same positions
+        final double dt = 0.1;
+        final Map<Long, Double> heun = runPtm(IntegrationType.HEUN, dt);
+        final double error = maxError(heun, runPtm(IntegrationType.RUNGE_KUTTA, dt));
+        assertTrue("heun vs. runge-kutta dt=0.1: " + error, error < 0.1);
+    }
+
+    private Map<Long, Double> runPtm(IntegrationType integrationType, double dt) throws Exception {
+        final Simulator simulator = SimulationTestSupport.load(DIRECTORY, SCENARIO, outputFolder.getRoot());
+        try (SimulationContext.Scope scope = simulator.context().enter()) {
+            usePtm(simulator.getRoadNetwork(), dt);
+        }
+        return run(simulator, integrationType, dt);
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2010, 2011, 2012 by Arne Kesting, Martin Treiber, Ralph Germ, Martin Budden
+ *                                   <movsim.org@gmail.com>
+ * -----------------------------------------------------------------------------------------
+ * 
+ * This file is part of
+ * 
+ * MovSim - the multi-model open-source vehicular-traffic simulator.
+ * 
+ * MovSim is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * MovSim is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MovSim. If not, see <http://www.gnu.org/licenses/>
+ * or <http://www.movsim.org>.
+ * 
+ * -----------------------------------------------------------------------------------------
+ */
+
+package org.movsim.simulator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.movsim.simulator.roadnetwork.RoadNetwork;
+
+/**
+ * Tests that the parallel update of the road network gives bit-identical results to the sequential update.
+ */
+public class ParallelTimeStepTest {
+
+    private static final int ITERATIONS = 1500;
+
+    @Rule
+    public TemporaryFolder outputFolder = new TemporaryFolder();
+
+    /**
+     * Settings of the road network for a run, the defaults are those of a scenario without further settings.
+     */
+    private static final class RunOptions {
+        private int threadCount = 1;
+        private boolean withActiveSegments = true;
+        private boolean withBatchAccelerations = true;
+
+        RunOptions threads(int threadCount) {
+            this.threadCount = threadCount;
+            return this;
+        }
+
+        RunOptions activeSegments(boolean withActiveSegments) {
+            this.withActiveSegments = withActiveSegments;
+            return this;
+        }
+
+        RunOptions batchAccelerations(boolean withBatchAccelerations) {
+            this.withBatchAccelerations = withBatchAccelerations;
+            return this;
+        }
+    }
+
+    private static RunOptions options() {
+        return new RunOptions();
+    }
+
+    private List<Long> run(String directory, String scenario, RunOptions options) throws Exception {
+        final Simulator simulator = SimulationTestSupport.load(directory, scenario, outputFolder.getRoot());
+        final RoadNetwork roadNetwork = simulator.getRoadNetwork();
+        roadNetwork.setThreadCount(options.threadCount);
+        roadNetwork.setWithActiveSegments(options.withActiveSegments);
+        roadNetwork.setWithBatchAccelerations(options.withBatchAccelerations);
+        final double dt = simulator.getSimulationRunnable().timeStep();
+        final List<Long> states = new ArrayList<>();
+        try {
+            for (int iteration = 0; iteration < ITERATIONS; ++iteration) {
+                simulator.timeStep(dt, iteration * dt, iteration);
+                SimulationTestSupport.captureState(roadNetwork, states);
+            }
+        } finally {
+            roadNetwork.setThreadCount(1);
+        }
+        return states;
+    }
+
+    private void assertIdenticalResults(String directory, String scenario) throws Exception {
+        final List<Long> sequential = run(directory, scenario, options());
+        assertTrue(sequential.size() > ITERATIONS);
+        for (final int threadCount : new int[] { 2, 8 }) {
+            assertEquals(scenario + " with threads=" + threadCount, sequential,
+                    run(directory, scenario, options().threads(threadCount)));
+        }
+    }
+
+    @Test
+    public void testOnramp() throws Exception {
+        assertIdenticalResults("bookScenarioSimpleOnramp", "onramp_IDM");
+    }
+
+    @Test
+    public void testOnrampStochastic() throws Exception {
+        assertIdenticalResults("bookScenarioSimpleOnramp", "onramp_KKW");
+    }
+
+    @Test
+    public void testStartStop() throws Exception {
+        assertIdenticalResults("bookScenarioStartStop", "startStop_all_continuous");
+    }
+
+    @Test
+    public void testCloverleaf() throws Exception {
+        assertIdenticalResults("buildingBlocks", "cloverleaf");
+    }
+
+    @Test
+    public void testBatchAccelerations() throws Exception {
+        // the batch kernels of IDM, ACC, OVM/FVDM and Gipps must give the same results as the scalar calculation
+        for (final String[] scenario : new String[][] { { "bookScenarioSimpleOnramp", "onramp_IDM" },
+                { "bookScenarioSimpleOnramp", "onramp_ACC" }, { "bookScenarioSimpleOnramp", "onramp_OVM" },
+                { "bookScenarioSimpleOnramp", "onramp_FVDM" }, { "bookScenarioSimpleOnramp", "onramp_GIPPS" },
+                { "buildingBlocks", "flow_conserving_bottleneck" }, { "buildingBlocks", "laneclosure" } }) {
+            final List<Long> scalar = run(scenario[0], scenario[1], options().batchAccelerations(false));
+            assertTrue(scalar.size() > ITERATIONS);
+            assertEquals(scenario[1], scalar, run(scenario[0], scenario[1], options()));
+            assertEquals(scenario[1] + " with threads=2", scalar, run(scenario[0], scenario[1], options().threads(2)));
+        }
+    }
+
+    @Test
+    public void testActiveSegments() throws Exception {
+        for (final String[] scenario : new String[][] { { "buildingBlocks", "cloverleaf" }, { "games", "routing" },
+                { "buildingBlocks", "trafficlight" },
+                { "features" + File.separator + "microBoundaryConditions", "micro_boundary_conditions_routes" } }) {
+            final List<Long> allSegments = run(scenario[0], scenario[1], options().activeSegments(false));
+            assertEquals(scenario[1], allSegments, run(scenario[0], scenario[1], options()));
+            assertEquals(scenario[1], allSegments, run(scenario[0], scenario[1], options().threads(2)));
+        }
+    }
+
+    @Test
+    public void testEmptySegmentsAreInactive() throws Exception {
+        final Simulator simulator = SimulationTestSupport.load("buildingBlocks", "cloverleaf", outputFolder.getRoot());
+        final RoadNetwork roadNetwork = simulator.getRoadNetwork();
+        simulator.timeStep(simulator.getSimulationRunnable().timeStep(), 0, 0);
+        assertTrue(roadNetwork.activeRoadSegmentCount() < roadNetwork.size());
+        roadNetwork.setWithActiveSegments(false);
+        assertEquals(roadNetwork.size(), roadNetwork.activeRoadSegmentCount());
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2010, 2011, 2012 by Arne Kesting, Martin Treiber, Ralph Germ, Martin Budden
+ *                                   <movsim.org@gmail.com>
+ * -----------------------------------------------------------------------------------------
+ * 
+ * This file is part of
+ * 
+ * MovSim - the multi-model open-source vehicular-traffic simulator.
+ * 
+ * MovSim is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * MovSim is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MovSim. If not, see <http://www.gnu.org/licenses/>
+ * or <http://www.movsim.org>.
+ * 
+ * -----------------------------------------------------------------------------------------
+ */
+
+
+package org.movsim.simulator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.movsim.simulator.roadnetwork.RoadNetwork;
+
+/**
+ * Tests that stochastic simulations (stochastic models, acceleration noise, randomized desired speeds and traffic
+ * compositions) give bit-identical results for 1, 2 and 8 worker threads, as the random numbers are keyed by seed,
+ * vehicle and purpose.
+ */
+public class RandomReproducibilityTest {
+
+    private static final int ITERATIONS = 1000;
+
+    @Rule
+    public TemporaryFolder outputFolder = new TemporaryFolder();
+
+    private List<Long> run(String directory, String scenario, int threadCount) throws Exception {
+        final Simulator simulator = SimulationTestSupport.load(directory, scenario, outputFolder.getRoot());
+        final RoadNetwork roadNetwork = simulator.getRoadNetwork();
+        roadNetwork.setThreadCount(threadCount);
+        final double dt = simulator.getSimulationRunnable().timeStep();
+        final List<Long> states = new ArrayList<>();
+        try {
+            for (int iteration = 0; iteration < ITERATIONS; ++iteration) {
+                simulator.timeStep(dt, iteration * dt, iteration);
+                SimulationTestSupport.captureState(roadNetwork, states);
+            }
+        } finally {
+            roadNetwork.setThreadCount(1);
+        }
+        return states;
+    }
+
+    private void assertReproducible(String directory, String scenario) throws Exception {
+        final List<Long> sequential = run(directory, scenario, 1);
+        assertTrue(sequential.size() > ITERATIONS);
+        assertEquals(scenario + " repeated", sequential, run(directory, scenario, 1));
+        for (final int threadCount : new int[] { 2, 8 }) {
+            assertEquals(scenario + " with threads=" + threadCount, sequential, run(directory, scenario, threadCount));
+        }
+    }
+
+    @Test
+    public void testKKW() throws Exception {
+        assertReproducible("bookScenarioSimpleOnramp", "onramp_KKW");
+    }
+
+    @Test
+    public void testNSM() throws Exception {
+        assertReproducible("bookScenarioSimpleOnramp", "onramp_NSM");
+    }
+
+    @Test
+    public void testBarlovic() throws Exception {
+        assertReproducible("bookScenarioSimpleOnramp", "onramp_BARL");
+    }
+
+    @Test
+    public void testKrauss() throws Exception {
+        assertReproducible("bookScenarioSimpleOnramp", "onramp_KRAUSS");
+    }
+
+    @Test
+    public void testAccelerationNoise() throws Exception {
+        assertReproducible("bookScenarioStartStop", "startStop_IDM_w_noise");
+    }
+
+    @Test
+    public void testRandomizedDesiredSpeeds() throws Exception {
+        assertReproducible("buildingBlocks", "laneclosure");
+    }
+}
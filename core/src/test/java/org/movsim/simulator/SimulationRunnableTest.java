@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2010, 2011, 2012 by Arne Kesting, Martin Treiber, Ralph Germ, Martin Budden
+ *                                   <movsim.org@gmail.com>
+ * -----------------------------------------------------------------------------------------
+ * 
+ * This file is part of
+ * 
+ * MovSim - the multi-model open-source vehicular-traffic simulator.
+ * 
+ * MovSim is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * MovSim is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MovSim. If not, see <http://www.gnu.org/licenses/>
+ * or <http://www.movsim.org>.
+ * 
+ * -----------------------------------------------------------------------------------------
+ */
+
+
+package org.movsim.simulator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class SimulationRunnableTest {
+
+    private static final double DT = 0.2;
+    private static final double DURATION = 100;
+
+    private static class CountingTimeStep implements SimulationTimeStep {
+        int timeSteps;
+
+        @Override
+        public void timeStep(double dt, double simulationTime, long iterationCount) {
+            assertEquals(timeSteps, iterationCount);
+            ++timeSteps;
+        }
+    }
+
+    private static SimulationRunnable createRunnable(CountingTimeStep simulation) {
+        final SimulationRunnable simulationRunnable = new SimulationRunnable(simulation);
+        simulationRunnable.setTimeStep(DT);
+        simulationRunnable.setDuration(DURATION);
+        return simulationRunnable;
+    }
+
+    @Test
+    public void testRunToCompletionWithSnapshots() {
+        final CountingTimeStep simulation = new CountingTimeStep();
+        final SimulationRunnable simulationRunnable = createRunnable(simulation);
+        simulationRunnable.setSnapshotInterval(7);
+        final AtomicInteger drawings = new AtomicInteger();
+        simulationRunnable.setUpdateDrawingCallback(new SimulationRunnable.UpdateDrawingCallback() {
+            @Override
+            public void updateDrawing(double simulationTime) {
+                drawings.incrementAndGet();
+            }
+        });
+        simulationRunnable.runToCompletion();
+        // the time limit is duration + dt/2
+        final int expectedTimeSteps = (int) Math.round(DURATION / DT) + 1;
+        assertEquals(expectedTimeSteps, simulation.timeSteps);
+        assertEquals(expectedTimeSteps, simulationRunnable.iterationCount());
+        assertEquals((expectedTimeSteps + 6) / 7, drawings.get());
+    }
+
+    @Test
+    public void testFastForward() throws Exception {
+        final CountingTimeStep simulation = new CountingTimeStep();
+        final SimulationRunnable simulationRunnable = createRunnable(simulation);
+        simulationRunnable.setSleepTime(1000);
+        simulationRunnable.setFastForward(true);
+        simulationRunnable.setSnapshotInterval(10);
+        final AtomicInteger drawings = new AtomicInteger();
+        simulationRunnable.setUpdateDrawingCallback(new SimulationRunnable.UpdateDrawingCallback() {
+            @Override
+            public void updateDrawing(double simulationTime) {
+                drawings.incrementAndGet();
+            }
+        });
+        final CountDownLatch completed = new CountDownLatch(1);
+        simulationRunnable.setCompletionCallback(new SimulationRun.CompletionCallback() {
+            @Override
+            public void simulationComplete(double simulationTime) {
+                completed.countDown();
+            }
+        });
+        simulationRunnable.start();
+        // with the paced mode the 500 timesteps would take 500s
+        assertTrue(completed.await(20, TimeUnit.SECONDS));
+        final int expectedTimeSteps = (int) Math.round(DURATION / DT);
+        assertEquals(expectedTimeSteps, simulation.timeSteps);
+        assertEquals(expectedTimeSteps / 10, drawings.get());
+        assertTrue(simulationRunnable.getStepsPerSecond() > 0);
+        assertTrue(simulationRunnable.isStopped());
+    }
+}
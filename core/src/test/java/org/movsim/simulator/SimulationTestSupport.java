@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2010, 2011, 2012 by Arne Kesting, Martin Treiber, Ralph Germ, Martin Budden
+ *                                   <movsim.org@gmail.com>
+ * -----------------------------------------------------------------------------------------
+ * 
+ * This file is part of
+ * 
+ * MovSim - the multi-model open-source vehicular-traffic simulator.
+ * 
+ * MovSim is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * MovSim is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MovSim. If not, see <http://www.gnu.org/licenses/>
+ * or <http://www.movsim.org>.
+ * 
+ * -----------------------------------------------------------------------------------------
+ */
+package org.movsim.simulator;
+
+import java.io.File;
+import java.util.List;
+
+import org.movsim.input.ProjectMetaData;
+import org.movsim.simulator.roadnetwork.LaneSegment;
+import org.movsim.simulator.roadnetwork.RoadNetwork;
+import org.movsim.simulator.roadnetwork.RoadSegment;
+import org.movsim.simulator.vehicles.Vehicle;
+
+/**
+ * Loads the scenarios of the sim directory and captures the simulation state for the tests which compare simulation
+ * runs.
+ */
+final class SimulationTestSupport {
+
+    static final String SIM_PATH = ".." + File.separator + "sim" + File.separator;
+
+    private SimulationTestSupport() {
+        throw new IllegalStateException("do not instanciate");
+    }
+
+    /**
+     * Loads the scenario into a new simulator with its own simulation context.
+     * 
+     * @param directory
+     *            the directory of the scenario, relative to the sim directory
+     * @param scenario
+     *            the name of the scenario
+     * @param outputPath
+     *            the directory for the output files
+     * @return the simulator
+     * @throws Exception
+     */
+    static Simulator load(String directory, String scenario, File outputPath) throws Exception {
+        return load(new File(SIM_PATH + directory), scenario, outputPath);
+    }
+
+    /**
+     * Loads the scenario from the given directory into a new simulator with its own simulation context.
+     * 
+     * @param directory
+     * @param scenario
+     * @param outputPath
+     * @return the simulator
+     * @throws Exception
+     */
+    static Simulator load(File directory, String scenario, File outputPath) throws Exception {
+        final ProjectMetaData projectMetaData = ProjectMetaData.newInstance();
+        projectMetaData.setOutputPath(outputPath.getAbsolutePath());
+        final Simulator simulator = new Simulator(new SimulationContext(projectMetaData));
+        simulator.loadScenarioFromXml(scenario, directory.getAbsolutePath() + File.separator);
+        return simulator;
+    }
+
+    /**
+     * Appends the state of the road network to the given list: the vehicle count of each lane segment and the id,
+     * front position, speed and acceleration of each vehicle. The doubles are added bitwise, so equal lists mean
+     * bit-identical simulations.
+     * 
+     * @param roadNetwork
+     * @param states
+     */
+    static void captureState(RoadNetwork roadNetwork, List<Long> states) {
+        for (final RoadSegment roadSegment : roadNetwork) {
+            for (final LaneSegment laneSegment : roadSegment.laneSegments()) {
+                states.add(Long.valueOf(laneSegment.vehicleCount()));
+                for (final Vehicle vehicle : laneSegment) {
+                    states.add(Long.valueOf(vehicle.getId()));
+                    states.add(Long.valueOf(Double.doubleToLongBits(vehicle.getFrontPosition())));
+                    states.add(Long.valueOf(Double.doubleToLongBits(vehicle.getSpeed())));
+                    states.add(Long.valueOf(Double.doubleToLongBits(vehicle.getAcc())));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2010, 2011, 2012 by Arne Kesting, Martin Treiber, Ralph Germ, Martin Budden
+ *                                   <movsim.org@gmail.com>
+ * -----------------------------------------------------------------------------------------
+ * 
+ * This file is part of
+ * 
+ * MovSim - the multi-model open-source vehicular-traffic simulator.
+ * 
+ * MovSim is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * MovSim is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MovSim. If not, see <http://www.gnu.org/licenses/>
+ * or <http://www.movsim.org>.
+ * 
+ * -----------------------------------------------------------------------------------------
+ */
+
+package org.movsim.simulator.roadnetwork;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.movsim.input.ProjectMetaData;
+import org.movsim.simulator.Simulator;
+import org.movsim.simulator.vehicles.Vehicle;
+
+/**
+ * <p>
+ * Benchmark of the lane storage. Not run as a unit test, run from the core directory with
+ * </p>
+ * 
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.movsim.simulator.roadnetwork.LaneStorageBenchmark
+ * </pre>
+ * <p>
+ * The first part compares the {@link VehicleRingBuffer} with the previously used ArrayList for a saturated lane: the
+ * start-stop situation of bookScenarioStartStop (vehicles of length 8m standing with a gap of 2m) on a lane holding
+ * the given number of vehicles. In each step the queue discharges at the front and is refilled at the rear, and the
+ * neighbours of every vehicle are looked up with a binary position search, as in the acceleration update. The times
+ * for the outflow/inflow and for the lookups are given separately.
+ * </p>
+ * <p>
+ * The second part runs the complete startStop_IDM scenario of bookScenarioStartStop.
+ * </p>
+ */
+public class LaneStorageBenchmark {
+
+    private static final double VEHICLE_LENGTH = 8.0;
+    private static final double SPACING = VEHICLE_LENGTH + 2.0;
+    // vehicles leaving (and entering) the lane per step
+    private static final int OUTFLOW_PER_STEP = 1;
+    private static final int STEPS = 2000;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("saturated lane, " + STEPS + " steps, times in ms");
+        System.out.println(String.format(Locale.US, "%10s %18s %18s %18s %18s", "vehicles", "ArrayList outflow",
+                "RingBuffer outflow", "ArrayList lookup", "RingBuffer lookup"));
+        for (final int vehicleCount : new int[] { 100, 1000, 10000, 50000 }) {
+            // warm up
+            runLane(new ArrayList<Vehicle>(), vehicleCount, STEPS / 10);
+            runLane(new VehicleRingBuffer(vehicleCount), vehicleCount, STEPS / 10);
+            final double[] arrayList = runLane(new ArrayList<Vehicle>(), vehicleCount, STEPS);
+            final double[] ringBuffer = runLane(new VehicleRingBuffer(vehicleCount), vehicleCount, STEPS);
+            System.out.println(String.format(Locale.US, "%10d %18.1f %18.1f %18.1f %18.1f", vehicleCount,
+                    arrayList[0], ringBuffer[0], arrayList[1], ringBuffer[1]));
+        }
+
+        final File outputPath = Files.createTempDirectory("movsim").toFile();
+        ProjectMetaData.getInstance().setOutputPath(outputPath.getAbsolutePath());
+        final Simulator simulator = new Simulator();
+        final String path = new File(".." + File.separator + "sim" + File.separator + "bookScenarioStartStop")
+                .getAbsolutePath() + File.separator;
+        simulator.loadScenarioFromXml("startStop_IDM", path);
+        final double dt = simulator.getSimulationRunnable().timeStep();
+        final long start = System.nanoTime();
+        final int iterations = 3900;
+        for (int iteration = 0; iteration < iterations; ++iteration) {
+            simulator.timeStep(dt, iteration * dt, iteration);
+        }
+        System.out.println(String.format(Locale.US, "startStop_IDM, %d steps: %.1f ms", iterations,
+                (System.nanoTime() - start) / 1e6));
+    }
+
+    /**
+     * Runs the given number of steps on a saturated lane and returns the elapsed times for the outflow and the lookups
+     * in ms.
+     */
+    private static double[] runLane(List<Vehicle> lane, int vehicleCount, int steps) {
+        Vehicle.resetNextId();
+        final double laneLength = vehicleCount * SPACING;
+        for (int i = 0; i < vehicleCount; ++i) {
+            lane.add(new Vehicle(laneLength - (i + 1) * SPACING, 0.0, Lanes.LANE1, VEHICLE_LENGTH, 2.5));
+        }
+        double rearPosition = 0;
+        long checksum = 0;
+        long outflowTime = 0;
+        long lookupTime = 0;
+        for (int step = 0; step < steps; ++step) {
+            // neighbour lookups
+            final long start = System.nanoTime();
+            final int count = lane.size();
+            for (int i = 0; i < count; ++i) {
+                checksum += positionBinarySearch(lane, lane.get(i).getRearPosition());
+            }
+            final long lookupEnd = System.nanoTime();
+            lookupTime += lookupEnd - start;
+            // outflow at the front, inflow at the rear
+            for (int i = 0; i < OUTFLOW_PER_STEP; ++i) {
+                final Vehicle vehicle = lane.remove(0);
+                rearPosition = lane.get(lane.size() - 1).getRearPosition() - SPACING;
+                vehicle.setRearPosition(rearPosition);
+                lane.add(vehicle);
+            }
+            outflowTime += System.nanoTime() - lookupEnd;
+        }
+        if (checksum == 42) {
+            System.out.println("checksum " + checksum + rearPosition);
+        }
+        lane.clear();
+        return new double[] { outflowTime / 1e6, lookupTime / 1e6 };
+    }
+
+    private static int positionBinarySearch(List<Vehicle> vehicles, double vehiclePos) {
+        int low = 0;
+        int high = vehicles.size() - 1;
+        while (low <= high) {
+            final int mid = (low + high) >> 1;
+            final int compare = Double.compare(vehiclePos, vehicles.get(mid).getRearPosition());
+            if (compare < 0) {
+                low = mid + 1;
+            } else if (compare > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+}
@@ -27,6 +27,7 @@
 package org.movsim.simulator.roadnetwork;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.util.Iterator;
 
@@ -34,6 +35,8 @@ import org.junit.Test;
 import org.movsim.autogen.LaneChangeModelType;
 import org.movsim.autogen.ModelParameterMOBIL;
 import org.movsim.roadmappings.RoadMapping;
+import org.movsim.simulator.vehicles.NeighbourView;
+import org.movsim.simulator.vehicles.PositionAdjustedVehicle;
 import org.movsim.simulator.vehicles.Vehicle;
 import org.movsim.simulator.vehicles.lanechange.LaneChangeModel;
 import org.movsim.simulator.vehicles.longitudinalmodel.acceleration.IDM;
@@ -823,6 +826,89 @@ public class RoadSegmentTest {
         assertEquals(v4, fV);
     }
 
+    @Test
+    public final void testNeighbourIndex() {
+        RoadSegment.resetNextId();
+        Vehicle.resetNextId();
+        final RoadSegment roadSegment = new RoadSegment(1000.0, 2);
+        final LaneSegment laneSegment = roadSegment.laneSegment(Lanes.LANE1);
+        final Vehicle v0 = newVehicle(900.0, 1.0, Lanes.LANE1);
+        roadSegment.addVehicle(v0);
+        final Vehicle v1 = newVehicle(700.0, 2.0, Lanes.LANE1);
+        roadSegment.addVehicle(v1);
+        final Vehicle v2 = newVehicle(500.0, 3.0, Lanes.LANE1);
+        roadSegment.addVehicle(v2);
+        assertEquals(-1, v1.laneSlot());
+
+        roadSegment.updateNeighbourIndex();
+        assertEquals(1, v1.laneSlot());
+        assertEquals(null, laneSegment.frontVehicle(v0));
+        assertEquals(v0, laneSegment.frontVehicle(v1));
+        assertEquals(v1, laneSegment.frontVehicle(v2));
+        assertEquals(v1, laneSegment.rearVehicle(v1));
+
+        // the index is outdated after a vehicle has been inserted, the search is used instead
+        final Vehicle v3 = newVehicle(800.0, 4.0, Lanes.LANE1);
+        roadSegment.addVehicle(v3);
+        assertEquals(v3, laneSegment.frontVehicle(v1));
+        assertEquals(v0, laneSegment.frontVehicle(v3));
+        assertEquals(v1, laneSegment.frontVehicle(v2));
+
+        // a vehicle in another lane is not found through its index
+        final Vehicle v4 = newVehicle(600.0, 5.0, Lanes.LANE2);
+        roadSegment.addVehicle(v4);
+        roadSegment.updateNeighbourIndex();
+        assertEquals(0, v4.laneSlot());
+        assertEquals(v1, laneSegment.frontVehicle(v4));
+        assertEquals(v2, laneSegment.rearVehicle(v4));
+
+        // removing the front vehicle outdates all indexes of the lane
+        laneSegment.removeFrontVehicleOnLane();
+        assertEquals(null, laneSegment.frontVehicle(v3));
+        assertEquals(v3, laneSegment.frontVehicle(v1));
+    }
+
+    @Test
+    public final void testFrontNeighbourJoinViewReused() {
+        RoadSegment.resetNextId();
+        Vehicle.resetNextId();
+
+        final RoadSegment r0 = new RoadSegment(700.0, 1);
+        final RoadSegment r1 = new RoadSegment(1000.0, 1);
+        Link.addJoin(r0, r1);
+        final Vehicle v0 = newVehicle(100.0, 10.0, Lanes.LANE1);
+        r1.addVehicle(v0);
+        final Vehicle v1 = newVehicle(600.0, 5.0, Lanes.LANE1);
+        r0.addVehicle(v1);
+
+        // the position adjusted view of v0 is made once and reused, no vehicle is copied
+        final LaneSegment l0 = r0.laneSegment(Lanes.LANE1);
+        final NeighbourView fV = l0.frontNeighbour(v1);
+        assertTrue(fV instanceof PositionAdjustedVehicle);
+        assertTrue(v0 == fV.vehicle());
+        assertEquals(v0.getFrontPosition() + r0.roadLength(), fV.getFrontPosition(), delta);
+        assertEquals(v1.getNetDistance(fV), fV.getRearPosition() - v1.getFrontPosition(), delta);
+        assertTrue(fV == l0.frontNeighbour(v1.getRearPosition()));
+        assertTrue(fV == l0.rearNeighbourOnSinkLane());
+
+        // the source front vehicle seen from the sink road segment
+        final NeighbourView rV = r1.laneSegment(Lanes.LANE1).rearNeighbour(v0.getRearPosition() - 1.0);
+        assertTrue(v1 == rV.vehicle());
+        assertEquals(v1.getFrontPosition() - r0.roadLength(), rV.getFrontPosition(), delta);
+        assertTrue(rV == r1.laneSegment(Lanes.LANE1).rearNeighbour(v0.getRearPosition() - 1.0));
+
+        // the view follows v0 when it moves
+        r1.updateVehiclePositionsAndSpeeds(1.0, 0.0, 0);
+        assertTrue(fV == l0.frontNeighbour(v1));
+        assertEquals(v0.getFrontPosition() + r0.roadLength(), fV.getFrontPosition(), delta);
+        assertEquals(v0.getSpeed(), fV.getSpeed(), delta);
+
+        // the searches returning vehicles still return a position adjusted copy
+        final Vehicle fVehicle = r0.frontVehicle(Lanes.LANE1, v1.getRearPosition());
+        assertEquals(v0.getId(), fVehicle.getId());
+        assertEquals(fV.getFrontPosition(), fVehicle.getFrontPosition(), delta);
+    }
+
     /**
      * Test method for org.mjbudden.traffic.RoadSegment#rearVehicle(int, double)
      */
@@ -928,6 +1014,40 @@ public class RoadSegmentTest {
         assertEquals(707.5, v2.getRearPosition(), delta);
     }
 
+    /**
+     * Test method for {@link org.movsim.simulator.roadnetwork.RoadSegment#computeVehicleAccelerations(double, double, long)}
+     * and {@link org.movsim.simulator.roadnetwork.RoadSegment#commitVehicleAccelerations()}
+     */
+    @Test
+    public final void testComputeAndCommitVehicleAccelerations() {
+        RoadSegment.resetNextId();
+        Vehicle.resetNextId();
+        final double roadLength = 1000.0;
+        final int laneCount = 1;
+        final RoadSegment roadSegment = new RoadSegment(roadLength, laneCount);
+
+        final Vehicle v0 = newVehicle(900.0, 10.0, Lanes.LANE1);
+        roadSegment.addVehicle(v0);
+        final Vehicle v1 = newVehicle(860.0, 15.0, Lanes.LANE1);
+        roadSegment.addVehicle(v1);
+        final LaneSegment laneSegment = roadSegment.laneSegment(Lanes.LANE1);
+        final double acc0 = v0.calcAccModel(laneSegment, null);
+        final double acc1 = v1.calcAccModel(laneSegment, null);
+        assertTrue(acc0 > 0.0);
+        assertTrue(acc1 < 0.0);
+
+        // computed accelerations are not visible before the commit
+        final double dt = 0.25;
+        roadSegment.computeVehicleAccelerations(dt, 0.0, 0);
+        assertEquals(0.0, v0.getAcc(), delta);
+        assertEquals(0.0, v1.getAcc(), delta);
+
+        roadSegment.commitVehicleAccelerations();
+        assertEquals(acc0, v0.getAcc(), delta);
+        assertEquals(acc1, v1.getAcc(), delta);
+        assertEquals(acc1, v1.accModel(), delta);
+    }
+
     /**
      * Test method for {@link org.movsim.simulator.roadnetwork.RoadSegment#updateVehiclePositionsAndSpeeds(double, double, long)}
      */
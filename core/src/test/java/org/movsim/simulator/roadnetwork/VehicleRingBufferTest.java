@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2010, 2011, 2012 by Arne Kesting, Martin Treiber, Ralph Germ, Martin Budden
+ *                                   <movsim.org@gmail.com>
+ * -----------------------------------------------------------------------------------------
+ * 
+ * This file is part of
+ * 
+ * MovSim - the multi-model open-source vehicular-traffic simulator.
+ * 
+ * MovSim is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * MovSim is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MovSim. If not, see <http://www.gnu.org/licenses/>
+ * or <http://www.movsim.org>.
+ * 
+ * -----------------------------------------------------------------------------------------
+ */
+
+package org.movsim.simulator.roadnetwork;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.movsim.simulator.vehicles.Vehicle;
+
+/**
+ * Test module for the VehicleRingBuffer class.
+ */
+@SuppressWarnings("static-method")
+public class VehicleRingBufferTest {
+
+    private static Vehicle newVehicle(double rearPosition) {
+        return new Vehicle(rearPosition, 0.0, Lanes.LANE1, 5.0, 2.5);
+    }
+
+    @Test
+    public final void testAddAndRemoveAtEnds() {
+        final VehicleRingBuffer buffer = new VehicleRingBuffer(2);
+        final List<Vehicle> expected = new ArrayList<>();
+        for (int i = 0; i < 100; ++i) {
+            final Vehicle vehicle = newVehicle(1000.0 - i);
+            buffer.add(vehicle);
+            expected.add(vehicle);
+            if (i % 3 == 0) {
+                assertSame(expected.remove(0), buffer.remove(0));
+            }
+            assertEquals(expected, buffer);
+        }
+        buffer.clear();
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    public final void testRandomOperations() {
+        final Random random = new Random(42);
+        final VehicleRingBuffer buffer = new VehicleRingBuffer(4);
+        final List<Vehicle> expected = new ArrayList<>();
+        for (int i = 0; i < 10000; ++i) {
+            final int operation = random.nextInt(4);
+            if (operation < 2 || expected.isEmpty()) {
+                final int index = random.nextInt(expected.size() + 1);
+                final Vehicle vehicle = newVehicle(i);
+                buffer.add(index, vehicle);
+                expected.add(index, vehicle);
+            } else if (operation == 2) {
+                final int index = random.nextInt(expected.size());
+                assertSame(expected.remove(index), buffer.remove(index));
+            } else {
+                final int index = random.nextInt(expected.size());
+                final Vehicle vehicle = newVehicle(i + 0.5);
+                assertSame(expected.set(index, vehicle), buffer.set(index, vehicle));
+            }
+            assertEquals(expected.size(), buffer.size());
+        }
+        assertEquals(expected, buffer);
+    }
+
+    @Test
+    public final void testIteratorRemove() {
+        final VehicleRingBuffer buffer = new VehicleRingBuffer(4);
+        final List<Vehicle> expected = new ArrayList<>();
+        for (int i = 0; i < 20; ++i) {
+            final Vehicle vehicle = newVehicle(100.0 - i);
+            buffer.add(vehicle);
+            if (i % 2 == 0) {
+                expected.add(vehicle);
+            }
+        }
+        int index = 0;
+        for (final Iterator<Vehicle> iterator = buffer.iterator(); iterator.hasNext(); ++index) {
+            iterator.next();
+            if (index % 2 == 1) {
+                iterator.remove();
+            }
+        }
+        assertEquals(expected, buffer);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public final void testGetOutOfBounds() {
+        final VehicleRingBuffer buffer = new VehicleRingBuffer(4);
+        buffer.add(newVehicle(0.0));
+        buffer.get(1);
+    }
+}
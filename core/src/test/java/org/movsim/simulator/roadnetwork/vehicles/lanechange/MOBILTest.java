@@ -26,6 +26,7 @@
 package org.movsim.simulator.roadnetwork.vehicles.lanechange;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import org.junit.After;
@@ -206,6 +207,45 @@ public class MOBILTest {
         assertTrue(balance < 0.0);
     }
 
+    @Test
+    public final void testCalcAccelerationBalanceDoesNotModifyLanes() {
+        RoadSegment.resetNextId();
+        Vehicle.resetNextId();
+        final double lengthCar = 6.0;
+        final RoadSegment roadSegment = new RoadSegment(1000.0, 2);
+        final ModelParameterMOBIL param = createModelParameterMOBIL(2.0, 4.0, 0.1, 0.2, 0.3);
+
+        // slow vehicle ahead of v1 in the left lane, free right lane apart from v3 far behind
+        final Vehicle v0 = newVehicle(600.0, 5.0, Lanes.LANE1, lengthCar);
+        roadSegment.addVehicle(v0);
+        final Vehicle v1 = newVehicle(560.0, 20.0, Lanes.LANE1, lengthCar);
+        final MOBIL m1 = new MOBIL(v1, param);
+        roadSegment.addVehicle(v1);
+        final Vehicle v2 = newVehicle(700.0, 20.0, Lanes.LANE2, lengthCar);
+        roadSegment.addVehicle(v2);
+        final Vehicle v3 = newVehicle(400.0, 20.0, Lanes.LANE2, lengthCar);
+        roadSegment.addVehicle(v3);
+
+        final LaneSegment rightLane = roadSegment.laneSegment(Lanes.LANE2);
+        assertEquals(v2, rightLane.virtualFrontNeighbour(v1));
+        assertEquals(v3, rightLane.virtualRearNeighbour(v1));
+
+        final double balance = m1.calcAccelerationBalance(v1, Lanes.TO_RIGHT, roadSegment);
+        assertTrue(balance > 0.0);
+        assertTrue(m1.isSafeInsertion(v1, rightLane));
+        assertEquals(Lanes.LANE1, v1.lane());
+        assertEquals(2, roadSegment.laneSegment(Lanes.LANE1).vehicleCount());
+        assertEquals(2, rightLane.vehicleCount());
+        assertEquals(v3, rightLane.rearVehicle());
+
+        // vehicle directly behind the insertion point
+        final Vehicle v4 = newVehicle(v1.getRearPosition() - 1.0 - lengthCar, 20.0, Lanes.LANE2, lengthCar);
+        roadSegment.addVehicle(v4);
+        assertEquals(-Double.MAX_VALUE, m1.calcAccelerationBalance(v1, Lanes.TO_RIGHT, roadSegment), delta);
+        assertFalse(m1.isSafeInsertion(v1, rightLane));
+        assertEquals(3, rightLane.vehicleCount());
+    }
+
     /**
      * Test method for {@link org.movsim.simulator.vehicles.lanechange.MOBIL#getMinimumGap()}.
      */
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2010, 2011, 2012 by Arne Kesting, Martin Treiber, Ralph Germ, Martin Budden
+ *                                   <movsim.org@gmail.com>
+ * -----------------------------------------------------------------------------------------
+ * 
+ * This file is part of
+ * 
+ * MovSim - the multi-model open-source vehicular-traffic simulator.
+ * 
+ * MovSim is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * MovSim is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MovSim. If not, see <http://www.gnu.org/licenses/>
+ * or <http://www.movsim.org>.
+ * 
+ * -----------------------------------------------------------------------------------------
+ */
+package org.movsim.simulator.vehicles;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.movsim.input.ProjectMetaData;
+import org.movsim.simulator.SimulationContext;
+import org.movsim.simulator.Simulator;
+import org.movsim.simulator.roadnetwork.LaneSegment;
+import org.movsim.simulator.roadnetwork.RoadSegment;
+import org.movsim.simulator.vehicles.longitudinalmodel.acceleration.LongitudinalModelBase;
+
+/**
+ * Tests the vehicles created by the {@link VehicleFactory} from the {@link VehiclePrototype}s of a scenario.
+ */
+public class VehicleFactoryTest {
+
+    @Rule
+    public TemporaryFolder outputFolder = new TemporaryFolder();
+
+    @Test
+    public void testSharedLongitudinalModels() throws Exception {
+        final ProjectMetaData projectMetaData = ProjectMetaData.newInstance();
+        projectMetaData.setOutputPath(outputFolder.getRoot().getAbsolutePath());
+        final Simulator simulator = new Simulator(new SimulationContext(projectMetaData));
+        simulator.loadScenarioFromXml("laneclosure", new File(".." + File.separator + "sim" + File.separator
+                + "buildingBlocks").getAbsolutePath() + File.separator);
+        final double dt = simulator.getSimulationRunnable().timeStep();
+        for (int iteration = 0; iteration < 300; ++iteration) {
+            simulator.timeStep(dt, iteration * dt, iteration);
+        }
+        // the vehicles of a prototype share the model, the randomized desired speeds are kept per vehicle
+        final Map<String, LongitudinalModelBase> models = new HashMap<>();
+        final Set<Double> desiredSpeeds = new HashSet<>();
+        int vehicleCount = 0;
+        for (final RoadSegment roadSegment : simulator.getRoadNetwork()) {
+            for (final LaneSegment laneSegment : roadSegment.laneSegments()) {
+                for (final Vehicle vehicle : laneSegment) {
+                    if (vehicle.getLongitudinalModel() == null) {
+                        continue;
+                    }
+                    if (!models.containsKey(vehicle.getLabel())) {
+                        models.put(vehicle.getLabel(), vehicle.getLongitudinalModel());
+                    }
+                    assertSame(models.get(vehicle.getLabel()), vehicle.getLongitudinalModel());
+                    desiredSpeeds.add(Double.valueOf(vehicle.getDesiredSpeed()));
+                    ++vehicleCount;
+                }
+            }
+        }
+        assertTrue(vehicleCount > 10);
+        assertEquals(vehicleCount, desiredSpeeds.size());
+    }
+}
@@ -285,6 +285,25 @@ public abstract class SimulationCanvasBase extends Canvas {
         simulationRunnable.setSleepTime(sleepTime_ms);
     }
 
+    /**
+     * Switches the fast-forward mode of the simulation on or off, in fast-forward mode the simulation runs without
+     * sleeping and the drawing is only updated at the snapshots.
+     * 
+     * @param fastForward
+     */
+    public final void setFastForward(boolean fastForward) {
+        simulationRunnable.setFastForward(fastForward);
+    }
+
+    /**
+     * Returns true if the simulation runs in fast-forward mode.
+     * 
+     * @return true in fast-forward mode
+     */
+    public final boolean isFastForward() {
+        return simulationRunnable.isFastForward();
+    }
+
     /**
      * Returns the thread sleep time
      * 
@@ -96,6 +96,11 @@ public class TrafficCanvasController {
         logger.debug("sleeptime: {}", trafficCanvas.sleepTime());
     }
 
+    public void commandToggleFastForward() {
+        trafficCanvas.setFastForward(!trafficCanvas.isFastForward());
+        logger.debug("fast-forward: {}", trafficCanvas.isFastForward());
+    }
+
     public void commandReset() throws JAXBException, SAXException {
         trafficCanvas.stop();
         trafficCanvas.roadNetwork.clear();
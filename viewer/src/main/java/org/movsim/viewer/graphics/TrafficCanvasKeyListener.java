@@ -111,6 +111,10 @@ public class TrafficCanvasKeyListener extends TrafficCanvasController implements
             // 'pause'
             commandTogglePause();
             break;
+        case 'X':
+            // 'fast-forward'
+            commandToggleFastForward();
+            break;
         case 'Z':
             commandLowMemory();
             break;
@@ -187,7 +187,8 @@ public class LocalizationStrings extends ListResourceBundle {
 
             // Key press help text
             { "KeyShortcuts",
-                    "KEYS - F: faster, S: slower, I: zoom in, O: zoom out, P: toggle pause, V: vehicle colors" },
+                    "KEYS - F: faster, S: slower, X: toggle fast-forward, I: zoom in, O: zoom out, P: toggle pause, "
+                            + "V: vehicle colors" },
 
             // Help text
             { "HelpText", "This is the help text" },